@@ -0,0 +1,25 @@
+import net.ltgt.gradle.errorprone.errorprone
+
+plugins {
+    java
+    alias(libs.plugins.jmh) // For JMH benchmarks, run with ./gradlew :benchmarks:jmh
+}
+
+dependencies {
+    jmh(project(":raptor-core"))
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    profilers.add("gc") // Report allocation rate along with throughput
+    resultFormat.set("JSON")
+
+    // Optionally narrow down with e.g. -PjmhIncludes=ChainBenchmark
+    providers.gradleProperty("jmhIncludes").orNull?.let { includes.add(it) }
+}
+
+tasks.named<JavaCompile>("jmhCompileGeneratedClasses") {
+    // Code generated by JMH is not ours to lint
+    options.errorprone.enabled.set(false)
+    options.compilerArgs.remove("-Werror")
+}
@@ -0,0 +1,68 @@
+package com.github.trosenkrantz.raptor.gateway.network.impairment;
+
+import com.github.trosenkrantz.raptor.gateway.Payload;
+import com.github.trosenkrantz.raptor.gateway.metrics.RouteMetrics;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Throughput of impairment chains as built by the gateway, from the route's metrics in to the metrics out.
+ * Each benchmark runs from 1, 2, 4, and as many producer threads as there are processors, sharing the chain, to measure contention.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ChainBenchmark {
+    private static final Logger RAPTOR_LOGGER = Logger.getLogger("com.github.trosenkrantz.raptor"); // Strongly referenced, as the level is otherwise lost if garbage collected
+
+    @Param({
+            "corruption,packetLoss,duplication", // Impairments not delaying messages
+            "bandwidth,latency,reorder,corruption,packetLoss,duplication" // All impairments, in the order the gateway applies them
+    })
+    public String chain;
+
+    @Param({"16", "256", "4096", "65536"})
+    public int payloadSize;
+
+    private Consumer<Payload> consumer;
+
+    @Setup
+    public void setUp() {
+        RAPTOR_LOGGER.setLevel(Level.WARNING); // Do not measure logging of each message
+        RouteMetrics metrics = new RouteMetrics("benchmark");
+        TimingWheel timingWheel = new TimingWheel("benchmark", TimingWheel.DEFAULT_TICK_NANOS);
+        consumer = metrics.countIn(NetworkImpairmentFactory.chain(ImpairmentBenchmark.createFactories(Arrays.asList(chain.split(",")), timingWheel, metrics), metrics.countOut(Payload::release)));
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void impair() {
+        consumer.accept(Payload.allocate(payloadSize));
+    }
+
+    @Benchmark
+    @Threads(2)
+    public void impairFrom2Threads() {
+        consumer.accept(Payload.allocate(payloadSize));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void impairFrom4Threads() {
+        consumer.accept(Payload.allocate(payloadSize));
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void impairFromAllThreads() {
+        consumer.accept(Payload.allocate(payloadSize));
+    }
+}
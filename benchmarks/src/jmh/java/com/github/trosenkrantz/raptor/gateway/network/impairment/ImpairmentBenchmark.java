@@ -0,0 +1,88 @@
+package com.github.trosenkrantz.raptor.gateway.network.impairment;
+
+import com.github.trosenkrantz.raptor.configuration.IntegerInterval;
+import com.github.trosenkrantz.raptor.gateway.Payload;
+import com.github.trosenkrantz.raptor.gateway.metrics.RouteMetrics;
+import com.github.trosenkrantz.raptor.gateway.network.impairment.bandwidth.Bandwidth;
+import com.github.trosenkrantz.raptor.gateway.network.impairment.bandwidth.BandwidthFactory;
+import com.github.trosenkrantz.raptor.gateway.network.impairment.bandwidth.QueueDiscipline;
+import com.github.trosenkrantz.raptor.gateway.network.impairment.reorder.ReorderFactory;
+import com.github.trosenkrantz.raptor.gateway.network.impairment.reorder.Reordering;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Throughput of each network impairment on its own, passing payloads to a consumer which releases them.
+ * <p>
+ * Latency, reordering, and bandwidth measure the cost of admitting and scheduling a payload, as the timer passes it on asynchronously.
+ * Each benchmark runs from 1, 2, 4, and as many producer threads as there are processors, sharing the impairment, to measure contention.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ImpairmentBenchmark {
+    private static final Logger RAPTOR_LOGGER = Logger.getLogger("com.github.trosenkrantz.raptor"); // Strongly referenced, as the level is otherwise lost if garbage collected
+
+    @Param({"bandwidth", "fairQueue", "latency", "reorder", "corruption", "packetLoss", "duplication"})
+    public String impairment;
+
+    @Param({"16", "256", "4096", "65536"})
+    public int payloadSize;
+
+    private Consumer<Payload> consumer;
+
+    @Setup
+    public void setUp() {
+        RAPTOR_LOGGER.setLevel(Level.WARNING); // Do not measure logging of each message
+        consumer = createFactory(impairment, new TimingWheel("benchmark", TimingWheel.DEFAULT_TICK_NANOS), new RouteMetrics("benchmark")).create(Payload::release);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void impair() {
+        consumer.accept(Payload.allocate(payloadSize));
+    }
+
+    @Benchmark
+    @Threads(2)
+    public void impairFrom2Threads() {
+        consumer.accept(Payload.allocate(payloadSize));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void impairFrom4Threads() {
+        consumer.accept(Payload.allocate(payloadSize));
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public void impairFromAllThreads() {
+        consumer.accept(Payload.allocate(payloadSize));
+    }
+
+    static NetworkImpairmentFactory createFactory(String impairment, TimingWheel timingWheel, RouteMetrics metrics) {
+        return switch (impairment) {
+            case "bandwidth" -> new BandwidthFactory(new Bandwidth(10_000_000_000L, 0, 100, 100, QueueDiscipline.FIFO), metrics);
+            case "fairQueue" -> new BandwidthFactory(new Bandwidth(10_000_000_000L, 0, 100, 100, QueueDiscipline.FAIR_CODEL), metrics);
+            case "latency" -> new LatencyFactory(new IntegerInterval(1, 10), timingWheel, metrics);
+            case "reorder" -> new ReorderFactory(new Reordering(0.01, 3, 100), timingWheel);
+            case "corruption" -> new CorruptionFactory(0.001);
+            case "packetLoss" -> new PacketLossFactory(0.01, metrics);
+            case "duplication" -> new DuplicationFactory(0.01);
+            default -> throw new IllegalArgumentException("Unknown impairment " + impairment + ".");
+        };
+    }
+
+    static List<NetworkImpairmentFactory> createFactories(List<String> impairments, TimingWheel timingWheel, RouteMetrics metrics) {
+        return impairments.stream().map(impairment -> createFactory(impairment, timingWheel, metrics)).toList();
+    }
+}
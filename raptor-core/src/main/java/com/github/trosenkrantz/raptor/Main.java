@@ -1,5 +1,6 @@
 package com.github.trosenkrantz.raptor;
 
+import com.github.trosenkrantz.raptor.capture.Capture;
 import com.github.trosenkrantz.raptor.configuration.Configuration;
 import com.github.trosenkrantz.raptor.configuration.ReloadableConfiguration;
 import com.github.trosenkrantz.raptor.configuration.SaveConfigurationOptions;
@@ -7,6 +8,7 @@ import com.github.trosenkrantz.raptor.io.Ansi;
 import com.github.trosenkrantz.raptor.configuration.ConfigurationStorage;
 import com.github.trosenkrantz.raptor.io.ConsoleIo;
 import com.github.trosenkrantz.raptor.io.LoggingConfigurator;
+import com.github.trosenkrantz.raptor.logging.PayloadLog;
 
 import java.nio.file.Path;
 import java.util.Collection;
@@ -24,6 +26,8 @@ public class Main {
             Collection<RootService> services = RaptorServiceFactory.createServices();
             Optional<ReloadableConfiguration> configurationFromSavedFile = ConfigurationStorage.loadConfiguration();
             Ansi.configure(args);
+            Capture.initialise(args);
+            PayloadLog.configure(args);
 
             if (configurationFromSavedFile.isPresent()) {
                 try (ReloadableConfiguration configuration = configurationFromSavedFile.get()) { // Use configuration from file
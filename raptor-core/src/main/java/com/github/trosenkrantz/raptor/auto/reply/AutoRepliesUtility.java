@@ -2,7 +2,6 @@ package com.github.trosenkrantz.raptor.auto.reply;
 
 import com.github.trosenkrantz.raptor.io.BytesFormatter;
 
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Matcher;
@@ -10,17 +9,35 @@ import java.util.regex.Matcher;
 public class AutoRepliesUtility {
     public static final String PARAMETER_REPLIES = "replies";
 
-    public static List<String> getCaptureGroups(Matcher matcher) {
+    /**
+     * Gets capture groups in intermediate encoding, e.g., \x00 for byte 0, reading the bytes of each group directly from the input.
+     *
+     * @param matcher matcher that matched the input
+     * @param input   input matched
+     * @return capture groups, empty for groups not participating in the match
+     */
+    static List<String> getCaptureGroups(Matcher matcher, ByteSequence input) {
         ArrayList<String> result = new ArrayList<>();
 
         // Group 0 (entire input) is not counted in groupCount()
         for (int i = 0; i <= matcher.groupCount(); i++) {
-            String group = matcher.group(i); // This returns in ISO 8859-1, treating an arbitrary byte as a single character
-            byte[] groupBytes = group.getBytes(StandardCharsets.ISO_8859_1); // So we convert it to bytes
-            String intermediateEncoding = BytesFormatter.bytesToIntermediateEncoding(groupBytes); // And then to intermediate encoding, e.g., \x00 for byte 0
-            result.add(intermediateEncoding);
+            int start = matcher.start(i);
+            result.add(start < 0 ? "" : getCaptureGroup(input, start, matcher.end(i)));
         }
 
         return result;
     }
+
+    /**
+     * @param input input matched by a literal transition
+     * @param end   end of the match in the input
+     * @return capture groups of the match, which is only group 0
+     */
+    static List<String> getCaptureGroups(ByteSequence input, int end) {
+        return List.of(getCaptureGroup(input, 0, end));
+    }
+
+    private static String getCaptureGroup(ByteSequence input, int start, int end) {
+        return BytesFormatter.bytesToIntermediateEncoding(input.array(), input.arrayOffset() + start, end - start);
+    }
 }
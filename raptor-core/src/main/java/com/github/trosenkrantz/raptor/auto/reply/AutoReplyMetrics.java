@@ -0,0 +1,87 @@
+package com.github.trosenkrantz.raptor.auto.reply;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Counters of input discarded by auto-reply state machines across all sessions, available through JMX.
+ */
+public final class AutoReplyMetrics implements AutoReplyMetricsMXBean {
+    private static final Logger LOGGER = Logger.getLogger(AutoReplyMetrics.class.getName());
+
+    private static final AutoReplyMetrics INSTANCE = new AutoReplyMetrics();
+
+    private final LongAdder overflowsDiscardingOldest = new LongAdder();
+    private final LongAdder overflowsResetting = new LongAdder();
+    private final LongAdder overflowsDisconnecting = new LongAdder();
+    private final LongAdder bytesDiscardedByOverflow = new LongAdder();
+    private final LongAdder bytesDiscardedAsNotMatching = new LongAdder();
+
+    private boolean registered = false; // Guarded by this
+
+    private AutoReplyMetrics() {
+    }
+
+    /**
+     * @return the metrics, registered with the platform MBean server on first use
+     */
+    public static AutoReplyMetrics get() {
+        INSTANCE.registerIfNeeded();
+        return INSTANCE;
+    }
+
+    private synchronized void registerIfNeeded() {
+        if (registered) return;
+        registered = true; // Also if failing, so we do not retry and log for each session
+
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(this, new ObjectName("com.github.trosenkrantz.raptor:type=AutoReply"));
+        } catch (JMException e) {
+            LOGGER.log(Level.WARNING, "Failed registering auto-reply metrics for JMX.", e);
+        }
+    }
+
+    void onOverflow(BufferOverflow policy, int discardedBytes) {
+        switch (policy) {
+            case DISCARD_OLDEST -> overflowsDiscardingOldest.increment();
+            case RESET -> overflowsResetting.increment();
+            case DISCONNECT -> overflowsDisconnecting.increment();
+        }
+        bytesDiscardedByOverflow.add(discardedBytes);
+    }
+
+    void onNotMatching(int discardedBytes) {
+        bytesDiscardedAsNotMatching.add(discardedBytes);
+    }
+
+    @Override
+    public long getOverflowsDiscardingOldest() {
+        return overflowsDiscardingOldest.sum();
+    }
+
+    @Override
+    public long getOverflowsResetting() {
+        return overflowsResetting.sum();
+    }
+
+    @Override
+    public long getOverflowsDisconnecting() {
+        return overflowsDisconnecting.sum();
+    }
+
+    @Override
+    public long getBytesDiscardedByOverflow() {
+        return bytesDiscardedByOverflow.sum();
+    }
+
+    @Override
+    public long getBytesDiscardedAsNotMatching() {
+        return bytesDiscardedAsNotMatching.sum();
+    }
+}
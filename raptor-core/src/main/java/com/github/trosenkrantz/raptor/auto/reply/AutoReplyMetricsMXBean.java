@@ -0,0 +1,16 @@
+package com.github.trosenkrantz.raptor.auto.reply;
+
+/**
+ * Management interface of {@link AutoReplyMetrics}, with totals since RAPTOR started.
+ */
+public interface AutoReplyMetricsMXBean {
+    long getOverflowsDiscardingOldest();
+
+    long getOverflowsResetting();
+
+    long getOverflowsDisconnecting();
+
+    long getBytesDiscardedByOverflow();
+
+    long getBytesDiscardedAsNotMatching();
+}
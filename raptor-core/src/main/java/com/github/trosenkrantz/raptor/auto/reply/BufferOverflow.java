@@ -0,0 +1,26 @@
+package com.github.trosenkrantz.raptor.auto.reply;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * What to do when input not matching any transition exceeds the max buffer length of a session.
+ */
+public enum BufferOverflow {
+    /**
+     * Keep only the latest bytes, as a sliding window.
+     */
+    @JsonProperty("discardOldest")
+    DISCARD_OLDEST,
+
+    /**
+     * Discard all buffered input.
+     */
+    @JsonProperty("reset")
+    RESET,
+
+    /**
+     * Discard all buffered input and disconnect the peer.
+     */
+    @JsonProperty("disconnect")
+    DISCONNECT
+}
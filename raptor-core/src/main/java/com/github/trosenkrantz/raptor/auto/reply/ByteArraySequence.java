@@ -0,0 +1,44 @@
+package com.github.trosenkrantz.raptor.auto.reply;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * View of a byte array as a {@link ByteSequence}, without copying it.
+ */
+final class ByteArraySequence implements ByteSequence {
+    private final byte[] bytes;
+
+    ByteArraySequence(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    @Override
+    public byte[] array() {
+        return bytes;
+    }
+
+    @Override
+    public int arrayOffset() {
+        return 0;
+    }
+
+    @Override
+    public int length() {
+        return bytes.length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) (bytes[index] & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int from, int to) {
+        return new String(bytes, from, to - from, StandardCharsets.ISO_8859_1);
+    }
+
+    @Override
+    public String toString() {
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,18 @@
+package com.github.trosenkrantz.raptor.auto.reply;
+
+/**
+ * Bytes viewed as characters for regex matching, each byte read as the character with the same value, as when decoding with ISO 8859-1.
+ * <p>
+ * Unlike decoding, nothing is copied, and matched input can be read as bytes from the backing array.
+ */
+interface ByteSequence extends CharSequence {
+    /**
+     * @return backing array, containing the sequence from {@link #arrayOffset()}
+     */
+    byte[] array();
+
+    /**
+     * @return index in the backing array of the first byte of the sequence
+     */
+    int arrayOffset();
+}
@@ -0,0 +1,210 @@
+package com.github.trosenkrantz.raptor.auto.reply;
+
+import com.github.trosenkrantz.raptor.io.CommandSubstitutor;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable state machine compiled from a {@link StateMachineConfiguration}, ready for matching input.
+ * <p>
+ * Input regexes are compiled once, rather than for each input, and states are referred to by index rather than by name.
+ * Transitions to states not defined go to the start state.
+ * <p>
+ * Literal inputs and literal prefixes of inputs of each state are collected in a {@link LiteralTrie}, so only transitions that are not literals need a regex to match.
+ * Regexes are also marked if they may depend on where the input ends, as they cannot be matched against longer input than the match.
+ */
+final class CompiledStateMachine {
+    private static final Logger LOGGER = Logger.getLogger(CompiledStateMachine.class.getName());
+
+    private final String[] stateNames;
+    private final CompiledTransition[][] states;
+    private final LiteralTrie[] literals;
+    private final int[][] regexTransitions;
+    private final Map<String, Integer> stateIndices;
+    private final int startState;
+    private final int commandSubstitutionTimeout;
+    private final int maxBufferLength;
+    private final BufferOverflow bufferOverflow;
+
+    private CompiledStateMachine(String[] stateNames, CompiledTransition[][] states, Map<String, Integer> stateIndices, int startState, int commandSubstitutionTimeout, int maxBufferLength, BufferOverflow bufferOverflow) {
+        this.stateNames = stateNames;
+        this.states = states;
+        this.literals = new LiteralTrie[states.length];
+        this.regexTransitions = new int[states.length][];
+        for (int i = 0; i < states.length; i++) {
+            CompiledTransition[] transitions = states[i];
+            literals[i] = new LiteralTrie(transitions);
+            regexTransitions[i] = IntStream.range(0, transitions.length).filter(j -> !transitions[j].literal()).toArray();
+        }
+        this.stateIndices = stateIndices;
+        this.startState = startState;
+        this.commandSubstitutionTimeout = commandSubstitutionTimeout;
+        this.maxBufferLength = maxBufferLength;
+        this.bufferOverflow = bufferOverflow;
+    }
+
+    /**
+     * @param configuration configuration to compile
+     * @return compiled state machine
+     * @throws IllegalArgumentException if the start state is not defined, an input is not a valid regex, or the max buffer length is not positive
+     */
+    static CompiledStateMachine compile(StateMachineConfiguration configuration) {
+        Map<String, List<Transition>> configuredStates = configuration.getStates();
+
+        String[] stateNames = configuredStates.keySet().toArray(String[]::new);
+        Map<String, Integer> stateIndices = new HashMap<>();
+        for (int i = 0; i < stateNames.length; i++) {
+            stateIndices.put(stateNames[i], i);
+        }
+
+        Integer startState = stateIndices.get(configuration.getStartState());
+        if (startState == null) throw new IllegalArgumentException("Auto-reply start state " + configuration.getStartState() + " not defined.");
+
+        CompiledTransition[][] states = new CompiledTransition[stateNames.length][];
+        for (int i = 0; i < stateNames.length; i++) {
+            List<Transition> transitions = configuredStates.get(stateNames[i]);
+            states[i] = new CompiledTransition[transitions.size()];
+            for (int j = 0; j < transitions.size(); j++) {
+                Transition transition = transitions.get(j);
+                states[i][j] = new CompiledTransition(
+                        transition,
+                        Pattern.compile(transition.input(), Pattern.DOTALL), // We expect arbitrary bytes, so we use dotall mode to treat line terminators bytes as any other bytes
+                        getNextState(transition, stateIndices, startState, configuration.getStartState()),
+                        LiteralTrie.getLiteralPrefix(transition.input()),
+                        LiteralTrie.isLiteral(transition.input()),
+                        dependsOnEnd(transition.input())
+                );
+            }
+        }
+
+        Integer maxBufferLength = configuration.getMaxBufferLength();
+        if (maxBufferLength != null && maxBufferLength <= 0) throw new IllegalArgumentException("Auto-reply max buffer length must be positive, but was " + maxBufferLength + ".");
+
+        Integer timeout = configuration.getCommandSubstitutionTimeout();
+        BufferOverflow bufferOverflow = configuration.getBufferOverflow();
+        return new CompiledStateMachine(
+                stateNames,
+                states,
+                Map.copyOf(stateIndices),
+                startState,
+                timeout == null ? CommandSubstitutor.DEFAULT_TIMEOUT : timeout,
+                maxBufferLength == null ? StateMachineConfiguration.DEFAULT_MAX_BUFFER_LENGTH : maxBufferLength,
+                bufferOverflow == null ? StateMachineConfiguration.DEFAULT_BUFFER_OVERFLOW : bufferOverflow
+        );
+    }
+
+    /**
+     * Finds whether a regex may match differently depending on where the input ends, that is, if it has a boundary matcher for the end, a word boundary, or a lookahead.
+     * We may mark a regex that does not depend on the end, which only costs performance, but never miss one that does.
+     *
+     * @param regex regex as configured
+     * @return true if the regex may depend on where the input ends
+     */
+    static boolean dependsOnEnd(String regex) {
+        int classDepth = 0;
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                if (i + 1 >= regex.length()) return false;
+                char escaped = regex.charAt(i + 1);
+                if (escaped == 'Q') {
+                    int end = regex.indexOf("\\E", i + 2);
+                    if (end < 0) return false;
+                    i = end + 1;
+                    continue;
+                }
+                if (classDepth == 0 && (escaped == 'z' || escaped == 'Z' || escaped == 'b' || escaped == 'B')) return true;
+                i++; // Skip escaped character
+            } else if (classDepth > 0) {
+                if (c == '[') classDepth++;
+                if (c == ']') classDepth--;
+            } else if (c == '[') {
+                classDepth++;
+            } else if (c == '$') {
+                return true;
+            } else if (c == '(' && regex.startsWith("?", i + 1) && (regex.startsWith("=", i + 2) || regex.startsWith("!", i + 2))) {
+                return true; // Lookahead, which cannot see past the end
+            }
+        }
+        return false;
+    }
+
+    private static int getNextState(Transition transition, Map<String, Integer> stateIndices, int startState, String startStateName) {
+        if (transition.nextState() == null) return CompiledTransition.SAME_STATE;
+
+        Integer nextState = stateIndices.get(transition.nextState());
+        if (nextState == null) {
+            LOGGER.warning("Auto-reply state " + transition.nextState() + " not defined. Transitions to it go to start state " + startStateName + ".");
+            return startState;
+        }
+        return nextState;
+    }
+
+    CompiledTransition[] getTransitions(int state) {
+        return states[state];
+    }
+
+    LiteralTrie getLiterals(int state) {
+        return literals[state];
+    }
+
+    /**
+     * @return indices of the transitions of the state that need their regex to match, in order
+     */
+    int[] getRegexTransitions(int state) {
+        return regexTransitions[state];
+    }
+
+    int getStartState() {
+        return startState;
+    }
+
+    /**
+     * @return index of the state with the given name, or the start state if not defined
+     */
+    int getState(String name) {
+        return stateIndices.getOrDefault(name, startState);
+    }
+
+    int getCommandSubstitutionTimeout() {
+        return commandSubstitutionTimeout;
+    }
+
+    int getMaxBufferLength() {
+        return maxBufferLength;
+    }
+
+    BufferOverflow getBufferOverflow() {
+        return bufferOverflow;
+    }
+
+    /**
+     * Finds the state in this state machine corresponding to a state of another, e.g., when the configuration is updated while running.
+     *
+     * @return index of the state with the same name, or the start state if not defined
+     */
+    int getCorrespondingState(CompiledStateMachine other, int otherState) {
+        return getState(other.stateNames[otherState]);
+    }
+
+    /**
+     * @param transition    transition as configured
+     * @param pattern       compiled input regex
+     * @param nextState     index of the state to transition to if input is matched, or {@link #SAME_STATE}
+     * @param literalPrefix characters, each representing a byte, any matching input starts with, empty if none
+     * @param literal       true if only input equal to the literal prefix matches, so the regex is not needed
+     * @param endDependent  true if the regex may match differently depending on where the input ends, see {@link #dependsOnEnd(String)}
+     */
+    record CompiledTransition(Transition transition, Pattern pattern, int nextState, String literalPrefix, boolean literal, boolean endDependent) {
+        static final int SAME_STATE = -1;
+
+        int apply(int state) {
+            return nextState == SAME_STATE ? state : nextState;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.github.trosenkrantz.raptor.auto.reply;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Growable buffer of received bytes, viewed as characters for regex matching.
+ * <p>
+ * Bytes are appended and discarded from the start without decoding or copying the rest, and only compacted when the buffer needs room.
+ * Thus, the backing array and offset are only valid until the next append.
+ */
+final class InputBuffer implements ByteSequence {
+    private static final int INITIAL_CAPACITY = 256;
+
+    private byte[] bytes = new byte[INITIAL_CAPACITY];
+    private int start = 0;
+    private int end = 0;
+
+    void append(byte[] input) {
+        int length = end - start;
+        if (end + input.length > bytes.length) {
+            if (length + input.length <= bytes.length / 2) {
+                System.arraycopy(bytes, start, bytes, 0, length); // Plenty of room once compacted
+            } else {
+                byte[] newBytes = new byte[Math.max(bytes.length * 2, length + input.length)];
+                System.arraycopy(bytes, start, newBytes, 0, length);
+                bytes = newBytes;
+            }
+            start = 0;
+            end = length;
+        }
+        System.arraycopy(input, 0, bytes, end, input.length);
+        end += input.length;
+    }
+
+    /**
+     * Discards bytes from the start.
+     *
+     * @param count number of bytes to discard
+     */
+    void discard(int count) {
+        if (count < 0 || count > end - start) throw new IndexOutOfBoundsException("Cannot discard " + count + " of " + (end - start) + " bytes.");
+        start += count;
+        if (start == end) { // Empty, so start over from the beginning of the array
+            start = 0;
+            end = 0;
+        }
+    }
+
+    void clear() {
+        start = 0;
+        end = 0;
+    }
+
+    @Override
+    public byte[] array() {
+        return bytes;
+    }
+
+    @Override
+    public int arrayOffset() {
+        return start;
+    }
+
+    @Override
+    public int length() {
+        return end - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= end - start) throw new IndexOutOfBoundsException(index);
+        return (char) (bytes[start + index] & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int from, int to) {
+        if (from < 0 || to > end - start || from > to) throw new IndexOutOfBoundsException("Invalid range " + from + " to " + to + " of " + (end - start) + " bytes.");
+        return new String(bytes, start + from, to - from, StandardCharsets.ISO_8859_1);
+    }
+
+    @Override
+    public String toString() {
+        return new String(bytes, start, end - start, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,213 @@
+package com.github.trosenkrantz.raptor.auto.reply;
+
+import com.github.trosenkrantz.raptor.auto.reply.CompiledStateMachine.CompiledTransition;
+
+import java.util.Arrays;
+
+/**
+ * Byte trie of the literal inputs and literal prefixes of the transitions of a state.
+ * <p>
+ * As input is always matched from its start, walking the trie along the input finds all literal transitions matching it at once, rather than matching each transition by itself.
+ * Transitions with a literal prefix can only match if the walk passes the end of their prefix, so their regex need not be run otherwise.
+ */
+final class LiteralTrie {
+    private static final String METACHARACTERS = "\\^$.|?*+()[]{}";
+    private static final String QUANTIFIERS = "?*+{";
+
+    private final Node root = new Node();
+
+    /**
+     * @param transitions transitions of a state, in order
+     */
+    LiteralTrie(CompiledTransition[] transitions) {
+        for (int i = 0; i < transitions.length; i++) {
+            String prefix = transitions[i].literalPrefix();
+            if (prefix.isEmpty()) continue;
+
+            Node node = root;
+            for (int j = 0; j < prefix.length(); j++) {
+                node = node.getOrAddChild(prefix.charAt(j));
+            }
+            if (transitions[i].literal() && node.literal == Node.NONE) node.literal = i; // First match wins, so only the first of equal literals can match
+        }
+    }
+
+    Node getRoot() {
+        return root;
+    }
+
+    /**
+     * Finds the literal prefix of a regex, that is, the characters any match must start with.
+     * We only recognise plain characters and escaped characters, and stop at anything else, as a shorter prefix is still a valid prefix.
+     *
+     * @param regex regex as configured
+     * @return literal prefix, empty if none, or the regex as a literal if {@link #isLiteral(String)}
+     */
+    static String getLiteralPrefix(String regex) {
+        StringBuilder prefix = new StringBuilder();
+        parsePrefix(regex, prefix);
+        return prefix.toString();
+    }
+
+    /**
+     * @return true if the regex only matches its literal prefix
+     */
+    static boolean isLiteral(String regex) {
+        return !regex.isEmpty() && parsePrefix(regex, new StringBuilder()) == regex.length();
+    }
+
+    /**
+     * @return index in the regex after the literal prefix
+     */
+    private static int parsePrefix(String regex, StringBuilder prefix) {
+        if (hasTopLevelAlternation(regex)) return 0; // Matches need not start with what is before the alternation
+
+        int index = 0;
+        while (index < regex.length()) {
+            int atomStart = prefix.length();
+            int next = parseLiteral(regex, index, prefix);
+            if (next < 0) break;
+
+            if (next < regex.length() && QUANTIFIERS.indexOf(regex.charAt(next)) >= 0) { // The atom is optional or repeated
+                prefix.setLength(atomStart);
+                break;
+            }
+            index = next;
+        }
+        return index;
+    }
+
+    /**
+     * Parses a single literal atom, that is, a plain character, an escaped character, or a quotation.
+     *
+     * @return index in the regex after the atom, or -1 if not a literal
+     */
+    private static int parseLiteral(String regex, int index, StringBuilder literal) {
+        char c = regex.charAt(index);
+        if (c != '\\') {
+            if (METACHARACTERS.indexOf(c) >= 0 || c > 0xFF) return -1;
+            literal.append(c);
+            return index + 1;
+        }
+
+        if (index + 1 >= regex.length()) return -1;
+        char escaped = regex.charAt(index + 1);
+        if (escaped == 'Q') { // Quotation, treated as a single atom, as we do not need to know if a quantifier after it applies to all of it
+            int end = regex.indexOf("\\E", index + 2);
+            String quoted = regex.substring(index + 2, end < 0 ? regex.length() : end);
+            if (quoted.isEmpty() || quoted.chars().anyMatch(quotedChar -> quotedChar > 0xFF)) return -1;
+            literal.append(quoted);
+            return end < 0 ? regex.length() : end + 2;
+        }
+
+        int value = switch (escaped) {
+            case 't' -> '\t';
+            case 'n' -> '\n';
+            case 'r' -> '\r';
+            case 'f' -> '\f';
+            case 'a' -> 0x07;
+            case 'e' -> 0x1B;
+            case 'x' -> parseHex(regex, index + 2, 2);
+            case 'u' -> parseHex(regex, index + 2, 4);
+            default -> Character.isLetterOrDigit(escaped) ? -1 : escaped; // E.g., \d is a class, while \. is a dot
+        };
+        if (value < 0 || value > 0xFF) return -1;
+
+        literal.append((char) value);
+        return switch (escaped) {
+            case 'x' -> index + 4;
+            case 'u' -> index + 6;
+            default -> index + 2;
+        };
+    }
+
+    /**
+     * @return value of the hex digits, or -1 if not valid
+     */
+    private static int parseHex(String regex, int index, int digits) {
+        if (index + digits > regex.length()) return -1;
+
+        int value = 0;
+        for (int i = index; i < index + digits; i++) {
+            int digit = Character.digit(regex.charAt(i), 16);
+            if (digit < 0) return -1;
+            value = value * 16 + digit;
+        }
+        return value;
+    }
+
+    private static boolean hasTopLevelAlternation(String regex) {
+        int groupDepth = 0;
+        int classDepth = 0;
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                if (i + 1 < regex.length() && regex.charAt(i + 1) == 'Q') {
+                    int end = regex.indexOf("\\E", i + 2);
+                    if (end < 0) return false;
+                    i = end + 1;
+                } else {
+                    i++; // Skip escaped character
+                }
+            } else if (classDepth > 0) {
+                if (c == '[') classDepth++;
+                if (c == ']') classDepth--;
+            } else if (c == '[') {
+                classDepth++;
+            } else if (c == '(') {
+                groupDepth++;
+            } else if (c == ')') {
+                groupDepth--;
+            } else if (c == '|' && groupDepth == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static final class Node {
+        static final int NONE = -1;
+
+        private byte[] keys = new byte[0]; // Sorted, to binary search
+        private Node[] children = new Node[0];
+        private int literal = NONE;
+
+        /**
+         * @param b byte value, 0 to 255
+         * @return child, or null if no literal continues with the byte
+         */
+        Node getChild(int b) {
+            int index = Arrays.binarySearch(keys, (byte) b);
+            return index < 0 ? null : children[index];
+        }
+
+        /**
+         * @return index of the first transition with the literal ending at this node, or {@link #NONE}
+         */
+        int getLiteral() {
+            return literal;
+        }
+
+        boolean isLeaf() {
+            return keys.length == 0;
+        }
+
+        private Node getOrAddChild(int b) {
+            int index = Arrays.binarySearch(keys, (byte) b);
+            if (index >= 0) return children[index];
+
+            int insertion = -index - 1;
+            byte[] newKeys = new byte[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, insertion);
+            System.arraycopy(children, 0, newChildren, 0, insertion);
+            newKeys[insertion] = (byte) b;
+            newChildren[insertion] = new Node();
+            System.arraycopy(keys, insertion, newKeys, insertion + 1, keys.length - insertion);
+            System.arraycopy(children, insertion, newChildren, insertion + 1, children.length - insertion);
+            keys = newKeys;
+            children = newChildren;
+            return newChildren[insertion];
+        }
+    }
+}
@@ -1,44 +1,72 @@
 package com.github.trosenkrantz.raptor.auto.reply;
 
-import java.nio.charset.StandardCharsets;
-import java.util.List;
-import java.util.logging.Logger;
+import com.github.trosenkrantz.raptor.auto.reply.CompiledStateMachine.CompiledTransition;
+
 import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class PeakableBufferlessStateMachine {
-    private static final Logger LOGGER = Logger.getLogger(PeakableBufferlessStateMachine.class.getName());
-
     private final StateMachineConfiguration configuration;
 
-    private String currentStateName;
+    private CompiledStateMachine model;
+    private int currentState;
 
     public PeakableBufferlessStateMachine(final StateMachineConfiguration configuration) {
         this.configuration = configuration;
-        currentStateName = configuration.getStartState();
+        this.model = configuration.getCompiled();
+        currentState = model.getStartState();
     }
 
     public PeakResult peak(byte[] input) {
-        List<Transition> currentState = configuration.getStates().get(currentStateName);
-        if (currentState == null) {
-            LOGGER.warning("Auto-reply state " + currentStateName + " not defined. Transitioning to start state " + configuration.getStartState() + ".");
-            currentState = configuration.getStates().get(configuration.getStartState());
+        updateModel();
+
+        ByteArraySequence instanceBuffer = new ByteArraySequence(input); // Match on the bytes as they are, to be able to match on arbitrary bytes
+        CompiledTransition[] transitions = model.getTransitions(currentState);
+
+        // Walk the literals along the input, to find the first literal transition equal to it and how far the input follows literal prefixes
+        LiteralTrie.Node node = model.getLiterals(currentState).getRoot();
+        int depth = 0;
+        while (depth < instanceBuffer.length()) {
+            LiteralTrie.Node child = node.getChild(instanceBuffer.charAt(depth));
+            if (child == null) break;
+            node = child;
+            depth++;
         }
+        int literalTransition = depth == instanceBuffer.length() ? node.getLiteral() : LiteralTrie.Node.NONE;
 
-        String instanceBuffer = new String(input, StandardCharsets.ISO_8859_1); // Use ISO 8859-1 to be able to match on arbitrary bytes
+        for (int index : model.getRegexTransitions(currentState)) {
+            if (literalTransition != LiteralTrie.Node.NONE && index > literalTransition) break; // The literal transition comes first
 
-        for (Transition transition : currentState) {
-            Matcher matcher = Pattern.compile(transition.input(), Pattern.DOTALL).matcher(instanceBuffer); // We expect arbitrary bytes, so we use dotall mode to treat line terminators bytes as any other bytes
+            CompiledTransition transition = transitions[index];
+            if (transition.literalPrefix().length() > depth) continue; // Input does not start with the literal prefix
 
-            if (matcher.matches()) return new PeakResult(true, transition, AutoRepliesUtility.getCaptureGroups(matcher));
+            Matcher matcher = transition.pattern().matcher(instanceBuffer);
+            if (matcher.matches()) return new PeakResult(true, transition.transition(), AutoRepliesUtility.getCaptureGroups(matcher, instanceBuffer));
         }
 
+        if (literalTransition != LiteralTrie.Node.NONE) return new PeakResult(true, transitions[literalTransition].transition(), AutoRepliesUtility.getCaptureGroups(instanceBuffer, instanceBuffer.length()));
+
         return new PeakResult(false, null, null);
     }
 
     public void transition(Transition transition) {
-        if (transition.nextState() != null) {
-            currentStateName = transition.nextState();
+        updateModel();
+
+        for (CompiledTransition compiledTransition : model.getTransitions(currentState)) {
+            if (compiledTransition.transition() == transition) {
+                currentState = compiledTransition.apply(currentState);
+                return;
+            }
+        }
+
+        // Transition peaked from a previous model, so find its next state by name
+        if (transition.nextState() != null) currentState = model.getState(transition.nextState());
+    }
+
+    private void updateModel() {
+        CompiledStateMachine latest = configuration.getCompiled();
+        if (latest != model) { // Configuration updated, so continue from the same state in the new model
+            currentState = latest.getCorrespondingState(model, currentState);
+            model = latest;
         }
     }
 
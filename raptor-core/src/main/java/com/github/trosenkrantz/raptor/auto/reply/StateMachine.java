@@ -1,53 +1,355 @@
 package com.github.trosenkrantz.raptor.auto.reply;
 
+import com.github.trosenkrantz.raptor.auto.reply.CompiledStateMachine.CompiledTransition;
 import com.github.trosenkrantz.raptor.io.BytesFormatter;
 
-import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.List;
 import java.util.function.Consumer;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
+/**
+ * State machine matching input as it is streamed, replying when the input received so far matches a transition.
+ * <p>
+ * The result is as if input was passed on byte by byte, matching the whole buffer after each byte, but input may be passed in chunks of any size.
+ * For each chunk, we search each transition for a match ending anywhere in the chunk at once, rather than matching at each byte.
+ * Only if one is found, we binary search for the earliest end of a match, as whether a match ends within a length only changes once as the length grows.
+ * Regexes that may depend on where the input ends, e.g., with {@code $} or a lookahead, do not have that property, so we match them at each new end instead.
+ * <p>
+ * When a match fails without hitting the end of the buffer, no more input can make the transition match, so we skip it until the buffer is reset.
+ * When all transitions have failed like that, no reply can start at the first byte, so we discard that byte and search again from the next,
+ * as a command may start within the failed input, e.g., when a partial command is followed by a retransmission.
+ * As searching again costs up to the length of the failed input for each byte, we limit that work for each input, discarding the failed input as a whole beyond the limit.
+ * <p>
+ * Literal transitions are matched by walking the {@link LiteralTrie} of the state along the input, so only the other transitions run regexes.
+ * Transitions with a literal prefix only run their regex once the input has passed the prefix.
+ * <p>
+ * Input that may still match is buffered up to a max length, after which the configured {@link BufferOverflow} policy applies.
+ */
 public class StateMachine {
     private static final Logger LOGGER = Logger.getLogger(StateMachine.class.getName());
+    private static final int RESYNC_BUDGET_FACTOR = 4; // Bytes of failed input to search again from each byte, for each input, relative to the max buffer length
 
     private final StateMachineConfiguration configuration;
     private final Consumer<byte[]> onOutput;
+    private final Runnable onDisconnect;
+    private final AutoReplyMetrics metrics = AutoReplyMetrics.get();
 
-    private String currentStateName;
-    private StringBuilder buffer = new StringBuilder();
+    private CompiledStateMachine model;
+    private int currentState;
+    private final InputBuffer buffer = new InputBuffer();
+    private int checkedLength = 0; // Length of input already known to not match any transition
+
+    // Walk of the literal trie of the current state along the input
+    private LiteralTrie literals;
+    private LiteralTrie.Node literalNode; // Node reached
+    private int literalDepth; // Length of input walked
+    private boolean literalDiverged; // Input continues with a byte not in the trie
+    private int literalEnd; // End of the earliest literal match, 0 if none
+    private int literalTransition; // Transition of the earliest literal match
+
+    // Per transition of the current state needing a regex to match
+    private int[] regexTransitions; // Index of the transition
+    private Matcher[] matchers; // Reused, as the buffer instance is the same
+    private boolean[] failed; // Cannot match the input regardless of further input
+    private boolean[] candidates; // Has a match ending within the input
+    private int[] candidateEnds; // End of the earliest match of candidates depending on where the input ends
 
     public StateMachine(final StateMachineConfiguration configuration, final Consumer<byte[]> onOutput) {
+        this(configuration, onOutput, () -> {
+        });
+    }
+
+    /**
+     * @param onDisconnect called if the buffer overflows and the configured policy is to disconnect
+     */
+    public StateMachine(final StateMachineConfiguration configuration, final Consumer<byte[]> onOutput, final Runnable onDisconnect) {
         this.configuration = configuration;
-        currentStateName = configuration.getStartState();
+        this.model = configuration.getCompiled();
+        currentState = model.getStartState();
         this.onOutput = onOutput;
+        this.onDisconnect = onDisconnect;
+        createMatchers();
     }
 
     public void onInput(byte[] input) {
-        buffer.append(new String(input, StandardCharsets.ISO_8859_1)); // Use ISO 8859-1 to be able to match on arbitrary bytes
+        buffer.append(input);
 
-        List<Transition> currentState = configuration.getStates().get(currentStateName);
-        if (currentState == null) {
-            LOGGER.warning("Auto-reply state " + currentStateName + " not defined. Transitioning to start state " + configuration.getStartState() + ".");
-            currentState = configuration.getStates().get(configuration.getStartState());
+        CompiledStateMachine latest = configuration.getCompiled();
+        if (latest != model) { // Configuration updated, so continue from the same state in the new model
+            currentState = latest.getCorrespondingState(model, currentState);
+            model = latest;
+            createMatchers();
         }
 
-        for (Transition transition : currentState) {
-            Matcher matcher = Pattern.compile(transition.input(), Pattern.DOTALL).matcher(buffer); // We expect arbitrary bytes, so we use dotall mode to treat line terminators bytes as any other bytes
+        int discarded = 0;
+        int resyncBudget = RESYNC_BUDGET_FACTOR * model.getMaxBufferLength();
+        while (buffer.length() > checkedLength) {
+            int length = buffer.length();
+
+            // Search for matches ending anywhere in the input, marking transitions that can never match
+            walkLiterals(length);
+            boolean anyCandidate = literalEnd > 0;
+            boolean anyAlive = anyCandidate || (!literalDiverged && !literalNode.isLeaf());
+            boolean[] newlyFailed = null;
+            CompiledTransition[] transitions = model.getTransitions(currentState);
+            for (int i = 0; i < matchers.length; i++) {
+                candidates[i] = false;
+                CompiledTransition transition = transitions[regexTransitions[i]];
+                if (failed[i] || transition.literalPrefix().length() > literalDepth) continue; // Cannot match before the input passes the literal prefix
 
-            if (matcher.matches()) {
-                onOutput.accept(BytesFormatter.intermediateEncodingToBytes(transition.output(), configuration.getCommandSubstitutionTimeout(), AutoRepliesUtility.getCaptureGroups(matcher)));
-                if (transition.nextState() != null) {
-                    currentStateName = transition.nextState();
+                if (transition.endDependent()) {
+                    // Check each new end, as the regex may fail on input longer than a match
+                    for (int end = Math.max(checkedLength + 1, transition.literalPrefix().length()); end <= length; end++) {
+                        Matcher matcher = matchers[i].region(0, end);
+                        if (matcher.matches()) {
+                            candidates[i] = true;
+                            candidateEnds[i] = end;
+                            break;
+                        } else if (!matcher.hitEnd()) {
+                            if (newlyFailed == null) newlyFailed = new boolean[matchers.length];
+                            newlyFailed[i] = true; // Not even looking at the end, so no later end can match
+                            break;
+                        }
+                    }
+                    if (candidates[i]) anyCandidate = true;
+                    if (newlyFailed == null || !newlyFailed[i]) anyAlive = true;
+                    continue;
                 }
+
+                Matcher matcher = matchers[i].region(0, length);
+                if (matcher.lookingAt()) {
+                    candidates[i] = true;
+                    anyCandidate = true;
+                    anyAlive = true;
+                } else if (matcher.hitEnd()) {
+                    anyAlive = true; // More input may make it match
+                } else {
+                    if (newlyFailed == null) newlyFailed = new boolean[matchers.length];
+                    newlyFailed[i] = true;
+                }
+            }
+
+            if (anyCandidate && reply(length)) continue; // Process the rest of the input in the new state
+
+            if (anyAlive) {
+                if (newlyFailed != null) {
+                    for (int i = 0; i < failed.length; i++) {
+                        failed[i] |= newlyFailed[i];
+                    }
+                }
+                checkedLength = length;
+            } else {
+                // Search again from the next byte, unless the failed input is too long to do so within the budget
+                int failedLength = getFailedLength(length);
+                int discardLength = 1;
+                if (failedLength > 1) {
+                    resyncBudget -= failedLength;
+                    if (resyncBudget < 0) discardLength = failedLength;
+                }
+                discarded += discardLength;
+                buffer.discard(discardLength);
+                resetMatching();
+            }
+        }
+
+        if (discarded > 0) {
+            metrics.onNotMatching(discarded);
+            LOGGER.fine("Discarded " + discarded + " bytes of input not matching any auto-reply transition.");
+        }
+
+        if (buffer.length() > model.getMaxBufferLength()) onOverflow();
+    }
+
+    private void onOverflow() {
+        BufferOverflow policy = model.getBufferOverflow();
+        int length = buffer.length();
+        switch (policy) {
+            case DISCARD_OLDEST -> {
+                int discardLength = length - model.getMaxBufferLength();
+                metrics.onOverflow(policy, discardLength);
+                buffer.discard(discardLength);
+                resetMatching();
+                LOGGER.fine("Auto-reply input buffer exceeded " + model.getMaxBufferLength() + " bytes, discarded oldest " + discardLength + " bytes.");
+            }
+            case RESET -> {
+                metrics.onOverflow(policy, length);
+                resetInputBuffer();
+                LOGGER.warning("Auto-reply input buffer exceeded " + model.getMaxBufferLength() + " bytes, discarded all " + length + " bytes.");
+            }
+            case DISCONNECT -> {
+                metrics.onOverflow(policy, length);
                 resetInputBuffer();
-                break;
+                LOGGER.warning("Auto-reply input buffer exceeded " + model.getMaxBufferLength() + " bytes, disconnecting.");
+                try {
+                    onDisconnect.run();
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "Failed to disconnect.", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Walks the literal trie along the input, continuing from where the last walk ended if the input walked is unchanged.
+     * Stops at the earliest literal match, as no later match can be replied to.
+     */
+    private void walkLiterals(int length) {
+        if (checkedLength == 0) {
+            literalNode = literals.getRoot();
+            literalDepth = 0;
+            literalDiverged = false;
+        }
+
+        literalEnd = 0;
+        while (!literalDiverged && literalDepth < length) {
+            LiteralTrie.Node child = literalNode.getChild(buffer.charAt(literalDepth));
+            if (child == null) {
+                literalDiverged = true;
+            } else {
+                literalNode = child;
+                literalDepth++;
+                if (child.getLiteral() != LiteralTrie.Node.NONE) {
+                    literalEnd = literalDepth;
+                    literalTransition = child.getLiteral();
+                    return;
+                }
             }
         }
     }
 
+    /**
+     * Replies to the earliest match of the candidates and the literal match, in the order of transitions if several end at the same byte.
+     *
+     * @return true if replied
+     */
+    private boolean reply(int length) {
+        // Binary search the shortest length with a match ending within it, no later than the literal match or the earliest match depending on the end
+        int last = literalEnd > 0 ? literalEnd : length;
+        int low = checkedLength + 1;
+        int high = last;
+        CompiledTransition[] transitions = model.getTransitions(currentState);
+        for (int i = 0; i < matchers.length; i++) {
+            if (candidates[i] && transitions[regexTransitions[i]].endDependent()) high = Math.min(high, candidateEnds[i]);
+        }
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (anyCandidateMatchWithin(middle)) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+
+        // Check each length from there, in case anchors or lookarounds make matches differ when ending at the end of the input
+        for (int end = low; end <= last; end++) {
+            for (int i = 0; i < matchers.length; i++) {
+                if (end == literalEnd && regexTransitions[i] > literalTransition) break; // The literal transition comes first
+
+                if (!candidates[i]) continue;
+
+                Matcher matcher = matchers[i].region(0, end);
+                if (matcher.matches()) {
+                    reply(regexTransitions[i], end, AutoRepliesUtility.getCaptureGroups(matcher, buffer));
+                    return true;
+                }
+            }
+
+            if (end == literalEnd) {
+                reply(literalTransition, end, AutoRepliesUtility.getCaptureGroups(buffer, end));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void reply(int transitionIndex, int end, List<String> captureGroups) {
+        CompiledTransition transition = model.getTransitions(currentState)[transitionIndex];
+        onOutput.accept(BytesFormatter.intermediateEncodingToBytes(transition.transition().output(), model.getCommandSubstitutionTimeout(), captureGroups));
+        int nextState = transition.apply(currentState);
+        buffer.discard(end);
+        if (nextState != currentState) {
+            currentState = nextState;
+            createMatchers();
+        } else {
+            resetMatching();
+        }
+    }
+
+    /**
+     * @return true if any candidate not depending on where the input ends has a match ending within the length
+     */
+    private boolean anyCandidateMatchWithin(int length) {
+        CompiledTransition[] transitions = model.getTransitions(currentState);
+        for (int i = 0; i < matchers.length; i++) {
+            if (candidates[i] && !transitions[regexTransitions[i]].endDependent() && matchers[i].region(0, length).lookingAt()) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Searches the shortest length of the input at which all transitions have failed, as failing is permanent once it happens.
+     * We gallop before binary searching, as input typically fails within a few bytes.
+     */
+    private int getFailedLength(int length) {
+        int low = checkedLength + 1;
+        int high = low;
+        int step = 1;
+        while (high < length && !allFailed(high)) {
+            low = high + 1;
+            high = Math.min(length, high + step);
+            step <<= 1;
+        }
+
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (allFailed(middle)) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    private boolean allFailed(int length) {
+        if (length < literalDepth || (length == literalDepth && !literalNode.isLeaf())) return false; // Input is a proper prefix of a literal
+
+        CompiledTransition[] transitions = model.getTransitions(currentState);
+        for (int i = 0; i < matchers.length; i++) {
+            if (failed[i]) continue; // Already failed before the latest input
+            if (transitions[regexTransitions[i]].literalPrefix().length() > literalDepth) continue; // Input diverged from the literal prefix
+
+            Matcher matcher = matchers[i].region(0, length);
+            boolean matched = transitions[regexTransitions[i]].endDependent() ? matcher.matches() : matcher.lookingAt();
+            if (matched || matcher.hitEnd()) return false;
+        }
+        return true;
+    }
+
     public void resetInputBuffer() {
-        buffer = new StringBuilder();
+        buffer.clear();
+        resetMatching();
+    }
+
+    private void createMatchers() {
+        CompiledTransition[] transitions = model.getTransitions(currentState);
+        literals = model.getLiterals(currentState);
+        regexTransitions = model.getRegexTransitions(currentState);
+        matchers = new Matcher[regexTransitions.length];
+        for (int i = 0; i < regexTransitions.length; i++) {
+            matchers[i] = transitions[regexTransitions[i]].pattern().matcher(buffer);
+        }
+        failed = new boolean[regexTransitions.length];
+        candidates = new boolean[regexTransitions.length];
+        candidateEnds = new int[regexTransitions.length];
+        checkedLength = 0;
+    }
+
+    private void resetMatching() {
+        Arrays.fill(failed, false);
+        checkedLength = 0;
     }
 }
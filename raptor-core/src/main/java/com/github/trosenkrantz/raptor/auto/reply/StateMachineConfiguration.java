@@ -6,17 +6,24 @@ import com.github.trosenkrantz.raptor.io.ConsoleIo;
 
 import java.util.List;
 import java.util.Map;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public final class StateMachineConfiguration {
     public static final String REPLIES_PATH = "/com/github/trosenkrantz/raptor/replies.json";
     public static final String SNMP_REPLIES_PATH = "/com/github/trosenkrantz/raptor/snmp-replies.json";
+    public static final int DEFAULT_MAX_BUFFER_LENGTH = 64 * 1024;
+    public static final BufferOverflow DEFAULT_BUFFER_OVERFLOW = BufferOverflow.DISCARD_OLDEST;
 
     private static final Logger LOGGER = Logger.getLogger(StateMachineConfiguration.class.getName());
 
     private String startState;
     private Map<String, List<Transition>> states;
     private Integer commandSubstitutionTimeout; // In ms
+    private Integer maxBufferLength; // In bytes of input not matching any transition yet, per session
+    private BufferOverflow bufferOverflow;
+
+    private volatile CompiledStateMachine compiled; // Swapped as a whole when updated, so state machines never see a partial update
 
     public StateMachineConfiguration() {
     }
@@ -29,9 +36,25 @@ public final class StateMachineConfiguration {
      * @param commandSubstitutionTimeout timeout in ms used for command substitutions
      */
     public StateMachineConfiguration(String startState, Map<String, List<Transition>> states, int commandSubstitutionTimeout) {
+        this(startState, states, commandSubstitutionTimeout, DEFAULT_MAX_BUFFER_LENGTH, DEFAULT_BUFFER_OVERFLOW);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param startState                 name of the start state
+     * @param states                     states
+     * @param commandSubstitutionTimeout timeout in ms used for command substitutions
+     * @param maxBufferLength            max bytes of input not matching any transition yet to buffer per session
+     * @param bufferOverflow             what to do when exceeding the max buffer length
+     */
+    public StateMachineConfiguration(String startState, Map<String, List<Transition>> states, int commandSubstitutionTimeout, int maxBufferLength, BufferOverflow bufferOverflow) {
         this.startState = startState;
         this.states = states;
         this.commandSubstitutionTimeout = commandSubstitutionTimeout;
+        this.maxBufferLength = maxBufferLength;
+        this.bufferOverflow = bufferOverflow;
+        this.compiled = CompiledStateMachine.compile(this);
     }
 
     public static StateMachineConfiguration fromConfiguration(final Configuration configuration) {
@@ -42,6 +65,7 @@ public final class StateMachineConfiguration {
             LOGGER.warning("Auto-reply command substitution timeout is not set, setting to " + CommandSubstitutor.DEFAULT_TIMEOUT);
             originalStateMachine.commandSubstitutionTimeout = CommandSubstitutor.DEFAULT_TIMEOUT;
         }
+        originalStateMachine.getCompiled(); // Compile immediately to provide early feedback on invalid regexes
 
         boolean subscribed = configuration.subscribeToObjectChangesIfSupported(AutoRepliesUtility.PARAMETER_REPLIES, StateMachineConfiguration.class, originalStateMachine::updateModel);
         if (subscribed) LOGGER.info("Listening for updates to configuration file. Will update auto-replies if updated.");
@@ -49,10 +73,23 @@ public final class StateMachineConfiguration {
         return originalStateMachine;
     }
 
-    private void updateModel(StateMachineConfiguration newStateMachineConfiguration) {
+    private synchronized void updateModel(StateMachineConfiguration newStateMachineConfiguration) {
+        if (newStateMachineConfiguration.commandSubstitutionTimeout == null) newStateMachineConfiguration.commandSubstitutionTimeout = this.commandSubstitutionTimeout;
+
+        CompiledStateMachine newCompiled;
+        try {
+            newCompiled = CompiledStateMachine.compile(newStateMachineConfiguration);
+        } catch (IllegalArgumentException e) {
+            LOGGER.log(Level.WARNING, "Failed updating auto-replies, keeping the previous ones.", e);
+            return;
+        }
+
         this.startState = newStateMachineConfiguration.startState;
         this.states = newStateMachineConfiguration.states;
-        if (newStateMachineConfiguration.commandSubstitutionTimeout != null) this.commandSubstitutionTimeout = newStateMachineConfiguration.getCommandSubstitutionTimeout();
+        this.commandSubstitutionTimeout = newStateMachineConfiguration.commandSubstitutionTimeout;
+        this.maxBufferLength = newStateMachineConfiguration.maxBufferLength;
+        this.bufferOverflow = newStateMachineConfiguration.bufferOverflow;
+        this.compiled = newCompiled;
         LOGGER.info("Updated auto-replies due to configuration changes.");
     }
 
@@ -74,4 +111,25 @@ public final class StateMachineConfiguration {
     public Integer getCommandSubstitutionTimeout() {
         return commandSubstitutionTimeout;
     }
+
+    public Integer getMaxBufferLength() {
+        return maxBufferLength;
+    }
+
+    public BufferOverflow getBufferOverflow() {
+        return bufferOverflow;
+    }
+
+    /**
+     * @return the latest compiled state machine
+     */
+    CompiledStateMachine getCompiled() {
+        CompiledStateMachine result = compiled;
+        if (result != null) return result;
+
+        synchronized (this) { // Compile on first use if deserialised
+            if (compiled == null) compiled = CompiledStateMachine.compile(this);
+            return compiled;
+        }
+    }
 }
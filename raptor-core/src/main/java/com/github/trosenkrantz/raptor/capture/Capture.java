@@ -0,0 +1,141 @@
+package com.github.trosenkrantz.raptor.capture;
+
+import com.github.trosenkrantz.raptor.io.ConsoleIo;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Captures traffic to a PCAPNG file, to open in Wireshark, enabled with the --capture argument.
+ * <p>
+ * Each protocol has its own interface in the capture. For UDP, TCP, and WebSocket, we synthesise IP and transport headers, as we only see the payloads.
+ * Timestamps have nanosecond resolution, following the monotonic clock from the time capture started.
+ */
+public final class Capture {
+    private static final String ARGUMENT = "--capture";
+    private static final DateTimeFormatter TIME_FORMATTER_FILE_NAME = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH-mm-ss");
+
+    private static final long START_EPOCH_NANOS;
+    private static final long START_NANO_TIME;
+
+    static {
+        Instant start = Instant.now();
+        START_NANO_TIME = System.nanoTime();
+        START_EPOCH_NANOS = start.getEpochSecond() * 1_000_000_000L + start.getNano();
+    }
+
+    private static final Map<Object, Object> STREAMS = Collections.synchronizedMap(new WeakHashMap<>()); // Stream per connection, forgotten with the connection
+    private static final Map<String, CaptureStream> SERIAL_STREAMS = new ConcurrentHashMap<>();
+
+    private static volatile PcapngWriter writer; // Null if capture is disabled
+    private static int udpInterfaceId;
+    private static int tcpInterfaceId;
+    private static int webSocketInterfaceId;
+
+    private Capture() {
+    }
+
+    /**
+     * Starts capturing if enabled by the arguments.
+     *
+     * @param args command-line arguments
+     */
+    public static void initialise(String[] args) throws IOException {
+        if (!Arrays.asList(args).contains(ARGUMENT)) return;
+
+        Path path = Files.createDirectories(Path.of("logs")).resolve(LocalDateTime.now(ZoneId.systemDefault()).format(TIME_FORMATTER_FILE_NAME) + ".pcapng").toAbsolutePath();
+        PcapngWriter newWriter = new PcapngWriter(path);
+        udpInterfaceId = newWriter.addInterface(PcapngWriter.LINK_TYPE_RAW, "udp");
+        tcpInterfaceId = newWriter.addInterface(PcapngWriter.LINK_TYPE_RAW, "tcp");
+        webSocketInterfaceId = newWriter.addInterface(PcapngWriter.LINK_TYPE_RAW, "websocket");
+        Runtime.getRuntime().addShutdownHook(new Thread(newWriter::close)); // Write packets captured before exiting
+        writer = newWriter;
+
+        ConsoleIo.writeLine("Capturing to " + path + "." + System.lineSeparator());
+    }
+
+    public static boolean isEnabled() {
+        return writer != null;
+    }
+
+    /**
+     * Captures a datagram, without waiting for the capture to be written.
+     *
+     * @param outbound whether we sent the datagram, rather than received it
+     */
+    public static void udp(InetSocketAddress source, InetSocketAddress destination, byte[] data, int offset, int length, boolean outbound) {
+        PcapngWriter current = writer;
+        if (current == null) return;
+
+        current.addPacket(udpInterfaceId, nowNanos(), outbound, IpPackets.udp(resolved(source), resolved(destination), data, offset, length));
+    }
+
+    /**
+     * @return capture of the connection of the socket, the same for all calls with the socket
+     */
+    public static CaptureStream tcp(Socket socket) {
+        PcapngWriter current = writer;
+        if (current == null) return CaptureStream.NONE;
+
+        return (CaptureStream) STREAMS.computeIfAbsent(socket, key -> new TcpCaptureStream(
+                current,
+                tcpInterfaceId,
+                resolved((InetSocketAddress) socket.getLocalSocketAddress()),
+                resolved((InetSocketAddress) socket.getRemoteSocketAddress())
+        ));
+    }
+
+    /**
+     * @param connection    WebSocket connection, identifying the capture
+     * @param localIsClient whether we are the client of the connection
+     * @return capture of the connection, the same for all calls with the connection
+     */
+    public static WebSocketCapture webSocket(Object connection, InetSocketAddress local, InetSocketAddress remote, boolean localIsClient) {
+        PcapngWriter current = writer;
+        if (current == null) return WebSocketCapture.NONE;
+
+        return (WebSocketCapture) STREAMS.computeIfAbsent(connection, key -> new WebSocketCapture(
+                new TcpCaptureStream(current, webSocketInterfaceId, resolved(local), resolved(remote)),
+                localIsClient
+        ));
+    }
+
+    /**
+     * @param portName system name of the serial port
+     * @return capture of the serial port, with an interface per port
+     */
+    public static CaptureStream serial(String portName) {
+        PcapngWriter current = writer;
+        if (current == null) return CaptureStream.NONE;
+
+        return SERIAL_STREAMS.computeIfAbsent(portName, name -> new SerialCaptureStream(current, current.addInterface(PcapngWriter.LINK_TYPE_USER_0, "serial " + name)));
+    }
+
+    /**
+     * @return nanoseconds since the epoch
+     */
+    static long nowNanos() {
+        return START_EPOCH_NANOS + (System.nanoTime() - START_NANO_TIME);
+    }
+
+    /**
+     * Replaces missing or unresolved addresses with the wildcard address, as headers need an address.
+     */
+    private static InetSocketAddress resolved(InetSocketAddress address) {
+        if (address == null) return new InetSocketAddress(0);
+        if (address.isUnresolved()) return new InetSocketAddress(address.getPort());
+        return address;
+    }
+}
@@ -0,0 +1,37 @@
+package com.github.trosenkrantz.raptor.capture;
+
+/**
+ * Capture of the data of one connection or port, in both directions.
+ */
+public interface CaptureStream {
+    /**
+     * Captures nothing, used when capture is disabled.
+     */
+    CaptureStream NONE = new CaptureStream() {
+        @Override
+        public void received(byte[] data, int offset, int length) {
+        }
+
+        @Override
+        public void sent(byte[] data, int offset, int length) {
+        }
+    };
+
+    /**
+     * Captures data received, without waiting for the capture to be written.
+     */
+    void received(byte[] data, int offset, int length);
+
+    /**
+     * Captures data sent, without waiting for the capture to be written.
+     */
+    void sent(byte[] data, int offset, int length);
+
+    default void received(byte[] data) {
+        received(data, 0, data.length);
+    }
+
+    default void sent(byte[] data) {
+        sent(data, 0, data.length);
+    }
+}
@@ -0,0 +1,106 @@
+package com.github.trosenkrantz.raptor.capture;
+
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+
+/**
+ * Synthesises IP packets around data, for capturing traffic of which we only see the payload.
+ * <p>
+ * Packets are IPv4 if both addresses are IPv4, else IPv6 with IPv4 addresses mapped to IPv6.
+ * Checksums of transport headers are left as 0, as they are not verified by default by Wireshark.
+ */
+final class IpPackets {
+    static final int MAX_TCP_SEGMENT = 65535 - 20 - 20; // Largest data fitting an IPv4 packet with a TCP header
+
+    private static final int PROTOCOL_TCP = 6;
+    private static final int PROTOCOL_UDP = 17;
+    private static final int TTL = 64;
+    private static final int TCP_FLAGS_PSH_ACK = 0x18;
+
+    private IpPackets() {
+    }
+
+    static byte[] udp(InetSocketAddress source, InetSocketAddress destination, byte[] data, int offset, int length) {
+        ByteBuffer packet = ip(source.getAddress(), destination.getAddress(), PROTOCOL_UDP, 8 + length);
+        packet.putShort((short) source.getPort());
+        packet.putShort((short) destination.getPort());
+        packet.putShort((short) (8 + length));
+        packet.putShort((short) 0); // Checksum
+        packet.put(data, offset, length);
+        return packet.array();
+    }
+
+    /**
+     * @param header optional data before the data, e.g., a frame header, or null
+     */
+    static byte[] tcp(InetSocketAddress source, InetSocketAddress destination, long sequence, long acknowledgement, byte[] header, byte[] data, int offset, int length) {
+        int headerLength = header == null ? 0 : header.length;
+        ByteBuffer packet = ip(source.getAddress(), destination.getAddress(), PROTOCOL_TCP, 20 + headerLength + length);
+        packet.putShort((short) source.getPort());
+        packet.putShort((short) destination.getPort());
+        packet.putInt((int) sequence);
+        packet.putInt((int) acknowledgement);
+        packet.put((byte) (5 << 4)); // Header length of 5 words
+        packet.put((byte) TCP_FLAGS_PSH_ACK);
+        packet.putShort((short) 0xFFFF); // Window
+        packet.putShort((short) 0); // Checksum
+        packet.putShort((short) 0); // Urgent pointer
+        if (header != null) packet.put(header);
+        packet.put(data, offset, length);
+        return packet.array();
+    }
+
+    /**
+     * @return buffer of the whole packet, positioned after the IP header
+     */
+    private static ByteBuffer ip(InetAddress source, InetAddress destination, int protocol, int payloadLength) {
+        if (source instanceof Inet4Address && destination instanceof Inet4Address) {
+            ByteBuffer packet = ByteBuffer.allocate(20 + payloadLength);
+            packet.put((byte) 0x45); // Version 4, header length of 5 words
+            packet.put((byte) 0); // Type of service
+            packet.putShort((short) (20 + payloadLength));
+            packet.putShort((short) 0); // Identification
+            packet.putShort((short) 0x4000); // Do not fragment
+            packet.put((byte) TTL);
+            packet.put((byte) protocol);
+            packet.putShort((short) 0); // Checksum, set below
+            packet.put(source.getAddress());
+            packet.put(destination.getAddress());
+            packet.putShort(10, checksum(packet.array(), 0, 20));
+            return packet;
+        } else {
+            ByteBuffer packet = ByteBuffer.allocate(40 + payloadLength);
+            packet.putInt(6 << 28); // Version 6, no traffic class or flow label
+            packet.putShort((short) payloadLength);
+            packet.put((byte) protocol);
+            packet.put((byte) TTL);
+            packet.put(toIpv6(source));
+            packet.put(toIpv6(destination));
+            return packet;
+        }
+    }
+
+    private static byte[] toIpv6(InetAddress address) {
+        byte[] bytes = address.getAddress();
+        if (bytes.length == 16) return bytes;
+
+        byte[] mapped = new byte[16];
+        mapped[10] = (byte) 0xFF;
+        mapped[11] = (byte) 0xFF;
+        System.arraycopy(bytes, 0, mapped, 12, 4);
+        return mapped;
+    }
+
+    private static short checksum(byte[] bytes, int offset, int length) {
+        int sum = 0;
+        for (int i = offset; i < offset + length; i += 2) {
+            sum += ((bytes[i] & 0xFF) << 8) | (bytes[i + 1] & 0xFF);
+        }
+        while ((sum >>> 16) != 0) {
+            sum = (sum & 0xFFFF) + (sum >>> 16);
+        }
+        return (short) ~sum;
+    }
+}
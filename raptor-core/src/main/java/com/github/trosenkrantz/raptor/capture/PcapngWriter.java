@@ -0,0 +1,244 @@
+package com.github.trosenkrantz.raptor.capture;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Writes packets to a PCAPNG file from a single writer thread.
+ * <p>
+ * Producers only enqueue packets, never waiting for the file. If the queue is full, packets are dropped and counted, rather than slowing down the traffic captured.
+ * The writer encodes blocks into a large buffer, and writes it to the file when full or when the queue is idle.
+ * <p>
+ * Interfaces are described in a separate, unbounded queue, as they are few, and are written before the first packet referring to them.
+ */
+final class PcapngWriter implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(PcapngWriter.class.getName());
+
+    static final int LINK_TYPE_RAW = 101; // Raw IPv4 or IPv6 packets
+    static final int LINK_TYPE_USER_0 = 147; // Reserved for private use, for data without a standard link layer
+
+    private static final int QUEUE_CAPACITY = 64 * 1024;
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final long IDLE_FLUSH_MILLIS = 100;
+    private static final long DROP_REPORT_INTERVAL_NANOS = 1_000_000_000L;
+
+    private static final int SECTION_HEADER_BLOCK_TYPE = 0x0A0D0D0A;
+    private static final int INTERFACE_DESCRIPTION_BLOCK_TYPE = 1;
+    private static final int ENHANCED_PACKET_BLOCK_TYPE = 6;
+    private static final int BYTE_ORDER_MAGIC = 0x1A2B3C4D;
+    private static final short OPTION_END = 0;
+    private static final short OPTION_IF_NAME = 2;
+    private static final short OPTION_IF_TSRESOL = 9;
+    private static final short OPTION_EPB_FLAGS = 2;
+    private static final byte NANOSECOND_RESOLUTION = 9;
+    private static final int FLAG_INBOUND = 1;
+    private static final int FLAG_OUTBOUND = 2;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final BlockingQueue<Packet> packets = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Queue<Interface> interfaces = new ConcurrentLinkedQueue<>();
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread thread;
+
+    private int nextInterfaceId = 0; // Guarded by this
+    private int interfacesWritten = 0; // Only accessed on writer thread
+    private long droppedReported = 0; // Only accessed on writer thread
+    private volatile boolean closed = false;
+
+    PcapngWriter(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.thread = Thread.ofPlatform().name("capture-writer").daemon().start(this::keepWriting);
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    /**
+     * @param linkType link type of packets on the interface
+     * @param name     name of the interface, shown by Wireshark
+     * @return id of the interface, to add packets with
+     */
+    synchronized int addInterface(int linkType, String name) {
+        int id = nextInterfaceId++;
+        interfaces.add(new Interface(linkType, name));
+        return id;
+    }
+
+    /**
+     * Adds a packet without waiting, dropping it if the writer is behind.
+     *
+     * @param interfaceId    id of the interface the packet is on
+     * @param timestampNanos time since the epoch
+     * @param outbound       whether we sent the packet, rather than received it
+     * @param data           packet, including the headers of the link type, not to be modified afterwards
+     */
+    void addPacket(int interfaceId, long timestampNanos, boolean outbound, byte[] data) {
+        if (closed || !packets.offer(new Packet(interfaceId, timestampNanos, outbound, data))) dropped.incrementAndGet();
+    }
+
+    private void keepWriting() {
+        try {
+            writeSectionHeader();
+            long nextDropReportNanos = System.nanoTime();
+            while (!closed || !packets.isEmpty()) {
+                Packet packet = packets.poll(IDLE_FLUSH_MILLIS, TimeUnit.MILLISECONDS);
+                if (packet == null) {
+                    flush();
+                } else {
+                    while (interfacesWritten <= packet.interfaceId()) {
+                        writeInterface(interfaces.poll());
+                        interfacesWritten++;
+                    }
+                    writePacket(packet);
+                }
+
+                // Check on a time basis, as drops happen when the queue stays busy
+                long nowNanos = System.nanoTime();
+                if (nowNanos - nextDropReportNanos >= 0) {
+                    reportDrops();
+                    nextDropReportNanos = nowNanos + DROP_REPORT_INTERVAL_NANOS;
+                }
+            }
+            flush();
+            reportDrops();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Failed writing capture to " + path + ", stopping capture.", e);
+            closed = true;
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed closing capture file.", e);
+            }
+        }
+    }
+
+    private void reportDrops() {
+        long droppedNow = dropped.get();
+        if (droppedNow != droppedReported) {
+            LOGGER.warning("Dropped " + (droppedNow - droppedReported) + " packets from capture, as writing to file could not keep up.");
+            droppedReported = droppedNow;
+        }
+    }
+
+    private void writeSectionHeader() throws IOException {
+        int length = 28;
+        reserve(length);
+        buffer.putInt(SECTION_HEADER_BLOCK_TYPE);
+        buffer.putInt(length);
+        buffer.putInt(BYTE_ORDER_MAGIC);
+        buffer.putShort((short) 1); // Major version
+        buffer.putShort((short) 0); // Minor version
+        buffer.putLong(-1); // Section length not specified
+        buffer.putInt(length);
+    }
+
+    private void writeInterface(Interface anInterface) throws IOException {
+        byte[] name = anInterface.name().getBytes(StandardCharsets.UTF_8);
+        int length = 20 + 4 + padded(name.length) + 4 + 4 + 4;
+        reserve(length);
+        buffer.putInt(INTERFACE_DESCRIPTION_BLOCK_TYPE);
+        buffer.putInt(length);
+        buffer.putShort((short) anInterface.linkType());
+        buffer.putShort((short) 0); // Reserved
+        buffer.putInt(0); // No limit on packet length
+        putOption(OPTION_IF_NAME, name);
+        putOption(OPTION_IF_TSRESOL, new byte[]{NANOSECOND_RESOLUTION});
+        buffer.putShort(OPTION_END);
+        buffer.putShort((short) 0);
+        buffer.putInt(length);
+    }
+
+    private void writePacket(Packet packet) throws IOException {
+        byte[] data = packet.data();
+        int length = 28 + padded(data.length) + 8 + 4 + 4;
+        if (length > buffer.capacity()) {
+            LOGGER.warning("Packet of " + data.length + " B is too big to capture, skipping it.");
+            return;
+        }
+
+        reserve(length);
+        buffer.putInt(ENHANCED_PACKET_BLOCK_TYPE);
+        buffer.putInt(length);
+        buffer.putInt(packet.interfaceId());
+        buffer.putInt((int) (packet.timestampNanos() >>> 32));
+        buffer.putInt((int) packet.timestampNanos());
+        buffer.putInt(data.length); // Captured length
+        buffer.putInt(data.length); // Original length
+        buffer.put(data);
+        pad(data.length);
+        buffer.putShort(OPTION_EPB_FLAGS);
+        buffer.putShort((short) 4);
+        buffer.putInt(packet.outbound() ? FLAG_OUTBOUND : FLAG_INBOUND);
+        buffer.putShort(OPTION_END);
+        buffer.putShort((short) 0);
+        buffer.putInt(length);
+    }
+
+    private void putOption(short code, byte[] value) {
+        buffer.putShort(code);
+        buffer.putShort((short) value.length);
+        buffer.put(value);
+        pad(value.length);
+    }
+
+    private void pad(int length) {
+        for (int i = length; i < padded(length); i++) {
+            buffer.put((byte) 0);
+        }
+    }
+
+    private static int padded(int length) {
+        return (length + 3) & ~3; // Blocks and options are aligned to 32 bits
+    }
+
+    private void reserve(int length) throws IOException {
+        if (buffer.remaining() < length) flush();
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Writes packets already added, then stops.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record Interface(int linkType, String name) {
+    }
+
+    private record Packet(int interfaceId, long timestampNanos, boolean outbound, byte[] data) {
+    }
+}
@@ -0,0 +1,26 @@
+package com.github.trosenkrantz.raptor.capture;
+
+import java.util.Arrays;
+
+/**
+ * Capture of a serial port, with the data as-is, as serial ports have no link layer headers.
+ */
+final class SerialCaptureStream implements CaptureStream {
+    private final PcapngWriter writer;
+    private final int interfaceId;
+
+    SerialCaptureStream(PcapngWriter writer, int interfaceId) {
+        this.writer = writer;
+        this.interfaceId = interfaceId;
+    }
+
+    @Override
+    public void received(byte[] data, int offset, int length) {
+        writer.addPacket(interfaceId, Capture.nowNanos(), false, Arrays.copyOfRange(data, offset, offset + length));
+    }
+
+    @Override
+    public void sent(byte[] data, int offset, int length) {
+        writer.addPacket(interfaceId, Capture.nowNanos(), true, Arrays.copyOfRange(data, offset, offset + length));
+    }
+}
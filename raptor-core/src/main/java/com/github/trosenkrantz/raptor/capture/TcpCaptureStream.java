@@ -0,0 +1,55 @@
+package com.github.trosenkrantz.raptor.capture;
+
+import java.net.InetSocketAddress;
+
+/**
+ * Capture of a TCP connection as synthesised segments, with sequence and acknowledgement numbers following the data, so Wireshark can follow the stream.
+ */
+final class TcpCaptureStream implements CaptureStream {
+    private final PcapngWriter writer;
+    private final int interfaceId;
+    private final InetSocketAddress local;
+    private final InetSocketAddress remote;
+
+    // Guarded by this
+    private long localSequence = 0;
+    private long remoteSequence = 0;
+
+    TcpCaptureStream(PcapngWriter writer, int interfaceId, InetSocketAddress local, InetSocketAddress remote) {
+        this.writer = writer;
+        this.interfaceId = interfaceId;
+        this.local = local;
+        this.remote = remote;
+    }
+
+    @Override
+    public void received(byte[] data, int offset, int length) {
+        add(false, null, data, offset, length);
+    }
+
+    @Override
+    public void sent(byte[] data, int offset, int length) {
+        add(true, null, data, offset, length);
+    }
+
+    /**
+     * @param header optional data before the data, e.g., a frame header, or null
+     */
+    synchronized void add(boolean outbound, byte[] header, byte[] data, int offset, int length) {
+        long timestampNanos = Capture.nowNanos();
+        int end = offset + length;
+        do {
+            int headerLength = header == null ? 0 : header.length;
+            int segmentLength = Math.min(end - offset, IpPackets.MAX_TCP_SEGMENT - headerLength);
+            byte[] packet = outbound
+                    ? IpPackets.tcp(local, remote, localSequence, remoteSequence, header, data, offset, segmentLength)
+                    : IpPackets.tcp(remote, local, remoteSequence, localSequence, header, data, offset, segmentLength);
+            if (outbound) localSequence += headerLength + segmentLength;
+            else remoteSequence += headerLength + segmentLength;
+            writer.addPacket(interfaceId, timestampNanos, outbound, packet);
+
+            offset += segmentLength;
+            header = null; // Only before the first segment
+        } while (offset < end);
+    }
+}
@@ -0,0 +1,56 @@
+package com.github.trosenkrantz.raptor.capture;
+
+/**
+ * Capture of a WebSocket connection, synthesising a frame around each message, carried in TCP segments.
+ * In Wireshark, decode the TCP port as WebSocket to dissect the frames, as the capture starts after the handshake.
+ */
+public final class WebSocketCapture {
+    /**
+     * Captures nothing, used when capture is disabled.
+     */
+    public static final WebSocketCapture NONE = new WebSocketCapture(null, false);
+
+    private static final int OPCODE_TEXT = 1;
+    private static final int OPCODE_BINARY = 2;
+
+    private final TcpCaptureStream stream;
+    private final boolean localIsClient;
+
+    WebSocketCapture(TcpCaptureStream stream, boolean localIsClient) {
+        this.stream = stream;
+        this.localIsClient = localIsClient;
+    }
+
+    public void received(byte[] message, boolean text) {
+        if (stream != null) stream.add(false, frameHeader(message.length, text, !localIsClient), message, 0, message.length);
+    }
+
+    public void sent(byte[] message, boolean text) {
+        if (stream != null) stream.add(true, frameHeader(message.length, text, localIsClient), message, 0, message.length);
+    }
+
+    /**
+     * @param masked whether sent by the client, which masks frames, here with a zero key, so the message is unchanged
+     */
+    static byte[] frameHeader(int length, boolean text, boolean masked) {
+        int lengthBytes = length < 126 ? 0 : length < 65536 ? 2 : 8;
+        byte[] header = new byte[2 + lengthBytes + (masked ? 4 : 0)];
+        header[0] = (byte) (0x80 | (text ? OPCODE_TEXT : OPCODE_BINARY)); // Final fragment
+        int mask = masked ? 0x80 : 0;
+        switch (lengthBytes) {
+            case 0 -> header[1] = (byte) (mask | length);
+            case 2 -> {
+                header[1] = (byte) (mask | 126);
+                header[2] = (byte) (length >>> 8);
+                header[3] = (byte) length;
+            }
+            default -> {
+                header[1] = (byte) (mask | 127);
+                for (int i = 0; i < 4; i++) {
+                    header[9 - i] = (byte) (length >>> (8 * i)); // Lengths fit in the lowest 4 of the 8 bytes
+                }
+            }
+        }
+        return header;
+    }
+}
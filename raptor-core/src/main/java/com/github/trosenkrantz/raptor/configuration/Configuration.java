@@ -278,6 +278,20 @@ public class Configuration {
         root.put(BytesFormatter.raptorEncodingToIntermediateEncodedBytes(key), value);
     }
 
+    /* Long */
+
+    public Optional<Long> getLong(String key) {
+        JsonNode node = root.get(BytesFormatter.raptorEncodingToIntermediateEncodedBytes(key));
+        if (node == null || !node.isIntegralNumber() || !node.canConvertToLong()) {
+            return Optional.empty();
+        }
+        return Optional.of(node.longValue());
+    }
+
+    public void setLong(String key, Long value) {
+        root.put(BytesFormatter.raptorEncodingToIntermediateEncodedBytes(key), value);
+    }
+
     /* Double */
 
     public Optional<Double> getDouble(String key) {
@@ -0,0 +1,49 @@
+package com.github.trosenkrantz.raptor.configuration;
+
+import com.github.trosenkrantz.raptor.io.ConsoleIo;
+
+import java.util.Optional;
+
+public class LongSetting extends SettingBase<Long> {
+    private LongSetting(Builder builder) {
+        super(builder);
+    }
+
+    @Override
+    public Optional<Long> read(Configuration configuration) {
+        return configuration.getLong(getParameterKey());
+    }
+
+    @Override
+    public String valueToString(Long value) {
+        return value.toString();
+    }
+
+    @Override
+    public void configure(Configuration configuration) {
+        long value;
+        if (getDefaultValue().isEmpty()) {
+            value = ConsoleIo.askForLong(getDescription(), getValidator());
+        } else {
+            value = ConsoleIo.askForLong(getDescription(), getDefaultValue().get(), getValidator());
+        }
+
+        configuration.setLong(getParameterKey(), value);
+    }
+
+    public static class Builder extends SettingBase.Builder<Long, Builder> {
+        public Builder(String promptValue, String parameterKey, String name, String description) {
+            super(promptValue, parameterKey, name, description);
+        }
+
+        @Override
+        public Builder self() {
+            return this;
+        }
+
+        @Override
+        public LongSetting build() {
+            return new LongSetting(this);
+        }
+    }
+}
@@ -2,20 +2,34 @@ package com.github.trosenkrantz.raptor.gateway;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 
+/**
+ * Consumer queuing values until a delegate is set, then passing them and any further values to the delegate.
+ * Once the delegate is set, values are passed on without locking.
+ */
 public class DelayedConsumer<T> implements Consumer<T> {
     private final List<T> queue = new ArrayList<>();
-    private final AtomicReference<Consumer<T>> delegate = new AtomicReference<>(queue::add);
+    private volatile Consumer<T> delegate = null;
 
     @Override
-    public synchronized void accept(T t) {
-        delegate.get().accept(t);
+    public void accept(T t) {
+        Consumer<T> current = delegate;
+        if (current == null) {
+            synchronized (this) {
+                current = delegate;
+                if (current == null) {
+                    queue.add(t);
+                    return;
+                }
+            }
+        }
+        current.accept(t);
     }
 
     public synchronized void setDelegate(Consumer<T> delegate) {
         queue.forEach(delegate); // Flush the queue
-        this.delegate.set(delegate);
+        queue.clear();
+        this.delegate = delegate;
     }
 }
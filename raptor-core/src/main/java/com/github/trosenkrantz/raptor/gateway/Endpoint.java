@@ -5,5 +5,10 @@ package com.github.trosenkrantz.raptor.gateway;
  * An endpoint is interfacing with an external system.
  */
 public interface Endpoint {
-    void sendToExternalSystem(byte[] payload);
+    /**
+     * Sends data to the external system.
+     *
+     * @param payload data to send, the reference of which the endpoint must release when done with it
+     */
+    void sendToExternalSystem(Payload payload);
 }
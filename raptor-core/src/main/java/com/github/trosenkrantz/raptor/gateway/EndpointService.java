@@ -23,9 +23,9 @@ public interface EndpointService extends RaptorService {
      * Creates an endpoint based on the configuration.
      *
      * @param configuration    configuration to use for creating the endpoint
-     * @param broker           broker for the endpoint to send data to
+     * @param broker           broker for the endpoint to send data to, taking over the reference to each payload
      * @param onEndpointClosed callback to be called when the endpoint is closed
      * @return the created endpoint
      */
-    Endpoint createEndpoint(final Configuration configuration, final Consumer<byte[]> broker, Runnable onEndpointClosed) throws IOException;
+    Endpoint createEndpoint(final Configuration configuration, final Consumer<Payload> broker, Runnable onEndpointClosed) throws IOException;
 }
@@ -0,0 +1,132 @@
+package com.github.trosenkrantz.raptor.gateway;
+
+import java.io.IOException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Single-threaded event loop driving non-blocking channels through one {@link Selector}.
+ * <p>
+ * All channel and selection key operations must happen on the loop thread.
+ * Other threads hand over work with {@link #execute(Runnable)}, which wakes up the selector if needed.
+ */
+public class EventLoop implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(EventLoop.class.getName());
+
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean wakeUpPending = new AtomicBoolean();
+    private final Thread thread;
+
+    private volatile boolean closed = false;
+
+    public EventLoop() throws IOException {
+        selector = Selector.open();
+        thread = Thread.ofPlatform().name("gateway-event-loop").daemon().unstarted(this::run);
+        thread.start();
+    }
+
+    /**
+     * Registers a channel with this event loop.
+     * Must be called on the loop thread, e.g., from a task passed to {@link #execute(Runnable)}.
+     *
+     * @param channel     non-blocking channel to register
+     * @param interestOps initial interest set, see {@link SelectionKey}
+     * @param handler     handler to call when the channel is ready
+     * @return the selection key, to be used for updating the interest set
+     * @throws IOException if the channel cannot be registered
+     */
+    public SelectionKey register(SelectableChannel channel, int interestOps, ChannelHandler handler) throws IOException {
+        if (!inEventLoop()) throw new IllegalStateException("Channels must be registered on the event loop thread.");
+        return channel.register(selector, interestOps, handler);
+    }
+
+    /**
+     * Runs a task on the loop thread.
+     *
+     * @param task task to run
+     */
+    public void execute(Runnable task) {
+        tasks.add(task);
+        if (!inEventLoop() && wakeUpPending.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+    }
+
+    public boolean inEventLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    private void run() {
+        while (!closed) {
+            try {
+                selector.select(this::onSelected);
+                wakeUpPending.set(false);
+                runTasks();
+            } catch (ClosedSelectorException e) {
+                return; // Closed while selecting
+            } catch (IOException e) {
+                LOGGER.log(Level.SEVERE, "Failed selecting channels.", e);
+            }
+        }
+    }
+
+    private void onSelected(SelectionKey key) {
+        ChannelHandler handler = (ChannelHandler) key.attachment();
+        try {
+            handler.onReady(key);
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Failed handling channel event.", e);
+            handler.onFailure(e);
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (Exception e) {
+                LOGGER.log(Level.SEVERE, "Failed running task on event loop.", e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            selector.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed closing selector.", e);
+        }
+    }
+
+    /**
+     * Handler for channel events, attached to the selection key of a channel registered with an {@link EventLoop}.
+     * Called on the loop thread.
+     */
+    public interface ChannelHandler {
+        /**
+         * Called when the channel is ready for one or more operations in its interest set.
+         *
+         * @param key selection key, see {@link SelectionKey#readyOps()}
+         * @throws IOException if an I/O error occurs
+         */
+        void onReady(SelectionKey key) throws IOException;
+
+        /**
+         * Called if {@link #onReady(SelectionKey)} throws.
+         *
+         * @param e the exception thrown
+         */
+        void onFailure(Exception e);
+    }
+}
@@ -0,0 +1,49 @@
+package com.github.trosenkrantz.raptor.gateway;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Passes each payload to all routes from an endpoint.
+ * <p>
+ * Routes share the received payload rather than getting a copy each, so adding routes does not multiply allocation.
+ * The payload is retained once per additional route before passing it on, as a route may release its reference before the next route gets it.
+ * Routes modifying the payload, e.g., corruption, copy it on write through {@link Payload#mutable()}.
+ */
+public class FanOut implements Consumer<Payload> {
+    private static final Logger LOGGER = Logger.getLogger(FanOut.class.getName());
+
+    private final String name;
+    private final List<Consumer<Payload>> routes;
+
+    /**
+     * @param name   name used for logging
+     * @param routes consumers to pass each payload to
+     */
+    public FanOut(String name, List<Consumer<Payload>> routes) {
+        this.name = name;
+        this.routes = List.copyOf(routes);
+    }
+
+    @Override
+    public void accept(Payload payload) {
+        if (routes.isEmpty()) {
+            payload.release();
+            return;
+        }
+
+        for (int i = 1; i < routes.size(); i++) {
+            payload.retain();
+        }
+
+        for (Consumer<Payload> route : routes) {
+            try {
+                route.accept(payload);
+            } catch (Exception e) {
+                LOGGER.log(Level.SEVERE, "Failed passing message from " + name + " to a route.", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.github.trosenkrantz.raptor.gateway;
+
+import com.github.trosenkrantz.raptor.PromptEnum;
+import com.github.trosenkrantz.raptor.configuration.ConfigurableEnum;
+
+public enum GatewayEngine implements PromptEnum, ConfigurableEnum {
+    BLOCKING("b", "[B]locking thread per endpoint", "blocking"),
+    SELECTOR("s", "Non-blocking [s]elector event loop shared by TCP and UDP endpoints", "selector");
+
+    private final String promptValue;
+    private final String description;
+    private final String configurationId;
+
+    GatewayEngine(String promptValue, String description, String configurationId) {
+        this.promptValue = promptValue;
+        this.description = description;
+        this.configurationId = configurationId;
+    }
+
+    @Override
+    public String getPromptValue() {
+        return this.promptValue;
+    }
+
+    @Override
+    public String getDescription() {
+        return this.description;
+    }
+
+    @Override
+    public String getConfigurationId() {
+        return this.configurationId;
+    }
+}
@@ -3,19 +3,33 @@ package com.github.trosenkrantz.raptor.gateway;
 import com.github.trosenkrantz.raptor.configuration.Configuration;
 import com.github.trosenkrantz.raptor.PromptOption;
 import com.github.trosenkrantz.raptor.RootService;
+import com.github.trosenkrantz.raptor.configuration.EnumSetting;
+import com.github.trosenkrantz.raptor.configuration.IntegerSetting;
+import com.github.trosenkrantz.raptor.gateway.metrics.MetricsReporter;
+import com.github.trosenkrantz.raptor.gateway.metrics.RouteMetrics;
 import com.github.trosenkrantz.raptor.gateway.network.impairment.*;
 import com.github.trosenkrantz.raptor.gateway.network.impairment.bandwidth.BandwidthFactory;
+import com.github.trosenkrantz.raptor.gateway.network.impairment.reorder.ReorderFactory;
+import com.github.trosenkrantz.raptor.gateway.network.impairment.trace.TraceFactory;
+import com.github.trosenkrantz.raptor.gateway.network.impairment.trace.TraceFile;
 import com.github.trosenkrantz.raptor.io.ConsoleIo;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.CountDownLatch;
 import java.util.function.Consumer;
+import java.util.logging.Logger;
 
 public class GatewayService implements RootService {
+    private static final Logger LOGGER = Logger.getLogger(GatewayService.class.getName());
+
     private static final String PARAMETER_ENDPOINT = "endpoint";
     private static final Collection<EndpointService> ENDPOINT_SERVICES = EndpointServiceFactory.createServices();
     private static final List<PromptOption<EndpointService>> ENDPOINT_SERVICE_OPTIONS = ENDPOINT_SERVICES.stream().map(endpoint -> new PromptOption<>(endpoint.getPromptValue(), endpoint.getDescription(), endpoint)).toList();
@@ -23,6 +37,45 @@ public class GatewayService implements RootService {
     private static final String PARAMETER_A_TO_B_KEY = "aToB";
     private static final String PARAMETER_B_TO_A_NAME = "B to A";
     private static final String PARAMETER_B_TO_A_KEY = "bToA";
+    private static final String PARAMETER_ENDPOINTS = "endpoints";
+    private static final String PARAMETER_ROUTES = "routes";
+    private static final String PARAMETER_FROM = "from";
+    private static final String PARAMETER_TO = "to";
+    private static final int MAX_ENDPOINTS = 16;
+    private static final List<PromptOption<Boolean>> YES_NO_OPTIONS = List.of(new PromptOption<>("y", "Yes", true), new PromptOption<>("n", "No", false));
+    public static final EnumSetting<GatewayEngine> ENGINE_SETTING = new EnumSetting.Builder<>("e", "gatewayEngine", "Engine", "How endpoints receive and send data", GatewayEngine.class)
+            .defaultValue(GatewayEngine.BLOCKING)
+            .build();
+    public static final IntegerSetting HAND_OFF_CAPACITY_SETTING = new IntegerSetting.Builder("q", "handOffCapacity", "Hand-off capacity", "Maximum number of received messages queued per direction before impairing them, rounded up to a power of two")
+            .defaultValue(1024)
+            .validator(value -> {
+                if (value < 1 || value > 1 << 20) {
+                    return Optional.of("Value must be between 1 and 1048576, both included.");
+                }
+                return Optional.empty();
+            })
+            .build();
+    public static final EnumSetting<OverflowPolicy> OVERFLOW_POLICY_SETTING = new EnumSetting.Builder<>("o", "overflowPolicy", "Overflow policy", "What to do when a hand-off queue is full", OverflowPolicy.class)
+            .defaultValue(OverflowPolicy.BLOCK)
+            .build();
+    public static final IntegerSetting TIMER_TICK_SETTING = new IntegerSetting.Builder("t", "timerTick", "Timer tick [us]", "Resolution of the timer delaying messages for latency and bandwidth [us]")
+            .defaultValue((int) (TimingWheel.DEFAULT_TICK_NANOS / 1_000L))
+            .validator(value -> {
+                if (value < 10 || value > 1_000_000) {
+                    return Optional.of("Value must be between 10 and 1000000, both included.");
+                }
+                return Optional.empty();
+            })
+            .build();
+    public static final IntegerSetting METRICS_INTERVAL_SETTING = new IntegerSetting.Builder("m", "metricsInterval", "Metrics interval [s]", "Time between logging a summary of throughput, drops, and delays per route [s], 0 to disable")
+            .defaultValue(0)
+            .validator(value -> {
+                if (value < 0 || value > 86_400) {
+                    return Optional.of("Value must be between 0 and 86400, both included.");
+                }
+                return Optional.empty();
+            })
+            .build();
 
     private CountDownLatch shouldFinish;
 
@@ -38,19 +91,65 @@ public class GatewayService implements RootService {
 
     @Override
     public String getDescription() {
-        return "Gateway between two systems";
+        return "Gateway between two or more systems";
     }
 
     @Override
     public void configure(Configuration configuration) {
-        configureEndpoint(configuration, "A");
-        configureEndpoint(configuration, "B");
+        int endpointCount = ConsoleIo.askForInt("Number of endpoints", 2, value -> {
+            if (value < 2 || value > MAX_ENDPOINTS) {
+                return Optional.of("Value must be between 2 and " + MAX_ENDPOINTS + ", both included.");
+            }
+            return Optional.empty();
+        });
+
+        if (endpointCount == 2) {
+            configuration.setSubConfiguration("a", configureEndpoint("A"));
+            configuration.setSubConfiguration("b", configureEndpoint("B"));
+
+            configuration.setSubConfiguration(PARAMETER_A_TO_B_KEY, configureNetworkImpairment(PARAMETER_A_TO_B_NAME));
+            configuration.setSubConfiguration(PARAMETER_B_TO_A_KEY, configureNetworkImpairment(PARAMETER_B_TO_A_NAME));
+        } else {
+            configureRoutes(configuration, endpointCount);
+        }
 
-        configureNetworkImpairment(configuration, PARAMETER_A_TO_B_NAME, PARAMETER_A_TO_B_KEY);
-        configureNetworkImpairment(configuration, PARAMETER_B_TO_A_NAME, PARAMETER_B_TO_A_KEY);
+        ConsoleIo.writeLine("---- Configuring gateway ----");
+        ConsoleIo.configureAdvancedSettings("Configure gateway", List.of(ENGINE_SETTING, HAND_OFF_CAPACITY_SETTING, OVERFLOW_POLICY_SETTING, TIMER_TICK_SETTING, METRICS_INTERVAL_SETTING), configuration);
     }
 
-    private static void configureEndpoint(Configuration rootConfiguration, String endpointName) {
+    /**
+     * Configures named endpoints and routes between them, for more than two endpoints.
+     */
+    private static void configureRoutes(Configuration rootConfiguration, int endpointCount) {
+        List<String> endpointNames = new ArrayList<>();
+        Configuration endpointsConfiguration = Configuration.empty();
+        for (int i = 0; i < endpointCount; i++) {
+            String endpointName = ConsoleIo.askForString("Name of endpoint " + (i + 1), String.valueOf((char) ('a' + i)), value -> {
+                if (value.isBlank()) return Optional.of("Name must not be empty.");
+                if (endpointNames.contains(value)) return Optional.of("Name is already used by another endpoint.");
+                return Optional.empty();
+            });
+            endpointNames.add(endpointName);
+            endpointsConfiguration.setSubConfiguration(endpointName, configureEndpoint(endpointName));
+        }
+        rootConfiguration.setSubConfiguration(PARAMETER_ENDPOINTS, endpointsConfiguration);
+
+        List<Configuration> routeConfigurations = new ArrayList<>();
+        for (String from : endpointNames) {
+            for (String to : endpointNames) {
+                if (from.equals(to)) continue;
+                if (!ConsoleIo.askForOptions("Forward data from " + from + " to " + to, YES_NO_OPTIONS, YES_NO_OPTIONS.getFirst(), false)) continue;
+
+                Configuration routeConfiguration = configureNetworkImpairment(from + " to " + to);
+                routeConfiguration.setRaptorEncodedString(PARAMETER_FROM, from);
+                routeConfiguration.setRaptorEncodedString(PARAMETER_TO, to);
+                routeConfigurations.add(routeConfiguration);
+            }
+        }
+        rootConfiguration.setSubConfigurationArray(PARAMETER_ROUTES, routeConfigurations);
+    }
+
+    private static Configuration configureEndpoint(String endpointName) {
         ConsoleIo.writeLine("---- Configuring endpoint " + endpointName + " ----");
 
         EndpointService service = ConsoleIo.askForOptions(ENDPOINT_SERVICE_OPTIONS, false);
@@ -58,35 +157,59 @@ public class GatewayService implements RootService {
         endpointConfiguration.setRaptorEncodedString(PARAMETER_ENDPOINT, service.getParameterKey());
         service.configureEndpoint(endpointConfiguration);
 
-        rootConfiguration.setSubConfiguration(endpointName.toLowerCase(Locale.ROOT), endpointConfiguration);
+        return endpointConfiguration;
     }
 
-    private static void configureNetworkImpairment(Configuration rootConfiguration, String directionName, String directionKey) {
-        ConsoleIo.writeLine("---- Configuring network impairment " + directionName + " ----");
+    private static Configuration configureNetworkImpairment(String routeName) {
+        ConsoleIo.writeLine("---- Configuring network impairment " + routeName + " ----");
 
-        Configuration directionConfiguration = Configuration.empty();
-        ConsoleIo.configureAdvancedSettings("Configure network impairment", List.of(BandwidthFactory.SETTING, LatencyFactory.SETTING, CorruptionFactory.SETTING, PacketLossFactory.SETTING, DuplicationFactory.SETTING), directionConfiguration);
+        Configuration routeConfiguration = Configuration.empty();
+        ConsoleIo.configureAdvancedSettings("Configure network impairment", List.of(BandwidthFactory.SETTING, LatencyFactory.SETTING, LatencyFactory.ORDER_SETTING, ReorderFactory.SETTING, TraceFactory.SETTING, CorruptionFactory.SETTING, CorruptionFactory.BURST_LENGTH_SETTING, PacketLossFactory.SETTING, PacketLossFactory.BURST_SETTING, DuplicationFactory.SETTING), routeConfiguration);
 
-        rootConfiguration.setSubConfiguration(directionKey, directionConfiguration);
+        return routeConfiguration;
     }
 
     @Override
     public void run(Configuration configuration) throws Exception {
         shouldFinish = new CountDownLatch(1);
+        EventLoop eventLoop = ENGINE_SETTING.readAndRequireOrDefault(configuration) == GatewayEngine.SELECTOR ? new EventLoop() : null;
 
-        // As endpoint A might produce data before endpoint B is ready, we need to buffer the data
-        DelayedConsumer<byte[]> fromAConsumer = new DelayedConsumer<>();
-        DelayedConsumer<byte[]> fromBConsumer = new DelayedConsumer<>();
+        Map<String, Configuration> endpointConfigurations = readEndpointConfigurations(configuration);
+        List<Route> routes = readRoutes(configuration, endpointConfigurations.keySet());
+        routes.forEach(route -> route.metrics().register());
 
-        Endpoint endpointA = createEndpoint(configuration.requireSubConfiguration("a"), fromAConsumer);
-        Endpoint endpointB = createEndpoint(configuration.requireSubConfiguration("b"), fromBConsumer);
+        // As an endpoint might produce data before the endpoints it routes to are ready, we need to buffer the data
+        // Bounded hand-offs also decouple a fast receiving endpoint from a slow sending one
+        int handOffCapacity = HAND_OFF_CAPACITY_SETTING.readAndRequireOrDefault(configuration);
+        OverflowPolicy overflowPolicy = OVERFLOW_POLICY_SETTING.readAndRequireOrDefault(configuration);
+        Map<String, HandOff> handOffs = new LinkedHashMap<>();
+        Map<String, Endpoint> endpoints = new HashMap<>();
+        for (Map.Entry<String, Configuration> entry : endpointConfigurations.entrySet()) {
+            // Dropping a payload before fanning out drops it for all routes from the endpoint
+            List<RouteMetrics> metricsFrom = routes.stream().filter(route -> route.from().equals(entry.getKey())).map(Route::metrics).toList();
+            HandOff handOff = new HandOff(entry.getKey(), handOffCapacity, overflowPolicy, () -> metricsFrom.forEach(RouteMetrics::onOverflowDrop));
+            handOffs.put(entry.getKey(), handOff);
+            endpoints.put(entry.getKey(), createEndpoint(entry.getValue(), handOff, eventLoop));
+        }
 
-        Consumer<byte[]> impairmentAToB = createNetworkImpairment(configuration.getSubConfiguration(PARAMETER_A_TO_B_KEY).orElse(Configuration.empty()), endpointB);
-        Consumer<byte[]> impairmentBToA = createNetworkImpairment(configuration.getSubConfiguration(PARAMETER_B_TO_A_KEY).orElse(Configuration.empty()), endpointA);
+        // A timer per route, shared by the impairments of that route
+        long timerTickNanos = TIMER_TICK_SETTING.readAndRequireOrDefault(configuration) * 1_000L;
+        Map<String, Consumer<Payload>> senders = createSenders(endpoints, routes);
+        Map<String, List<Consumer<Payload>>> routesByFrom = new HashMap<>();
+        for (Route route : routes) {
+            Consumer<Payload> impairment = createNetworkImpairment(route.impairmentConfiguration(), senders.get(route.to()), new TimingWheel(route.getName(), timerTickNanos), route.metrics());
+            routesByFrom.computeIfAbsent(route.from(), from -> new ArrayList<>()).add(impairment);
+        }
 
         // Now that endpoints and impairments are created, we can start processing the data, flushing the buffers
-        fromAConsumer.setDelegate(impairmentAToB); // When receiving data from A, pass to impairment A to B
-        fromBConsumer.setDelegate(impairmentBToA); // When receiving data from B, pass to impairment B to A
+        for (Map.Entry<String, HandOff> entry : handOffs.entrySet()) {
+            List<Consumer<Payload>> routesFrom = routesByFrom.getOrDefault(entry.getKey(), List.of());
+            if (routesFrom.isEmpty()) LOGGER.info("No routes from endpoint " + entry.getKey() + ", discarding data received from it.");
+            entry.getValue().start(routesFrom.size() == 1 ? routesFrom.getFirst() : new FanOut(entry.getKey(), routesFrom));
+        }
+
+        int metricsInterval = METRICS_INTERVAL_SETTING.readAndRequireOrDefault(configuration);
+        MetricsReporter metricsReporter = metricsInterval > 0 ? new MetricsReporter(routes.stream().map(Route::metrics).toList(), metricsInterval) : null;
 
         Thread.ofVirtual().start(() -> {
             ConsoleIo.promptUserToExit();
@@ -94,28 +217,111 @@ public class GatewayService implements RootService {
         });
 
         shouldFinish.await();
+        if (metricsReporter != null) metricsReporter.close();
+        routes.forEach(route -> route.metrics().unregister());
+        if (eventLoop != null) eventLoop.close();
+    }
+
+    /**
+     * Reads the endpoints, either as named endpoints, or as endpoints A and B.
+     */
+    private static Map<String, Configuration> readEndpointConfigurations(Configuration configuration) {
+        Map<String, Configuration> result = new LinkedHashMap<>();
+        Optional<Configuration> endpointsConfiguration = configuration.getSubConfiguration(PARAMETER_ENDPOINTS);
+        if (endpointsConfiguration.isPresent()) {
+            for (String name : endpointsConfiguration.get().keys()) {
+                result.put(name, endpointsConfiguration.get().requireSubConfiguration(name));
+            }
+        } else {
+            result.put("a", configuration.requireSubConfiguration("a"));
+            result.put("b", configuration.requireSubConfiguration("b"));
+        }
+        return result;
     }
 
-    private Endpoint createEndpoint(Configuration endpointConfiguration, Consumer<byte[]> consumer) throws IOException {
+    /**
+     * Reads the routes, either as a routing table, or as the two directions between endpoints A and B.
+     */
+    private static List<Route> readRoutes(Configuration configuration, Collection<String> endpointNames) {
+        if (configuration.getSubConfiguration(PARAMETER_ENDPOINTS).isEmpty()) {
+            return List.of(
+                    new Route("a", "b", configuration.getSubConfiguration(PARAMETER_A_TO_B_KEY).orElse(Configuration.empty())),
+                    new Route("b", "a", configuration.getSubConfiguration(PARAMETER_B_TO_A_KEY).orElse(Configuration.empty()))
+            );
+        }
+
+        List<Route> result = new ArrayList<>();
+        for (Configuration routeConfiguration : configuration.getSubConfigurationArray(PARAMETER_ROUTES)) {
+            Route route = new Route(routeConfiguration.requireRaptorEncodedString(PARAMETER_FROM), routeConfiguration.requireRaptorEncodedString(PARAMETER_TO), routeConfiguration);
+            if (!endpointNames.contains(route.from())) throw new IllegalArgumentException("Route " + route.getName() + " is from unknown endpoint " + route.from() + ".");
+            if (!endpointNames.contains(route.to())) throw new IllegalArgumentException("Route " + route.getName() + " is to unknown endpoint " + route.to() + ".");
+            result.add(route);
+        }
+        return result;
+    }
+
+    /**
+     * Creates consumers sending to each endpoint.
+     * When several routes lead to an endpoint, they may send from different threads at the same time, so sending is serialised for that endpoint.
+     */
+    private static Map<String, Consumer<Payload>> createSenders(Map<String, Endpoint> endpoints, List<Route> routes) {
+        Map<String, Consumer<Payload>> result = new HashMap<>();
+        for (Map.Entry<String, Endpoint> entry : endpoints.entrySet()) {
+            Endpoint endpoint = entry.getValue();
+            long routesTo = routes.stream().filter(route -> route.to().equals(entry.getKey())).count();
+            if (routesTo > 1) {
+                result.put(entry.getKey(), payload -> {
+                    synchronized (endpoint) {
+                        endpoint.sendToExternalSystem(payload);
+                    }
+                });
+            } else {
+                result.put(entry.getKey(), endpoint::sendToExternalSystem);
+            }
+        }
+        return result;
+    }
+
+    private Endpoint createEndpoint(Configuration endpointConfiguration, Consumer<Payload> consumer, EventLoop eventLoop) throws IOException {
         String endpointKey = endpointConfiguration.requireRaptorEncodedString(PARAMETER_ENDPOINT);
         EndpointService configuredEndpointService = ENDPOINT_SERVICES.stream().filter(service -> service.getParameterKey().equals(endpointKey)).findAny().orElseThrow(() -> new IllegalArgumentException("Service " + endpointKey + " not found."));
+
+        if (eventLoop != null) {
+            if (configuredEndpointService instanceof SelectableEndpointService selectableService && selectableService.supportsEventLoop(endpointConfiguration)) {
+                return selectableService.createEndpoint(endpointConfiguration, consumer, () -> shouldFinish.countDown(), eventLoop);
+            }
+            LOGGER.warning(configuredEndpointService.getDescription() + " endpoint does not support the selector engine with this configuration, using a blocking thread instead.");
+        }
+
         return configuredEndpointService.createEndpoint(endpointConfiguration, consumer, () -> shouldFinish.countDown());
     }
 
-    private Consumer<byte[]> createNetworkImpairment(Configuration impairmentConfiguration, Endpoint toEndpoint) {
+    private Consumer<Payload> createNetworkImpairment(Configuration impairmentConfiguration, Consumer<Payload> toEndpoint, TimingWheel timingWheel, RouteMetrics metrics) throws IOException {
         List<NetworkImpairmentFactory> factories = new ArrayList<>();
 
-        BandwidthFactory.SETTING.read(impairmentConfiguration).ifPresent(bandwidth -> factories.add(new BandwidthFactory(bandwidth)));
-        LatencyFactory.SETTING.read(impairmentConfiguration).ifPresent(latency -> factories.add(new LatencyFactory(latency)));
-        CorruptionFactory.SETTING.read(impairmentConfiguration).ifPresent(corruption -> factories.add(new CorruptionFactory(corruption)));
-        PacketLossFactory.SETTING.read(impairmentConfiguration).ifPresent(packetLoss -> factories.add(new PacketLossFactory(packetLoss)));
+        BandwidthFactory.SETTING.read(impairmentConfiguration).ifPresent(bandwidth -> factories.add(new BandwidthFactory(bandwidth, metrics)));
+        LatencyFactory.SETTING.read(impairmentConfiguration).ifPresent(latency -> factories.add(new LatencyFactory(latency, LatencyFactory.ORDER_SETTING.readAndRequireOrDefault(impairmentConfiguration), timingWheel, metrics)));
+        ReorderFactory.SETTING.read(impairmentConfiguration).ifPresent(reordering -> factories.add(new ReorderFactory(reordering, timingWheel)));
+        Optional<String> trace = TraceFactory.SETTING.read(impairmentConfiguration);
+        if (trace.isPresent()) factories.add(new TraceFactory(TraceFile.open(Path.of(trace.get())), timingWheel, metrics));
+        CorruptionFactory.SETTING.read(impairmentConfiguration).ifPresent(corruption -> factories.add(new CorruptionFactory(corruption, CorruptionFactory.BURST_LENGTH_SETTING.readAndRequireOrDefault(impairmentConfiguration))));
+        PacketLossFactory.SETTING.read(impairmentConfiguration).ifPresent(packetLoss -> factories.add(new PacketLossFactory(packetLoss, metrics)));
+        PacketLossFactory.BURST_SETTING.read(impairmentConfiguration).ifPresent(burstLoss -> factories.add(new PacketLossFactory(burstLoss, metrics)));
         DuplicationFactory.SETTING.read(impairmentConfiguration).ifPresent(duplication -> factories.add(new DuplicationFactory(duplication)));
 
-        // Each factory needs the next consumer to pass the data to, so combine them in reverse order
-        Consumer<byte[]> result = toEndpoint::sendToExternalSystem;
-        for (int i = factories.size() - 1; i >= 0; i--) {
-            result = factories.get(i).create(result);
+        return metrics.countIn(NetworkImpairmentFactory.chain(factories, metrics.countOut(toEndpoint)));
+    }
+
+    /**
+     * Forwarding of data received from one endpoint to another, through its own network impairment.
+     */
+    private record Route(String from, String to, Configuration impairmentConfiguration, RouteMetrics metrics) {
+        private Route(String from, String to, Configuration impairmentConfiguration) {
+            this(from, to, impairmentConfiguration, new RouteMetrics(from + " to " + to));
+        }
+
+        private String getName() {
+            return from + " to " + to;
         }
-        return result;
     }
 }
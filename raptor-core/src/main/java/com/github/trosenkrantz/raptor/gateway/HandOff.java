@@ -0,0 +1,132 @@
+package com.github.trosenkrantz.raptor.gateway;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bounded hand-off from the thread receiving payloads from an endpoint to a thread passing them on, e.g., to network impairments.
+ * <p>
+ * Until {@link #start(Consumer)} is called, payloads are queued, so an endpoint can receive before the rest of the gateway is ready.
+ * When the queue is full, the {@link OverflowPolicy} decides whether to block the receiver or drop a payload.
+ * <p>
+ * As this is where payloads enter the gateway, it stamps them with the time received.
+ */
+public class HandOff implements Consumer<Payload> {
+    private static final Logger LOGGER = Logger.getLogger(HandOff.class.getName());
+    private static final int SPINS_BEFORE_PARKING = 64;
+    private static final long BLOCKED_PARK_NANOS = 50_000;
+
+    private final String name;
+    private final RingBuffer<Payload> queue;
+    private final OverflowPolicy overflowPolicy;
+    private final AtomicLong droppedNewest = new AtomicLong();
+    private final AtomicLong droppedOldest = new AtomicLong();
+    private final Runnable onDrop;
+
+    private volatile Thread consumerThread;
+    private volatile boolean consumerParked = false;
+
+    /**
+     * @param name           name used for the consumer thread and logging
+     * @param capacity       maximum number of queued payloads, rounded up to a power of two
+     * @param overflowPolicy what to do when the queue is full
+     */
+    public HandOff(String name, int capacity, OverflowPolicy overflowPolicy) {
+        this(name, capacity, overflowPolicy, () -> {
+        });
+    }
+
+    /**
+     * @param name           name used for the consumer thread and logging
+     * @param capacity       maximum number of queued payloads, rounded up to a power of two
+     * @param overflowPolicy what to do when the queue is full
+     * @param onDrop         called for each payload dropped due to overflow, e.g., to count it
+     */
+    public HandOff(String name, int capacity, OverflowPolicy overflowPolicy, Runnable onDrop) {
+        this.name = name;
+        this.queue = new RingBuffer<>(capacity);
+        this.overflowPolicy = overflowPolicy;
+        this.onDrop = onDrop;
+    }
+
+    @Override
+    public void accept(Payload payload) {
+        payload.setReceivedNanos(System.nanoTime());
+        while (!queue.offer(payload)) {
+            switch (overflowPolicy) {
+                case BLOCK -> waitForRoom();
+                case DROP_NEWEST -> {
+                    payload.release();
+                    onDrop(droppedNewest, "newest");
+                    return;
+                }
+                case DROP_OLDEST -> {
+                    Payload oldest = queue.poll();
+                    if (oldest != null) {
+                        oldest.release();
+                        onDrop(droppedOldest, "oldest");
+                    }
+                }
+            }
+        }
+
+        if (consumerParked) {
+            Thread thread = consumerThread;
+            if (thread != null) LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Starts passing queued and future payloads to the consumer, on a dedicated thread.
+     *
+     * @param consumer consumer to pass payloads to
+     */
+    public void start(Consumer<Payload> consumer) {
+        consumerThread = Thread.ofPlatform().name("gateway-hand-off-" + name).daemon().start(() -> keepConsuming(consumer));
+    }
+
+    private void keepConsuming(Consumer<Payload> consumer) {
+        while (true) {
+            Payload payload = queue.poll();
+            if (payload == null) {
+                consumerParked = true;
+                // Check again, as a producer may have offered before seeing us parked
+                if (queue.isEmpty()) LockSupport.park(this);
+                consumerParked = false;
+                continue;
+            }
+
+            try {
+                consumer.accept(payload);
+            } catch (Exception e) {
+                LOGGER.log(Level.SEVERE, "Failed passing message from " + name + ".", e);
+            }
+        }
+    }
+
+    private void waitForRoom() {
+        for (int i = 0; i < SPINS_BEFORE_PARKING && queue.size() >= queue.capacity(); i++) {
+            Thread.onSpinWait();
+        }
+        if (queue.size() >= queue.capacity()) LockSupport.parkNanos(this, BLOCKED_PARK_NANOS);
+    }
+
+    private void onDrop(AtomicLong counter, String which) {
+        onDrop.run();
+        long count = counter.incrementAndGet();
+        if (Long.bitCount(count) == 1) { // Log with exponential back-off to not flood the log
+            LOGGER.warning("Hand-off queue " + name + " is full, dropped " + which + " message, " + count + " dropped so far.");
+        }
+    }
+
+    public long getDroppedNewest() {
+        return droppedNewest.get();
+    }
+
+    public long getDroppedOldest() {
+        return droppedOldest.get();
+    }
+}
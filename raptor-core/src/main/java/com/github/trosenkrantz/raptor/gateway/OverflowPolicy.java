@@ -0,0 +1,35 @@
+package com.github.trosenkrantz.raptor.gateway;
+
+import com.github.trosenkrantz.raptor.PromptEnum;
+import com.github.trosenkrantz.raptor.configuration.ConfigurableEnum;
+
+public enum OverflowPolicy implements PromptEnum, ConfigurableEnum {
+    BLOCK("b", "[B]lock the receiving endpoint until there is room", "block"),
+    DROP_NEWEST("n", "Drop the [n]ewest message, the one being received", "dropNewest"),
+    DROP_OLDEST("o", "Drop the [o]ldest queued message", "dropOldest");
+
+    private final String promptValue;
+    private final String description;
+    private final String configurationId;
+
+    OverflowPolicy(String promptValue, String description, String configurationId) {
+        this.promptValue = promptValue;
+        this.description = description;
+        this.configurationId = configurationId;
+    }
+
+    @Override
+    public String getPromptValue() {
+        return this.promptValue;
+    }
+
+    @Override
+    public String getDescription() {
+        return this.description;
+    }
+
+    @Override
+    public String getConfigurationId() {
+        return this.configurationId;
+    }
+}
@@ -0,0 +1,198 @@
+package com.github.trosenkrantz.raptor.gateway;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Data passing through the gateway, from the endpoint receiving it, through network impairments, to the endpoint sending it.
+ * <p>
+ * Payloads are reference counted, so we can reuse their backing arrays instead of allocating for every message.
+ * Whoever is given a payload owns one reference, and must either pass it on or {@link #release()} it.
+ * To pass the same payload on more than once, {@link #retain()} it for each extra time.
+ * When the last reference is released, a pooled payload returns to its {@link PayloadPool}.
+ * <p>
+ * The data is the first {@link #length()} bytes of {@link #array()}.
+ * As a payload may be shared, only modify data through {@link #mutable()}.
+ */
+public final class Payload {
+    private final byte[] array;
+    private final ByteBuffer buffer;
+    private final PayloadPool pool;
+    private final AtomicInteger references = new AtomicInteger(1);
+
+    private int length;
+    private long receivedNanos = 0;
+    private int flow = 0;
+
+    Payload(byte[] array, int length, PayloadPool pool) {
+        this.array = array;
+        this.buffer = ByteBuffer.wrap(array);
+        this.length = length;
+        this.pool = pool;
+    }
+
+    /**
+     * Creates an unpooled payload backed by the given array, without copying it.
+     *
+     * @param bytes data
+     * @return payload
+     */
+    public static Payload wrap(byte[] bytes) {
+        return new Payload(bytes, bytes.length, null);
+    }
+
+    /**
+     * Allocates a payload from the shared pool.
+     *
+     * @param capacity minimum capacity
+     * @return payload with length equal to the requested capacity
+     */
+    public static Payload allocate(int capacity) {
+        return PayloadPool.shared().allocate(capacity);
+    }
+
+    /**
+     * Copies data from a buffer to a payload from the shared pool.
+     *
+     * @param source buffer to copy the remaining bytes of, the position of which is advanced
+     * @return payload
+     */
+    public static Payload copyOf(ByteBuffer source) {
+        Payload payload = allocate(source.remaining());
+        source.get(payload.array, 0, payload.length);
+        return payload;
+    }
+
+    /**
+     * Copies data from an array to a payload from the shared pool.
+     *
+     * @param source array to copy from
+     * @param offset offset of the data
+     * @param length length of the data
+     * @return payload
+     */
+    public static Payload copyOf(byte[] source, int offset, int length) {
+        Payload payload = allocate(length);
+        System.arraycopy(source, offset, payload.array, 0, length);
+        return payload;
+    }
+
+    public byte[] array() {
+        return array;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public int capacity() {
+        return array.length;
+    }
+
+    /**
+     * Sets the length of the data, e.g., after reading into {@link #receiveBuffer()}.
+     *
+     * @param length new length, at most the capacity
+     */
+    public void setLength(int length) {
+        if (length < 0 || length > array.length) throw new IllegalArgumentException("Length " + length + " is outside capacity " + array.length + ".");
+        this.length = length;
+    }
+
+    /**
+     * @return time the gateway received the data, in terms of {@link System#nanoTime()}, or 0 if not set
+     */
+    public long receivedNanos() {
+        return receivedNanos;
+    }
+
+    public void setReceivedNanos(long receivedNanos) {
+        this.receivedNanos = receivedNanos;
+    }
+
+    /**
+     * @return identifier of the flow the data belongs to, e.g., a hash of the source address and port, or 0 if unknown
+     */
+    public int flow() {
+        return flow;
+    }
+
+    public void setFlow(int flow) {
+        this.flow = flow;
+    }
+
+    /**
+     * Gets a buffer spanning the full capacity, to receive data into before passing the payload on.
+     * Must only be used by the sole owner.
+     *
+     * @return cleared buffer
+     */
+    public ByteBuffer receiveBuffer() {
+        return buffer.clear();
+    }
+
+    /**
+     * Gets a new buffer view of the data, e.g., for writing to a channel.
+     *
+     * @return buffer with position 0 and limit equal to the length
+     */
+    public ByteBuffer asByteBuffer() {
+        return ByteBuffer.wrap(array, 0, length);
+    }
+
+    /**
+     * Copies the data to a new array.
+     *
+     * @return copy of data
+     */
+    public byte[] toBytes() {
+        return Arrays.copyOf(array, length);
+    }
+
+    /**
+     * Adds a reference to this payload.
+     *
+     * @return this payload
+     */
+    public Payload retain() {
+        if (references.getAndIncrement() <= 0) throw new IllegalStateException("Payload is already released.");
+        return this;
+    }
+
+    /**
+     * Removes a reference to this payload, returning it to its pool if it was the last one.
+     */
+    public void release() {
+        int remaining = references.decrementAndGet();
+        if (remaining == 0) {
+            if (pool != null) pool.recycle(this);
+        } else if (remaining < 0) {
+            throw new IllegalStateException("Payload is already released.");
+        }
+    }
+
+    /**
+     * Gets a payload with the same data which the caller may modify.
+     * If this is the only reference, this is returned, otherwise, this is released in favour of a copy.
+     *
+     * @return payload owned solely by the caller
+     */
+    public Payload mutable() {
+        if (references.get() == 1) return this;
+
+        Payload copy = allocate(length);
+        System.arraycopy(array, 0, copy.array, 0, length);
+        copy.receivedNanos = receivedNanos;
+        copy.flow = flow;
+        release();
+        return copy;
+    }
+
+    void reset(int length) {
+        this.length = length;
+        this.receivedNanos = 0;
+        this.flow = 0;
+        references.set(1);
+    }
+}
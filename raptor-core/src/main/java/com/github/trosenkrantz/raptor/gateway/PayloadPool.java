@@ -0,0 +1,67 @@
+package com.github.trosenkrantz.raptor.gateway;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Pool of {@link Payload} instances in power-of-two size classes.
+ * Each size class keeps a bounded free list. Payloads released when the free list is full, or larger than the largest size class, are left to the garbage collector.
+ */
+public final class PayloadPool {
+    private static final int MIN_SIZE_CLASS_BITS = 6; // 64 B
+    private static final int MAX_SIZE_CLASS_BITS = 16; // 64 KiB, fits any UDP payload
+    private static final int BYTES_PER_SIZE_CLASS = 4 * 1024 * 1024; // Bound memory held by each free list
+    private static final int MAX_FREE_PER_SIZE_CLASS = 1024;
+
+    private static final PayloadPool SHARED = new PayloadPool();
+
+    private final ArrayBlockingQueue<?>[] freeLists = new ArrayBlockingQueue<?>[MAX_SIZE_CLASS_BITS - MIN_SIZE_CLASS_BITS + 1];
+
+    public PayloadPool() {
+        for (int i = 0; i < freeLists.length; i++) {
+            int size = 1 << (i + MIN_SIZE_CLASS_BITS);
+            freeLists[i] = new ArrayBlockingQueue<Payload>(Math.min(MAX_FREE_PER_SIZE_CLASS, BYTES_PER_SIZE_CLASS / size));
+        }
+    }
+
+    public static PayloadPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * Gets a payload from the pool, or a new one if none is free.
+     *
+     * @param length minimum capacity
+     * @return payload with a single reference and the requested length
+     */
+    public Payload allocate(int length) {
+        int sizeClass = getSizeClass(length);
+        if (sizeClass >= freeLists.length) {
+            return new Payload(new byte[length], length, null); // Too large to pool
+        }
+
+        Payload payload = freeList(sizeClass).poll();
+        if (payload == null) {
+            return new Payload(new byte[1 << (sizeClass + MIN_SIZE_CLASS_BITS)], length, this);
+        }
+
+        payload.reset(length);
+        return payload;
+    }
+
+    void recycle(Payload payload) {
+        boolean unused = freeList(getSizeClass(payload.capacity())).offer(payload); // If full, leave it to the garbage collector
+    }
+
+    @SuppressWarnings("unchecked")
+    private ArrayBlockingQueue<Payload> freeList(int sizeClass) {
+        return (ArrayBlockingQueue<Payload>) freeLists[sizeClass];
+    }
+
+    /**
+     * Gets the index of the smallest size class that fits the length.
+     */
+    static int getSizeClass(int length) {
+        if (length <= 1 << MIN_SIZE_CLASS_BITS) return 0;
+        return 32 - Integer.numberOfLeadingZeros(length - 1) - MIN_SIZE_CLASS_BITS;
+    }
+}
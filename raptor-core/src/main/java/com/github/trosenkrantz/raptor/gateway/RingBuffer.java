@@ -0,0 +1,105 @@
+package com.github.trosenkrantz.raptor.gateway;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free queue for multiple producers and consumers, based on Dmitry Vyukov's bounded MPMC queue.
+ * <p>
+ * Each slot has a sequence number telling whether it is ready to be written or read for the current lap around the ring.
+ * Producers and consumers claim positions with a compare-and-set, so neither offering nor polling takes a lock or allocates.
+ *
+ * @param <T> element type
+ */
+public final class RingBuffer<T> {
+    private final Object[] elements;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong(); // Next position to offer to
+    private final AtomicLong head = new AtomicLong(); // Next position to poll from
+
+    /**
+     * @param capacity minimum capacity, rounded up to a power of two
+     */
+    public RingBuffer(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) throw new IllegalArgumentException("Capacity must be between 1 and 2^30, both included.");
+        int size = Integer.highestOneBit(capacity) == capacity ? capacity : Integer.highestOneBit(capacity) << 1;
+
+        elements = new Object[size];
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        mask = size - 1;
+    }
+
+    /**
+     * Adds an element if there is room.
+     *
+     * @param element element to add
+     * @return true iff added, false if full
+     */
+    public boolean offer(T element) {
+        long position = tail.get();
+        int index;
+        while (true) {
+            index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) break;
+                position = tail.get(); // Lost the race to another producer
+            } else if (difference < 0) {
+                return false; // Slot not yet consumed from the previous lap
+            } else {
+                position = tail.get(); // Another producer claimed the slot
+            }
+        }
+
+        elements[index] = element;
+        sequences.set(index, position + 1); // Publish to consumers
+        return true;
+    }
+
+    /**
+     * Removes the oldest element.
+     *
+     * @return the element, or null if empty
+     */
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        long position = head.get();
+        int index;
+        while (true) {
+            index = (int) position & mask;
+            long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) break;
+                position = head.get(); // Lost the race to another consumer
+            } else if (difference < 0) {
+                return null; // Slot not yet published
+            } else {
+                position = head.get(); // Another consumer claimed the slot
+            }
+        }
+
+        T element = (T) elements[index];
+        elements[index] = null;
+        sequences.set(index, position + mask + 1); // Free the slot for the next lap
+        return element;
+    }
+
+    public boolean isEmpty() {
+        return head.get() >= tail.get();
+    }
+
+    /**
+     * @return approximate number of elements, as producers and consumers may be concurrently active
+     */
+    public int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+}
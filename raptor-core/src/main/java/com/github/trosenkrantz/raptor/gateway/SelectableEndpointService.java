@@ -0,0 +1,30 @@
+package com.github.trosenkrantz.raptor.gateway;
+
+import com.github.trosenkrantz.raptor.configuration.Configuration;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Endpoint service that can drive its endpoints from a shared {@link EventLoop} instead of a blocking thread per endpoint.
+ */
+public interface SelectableEndpointService extends EndpointService {
+    /**
+     * Whether an endpoint with the given configuration can run on an event loop.
+     *
+     * @param configuration configuration of the endpoint
+     * @return true iff {@link #createEndpoint(Configuration, Consumer, Runnable, EventLoop)} supports the configuration
+     */
+    boolean supportsEventLoop(Configuration configuration);
+
+    /**
+     * Creates an endpoint based on the configuration, with all I/O happening on the event loop.
+     *
+     * @param configuration    configuration to use for creating the endpoint
+     * @param broker           broker for the endpoint to send data to, called on the event loop thread and taking over the reference to each payload
+     * @param onEndpointClosed callback to be called when the endpoint is closed
+     * @param eventLoop        event loop to register channels with
+     * @return the created endpoint
+     */
+    Endpoint createEndpoint(final Configuration configuration, final Consumer<Payload> broker, Runnable onEndpointClosed, EventLoop eventLoop) throws IOException;
+}
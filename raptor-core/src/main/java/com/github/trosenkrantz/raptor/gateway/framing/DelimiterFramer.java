@@ -0,0 +1,39 @@
+package com.github.trosenkrantz.raptor.gateway.framing;
+
+import com.github.trosenkrantz.raptor.io.BytesFormatter;
+
+/**
+ * Messages ending with a delimiter, e.g., a line feed.
+ */
+public class DelimiterFramer implements Framer {
+    private final byte[] delimiter;
+
+    /**
+     * @param delimiter bytes ending each message, included in the message
+     */
+    public DelimiterFramer(byte[] delimiter) {
+        if (delimiter.length == 0) throw new IllegalArgumentException("Delimiter must not be empty.");
+        this.delimiter = delimiter.clone();
+    }
+
+    @Override
+    public int getFrameLength(byte[] array, int offset, int length, int scannedLength) {
+        int last = length - delimiter.length;
+        for (int start = Math.max(0, scannedLength - delimiter.length + 1); start <= last; start++) { // A delimiter may span the previous scan
+            if (matchesAt(array, offset + start)) return start + delimiter.length;
+        }
+        return 0;
+    }
+
+    private boolean matchesAt(byte[] array, int index) {
+        for (int i = 0; i < delimiter.length; i++) {
+            if (array[index + i] != delimiter[i]) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "delimiter " + BytesFormatter.bytesToRaptorEncoding(delimiter);
+    }
+}
@@ -0,0 +1,34 @@
+package com.github.trosenkrantz.raptor.gateway.framing;
+
+import com.github.trosenkrantz.raptor.PromptEnum;
+import com.github.trosenkrantz.raptor.configuration.ConfigurableEnum;
+
+public enum Endianness implements PromptEnum, ConfigurableEnum {
+    BIG("b", "[B]ig endian, most significant byte first", "big"),
+    LITTLE("l", "[L]ittle endian, least significant byte first", "little");
+
+    private final String promptValue;
+    private final String description;
+    private final String configurationId;
+
+    Endianness(String promptValue, String description, String configurationId) {
+        this.promptValue = promptValue;
+        this.description = description;
+        this.configurationId = configurationId;
+    }
+
+    @Override
+    public String getPromptValue() {
+        return this.promptValue;
+    }
+
+    @Override
+    public String getDescription() {
+        return this.description;
+    }
+
+    @Override
+    public String getConfigurationId() {
+        return this.configurationId;
+    }
+}
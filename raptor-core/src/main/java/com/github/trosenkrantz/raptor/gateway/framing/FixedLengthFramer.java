@@ -0,0 +1,23 @@
+package com.github.trosenkrantz.raptor.gateway.framing;
+
+/**
+ * Messages of the same length.
+ */
+public class FixedLengthFramer implements Framer {
+    private final int messageLength;
+
+    public FixedLengthFramer(int messageLength) {
+        if (messageLength < 1) throw new IllegalArgumentException("Message length must be positive.");
+        this.messageLength = messageLength;
+    }
+
+    @Override
+    public int getFrameLength(byte[] array, int offset, int length, int scannedLength) {
+        return messageLength;
+    }
+
+    @Override
+    public String toString() {
+        return "fixed length of " + messageLength + " B";
+    }
+}
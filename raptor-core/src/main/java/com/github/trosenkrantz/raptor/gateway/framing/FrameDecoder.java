@@ -0,0 +1,108 @@
+package com.github.trosenkrantz.raptor.gateway.framing;
+
+import com.github.trosenkrantz.raptor.gateway.Payload;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+/**
+ * Splits a stream of bytes into messages, for one connection.
+ * <p>
+ * Data is read directly into a buffer, and messages are found in place by a {@link Framer}, so many small messages arriving together cost a single read.
+ * Each whole message is copied once, to a pooled payload of the right size.
+ * The buffer grows to fit the largest message, up to the maximum length, and undecoded data is only moved to the start of the buffer when a message would not fit behind it.
+ */
+public final class FrameDecoder {
+    private final Framer framer;
+    private final int maxFrameLength;
+
+    private byte[] buffer;
+    private ByteBuffer receiveBuffer;
+    private int start = 0; // Start of data not yet passed on
+    private int end = 0; // End of data read
+    private int scannedLength = 0; // Data available for the framer at the previous attempt to find the end of the message at start
+
+    /**
+     * @param framing    framing to decode
+     * @param bufferSize initial size of the read buffer
+     */
+    public FrameDecoder(Framing framing, int bufferSize) {
+        this.framer = framing.framer();
+        this.maxFrameLength = framing.maxFrameLength();
+        this.buffer = new byte[Math.max(1, Math.min(bufferSize, maxFrameLength))];
+        this.receiveBuffer = ByteBuffer.wrap(buffer);
+    }
+
+    /**
+     * Gets the buffer to read into, e.g., from a channel, before calling {@link #onReceived(int, Consumer)}.
+     *
+     * @return buffer with position at the end of the data read so far
+     */
+    public ByteBuffer receiveBuffer() {
+        return receiveBuffer.limit(buffer.length).position(end);
+    }
+
+    /**
+     * @return array to read into, e.g., from a stream, at {@link #getReadOffset()}
+     */
+    public byte[] array() {
+        return buffer;
+    }
+
+    public int getReadOffset() {
+        return end;
+    }
+
+    public int getReadLength() {
+        return buffer.length - end;
+    }
+
+    /**
+     * Passes on each whole message after having read data into the buffer.
+     *
+     * @param length   number of bytes read
+     * @param consumer consumer of messages, taking over the reference to each payload
+     * @throws IOException if a message exceeds the maximum length, after which the stream cannot be decoded
+     */
+    public void onReceived(int length, Consumer<Payload> consumer) throws IOException {
+        end += length;
+
+        while (true) {
+            int available = end - start;
+            int frameLength = available == 0 ? 0 : framer.getFrameLength(buffer, start, available, scannedLength);
+            if (frameLength > 0 && frameLength <= available) {
+                Payload payload = Payload.copyOf(buffer, start, frameLength);
+                start += frameLength;
+                scannedLength = 0;
+                consumer.accept(payload);
+                continue;
+            }
+
+            // Message is incomplete, so make room for the rest of it
+            scannedLength = available;
+            int needed = frameLength > 0 ? frameLength : available + 1;
+            if (needed > maxFrameLength) throw new IOException("Message exceeds the maximum length of " + maxFrameLength + " B.");
+            makeRoom(needed);
+            return;
+        }
+    }
+
+    private void makeRoom(int frameLength) {
+        if (start == end) {
+            start = 0;
+            end = 0;
+        }
+        if (buffer.length - start >= frameLength) return;
+
+        byte[] target = buffer;
+        if (frameLength > buffer.length) {
+            target = new byte[Math.max(frameLength, (int) Math.min((long) buffer.length * 2, maxFrameLength))];
+            receiveBuffer = ByteBuffer.wrap(target);
+        }
+        System.arraycopy(buffer, start, target, 0, end - start);
+        buffer = target;
+        end -= start;
+        start = 0;
+    }
+}
@@ -0,0 +1,24 @@
+package com.github.trosenkrantz.raptor.gateway.framing;
+
+/**
+ * Tells where messages end in a stream of bytes, e.g., received on a TCP connection.
+ * Framers are stateless, so a framer may be shared by several connections.
+ */
+public interface Framer {
+    /**
+     * Passes on data as read, without framing.
+     */
+    Framer NONE = (array, offset, length, scannedLength) -> length;
+
+    /**
+     * Gets the length of the first message in the data.
+     * Called again with more data while the message is incomplete.
+     *
+     * @param array         array holding the data
+     * @param offset        offset of the first byte of the message
+     * @param length        number of bytes available
+     * @param scannedLength number of bytes available at the previous call for this message, or 0 if first call, so the framer need not scan those again
+     * @return length of the message including any header or delimiter, possibly more than available, or 0 if more data is needed to tell
+     */
+    int getFrameLength(byte[] array, int offset, int length, int scannedLength);
+}
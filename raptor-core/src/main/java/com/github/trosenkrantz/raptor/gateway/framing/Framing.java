@@ -0,0 +1,8 @@
+package com.github.trosenkrantz.raptor.gateway.framing;
+
+/**
+ * @param framer         framer telling where messages end
+ * @param maxFrameLength maximum length of a message, to bound the memory used for a connection
+ */
+public record Framing(Framer framer, int maxFrameLength) {
+}
@@ -0,0 +1,110 @@
+package com.github.trosenkrantz.raptor.gateway.framing;
+
+import com.github.trosenkrantz.raptor.configuration.Configuration;
+import com.github.trosenkrantz.raptor.configuration.EnumSetting;
+import com.github.trosenkrantz.raptor.configuration.IntegerSetting;
+import com.github.trosenkrantz.raptor.configuration.SettingBase;
+import com.github.trosenkrantz.raptor.configuration.StringSetting;
+import com.github.trosenkrantz.raptor.io.BytesFormatter;
+import com.github.trosenkrantz.raptor.io.CommandSubstitutor;
+import com.github.trosenkrantz.raptor.io.ConsoleIo;
+
+import java.util.Optional;
+
+/**
+ * Setting of how to split a stream of bytes into messages, reading as empty if passing on data as read, see {@link Framer#NONE}.
+ */
+public class FramingSetting extends SettingBase<Framing> {
+    private static final EnumSetting<FramingType> TYPE_SETTING = new EnumSetting.Builder<>("t", "framingType", "Type", "How messages are delimited", FramingType.class)
+            .defaultValue(FramingType.NONE)
+            .build();
+    private static final IntegerSetting LENGTH_FIELD_SETTING = new IntegerSetting.Builder("l", "lengthField", "Length field", "Number of bytes of the length prefix, 1, 2, or 4 [B]")
+            .defaultValue(2)
+            .validator(value -> {
+                if (value != 1 && value != 2 && value != 4) return Optional.of("Must be 1, 2, or 4.");
+                else return Optional.empty();
+            })
+            .build();
+    private static final EnumSetting<Endianness> ENDIANNESS_SETTING = new EnumSetting.Builder<>("e", "endianness", "Endianness", "Byte order of the length prefix", Endianness.class)
+            .defaultValue(Endianness.BIG)
+            .build();
+    private static final StringSetting DELIMITER_SETTING = new StringSetting.Builder("d", "delimiter", "Delimiter", "Bytes ending each message")
+            .defaultValue("\\n")
+            .build();
+    private static final IntegerSetting LENGTH_SETTING = new IntegerSetting.Builder("f", "length", "Length", "Length of each message [B]")
+            .validator(value -> {
+                if (value < 1) return Optional.of("Must be positive.");
+                else return Optional.empty();
+            })
+            .build();
+    private static final IntegerSetting MAX_LENGTH_SETTING = new IntegerSetting.Builder("m", "maxLength", "Maximum length", "Maximum length of a message, closing the connection if exceeded [B]")
+            .defaultValue(16 * 1024 * 1024)
+            .validator(value -> {
+                if (value < 1) return Optional.of("Must be positive.");
+                else return Optional.empty();
+            })
+            .build();
+
+    private FramingSetting(Builder builder) {
+        super(builder);
+    }
+
+    @Override
+    public Optional<Framing> read(Configuration configuration) {
+        Optional<Configuration> framingConfiguration = configuration.getSubConfiguration(getParameterKey());
+        if (framingConfiguration.isEmpty()) return Optional.empty();
+
+        Framer framer = switch (TYPE_SETTING.readAndRequireOrDefault(framingConfiguration.get())) {
+            case NONE -> null;
+            case LENGTH_PREFIX -> new LengthPrefixFramer(LENGTH_FIELD_SETTING.readAndRequireOrDefault(framingConfiguration.get()), ENDIANNESS_SETTING.readAndRequireOrDefault(framingConfiguration.get()));
+            case DELIMITER -> new DelimiterFramer(BytesFormatter.raptorEncodingToBytes(DELIMITER_SETTING.readAndRequireOrDefault(framingConfiguration.get()), CommandSubstitutor.TIMEOUT_SETTING.readAndRequireOrDefault(configuration)));
+            case FIXED_LENGTH -> new FixedLengthFramer(LENGTH_SETTING.readAndRequireOrDefault(framingConfiguration.get()));
+        };
+        if (framer == null) return Optional.empty();
+
+        return Optional.of(new Framing(framer, MAX_LENGTH_SETTING.readAndRequireOrDefault(framingConfiguration.get())));
+    }
+
+    @Override
+    public void configure(Configuration configuration) {
+        ConsoleIo.writeLine(this.getDescription());
+
+        Configuration framingConfiguration = Configuration.empty();
+
+        TYPE_SETTING.configure(framingConfiguration);
+        switch (TYPE_SETTING.readAndRequireOrDefault(framingConfiguration)) {
+            case NONE -> {
+            }
+            case LENGTH_PREFIX -> {
+                LENGTH_FIELD_SETTING.configure(framingConfiguration);
+                ENDIANNESS_SETTING.configure(framingConfiguration);
+            }
+            case DELIMITER -> DELIMITER_SETTING.configure(framingConfiguration);
+            case FIXED_LENGTH -> LENGTH_SETTING.configure(framingConfiguration);
+        }
+        if (TYPE_SETTING.readAndRequireOrDefault(framingConfiguration) != FramingType.NONE) MAX_LENGTH_SETTING.configure(framingConfiguration);
+
+        configuration.setSubConfiguration(getParameterKey(), framingConfiguration);
+    }
+
+    @Override
+    public String valueToString(Framing value) {
+        return value.framer() + ", up to " + value.maxFrameLength() + " B";
+    }
+
+    public static class Builder extends SettingBase.Builder<Framing, FramingSetting.Builder> {
+        public Builder(String promptValue, String parameterKey, String name, String description) {
+            super(promptValue, parameterKey, name, description);
+        }
+
+        @Override
+        public FramingSetting.Builder self() {
+            return this;
+        }
+
+        @Override
+        public FramingSetting build() {
+            return new FramingSetting(this);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.github.trosenkrantz.raptor.gateway.framing;
+
+import com.github.trosenkrantz.raptor.PromptEnum;
+import com.github.trosenkrantz.raptor.configuration.ConfigurableEnum;
+
+public enum FramingType implements PromptEnum, ConfigurableEnum {
+    NONE("n", "[N]o framing, passing on data as read", "none"),
+    LENGTH_PREFIX("p", "Length [p]refixed messages", "lengthPrefix"),
+    DELIMITER("d", "Messages ending with a [d]elimiter", "delimiter"),
+    FIXED_LENGTH("f", "[F]ixed length messages", "fixedLength");
+
+    private final String promptValue;
+    private final String description;
+    private final String configurationId;
+
+    FramingType(String promptValue, String description, String configurationId) {
+        this.promptValue = promptValue;
+        this.description = description;
+        this.configurationId = configurationId;
+    }
+
+    @Override
+    public String getPromptValue() {
+        return this.promptValue;
+    }
+
+    @Override
+    public String getDescription() {
+        return this.description;
+    }
+
+    @Override
+    public String getConfigurationId() {
+        return this.configurationId;
+    }
+}
@@ -0,0 +1,36 @@
+package com.github.trosenkrantz.raptor.gateway.framing;
+
+/**
+ * Messages with a header holding the unsigned length of the rest of the message.
+ */
+public class LengthPrefixFramer implements Framer {
+    private final int headerLength;
+    private final Endianness endianness;
+
+    /**
+     * @param headerLength number of bytes of the length field, 1, 2, or 4
+     * @param endianness   byte order of the length field
+     */
+    public LengthPrefixFramer(int headerLength, Endianness endianness) {
+        if (headerLength != 1 && headerLength != 2 && headerLength != 4) throw new IllegalArgumentException("Length field must be 1, 2, or 4 bytes.");
+        this.headerLength = headerLength;
+        this.endianness = endianness;
+    }
+
+    @Override
+    public int getFrameLength(byte[] array, int offset, int length, int scannedLength) {
+        if (length < headerLength) return 0;
+
+        long bodyLength = 0;
+        for (int i = 0; i < headerLength; i++) {
+            int index = endianness == Endianness.BIG ? i : headerLength - 1 - i;
+            bodyLength = (bodyLength << 8) | (array[offset + index] & 0xFF);
+        }
+        return (int) Math.min(headerLength + bodyLength, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public String toString() {
+        return headerLength + " B " + endianness.getConfigurationId() + " endian length prefix";
+    }
+}
@@ -0,0 +1,95 @@
+package com.github.trosenkrantz.raptor.gateway.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of non-negative values, e.g., durations in nanoseconds, which records without locking or allocating.
+ * <p>
+ * Buckets are log-linear: each power of two is split into {@value #SUB_BUCKETS} buckets, so a value is reported with at most 12.5 % error.
+ * Readers copy the counts to their own array, and may compare copies to get the distribution of an interval.
+ */
+public final class Histogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param value value to record, negative values are recorded as 0
+     */
+    public void record(long value) {
+        long clamped = Math.max(0, value);
+        counts.incrementAndGet(getBucket(clamped));
+        if (clamped > max.get()) max.accumulateAndGet(clamped, Math::max);
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @return array to copy counts to with {@link #copyCounts(long[])}
+     */
+    public static long[] newCounts() {
+        return new long[BUCKET_COUNT];
+    }
+
+    /**
+     * @param destination array from {@link #newCounts()} to copy the current counts to
+     */
+    public void copyCounts(long[] destination) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            destination[i] = counts.get(i);
+        }
+    }
+
+    /**
+     * @return value at the given percentile since creation
+     */
+    public long getPercentile(double percentile) {
+        long[] snapshot = newCounts();
+        copyCounts(snapshot);
+        return getPercentile(snapshot, null, percentile);
+    }
+
+    /**
+     * Gets a percentile of the values recorded between two copies of the counts.
+     *
+     * @param current    later copy of counts
+     * @param previous   earlier copy of counts, or null to use all values in the later copy
+     * @param percentile percentile between 0 and 100
+     * @return upper bound of the bucket containing the percentile, or 0 if no values were recorded
+     */
+    public static long getPercentile(long[] current, long[] previous, double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += current[i] - (previous == null ? 0 : previous[i]);
+        }
+        if (total == 0) return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += current[i] - (previous == null ? 0 : previous[i]);
+            if (seen >= rank) return getUpperBound(i);
+        }
+        return getUpperBound(BUCKET_COUNT - 1);
+    }
+
+    static int getBucket(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long getUpperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long lowerBound = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+        return lowerBound + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
@@ -0,0 +1,104 @@
+package com.github.trosenkrantz.raptor.gateway.metrics;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Periodically logs a summary line per route, with rates and percentiles for the interval since the previous summary.
+ */
+public class MetricsReporter implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(MetricsReporter.class.getName());
+
+    private final List<RouteState> states;
+    private final ScheduledExecutorService executor;
+    private long previousNanos = System.nanoTime();
+
+    /**
+     * @param routes          metrics to summarise
+     * @param intervalSeconds time between summaries
+     */
+    public MetricsReporter(List<RouteMetrics> routes, int intervalSeconds) {
+        this.states = routes.stream().map(RouteState::new).toList();
+        this.executor = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("gateway-metrics").daemon().factory());
+        executor.scheduleAtFixedRate(this::report, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    private void report() {
+        long now = System.nanoTime();
+        double seconds = (now - previousNanos) / 1e9;
+        previousNanos = now;
+
+        for (RouteState state : states) {
+            LOGGER.info(state.summarise(seconds));
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Values of a route at the previous summary.
+     */
+    private static final class RouteState {
+        private final RouteMetrics metrics;
+        private long messagesIn;
+        private long bytesIn;
+        private long messagesOut;
+        private long bytesOut;
+        private long droppedByPacketLoss;
+        private long droppedByBandwidth;
+        private long droppedByOverflow;
+        private long[] queueingDelay = Histogram.newCounts();
+        private long[] residenceTime = Histogram.newCounts();
+        private long[] currentQueueingDelay = Histogram.newCounts();
+        private long[] currentResidenceTime = Histogram.newCounts();
+
+        private RouteState(RouteMetrics metrics) {
+            this.metrics = metrics;
+        }
+
+        private String summarise(double seconds) {
+            long currentMessagesIn = metrics.getMessagesIn();
+            long currentBytesIn = metrics.getBytesIn();
+            long currentMessagesOut = metrics.getMessagesOut();
+            long currentBytesOut = metrics.getBytesOut();
+            long currentDroppedByPacketLoss = metrics.getDroppedByPacketLoss();
+            long currentDroppedByBandwidth = metrics.getDroppedByBandwidth();
+            long currentDroppedByOverflow = metrics.getDroppedByOverflow();
+            metrics.getQueueingDelay().copyCounts(currentQueueingDelay);
+            metrics.getResidenceTime().copyCounts(currentResidenceTime);
+
+            String summary = String.format(Locale.ROOT, "Route %s: in %.1f msg/s %.1f B/s, out %.1f msg/s %.1f B/s, dropped %d by packet loss %d by bandwidth %d by overflow, queueing delay p50 %d us p99 %d us, residence time p50 %d us p99 %d us.",
+                    metrics.getName(),
+                    (currentMessagesIn - messagesIn) / seconds, (currentBytesIn - bytesIn) / seconds,
+                    (currentMessagesOut - messagesOut) / seconds, (currentBytesOut - bytesOut) / seconds,
+                    currentDroppedByPacketLoss - droppedByPacketLoss, currentDroppedByBandwidth - droppedByBandwidth, currentDroppedByOverflow - droppedByOverflow,
+                    Histogram.getPercentile(currentQueueingDelay, queueingDelay, 50) / 1_000L, Histogram.getPercentile(currentQueueingDelay, queueingDelay, 99) / 1_000L,
+                    Histogram.getPercentile(currentResidenceTime, residenceTime, 50) / 1_000L, Histogram.getPercentile(currentResidenceTime, residenceTime, 99) / 1_000L);
+
+            messagesIn = currentMessagesIn;
+            bytesIn = currentBytesIn;
+            messagesOut = currentMessagesOut;
+            bytesOut = currentBytesOut;
+            droppedByPacketLoss = currentDroppedByPacketLoss;
+            droppedByBandwidth = currentDroppedByBandwidth;
+            droppedByOverflow = currentDroppedByOverflow;
+
+            // Swap, so the current counts become the previous ones without allocating
+            long[] swap = queueingDelay;
+            queueingDelay = currentQueueingDelay;
+            currentQueueingDelay = swap;
+            swap = residenceTime;
+            residenceTime = currentResidenceTime;
+            currentResidenceTime = swap;
+
+            return summary;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.github.trosenkrantz.raptor.gateway.metrics;
+
+import com.github.trosenkrantz.raptor.gateway.Payload;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Counters and histograms for one gateway route, recorded without locking or allocating, so they can stay enabled under load.
+ * <p>
+ * Messages are counted in when entering the route's network impairment and out when passed to the endpoint sending them.
+ * Residence time is from the gateway receiving a message to passing it to the sending endpoint.
+ */
+public class RouteMetrics implements RouteMetricsMXBean {
+    private static final Logger LOGGER = Logger.getLogger(RouteMetrics.class.getName());
+
+    private final String name;
+    private final LongAdder messagesIn = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder messagesOut = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final LongAdder droppedByPacketLoss = new LongAdder();
+    private final LongAdder droppedByBandwidth = new LongAdder();
+    private final LongAdder droppedByOverflow = new LongAdder();
+    private final Histogram queueingDelay = new Histogram();
+    private final Histogram residenceTime = new Histogram();
+
+    private ObjectName objectName;
+
+    /**
+     * @param name name of the route, used for JMX and logging
+     */
+    public RouteMetrics(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Wraps a consumer to count messages entering the route.
+     */
+    public Consumer<Payload> countIn(Consumer<Payload> next) {
+        return payload -> {
+            messagesIn.increment();
+            bytesIn.add(payload.length());
+            next.accept(payload);
+        };
+    }
+
+    /**
+     * Wraps a consumer to count messages leaving the route and record their residence time.
+     */
+    public Consumer<Payload> countOut(Consumer<Payload> next) {
+        return payload -> {
+            // Record before passing on, as the payload may be recycled once sent
+            messagesOut.increment();
+            bytesOut.add(payload.length());
+            if (payload.receivedNanos() != 0) residenceTime.record(System.nanoTime() - payload.receivedNanos());
+            next.accept(payload);
+        };
+    }
+
+    public void onPacketLoss() {
+        droppedByPacketLoss.increment();
+    }
+
+    public void onBandwidthDrop() {
+        droppedByBandwidth.increment();
+    }
+
+    public void onOverflowDrop() {
+        droppedByOverflow.increment();
+    }
+
+    /**
+     * @param delayNanos time a message is held back by latency or bandwidth
+     */
+    public void recordQueueingDelay(long delayNanos) {
+        queueingDelay.record(delayNanos);
+    }
+
+    Histogram getQueueingDelay() {
+        return queueingDelay;
+    }
+
+    Histogram getResidenceTime() {
+        return residenceTime;
+    }
+
+    /**
+     * Registers with the platform MBean server, logging failure as metrics are not essential to the gateway.
+     */
+    public void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName candidate = new ObjectName("com.github.trosenkrantz.raptor:type=GatewayRoute,name=" + ObjectName.quote(name));
+            if (server.isRegistered(candidate)) server.unregisterMBean(candidate); // From a previous gateway in the same process
+            server.registerMBean(this, candidate);
+            objectName = candidate;
+        } catch (JMException e) {
+            LOGGER.log(Level.WARNING, "Failed registering metrics of route " + name + " for JMX.", e);
+        }
+    }
+
+    public void unregister() {
+        if (objectName == null) return;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            LOGGER.log(Level.FINE, "Failed unregistering metrics of route " + name + ".", e);
+        }
+        objectName = null;
+    }
+
+    @Override
+    public long getMessagesIn() {
+        return messagesIn.sum();
+    }
+
+    @Override
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+
+    @Override
+    public long getMessagesOut() {
+        return messagesOut.sum();
+    }
+
+    @Override
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    @Override
+    public long getDroppedByPacketLoss() {
+        return droppedByPacketLoss.sum();
+    }
+
+    @Override
+    public long getDroppedByBandwidth() {
+        return droppedByBandwidth.sum();
+    }
+
+    @Override
+    public long getDroppedByOverflow() {
+        return droppedByOverflow.sum();
+    }
+
+    @Override
+    public long getQueueingDelayP50Micros() {
+        return queueingDelay.getPercentile(50) / 1_000L;
+    }
+
+    @Override
+    public long getQueueingDelayP99Micros() {
+        return queueingDelay.getPercentile(99) / 1_000L;
+    }
+
+    @Override
+    public long getResidenceTimeP50Micros() {
+        return residenceTime.getPercentile(50) / 1_000L;
+    }
+
+    @Override
+    public long getResidenceTimeP99Micros() {
+        return residenceTime.getPercentile(99) / 1_000L;
+    }
+
+    @Override
+    public long getResidenceTimeMaxMicros() {
+        return residenceTime.getMax() / 1_000L;
+    }
+}
@@ -0,0 +1,30 @@
+package com.github.trosenkrantz.raptor.gateway.metrics;
+
+/**
+ * Management interface of {@link RouteMetrics}, with totals since the gateway started.
+ */
+public interface RouteMetricsMXBean {
+    long getMessagesIn();
+
+    long getBytesIn();
+
+    long getMessagesOut();
+
+    long getBytesOut();
+
+    long getDroppedByPacketLoss();
+
+    long getDroppedByBandwidth();
+
+    long getDroppedByOverflow();
+
+    long getQueueingDelayP50Micros();
+
+    long getQueueingDelayP99Micros();
+
+    long getResidenceTimeP50Micros();
+
+    long getResidenceTimeP99Micros();
+
+    long getResidenceTimeMaxMicros();
+}
@@ -0,0 +1,19 @@
+package com.github.trosenkrantz.raptor.gateway.network.impairment;
+
+/**
+ * Gilbert-Elliott loss model, a Markov chain with a good and a bad state, each with its own loss rate.
+ *
+ * @param goodToBad  chance of moving from the good to the bad state after each packet
+ * @param badToGood  chance of moving from the bad to the good state after each packet
+ * @param lossInGood chance of losing a packet in the good state
+ * @param lossInBad  chance of losing a packet in the bad state
+ */
+public record BurstLoss(double goodToBad, double badToGood, double lossInGood, double lossInBad) {
+    /**
+     * @param chance chance of losing each packet, independently of other packets
+     * @return model with uniform loss, never leaving the good state
+     */
+    public static BurstLoss uniform(double chance) {
+        return new BurstLoss(0, 1, chance, chance);
+    }
+}
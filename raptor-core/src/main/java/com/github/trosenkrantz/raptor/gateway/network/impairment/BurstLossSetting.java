@@ -0,0 +1,83 @@
+package com.github.trosenkrantz.raptor.gateway.network.impairment;
+
+import com.github.trosenkrantz.raptor.configuration.Configuration;
+import com.github.trosenkrantz.raptor.configuration.DoubleSetting;
+import com.github.trosenkrantz.raptor.configuration.SettingBase;
+import com.github.trosenkrantz.raptor.io.ConsoleIo;
+import com.github.trosenkrantz.raptor.io.Validator;
+
+import java.util.Optional;
+
+public class BurstLossSetting extends SettingBase<BurstLoss> {
+    private static final Validator<Double> CHANCE_VALIDATOR = value -> {
+        if (value < 0 || value > 1) {
+            return Optional.of("Value must be between 0 and 1, inclusive.");
+        }
+        return Optional.empty();
+    };
+    private static final DoubleSetting GOOD_TO_BAD_SETTING = new DoubleSetting.Builder("gb", "goodToBad", "Good to bad", "Chance of moving from the good to the bad state after each packet")
+            .validator(CHANCE_VALIDATOR)
+            .build();
+    private static final DoubleSetting BAD_TO_GOOD_SETTING = new DoubleSetting.Builder("bg", "badToGood", "Bad to good", "Chance of moving from the bad to the good state after each packet, the mean burst length is the inverse")
+            .validator(CHANCE_VALIDATOR)
+            .build();
+    private static final DoubleSetting LOSS_IN_GOOD_SETTING = new DoubleSetting.Builder("g", "goodLoss", "Loss in good state", "Chance of packet loss in the good state")
+            .defaultValue(0.0)
+            .validator(CHANCE_VALIDATOR)
+            .build();
+    private static final DoubleSetting LOSS_IN_BAD_SETTING = new DoubleSetting.Builder("b", "badLoss", "Loss in bad state", "Chance of packet loss in the bad state")
+            .defaultValue(1.0)
+            .validator(CHANCE_VALIDATOR)
+            .build();
+
+    private BurstLossSetting(Builder builder) {
+        super(builder);
+    }
+
+    @Override
+    public Optional<BurstLoss> read(Configuration configuration) {
+        Optional<Configuration> burstLossConfiguration = configuration.getSubConfiguration(getParameterKey());
+        if (burstLossConfiguration.isEmpty()) return Optional.empty();
+
+        Optional<Double> goodToBad = GOOD_TO_BAD_SETTING.read(burstLossConfiguration.get());
+        Optional<Double> badToGood = BAD_TO_GOOD_SETTING.read(burstLossConfiguration.get());
+
+        if (goodToBad.isPresent() && badToGood.isPresent()) return Optional.of(new BurstLoss(goodToBad.get(), badToGood.get(), LOSS_IN_GOOD_SETTING.readAndRequireOrDefault(burstLossConfiguration.get()), LOSS_IN_BAD_SETTING.readAndRequireOrDefault(burstLossConfiguration.get())));
+        else return Optional.empty();
+    }
+
+    @Override
+    public void configure(Configuration configuration) {
+        ConsoleIo.writeLine(this.getDescription());
+
+        Configuration burstLossConfiguration = Configuration.empty();
+
+        GOOD_TO_BAD_SETTING.configure(burstLossConfiguration);
+        BAD_TO_GOOD_SETTING.configure(burstLossConfiguration);
+        LOSS_IN_GOOD_SETTING.configure(burstLossConfiguration);
+        LOSS_IN_BAD_SETTING.configure(burstLossConfiguration);
+
+        configuration.setSubConfiguration(getParameterKey(), burstLossConfiguration);
+    }
+
+    @Override
+    public String valueToString(BurstLoss value) {
+        return value.goodToBad() + " to bad, " + value.badToGood() + " to good (" + value.lossInGood() + " and " + value.lossInBad() + " loss)";
+    }
+
+    public static class Builder extends SettingBase.Builder<BurstLoss, BurstLossSetting.Builder> {
+        public Builder(String promptValue, String parameterKey, String name, String description) {
+            super(promptValue, parameterKey, name, description);
+        }
+
+        @Override
+        public BurstLossSetting.Builder self() {
+            return this;
+        }
+
+        @Override
+        public BurstLossSetting build() {
+            return new BurstLossSetting(this);
+        }
+    }
+}
@@ -1,13 +1,21 @@
 package com.github.trosenkrantz.raptor.gateway.network.impairment;
 
 import com.github.trosenkrantz.raptor.configuration.DoubleSetting;
+import com.github.trosenkrantz.raptor.configuration.IntegerSetting;
 import com.github.trosenkrantz.raptor.configuration.SettingBase;
+import com.github.trosenkrantz.raptor.gateway.Payload;
 
 import java.util.Optional;
 import java.util.Random;
 import java.util.function.Consumer;
 import java.util.logging.Logger;
 
+/**
+ * Flips bits at random.
+ * <p>
+ * Rather than drawing a random number per bit, we sample the gap to the next error from a geometric distribution, so the cost is proportional to the number of errors, not the payload size.
+ * An error is either a single bit flip or, with a burst length above 1, a burst starting with a flipped bit and flipping each of the following bits of the burst with 50 % chance.
+ */
 public class CorruptionFactory implements NetworkImpairmentFactory {
     private static final Logger LOGGER = Logger.getLogger(CorruptionFactory.class.getName());
 
@@ -19,40 +27,95 @@ public class CorruptionFactory implements NetworkImpairmentFactory {
                 return Optional.empty();
             })
             .build();
+    public static final IntegerSetting BURST_LENGTH_SETTING = new IntegerSetting.Builder("r", "corruptionBurst", "Corruption burst length [bits]", "Length of error bursts; with 1, corruption rate is the chance of each bit flipping, otherwise the chance of each bit starting a burst")
+            .defaultValue(1)
+            .validator(value -> {
+                if (value < 1 || value > Long.SIZE) {
+                    return Optional.of("Value must be between 1 and " + Long.SIZE + ", both included.");
+                }
+                return Optional.empty();
+            })
+            .build();
 
     private final double chance;
+    private final int burstLength;
     private final Random random;
+    private final double inverseLogOfNoError; // For sampling gaps between errors
 
     public CorruptionFactory(double chance) {
         this(chance, new Random());
     }
 
     public CorruptionFactory(double chance, Random random) {
+        this(chance, 1, random);
+    }
+
+    public CorruptionFactory(double chance, int burstLength) {
+        this(chance, burstLength, new Random());
+    }
+
+    /**
+     * @param chance      chance of each bit being the start of an error
+     * @param burstLength length of each error in bits, between 1 and 64
+     * @param random      source of randomness
+     */
+    public CorruptionFactory(double chance, int burstLength, Random random) {
+        if (burstLength < 1 || burstLength > Long.SIZE) throw new IllegalArgumentException("Burst length must be between 1 and " + Long.SIZE + ", both included.");
         this.chance = chance;
+        this.burstLength = burstLength;
         this.random = random;
+        this.inverseLogOfNoError = 1 / Math.log1p(-chance);
     }
 
     @Override
-    public Consumer<byte[]> create(Consumer<byte[]> consumer) {
-        return payload -> {
+    public Consumer<Payload> create(Consumer<Payload> consumer) {
+        return sharedPayload -> {
+            long bitCount = sharedPayload.length() * 8L;
+            long position = sampleGap();
+            if (position >= bitCount) {
+                consumer.accept(sharedPayload); // No errors, so no need to copy
+                return;
+            }
+
+            Payload payload = sharedPayload.mutable(); // The payload may also be passed elsewhere, e.g., if duplicated
+            byte[] bytes = payload.array();
             int count = 0;
 
-            for (int i = 0; i < payload.length; i++) {
-                byte aByte = payload[i];
-                for (int bitPosition = 0; bitPosition < 8; bitPosition++) {
-                    if (random.nextDouble() < chance) {
-                        aByte ^= (byte) (1 << bitPosition); // flip bit
-                        count++;
+            while (position < bitCount) {
+                flip(bytes, position); // A burst starts and ends with an error, so always flip the first bit
+                count++;
+
+                if (burstLength > 1) {
+                    long burstBits = random.nextLong();
+                    for (int i = 1; i < burstLength && position + i < bitCount; i++) {
+                        if ((burstBits >>> i & 1) != 0) {
+                            flip(bytes, position + i);
+                            count++;
+                        }
                     }
                 }
-                payload[i] = aByte;
-            }
 
-            if (count > 0) {
-                LOGGER.info("Flipped " + count + " bits");
+                position += burstLength + sampleGap();
             }
 
+            LOGGER.info("Flipped " + count + " bit" + (count == 1 ? "" : "s") + ".");
             consumer.accept(payload);
         };
     }
+
+    /**
+     * Samples the number of bits without errors before the next error.
+     */
+    private long sampleGap() {
+        if (chance <= 0) return Long.MAX_VALUE;
+        if (chance >= 1) return 0;
+
+        // Inverse transform sampling of the geometric distribution, using 1 - U to avoid the logarithm of 0
+        double gap = Math.floor(Math.log(1 - random.nextDouble()) * inverseLogOfNoError);
+        return gap >= Long.MAX_VALUE / 2 ? Long.MAX_VALUE / 2 : (long) gap; // Keep headroom, so adding to a position cannot overflow
+    }
+
+    private static void flip(byte[] bytes, long bitPosition) {
+        bytes[(int) (bitPosition >>> 3)] ^= (byte) (1 << (bitPosition & 7));
+    }
 }
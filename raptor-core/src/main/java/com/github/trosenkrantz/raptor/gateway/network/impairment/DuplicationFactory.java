@@ -2,6 +2,7 @@ package com.github.trosenkrantz.raptor.gateway.network.impairment;
 
 import com.github.trosenkrantz.raptor.configuration.DoubleSetting;
 import com.github.trosenkrantz.raptor.configuration.SettingBase;
+import com.github.trosenkrantz.raptor.gateway.Payload;
 
 import java.util.Optional;
 import java.util.Random;
@@ -35,13 +36,10 @@ public class DuplicationFactory implements NetworkImpairmentFactory {
     }
 
     @Override
-    public Consumer<byte[]> create(Consumer<byte[]> consumer) {
+    public Consumer<Payload> create(Consumer<Payload> consumer) {
         return payload -> {
-            consumer.accept(payload); // always send original message
-
             int duplicationCount = 0;
             while (random.nextDouble() < chance) {
-                consumer.accept(payload);
                 duplicationCount++;
 
                 if (duplicationCount >= MAX_DUPLICATES) {
@@ -50,6 +48,16 @@ public class DuplicationFactory implements NetworkImpairmentFactory {
                 }
             }
 
+            // Duplicates share the payload, so retain before passing any on, as the consumer may release it
+            for (int i = 0; i < duplicationCount; i++) {
+                payload.retain();
+            }
+
+            consumer.accept(payload); // always send original message
+            for (int i = 0; i < duplicationCount; i++) {
+                consumer.accept(payload);
+            }
+
             if (duplicationCount > 0) {
                 LOGGER.info("Duplicated message " + duplicationCount + " time" + (duplicationCount == 1 ? "" : "s") + ".");
             }
@@ -1,17 +1,16 @@
 package com.github.trosenkrantz.raptor.gateway.network.impairment;
 
+import com.github.trosenkrantz.raptor.configuration.EnumSetting;
 import com.github.trosenkrantz.raptor.configuration.IntegerInterval;
 import com.github.trosenkrantz.raptor.configuration.IntegerIntervalSetting;
 import com.github.trosenkrantz.raptor.configuration.SettingBase;
+import com.github.trosenkrantz.raptor.gateway.Payload;
+import com.github.trosenkrantz.raptor.gateway.metrics.RouteMetrics;
 
 import java.util.Optional;
 import java.util.Random;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
-import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class LatencyFactory implements NetworkImpairmentFactory {
@@ -30,37 +29,50 @@ public class LatencyFactory implements NetworkImpairmentFactory {
                 return Optional.empty();
             })
             .build();
+    public static final EnumSetting<LatencyOrder> ORDER_SETTING = new EnumSetting.Builder<>("j", "latencyOrder", "Latency order", "Whether jitter may reorder messages", LatencyOrder.class)
+            .defaultValue(LatencyOrder.INDEPENDENT)
+            .build();
 
     private final IntegerInterval latency;
-    private final ScheduledExecutorService executorService;
+    private final LatencyOrder order;
+    private final TimingWheel timingWheel;
     private final Random random;
+    private final RouteMetrics metrics;
+    private final AtomicLong lastDeadlineNanos = new AtomicLong(Long.MIN_VALUE);
+
+    public LatencyFactory(IntegerInterval latency, TimingWheel timingWheel, RouteMetrics metrics) {
+        this(latency, LatencyOrder.INDEPENDENT, timingWheel, metrics);
+    }
+
+    public LatencyFactory(IntegerInterval latency, LatencyOrder order, TimingWheel timingWheel, RouteMetrics metrics) {
+        this(latency, order, new Random(), timingWheel, metrics);
+    }
 
-    public LatencyFactory(IntegerInterval latency) {
-        this(latency, new Random());
+    public LatencyFactory(IntegerInterval latency, Random random, TimingWheel timingWheel, RouteMetrics metrics) {
+        this(latency, LatencyOrder.INDEPENDENT, random, timingWheel, metrics);
     }
 
-    public LatencyFactory(IntegerInterval latency, Random random) {
+    public LatencyFactory(IntegerInterval latency, LatencyOrder order, Random random, TimingWheel timingWheel, RouteMetrics metrics) {
         this.latency = latency;
-        executorService = Executors.newSingleThreadScheduledExecutor();
+        this.order = order;
+        this.timingWheel = timingWheel;
         this.random = random;
+        this.metrics = metrics;
     }
 
     @Override
-    public Consumer<byte[]> create(Consumer<byte[]> consumer) {
+    public Consumer<Payload> create(Consumer<Payload> consumer) {
         return payload -> {
             int calculatedLatency = getCalculatedLatency(latency.min(), latency.max());
             LOGGER.fine("Delaying message with " + calculatedLatency + " ms.");
-            ScheduledFuture<?> unused = executorService.schedule(
-                    () -> {
-                        try {
-                            consumer.accept(payload);
-                        } catch (Exception e) {
-                            LOGGER.log(Level.SEVERE, "Failed passing message after introducing latency.", e);
-                        }
-                    },
-                    calculatedLatency,
-                    TimeUnit.MILLISECONDS
-            );
+            long now = System.nanoTime();
+            long deadlineNanos = now + calculatedLatency * 1_000_000L;
+            if (order == LatencyOrder.PRESERVE) {
+                // Never before the previous message, and as the timer passes on messages due at the same tick in the order scheduled, order is kept
+                deadlineNanos = lastDeadlineNanos.accumulateAndGet(deadlineNanos, Math::max);
+            }
+            metrics.recordQueueingDelay(deadlineNanos - now);
+            timingWheel.scheduleAt(payload, consumer, deadlineNanos);
         };
     }
 
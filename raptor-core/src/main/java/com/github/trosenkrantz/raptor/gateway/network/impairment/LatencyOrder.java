@@ -0,0 +1,34 @@
+package com.github.trosenkrantz.raptor.gateway.network.impairment;
+
+import com.github.trosenkrantz.raptor.PromptEnum;
+import com.github.trosenkrantz.raptor.configuration.ConfigurableEnum;
+
+public enum LatencyOrder implements PromptEnum, ConfigurableEnum {
+    INDEPENDENT("i", "Delay each message [i]ndependently, so jitter may reorder messages", "independent"),
+    PRESERVE("p", "[P]reserve order, delaying each message at least until the previous one", "preserve");
+
+    private final String promptValue;
+    private final String description;
+    private final String configurationId;
+
+    LatencyOrder(String promptValue, String description, String configurationId) {
+        this.promptValue = promptValue;
+        this.description = description;
+        this.configurationId = configurationId;
+    }
+
+    @Override
+    public String getPromptValue() {
+        return this.promptValue;
+    }
+
+    @Override
+    public String getDescription() {
+        return this.description;
+    }
+
+    @Override
+    public String getConfigurationId() {
+        return this.configurationId;
+    }
+}
@@ -1,7 +1,33 @@
 package com.github.trosenkrantz.raptor.gateway.network.impairment;
 
+import com.github.trosenkrantz.raptor.gateway.Payload;
+
+import java.util.List;
 import java.util.function.Consumer;
 
 public interface NetworkImpairmentFactory {
-    Consumer<byte[]> create(Consumer<byte[]> consumer);
+    /**
+     * Creates an impairment passing payloads on to the consumer.
+     * The impairment takes over the reference to each payload it is given, so it must pass it on or release it.
+     *
+     * @param consumer consumer to pass payloads on to
+     * @return consumer to give payloads to
+     */
+    Consumer<Payload> create(Consumer<Payload> consumer);
+
+    /**
+     * Creates impairments applied one after another.
+     *
+     * @param factories factories in the order payloads pass through their impairments
+     * @param consumer  consumer to pass payloads on to after the last impairment
+     * @return consumer to give payloads to
+     */
+    static Consumer<Payload> chain(List<? extends NetworkImpairmentFactory> factories, Consumer<Payload> consumer) {
+        // Each factory needs the next consumer to pass the data to, so combine them in reverse order
+        Consumer<Payload> result = consumer;
+        for (int i = factories.size() - 1; i >= 0; i--) {
+            result = factories.get(i).create(result);
+        }
+        return result;
+    }
 }
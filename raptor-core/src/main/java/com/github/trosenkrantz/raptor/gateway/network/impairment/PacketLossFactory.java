@@ -2,12 +2,21 @@ package com.github.trosenkrantz.raptor.gateway.network.impairment;
 
 import com.github.trosenkrantz.raptor.configuration.DoubleSetting;
 import com.github.trosenkrantz.raptor.configuration.SettingBase;
+import com.github.trosenkrantz.raptor.gateway.Payload;
+import com.github.trosenkrantz.raptor.gateway.metrics.RouteMetrics;
 
 import java.util.Optional;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import java.util.logging.Logger;
 
+/**
+ * Drops packets, either independently of each other, or in bursts following the {@link BurstLoss} model.
+ * <p>
+ * Each packet costs a single random draw: the draw decides whether to drop the packet, and rescaled, also whether to change state.
+ * The state is shared by all threads passing packets through the impairment, and updated without locking.
+ */
 public class PacketLossFactory implements NetworkImpairmentFactory {
     private static final Logger LOGGER = Logger.getLogger(PacketLossFactory.class.getName());
 
@@ -19,27 +28,57 @@ public class PacketLossFactory implements NetworkImpairmentFactory {
                 return Optional.empty();
             })
             .build();
+    public static final SettingBase<BurstLoss> BURST_SETTING = new BurstLossSetting.Builder("g", "burstLoss", "Burst packet loss", "Packet loss in bursts, following the Gilbert-Elliott model with a good and a bad state")
+            .build();
 
-    private final double chance;
+    private final BurstLoss model;
     private final Random random;
+    private final RouteMetrics metrics;
+    private final AtomicBoolean bad = new AtomicBoolean(false);
+
+    public PacketLossFactory(double chance, RouteMetrics metrics) {
+        this(chance, new Random(), metrics);
+    }
+
+    public PacketLossFactory(double chance, Random random, RouteMetrics metrics) {
+        this(BurstLoss.uniform(chance), random, metrics);
+    }
 
-    public PacketLossFactory(double chance) {
-        this(chance, new Random());
+    public PacketLossFactory(BurstLoss model, RouteMetrics metrics) {
+        this(model, new Random(), metrics);
     }
 
-    public PacketLossFactory(double chance, Random random) {
-        this.chance = chance;
+    public PacketLossFactory(BurstLoss model, Random random, RouteMetrics metrics) {
+        this.model = model;
         this.random = random;
+        this.metrics = metrics;
     }
 
     @Override
-    public Consumer<byte[]> create(Consumer<byte[]> consumer) {
+    public Consumer<Payload> create(Consumer<Payload> consumer) {
         return payload -> {
-            if (random.nextDouble() < chance) {
+            if (shouldDrop()) {
                 LOGGER.info("Dropping packet due to simulated loss");
+                metrics.onPacketLoss();
+                payload.release();
             } else {
                 consumer.accept(payload);
             }
         };
     }
+
+    private boolean shouldDrop() {
+        boolean wasBad = bad.get();
+        double loss = wasBad ? model.lossInBad() : model.lossInGood();
+        double draw = random.nextDouble();
+        boolean drop = draw < loss;
+
+        // Given the outcome, the draw is uniform within its part of [0, 1), so rescale it to reuse it for the transition
+        double transitionDraw = drop ? draw / loss : (draw - loss) / (1 - loss);
+        if (transitionDraw < (wasBad ? model.badToGood() : model.goodToBad())) {
+            bad.compareAndSet(wasBad, !wasBad); // If another thread changed state meanwhile, its transition stands
+        }
+
+        return drop;
+    }
 }
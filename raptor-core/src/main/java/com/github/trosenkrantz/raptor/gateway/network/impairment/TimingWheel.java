@@ -0,0 +1,238 @@
+package com.github.trosenkrantz.raptor.gateway.network.impairment;
+
+import com.github.trosenkrantz.raptor.gateway.Payload;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Hashed timing wheel, passing payloads on to consumers after a delay, shared by the impairments of one gateway direction.
+ * <p>
+ * Time is divided into ticks. A payload due at tick t is put in bucket t modulo the wheel size, so scheduling is O(1) regardless of how many payloads are in flight.
+ * A single dispatch thread processes one bucket per tick, passing on payloads due at or before that tick, and leaving payloads due in later laps.
+ * Buckets store payloads in parallel arrays, so scheduling does not allocate an object per payload.
+ * <p>
+ * Each bucket remembers the last tick it was processed for.
+ * If a payload is scheduled into a bucket already processed for its tick, it is moved to the next tick, so it is never left waiting for a full lap.
+ * <p>
+ * The dispatch thread is started on first use, and parks while no payloads are scheduled.
+ */
+public final class TimingWheel {
+    private static final Logger LOGGER = Logger.getLogger(TimingWheel.class.getName());
+
+    public static final long DEFAULT_TICK_NANOS = 1_000_000L;
+    private static final int WHEEL_SIZE = 4096; // Power of two, a lap is about 4 s with the default tick
+    private static final int INITIAL_BUCKET_CAPACITY = 16;
+
+    private final String name;
+    private final long tickNanos;
+    private final long startNanos;
+    private final Bucket[] buckets = new Bucket[WHEEL_SIZE];
+    private final AtomicInteger scheduledCount = new AtomicInteger();
+
+    private volatile long processedTick = 0;
+    private volatile Thread dispatchThread;
+    private volatile boolean dispatcherIdle = false;
+
+    // Payloads being dispatched, only accessed on the dispatch thread
+    private Payload[] dispatchPayloads = new Payload[INITIAL_BUCKET_CAPACITY];
+    private Consumer<Payload>[] dispatchTargets = newTargetArray(INITIAL_BUCKET_CAPACITY);
+
+    /**
+     * @param name      name used for the dispatch thread
+     * @param tickNanos resolution of the timer; delays are rounded up to whole ticks
+     */
+    public TimingWheel(String name, long tickNanos) {
+        if (tickNanos <= 0) throw new IllegalArgumentException("Tick must be positive.");
+        this.name = name;
+        this.tickNanos = tickNanos;
+        this.startNanos = System.nanoTime();
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            buckets[i] = new Bucket();
+        }
+    }
+
+    /**
+     * Passes a payload to a consumer after a delay, on the dispatch thread.
+     *
+     * @param payload    payload to pass on
+     * @param target     consumer to pass the payload to
+     * @param delayNanos delay
+     */
+    public void schedule(Payload payload, Consumer<Payload> target, long delayNanos) {
+        scheduleAt(payload, target, System.nanoTime() + delayNanos);
+    }
+
+    /**
+     * Passes a payload to a consumer at a point in time, on the dispatch thread.
+     *
+     * @param payload       payload to pass on
+     * @param target        consumer to pass the payload to
+     * @param deadlineNanos time to pass on the payload, in terms of {@link System#nanoTime()}
+     */
+    public void scheduleAt(Payload payload, Consumer<Payload> target, long deadlineNanos) {
+        long tick = Math.max(Math.ceilDiv(deadlineNanos - startNanos, tickNanos), processedTick + 1);
+
+        scheduledCount.incrementAndGet();
+        while (true) {
+            Bucket bucket = buckets[(int) tick & (WHEEL_SIZE - 1)];
+            synchronized (bucket) {
+                if (bucket.lastProcessedTick < tick) {
+                    bucket.add(payload, target, tick);
+                    break;
+                }
+            }
+            tick++; // The dispatcher passed this tick while we were scheduling, so use the next one
+        }
+
+        ensureDispatching();
+    }
+
+    /**
+     * Runs a task at a point in time, on the dispatch thread, e.g., to flush held payloads.
+     *
+     * @param task          task to run, which must not block
+     * @param deadlineNanos time to run the task, in terms of {@link System#nanoTime()}
+     */
+    public void scheduleTaskAt(Runnable task, long deadlineNanos) {
+        scheduleAt(null, ignored -> task.run(), deadlineNanos);
+    }
+
+    private void ensureDispatching() {
+        Thread thread = dispatchThread;
+        if (thread == null) {
+            synchronized (this) {
+                if (dispatchThread == null) {
+                    dispatchThread = Thread.ofPlatform().name("gateway-timer-" + name).daemon().start(this::keepDispatching);
+                }
+            }
+        } else if (dispatcherIdle) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private void keepDispatching() {
+        while (true) {
+            if (scheduledCount.get() == 0) {
+                dispatcherIdle = true;
+                // Check again, as a payload may have been scheduled before seeing us idle
+                if (scheduledCount.get() == 0) LockSupport.park(this);
+                dispatcherIdle = false;
+                continue;
+            }
+
+            long nowTick = (System.nanoTime() - startNanos) / tickNanos;
+            long tick = processedTick;
+            if (tick >= nowTick) {
+                LockSupport.parkNanos(this, startNanos + (tick + 1) * tickNanos - System.nanoTime());
+                continue;
+            }
+
+            if (nowTick - tick > WHEEL_SIZE) {
+                // We are more than a lap behind, e.g., after idling, so process each bucket once
+                for (Bucket bucket : buckets) {
+                    dispatch(bucket, nowTick);
+                }
+                processedTick = nowTick;
+            } else {
+                while (tick < nowTick) {
+                    tick++;
+                    dispatch(buckets[(int) tick & (WHEEL_SIZE - 1)], tick);
+                    processedTick = tick;
+                }
+            }
+        }
+    }
+
+    private void dispatch(Bucket bucket, long tick) {
+        int count;
+        synchronized (bucket) {
+            count = bucket.removeDue(tick, this);
+            bucket.lastProcessedTick = tick;
+        }
+
+        for (int i = 0; i < count; i++) {
+            Payload payload = dispatchPayloads[i];
+            Consumer<Payload> target = dispatchTargets[i];
+            dispatchPayloads[i] = null;
+            dispatchTargets[i] = null;
+            try {
+                target.accept(payload);
+            } catch (Exception e) {
+                LOGGER.log(Level.SEVERE, "Failed passing message after delay.", e);
+            }
+        }
+        if (count > 0) scheduledCount.addAndGet(-count);
+    }
+
+    private void ensureDispatchCapacity(int capacity) {
+        if (dispatchPayloads.length < capacity) {
+            int newCapacity = Math.max(capacity, dispatchPayloads.length * 2);
+            dispatchPayloads = new Payload[newCapacity];
+            dispatchTargets = newTargetArray(newCapacity);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Consumer<Payload>[] newTargetArray(int capacity) {
+        return (Consumer<Payload>[]) new Consumer<?>[capacity];
+    }
+
+    /**
+     * Payloads scheduled for ticks mapping to the same slot of the wheel, guarded by the bucket's monitor.
+     */
+    private static final class Bucket {
+        private Payload[] payloads = new Payload[INITIAL_BUCKET_CAPACITY];
+        private Consumer<Payload>[] targets = newTargetArray(INITIAL_BUCKET_CAPACITY);
+        private long[] ticks = new long[INITIAL_BUCKET_CAPACITY];
+        private int size = 0;
+        private long lastProcessedTick = 0;
+
+        private void add(Payload payload, Consumer<Payload> target, long tick) {
+            if (size == payloads.length) {
+                int newCapacity = size * 2;
+                payloads = Arrays.copyOf(payloads, newCapacity);
+                targets = Arrays.copyOf(targets, newCapacity);
+                ticks = Arrays.copyOf(ticks, newCapacity);
+            }
+            payloads[size] = payload;
+            targets[size] = target;
+            ticks[size] = tick;
+            size++;
+        }
+
+        /**
+         * Moves payloads due at or before the tick to the wheel's dispatch arrays, keeping the order of the rest.
+         *
+         * @return number of payloads moved
+         */
+        private int removeDue(long tick, TimingWheel wheel) {
+            wheel.ensureDispatchCapacity(size);
+
+            int due = 0;
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (ticks[i] <= tick) {
+                    wheel.dispatchPayloads[due] = payloads[i];
+                    wheel.dispatchTargets[due] = targets[i];
+                    due++;
+                } else {
+                    payloads[kept] = payloads[i];
+                    targets[kept] = targets[i];
+                    ticks[kept] = ticks[i];
+                    kept++;
+                }
+            }
+            for (int i = kept; i < size; i++) {
+                payloads[i] = null;
+                targets[i] = null;
+            }
+            size = kept;
+            return due;
+        }
+    }
+}
@@ -1,4 +1,11 @@
 package com.github.trosenkrantz.raptor.gateway.network.impairment.bandwidth;
 
-public record Bandwidth(int bitsPerSecond, int maxBurstDurationMillis, int queueDurationMillis) {
+/**
+ * @param bitsPerSecond          data rate limit, or 0 for no limit
+ * @param packetsPerSecond       message rate limit, or 0 for no limit
+ * @param maxBurstDurationMillis maximum idle time banked for immediate bursting
+ * @param queueDurationMillis    maximum queueing delay before messages are dropped
+ * @param queueDiscipline        how to queue messages and choose which to drop
+ */
+public record Bandwidth(long bitsPerSecond, int packetsPerSecond, int maxBurstDurationMillis, int queueDurationMillis, QueueDiscipline queueDiscipline) {
 }
@@ -1,19 +1,28 @@
 package com.github.trosenkrantz.raptor.gateway.network.impairment.bandwidth;
 
 import com.github.trosenkrantz.raptor.configuration.SettingBase;
+import com.github.trosenkrantz.raptor.gateway.Payload;
+import com.github.trosenkrantz.raptor.gateway.metrics.RouteMetrics;
 import com.github.trosenkrantz.raptor.gateway.network.impairment.NetworkImpairmentFactory;
 
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
+import java.util.function.LongSupplier;
 import java.util.logging.Logger;
 
 /**
  * Factory for bandwidth.
- * We use nanoseconds as time unit throughout the class for alignment and high precision.
- * We use the long primitive values instead of boxed objects like Long, Instant, or Duration for easier implementation of thread safety.
+ * <p>
+ * We use fixed-point nanoseconds with {@value #FRACTION_BITS} fraction bits as time unit throughout the class,
+ * so the transmission time of a byte is precise to within 0.02 % even at 100 Gb/s, rather than truncated to whole nanoseconds.
+ * Like {@link System#nanoTime()}, the time wraps around, so we only compare times by their differences.
+ * Differences only stay in range for about 39 hours, so after idling longer, we do not compare with the time we may transmit new messages, see {@link #getStartTime}.
+ * <p>
+ * A message takes the longer of its transmission time at the bit rate and the interval of the packet rate, so both limits apply.
+ * <p>
+ * With a {@link QueueDiscipline#FIFO} queue, admission is lock-free: the time we may transmit new messages is a single atomic value, updated with compare-and-set, so several receiving threads do not contend on a monitor.
+ * Admitted messages not due yet are passed on by a dedicated pacing thread, in the order they are queued.
+ * With fair queueing, messages are instead scheduled between flows by a {@link FairQueue}.
  */
 public class BandwidthFactory implements NetworkImpairmentFactory {
     private static final Logger LOGGER = Logger.getLogger(BandwidthFactory.class.getName());
@@ -21,43 +30,76 @@ public class BandwidthFactory implements NetworkImpairmentFactory {
     public static final SettingBase<Bandwidth> SETTING = new BandwidthSetting.Builder("b", "bandwidth", "Bandwidth", "Queuing and delaying messages proportional to the amount of data, dropping messages if the queue is full.")
             .build();
 
-    private final long nanosPerByte;
+    static final int FRACTION_BITS = 16;
+    private static final long MAX_IDLE_NANOS = 1L << (Long.SIZE - 2 - FRACTION_BITS); // Half the range of fixed-point time differences, far beyond the burst and queue durations
+
+    private final long unitsPerByte;
+    private final long unitsPerPacket;
     private final long burstLimit;
     private final long maxQueueDuration;
+    private final QueueDiscipline queueDiscipline;
 
-    private final ScheduledExecutorService executorService;
+    private final Pacer pacer;
+    private final RouteMetrics metrics;
+    private final LongSupplier nanoTime;
 
     /**
-     * Timestamp for when we may transmit new messages. If this is in the past, we may immediately burst a new message.
+     * Time for when we may transmit new messages. If this is in the past, we may immediately burst a new message.
      */
-    private long targetTimeNanos = System.nanoTime();
+    private final AtomicLong targetTime;
 
-    public BandwidthFactory(Bandwidth bandwidth) {
-        this.nanosPerByte = 8L * 1_000_000_000L / bandwidth.bitsPerSecond();
-        this.burstLimit = bandwidth.maxBurstDurationMillis() * 1_000_000L;
-        this.maxQueueDuration = bandwidth.queueDurationMillis() * 1_000_000L;
+    /**
+     * Time we last admitted a message, in nanoseconds, to tell whether we have been idle for too long to compare with {@link #targetTime}.
+     */
+    private volatile long lastAdmittedNanos;
 
-        LOGGER.info("Limiting bandwidth to " + bandwidth.bitsPerSecond() + " b/s, with " + bandwidth.maxBurstDurationMillis() + " ms burst limit and " + bandwidth.queueDurationMillis() + " ms maximum queue duration.");
+    public BandwidthFactory(Bandwidth bandwidth, RouteMetrics metrics) {
+        this(bandwidth, metrics, System::nanoTime);
+    }
 
-        executorService = Executors.newSingleThreadScheduledExecutor();
+    /**
+     * @param nanoTime clock in terms of {@link System#nanoTime()}, replaceable for testing
+     */
+    BandwidthFactory(Bandwidth bandwidth, RouteMetrics metrics, LongSupplier nanoTime) {
+        this.unitsPerByte = bandwidth.bitsPerSecond() > 0 ? toUnits(8L * 1_000_000_000L) / bandwidth.bitsPerSecond() : 0;
+        this.unitsPerPacket = bandwidth.packetsPerSecond() > 0 ? toUnits(1_000_000_000L) / bandwidth.packetsPerSecond() : 0;
+        this.burstLimit = toUnits(bandwidth.maxBurstDurationMillis() * 1_000_000L);
+        this.maxQueueDuration = toUnits(bandwidth.queueDurationMillis() * 1_000_000L);
+        this.queueDiscipline = bandwidth.queueDiscipline();
+
+        LOGGER.info("Limiting bandwidth to " + SETTING.valueToString(bandwidth) + ".");
+
+        this.pacer = new Pacer(metrics.getName(), nanoTime);
+        this.metrics = metrics;
+        this.nanoTime = nanoTime;
+
+        long nowNanos = nanoTime.getAsLong();
+        this.targetTime = new AtomicLong(toUnits(nowNanos));
+        this.lastAdmittedNanos = nowNanos;
     }
 
     @Override
-    public Consumer<byte[]> create(Consumer<byte[]> consumer) {
+    public Consumer<Payload> create(Consumer<Payload> consumer) {
+        if (queueDiscipline != QueueDiscipline.FIFO) {
+            return new FairQueue(metrics.getName(), this::getTransmissionDuration, burstLimit, maxQueueDuration, queueDiscipline == QueueDiscipline.FAIR_CODEL, metrics, consumer, nanoTime);
+        }
+
         return payload -> {
-            long scheduleDelay;
-
-            synchronized (this) {
-                long now = System.nanoTime();
-                long transmissionDuration = payload.length * nanosPerByte;
-
-                // Limit banked bandwidth
-                // Example: Time is 2 s, target is 0 s (we have been idle in 2 s), burst limit is 1 s
-                // We adjust target to 1 s
-                long earliestStartAllowed = now - burstLimit;
-                if (targetTimeNanos < earliestStartAllowed) {
-                    targetTimeNanos = earliestStartAllowed;
-                }
+            long nowNanos = nanoTime.getAsLong();
+            long now = toUnits(nowNanos);
+            long transmissionDuration = getTransmissionDuration(payload.length());
+
+            if (transmissionDuration > burstLimit + maxQueueDuration) {
+                LOGGER.warning("Message is too big (" + payload.length() + " B) to ever fit within configured bandwidth constrains, dropping it.");
+                metrics.onBandwidthDrop();
+                payload.release();
+                return;
+            }
+
+            long scheduledTime;
+            while (true) {
+                long target = targetTime.get();
+                long start = getStartTime(target, now, burstLimit, nowNanos - lastAdmittedNanos); // Read after the target, so it is no older than the admission setting the target
 
                 // Tail drop if transmission would exceed the max queue duration
                 // Example:
@@ -66,25 +108,56 @@ public class BandwidthFactory implements NetworkImpairmentFactory {
                 // Target is 1 s (we have 1 s already queued)
                 // Max queue duration is 2 s
                 // Current message would result in a queue of 3 s, so we drop current message
-                if (targetTimeNanos + transmissionDuration > now + maxQueueDuration) {
-                    if (transmissionDuration > burstLimit + maxQueueDuration) {
-                        LOGGER.warning("Message is too big (" + payload.length + " B) to ever fit within configured bandwidth constrains, dropping it.");
-                    } else {
-                        LOGGER.info("Dropping message due to bandwidth queue exceeded.");
-                    }
+                if (start - now + transmissionDuration > maxQueueDuration) {
+                    LOGGER.info("Dropping message due to bandwidth queue exceeded.");
+                    metrics.onBandwidthDrop();
+                    payload.release();
                     return;
                 }
 
-                targetTimeNanos += transmissionDuration; // For next scheduled transmission
-
-                scheduleDelay = targetTimeNanos - now; // How long from now till we should transmit, allowing negative values
+                scheduledTime = start + transmissionDuration;
+                lastAdmittedNanos = nowNanos; // Before the target, so others reading the target also see this, though concurrent admissions may leave a slightly older time
+                if (targetTime.compareAndSet(target, scheduledTime)) break;
+                // Another thread admitted a message in the meantime, so try again from its target
             }
 
+            long scheduleDelay = (scheduledTime - now) >> FRACTION_BITS; // How long from now till we should transmit in nanoseconds, allowing negative values
             if (scheduleDelay <= 0) {
+                metrics.recordQueueingDelay(0);
                 consumer.accept(payload); // Send immediately using banked time
             } else {
-                ScheduledFuture<?> unused = executorService.schedule(() -> consumer.accept(payload), scheduleDelay, TimeUnit.NANOSECONDS);
+                metrics.recordQueueingDelay(scheduleDelay);
+                pacer.add(payload, consumer, nowNanos + scheduleDelay);
             }
         };
     }
-}
\ No newline at end of file
+
+    /**
+     * Limits banked bandwidth.
+     * Example: Time is 2 s, target is 0 s (we have been idle in 2 s), burst limit is 1 s. We start from 1 s.
+     *
+     * @param target     time we may transmit new messages, in fixed-point nanoseconds
+     * @param now        current time, in fixed-point nanoseconds
+     * @param burstLimit maximum idle time banked for immediate bursting, in fixed-point nanoseconds
+     * @param idleNanos  nanoseconds since the target was last moved
+     * @return time to start transmitting a new message, in fixed-point nanoseconds
+     */
+    static long getStartTime(long target, long now, long burstLimit, long idleNanos) {
+        long earliestStartAllowed = now - burstLimit;
+        if (idleNanos > MAX_IDLE_NANOS) return earliestStartAllowed; // Target is long past, but comparing with it could wrap around
+        return target - earliestStartAllowed < 0 ? earliestStartAllowed : target;
+    }
+
+    /**
+     * @return time to transmit a message of the given length, in fixed-point nanoseconds, saturating at {@link Long#MAX_VALUE}
+     */
+    long getTransmissionDuration(int length) {
+        long byteDuration = length * unitsPerByte;
+        if (Math.multiplyHigh(length, unitsPerByte) != 0 || byteDuration < 0) byteDuration = Long.MAX_VALUE;
+        return Math.max(byteDuration, unitsPerPacket);
+    }
+
+    private static long toUnits(long nanos) {
+        return nanos << FRACTION_BITS;
+    }
+}
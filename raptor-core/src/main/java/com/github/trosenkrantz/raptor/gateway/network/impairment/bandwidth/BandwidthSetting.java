@@ -1,24 +1,42 @@
 package com.github.trosenkrantz.raptor.gateway.network.impairment.bandwidth;
 
 import com.github.trosenkrantz.raptor.configuration.Configuration;
+import com.github.trosenkrantz.raptor.configuration.EnumSetting;
 import com.github.trosenkrantz.raptor.configuration.IntegerSetting;
+import com.github.trosenkrantz.raptor.configuration.LongSetting;
 import com.github.trosenkrantz.raptor.configuration.SettingBase;
 import com.github.trosenkrantz.raptor.io.ConsoleIo;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 public class BandwidthSetting extends SettingBase<Bandwidth> {
-    private static final IntegerSetting RATE_SETTING = new IntegerSetting.Builder("r", "rate", "Rate", "The sustained speed limit of the connection [b/s]")
+    private static final int MAX_BUFFER_MILLIS = 3_600_000; // Keeps queued time within the range of the bandwidth factory's fixed-point time differences, which idle time is not
+
+    private static final LongSetting RATE_SETTING = new LongSetting.Builder("r", "rate", "Rate", "The sustained speed limit of the connection, 0 for no limit [b/s]")
+            .validator(value -> {
+                if (value < 0) return Optional.of("Must not be negative.");
+                else return Optional.empty();
+            })
+            .build();
+    private static final IntegerSetting PACKET_RATE_SETTING = new IntegerSetting.Builder("p", "packetRate", "Packet rate", "The sustained message limit of the connection, 0 for no limit [packets/s]")
+            .defaultValue(0)
             .validator(value -> {
-                if (value <= 0) return Optional.of("Must be positive.");
+                if (value < 0) return Optional.of("Must not be negative.");
                 else return Optional.empty();
             })
             .build();
     private static final IntegerSetting BURST_LIMIT_SETTING = new IntegerSetting.Builder("b", "burst", "Burst limit", "Maximum idle time to be banked for immediate bursting [ms]")
             .defaultValue(100)
+            .validator(BandwidthSetting::validateBufferMillis)
             .build();
     private static final IntegerSetting QUEUE_DURATION_SETTING = new IntegerSetting.Builder("q", "queue", "Queue duration", "Maximum queuing delay before packets are dropped (tail drop) [ms]")
             .defaultValue(1000)
+            .validator(BandwidthSetting::validateBufferMillis)
+            .build();
+    private static final EnumSetting<QueueDiscipline> QUEUE_DISCIPLINE_SETTING = new EnumSetting.Builder<>("d", "queueDiscipline", "Queue discipline", "How to queue messages and choose which to drop", QueueDiscipline.class)
+            .defaultValue(QueueDiscipline.FIFO)
             .build();
 
     private BandwidthSetting(Builder builder) {
@@ -30,11 +48,13 @@ public class BandwidthSetting extends SettingBase<Bandwidth> {
         Optional<Configuration> bandwidthConfiguration = configuration.getSubConfiguration(getParameterKey());
         if (bandwidthConfiguration.isEmpty()) return Optional.empty();
 
-        Optional<Integer> bitsPerSecond = RATE_SETTING.read(bandwidthConfiguration.get());
+        Optional<Long> bitsPerSecond = RATE_SETTING.read(bandwidthConfiguration.get());
+        int packetsPerSecond = PACKET_RATE_SETTING.readAndRequireOrDefault(bandwidthConfiguration.get());
         Optional<Integer> burstLimitMillis = BURST_LIMIT_SETTING.read(bandwidthConfiguration.get());
         Optional<Integer> queueDurationMillis = QUEUE_DURATION_SETTING.read(bandwidthConfiguration.get());
+        QueueDiscipline queueDiscipline = QUEUE_DISCIPLINE_SETTING.readAndRequireOrDefault(bandwidthConfiguration.get());
 
-        if (bitsPerSecond.isPresent() && burstLimitMillis.isPresent() && queueDurationMillis.isPresent()) return Optional.of(new Bandwidth(bitsPerSecond.get(), burstLimitMillis.get(), queueDurationMillis.get()));
+        if (bitsPerSecond.isPresent() && burstLimitMillis.isPresent() && queueDurationMillis.isPresent()) return Optional.of(new Bandwidth(bitsPerSecond.get(), packetsPerSecond, burstLimitMillis.get(), queueDurationMillis.get(), queueDiscipline));
         else return Optional.empty();
     }
 
@@ -45,15 +65,27 @@ public class BandwidthSetting extends SettingBase<Bandwidth> {
         Configuration bandwidthConfiguration = Configuration.empty();
 
         RATE_SETTING.configure(bandwidthConfiguration);
+        PACKET_RATE_SETTING.configure(bandwidthConfiguration);
         BURST_LIMIT_SETTING.configure(bandwidthConfiguration);
         QUEUE_DURATION_SETTING.configure(bandwidthConfiguration);
+        QUEUE_DISCIPLINE_SETTING.configure(bandwidthConfiguration);
 
         configuration.setSubConfiguration(getParameterKey(), bandwidthConfiguration);
     }
 
     @Override
     public String valueToString(Bandwidth value) {
-        return value.bitsPerSecond() + " b/s (" + value.maxBurstDurationMillis() + " + " + value.queueDurationMillis() + " ms buffers)";
+        List<String> limits = new ArrayList<>();
+        if (value.bitsPerSecond() > 0) limits.add(value.bitsPerSecond() + " b/s");
+        if (value.packetsPerSecond() > 0) limits.add(value.packetsPerSecond() + " packets/s");
+        if (limits.isEmpty()) limits.add("unlimited");
+        return String.join(", ", limits) + " (" + value.maxBurstDurationMillis() + " + " + value.queueDurationMillis() + " ms buffers, " + QUEUE_DISCIPLINE_SETTING.valueToString(value.queueDiscipline()) + ")";
+    }
+
+    private static Optional<String> validateBufferMillis(int value) {
+        if (value < 0) return Optional.of("Must not be negative.");
+        if (value > MAX_BUFFER_MILLIS) return Optional.of("Must be at most " + MAX_BUFFER_MILLIS + " ms.");
+        return Optional.empty();
     }
 
     public static class Builder extends SettingBase.Builder<Bandwidth, BandwidthSetting.Builder> {
@@ -0,0 +1,349 @@
+package com.github.trosenkrantz.raptor.gateway.network.impairment.bandwidth;
+
+import com.github.trosenkrantz.raptor.gateway.Payload;
+import com.github.trosenkrantz.raptor.gateway.metrics.RouteMetrics;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.IntToLongFunction;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Link transmitting one message at a time, taking turns between flows with deficit round-robin.
+ * <p>
+ * Payloads are classified by {@link Payload#flow()} into a fixed number of hashed flow queues, so memory is bounded regardless of the number of flows.
+ * Each turn, a flow may transmit up to a quantum of bytes, so a chatty flow only gets its fair share of the bandwidth when others are waiting.
+ * When the total queue exceeds the maximum queue duration, messages are dropped from the head of the longest flow queue, so the flows causing congestion pay for it.
+ * <p>
+ * Optionally, each flow queue is managed by CoDel, dropping messages while they have been queued longer than a target for at least an interval,
+ * at a rate increasing with the square root of the number of drops, keeping queueing delay low without tuning.
+ * <p>
+ * Producers only add payloads to a lock-free queue. A dedicated link thread classifies, schedules, and transmits them, so the scheduler is single-threaded.
+ * As the link thread is busy for the whole transmission of a message, producers drop messages themselves when the queue awaiting classification is full.
+ * We use the fixed-point time of {@link BandwidthFactory} for transmission, and nanoseconds for queueing delays.
+ */
+final class FairQueue implements Consumer<Payload> {
+    private static final Logger LOGGER = Logger.getLogger(FairQueue.class.getName());
+
+    private static final int FLOW_BUCKETS = 1024; // Power of two
+    private static final int QUANTUM = 1514; // Bytes per turn, a full Ethernet frame
+    private static final int INITIAL_FLOW_CAPACITY = 16;
+    private static final long CODEL_TARGET_NANOS = 5_000_000L;
+    private static final long CODEL_INTERVAL_NANOS = 100_000_000L;
+
+    private final String name;
+    private final IntToLongFunction transmissionDuration;
+    private final long burstLimit;
+    private final long maxQueueDuration;
+    private final boolean codel;
+    private final RouteMetrics metrics;
+    private final Consumer<Payload> consumer;
+    private final LongSupplier nanoTime;
+
+    private final Queue<Payload> inbound = new ConcurrentLinkedQueue<>();
+    private final AtomicLong inboundBacklog = new AtomicLong(); // Total transmission duration of messages awaiting classification
+    private volatile Thread linkThread;
+    private volatile boolean linkIdle = false;
+
+    // Only accessed on the link thread
+    private final Flow[] flows = new Flow[FLOW_BUCKETS];
+    private final ArrayDeque<Flow> activeFlows = new ArrayDeque<>();
+    private long backlog = 0; // Total transmission duration of queued messages
+    private long linkFreeAt;
+    private long lastTransmittedNanos; // Time we last started transmitting, to tell whether we have been idle for too long to compare with the time the link is free
+    private long polledEnqueueNanos; // Time the payload last polled from a flow was queued
+
+    /**
+     * @param name                 name used for the link thread
+     * @param transmissionDuration transmission duration of a message of a given length
+     * @param burstLimit           maximum idle time banked for immediate bursting
+     * @param maxQueueDuration     maximum total transmission duration of queued messages
+     * @param codel                whether to manage flow queues with CoDel
+     * @param metrics              metrics to record drops and queueing delays in
+     * @param consumer             consumer to pass transmitted messages to
+     * @param nanoTime             clock in terms of {@link System#nanoTime()}
+     */
+    FairQueue(String name, IntToLongFunction transmissionDuration, long burstLimit, long maxQueueDuration, boolean codel, RouteMetrics metrics, Consumer<Payload> consumer, LongSupplier nanoTime) {
+        this.name = name;
+        this.transmissionDuration = transmissionDuration;
+        this.burstLimit = burstLimit;
+        this.maxQueueDuration = maxQueueDuration;
+        this.codel = codel;
+        this.metrics = metrics;
+        this.consumer = consumer;
+        this.nanoTime = nanoTime;
+        this.lastTransmittedNanos = nanoTime.getAsLong();
+        this.linkFreeAt = toUnits(lastTransmittedNanos);
+    }
+
+    @Override
+    public void accept(Payload payload) {
+        long duration = transmissionDuration.applyAsLong(payload.length());
+        if (duration > burstLimit + maxQueueDuration) {
+            LOGGER.warning("Message is too big (" + payload.length() + " B) to ever fit within configured bandwidth constrains, dropping it.");
+            drop(payload);
+            return;
+        }
+        if (inboundBacklog.addAndGet(duration) > burstLimit + maxQueueDuration) { // Could never all be queued
+            inboundBacklog.addAndGet(-duration);
+            LOGGER.info("Dropping message due to bandwidth queue exceeded while link is busy.");
+            drop(payload);
+            return;
+        }
+        inbound.add(payload);
+
+        Thread thread = linkThread;
+        if (thread == null) {
+            synchronized (this) {
+                if (linkThread == null) {
+                    linkThread = Thread.ofPlatform().name("gateway-fair-queue-" + name).daemon().start(this::keepTransmitting);
+                }
+            }
+        } else if (linkIdle) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private void keepTransmitting() {
+        while (true) {
+            drainInbound();
+            if (activeFlows.isEmpty()) {
+                linkIdle = true;
+                // Check again, as a payload may have been added before seeing us idle
+                if (inbound.isEmpty()) LockSupport.park(this);
+                linkIdle = false;
+                continue;
+            }
+
+            long nowNanos = nanoTime.getAsLong();
+            Payload payload = poll(nowNanos);
+            if (payload == null) continue; // CoDel dropped the rest of the flow
+
+            // Limit banked bandwidth, as with a single queue
+            long now = toUnits(nowNanos);
+            linkFreeAt = BandwidthFactory.getStartTime(linkFreeAt, now, burstLimit, nowNanos - lastTransmittedNanos) + transmissionDuration.applyAsLong(payload.length());
+            lastTransmittedNanos = nowNanos;
+
+            // Wait for the transmission to end, as the link is busy until then
+            long deadlineNanos = nowNanos + ((linkFreeAt - now) >> BandwidthFactory.FRACTION_BITS);
+            long remaining;
+            while ((remaining = deadlineNanos - nanoTime.getAsLong()) > 0) {
+                LockSupport.parkNanos(this, remaining);
+            }
+
+            metrics.recordQueueingDelay(Math.max(0, nanoTime.getAsLong() - polledEnqueueNanos));
+            try {
+                consumer.accept(payload);
+            } catch (Exception e) {
+                LOGGER.log(Level.SEVERE, "Failed passing message after fair queueing.", e);
+            }
+        }
+    }
+
+    private void drainInbound() {
+        Payload payload;
+        while ((payload = inbound.poll()) != null) {
+            long duration = transmissionDuration.applyAsLong(payload.length());
+            inboundBacklog.addAndGet(-duration);
+
+            Flow flow = getFlow(payload.flow());
+            flow.add(payload, duration, nanoTime.getAsLong());
+            if (!flow.active) {
+                flow.active = true;
+                flow.deficit = QUANTUM;
+                activeFlows.addLast(flow);
+            }
+
+            while (backlog > maxQueueDuration) {
+                LOGGER.info("Dropping message from the longest flow queue due to bandwidth queue exceeded.");
+                drop(getLongestFlow().poll());
+            }
+        }
+    }
+
+    /**
+     * Takes the next message to transmit by deficit round-robin.
+     *
+     * @return payload, or null if none is left after dropping
+     */
+    private Payload poll(long nowNanos) {
+        while (!activeFlows.isEmpty()) {
+            Flow flow = activeFlows.peekFirst();
+            if (flow.deficit <= 0) {
+                // Flow has used its turn, so give it a new quantum for its next turn
+                flow.deficit += QUANTUM;
+                activeFlows.addLast(activeFlows.pollFirst());
+                continue;
+            }
+
+            Payload payload = codel ? flow.pollManaged(nowNanos) : flow.poll();
+            if (payload != null) flow.deficit -= payload.length();
+            if (flow.size == 0) {
+                activeFlows.pollFirst();
+                flow.active = false;
+            }
+            if (payload != null) return payload;
+        }
+        return null;
+    }
+
+    private Flow getFlow(int flowId) {
+        int index = (flowId * 0x9E3779B9) >>> (Integer.SIZE - Integer.numberOfTrailingZeros(FLOW_BUCKETS)); // Spread similar ids, e.g., consecutive ports
+        Flow flow = flows[index];
+        if (flow == null) {
+            flow = new Flow();
+            flows[index] = flow;
+        }
+        return flow;
+    }
+
+    private Flow getLongestFlow() {
+        Flow longest = null;
+        for (Flow flow : activeFlows) {
+            if (longest == null || flow.backlog > longest.backlog) longest = flow;
+        }
+        return longest;
+    }
+
+    private void drop(Payload payload) {
+        metrics.onBandwidthDrop();
+        payload.release();
+    }
+
+    private static long getNextDropNanos(long nanos, int count) {
+        return nanos + (long) (CODEL_INTERVAL_NANOS / Math.sqrt(count));
+    }
+
+    private static long toUnits(long nanos) {
+        return nanos << BandwidthFactory.FRACTION_BITS;
+    }
+
+    /**
+     * Queue of one flow bucket, as a growable ring buffer of payloads and the times they were queued.
+     */
+    private final class Flow {
+        private Payload[] payloads = new Payload[INITIAL_FLOW_CAPACITY];
+        private long[] durations = new long[INITIAL_FLOW_CAPACITY];
+        private long[] enqueueNanos = new long[INITIAL_FLOW_CAPACITY];
+        private int head = 0;
+        private int size = 0;
+        private long backlog = 0;
+        private int backlogBytes = 0;
+
+        private boolean active = false;
+        private int deficit = 0;
+
+        // CoDel state
+        private boolean dropping = false;
+        private boolean aboveTarget = false;
+        private long firstAboveNanos;
+        private long dropNextNanos;
+        private int dropCount = 0;
+        private int lastDropCount = 0;
+
+        private void add(Payload payload, long duration, long nowNanos) {
+            if (size == payloads.length) grow();
+            int index = (head + size) & (payloads.length - 1);
+            payloads[index] = payload;
+            durations[index] = duration;
+            enqueueNanos[index] = nowNanos;
+            size++;
+            backlog += duration;
+            backlogBytes += payload.length();
+            FairQueue.this.backlog += duration;
+        }
+
+        private Payload poll() {
+            if (size == 0) return null;
+            Payload payload = payloads[head];
+            payloads[head] = null;
+            polledEnqueueNanos = enqueueNanos[head];
+            backlog -= durations[head];
+            backlogBytes -= payload.length();
+            FairQueue.this.backlog -= durations[head];
+            head = (head + 1) & (payloads.length - 1);
+            size--;
+            return payload;
+        }
+
+        /**
+         * Polls with CoDel, following the pseudocode of RFC 8289.
+         *
+         * @return payload, or null if the queue is empty after dropping
+         */
+        private Payload pollManaged(long nowNanos) {
+            Payload payload = poll();
+            if (payload == null) {
+                dropping = false;
+                return null;
+            }
+
+            boolean okToDrop = isOkToDrop(nowNanos);
+            if (dropping) {
+                if (!okToDrop) {
+                    dropping = false; // Sojourn time below target, so leave dropping state
+                } else {
+                    while (dropping && nowNanos - dropNextNanos >= 0) {
+                        LOGGER.info("Dropping message due to flow queued for too long.");
+                        drop(payload);
+                        dropCount++;
+                        payload = poll();
+                        if (payload == null || !isOkToDrop(nowNanos)) {
+                            dropping = false;
+                        } else {
+                            dropNextNanos = getNextDropNanos(dropNextNanos, dropCount);
+                        }
+                    }
+                }
+            } else if (okToDrop) {
+                LOGGER.info("Dropping message due to flow queued for too long.");
+                drop(payload);
+                payload = poll();
+                dropping = true;
+
+                // If we were dropping recently, continue from a drop rate close to the last one
+                int delta = dropCount - lastDropCount;
+                dropCount = delta > 1 && nowNanos - dropNextNanos < 16 * CODEL_INTERVAL_NANOS ? delta : 1;
+                dropNextNanos = getNextDropNanos(nowNanos, dropCount);
+                lastDropCount = dropCount;
+            }
+            return payload;
+        }
+
+        private boolean isOkToDrop(long nowNanos) {
+            if (nowNanos - polledEnqueueNanos < CODEL_TARGET_NANOS || backlogBytes <= QUANTUM) {
+                aboveTarget = false;
+                return false;
+            }
+            if (!aboveTarget) {
+                aboveTarget = true;
+                firstAboveNanos = nowNanos + CODEL_INTERVAL_NANOS;
+                return false;
+            }
+            return nowNanos - firstAboveNanos >= 0;
+        }
+
+        private void grow() {
+            int capacity = payloads.length * 2;
+            Payload[] newPayloads = new Payload[capacity];
+            long[] newDurations = new long[capacity];
+            long[] newEnqueueNanos = new long[capacity];
+            for (int i = 0; i < size; i++) {
+                int index = (head + i) & (payloads.length - 1);
+                newPayloads[i] = payloads[index];
+                newDurations[i] = durations[index];
+                newEnqueueNanos[i] = enqueueNanos[index];
+            }
+            payloads = newPayloads;
+            durations = newDurations;
+            enqueueNanos = newEnqueueNanos;
+            head = 0;
+        }
+    }
+}
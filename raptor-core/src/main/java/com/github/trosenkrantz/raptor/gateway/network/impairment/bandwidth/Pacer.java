@@ -0,0 +1,95 @@
+package com.github.trosenkrantz.raptor.gateway.network.impairment.bandwidth;
+
+import com.github.trosenkrantz.raptor.gateway.Payload;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Dedicated thread passing on admitted payloads when they are due, in the order they were queued.
+ * <p>
+ * Payloads are queued in a lock-free queue by any number of threads. Transmission times increase in the order payloads are admitted,
+ * so the pacing thread only has to wait for the head of the queue.
+ * If two threads admit payloads concurrently and queue them in the opposite order, the earlier payload is passed on right after the later one,
+ * as if the later one had been admitted first.
+ * <p>
+ * The pacing thread is started on first use, and parks while no payloads are queued.
+ */
+final class Pacer {
+    private static final Logger LOGGER = Logger.getLogger(Pacer.class.getName());
+
+    private final String name;
+    private final LongSupplier nanoTime;
+    private final Queue<Scheduled> queue = new ConcurrentLinkedQueue<>();
+
+    private volatile Thread pacingThread;
+    private volatile boolean pacerIdle = false;
+
+    /**
+     * @param name     name used for the pacing thread
+     * @param nanoTime clock in terms of {@link System#nanoTime()}
+     */
+    Pacer(String name, LongSupplier nanoTime) {
+        this.name = name;
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * Passes a payload to a consumer at a point in time, on the pacing thread.
+     *
+     * @param payload       payload to pass on
+     * @param target        consumer to pass the payload to
+     * @param deadlineNanos time to pass on the payload, in terms of the clock
+     */
+    void add(Payload payload, Consumer<Payload> target, long deadlineNanos) {
+        queue.add(new Scheduled(payload, target, deadlineNanos));
+        ensurePacing();
+    }
+
+    private void ensurePacing() {
+        Thread thread = pacingThread;
+        if (thread == null) {
+            synchronized (this) {
+                if (pacingThread == null) {
+                    pacingThread = Thread.ofPlatform().name("gateway-pacer-" + name).daemon().start(this::keepPacing);
+                }
+            }
+        } else if (pacerIdle) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private void keepPacing() {
+        while (true) {
+            Scheduled head = queue.peek();
+            if (head == null) {
+                pacerIdle = true;
+                // Check again, as a payload may have been queued before seeing us idle
+                if (queue.isEmpty()) LockSupport.park(this);
+                pacerIdle = false;
+                continue;
+            }
+
+            long remaining = head.deadlineNanos() - nanoTime.getAsLong();
+            if (remaining > 0) {
+                LockSupport.parkNanos(this, remaining); // Payloads queued meanwhile are due no earlier, so no need to wake us
+                continue;
+            }
+
+            queue.poll();
+            try {
+                head.target().accept(head.payload());
+            } catch (Exception e) {
+                LOGGER.log(Level.SEVERE, "Failed passing message after pacing.", e);
+            }
+        }
+    }
+
+    private record Scheduled(Payload payload, Consumer<Payload> target, long deadlineNanos) {
+    }
+}
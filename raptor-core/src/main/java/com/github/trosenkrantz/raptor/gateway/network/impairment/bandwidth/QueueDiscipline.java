@@ -0,0 +1,35 @@
+package com.github.trosenkrantz.raptor.gateway.network.impairment.bandwidth;
+
+import com.github.trosenkrantz.raptor.PromptEnum;
+import com.github.trosenkrantz.raptor.configuration.ConfigurableEnum;
+
+public enum QueueDiscipline implements PromptEnum, ConfigurableEnum {
+    FIFO("f", "Single [f]irst in, first out queue, dropping newest messages when full", "fifo"),
+    FAIR("q", "Fair [q]ueueing, taking turns between flows and dropping from the longest flow queue when full", "fair"),
+    FAIR_CODEL("c", "Fair queueing with [C]oDel, also dropping messages of flows queued too long", "fairCodel");
+
+    private final String promptValue;
+    private final String description;
+    private final String configurationId;
+
+    QueueDiscipline(String promptValue, String description, String configurationId) {
+        this.promptValue = promptValue;
+        this.description = description;
+        this.configurationId = configurationId;
+    }
+
+    @Override
+    public String getPromptValue() {
+        return this.promptValue;
+    }
+
+    @Override
+    public String getDescription() {
+        return this.description;
+    }
+
+    @Override
+    public String getConfigurationId() {
+        return this.configurationId;
+    }
+}
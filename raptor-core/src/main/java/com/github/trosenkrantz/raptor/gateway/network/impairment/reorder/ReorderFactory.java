@@ -0,0 +1,161 @@
+package com.github.trosenkrantz.raptor.gateway.network.impairment.reorder;
+
+import com.github.trosenkrantz.raptor.configuration.SettingBase;
+import com.github.trosenkrantz.raptor.gateway.Payload;
+import com.github.trosenkrantz.raptor.gateway.network.impairment.NetworkImpairmentFactory;
+import com.github.trosenkrantz.raptor.gateway.network.impairment.TimingWheel;
+
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Factory for reordering, holding back messages so later messages pass them.
+ * <p>
+ * A held back message gets a release index, the index of the arriving message it is to be passed on after, between 1 and depth messages later.
+ * Held back messages are kept in a binary min-heap on release index, so holding back and releasing are O(log depth).
+ * As each message is released at most depth messages after it arrived, at most depth + 1 messages are held at once, regardless of the load.
+ * <p>
+ * If no messages arrive for the maximum hold time, held back messages are released in order of release index, so they are not held indefinitely when traffic stops.
+ */
+public class ReorderFactory implements NetworkImpairmentFactory {
+    private static final Logger LOGGER = Logger.getLogger(ReorderFactory.class.getName());
+
+    public static final SettingBase<Reordering> SETTING = new ReorderSetting.Builder("o", "reorder", "Reordering", "Holding back messages, letting later messages pass them")
+            .build();
+
+    private final double chance;
+    private final int depth;
+    private final long maxHoldNanos;
+    private final Random random;
+    private final TimingWheel timingWheel;
+
+    public ReorderFactory(Reordering reordering, TimingWheel timingWheel) {
+        this(reordering, new Random(), timingWheel);
+    }
+
+    public ReorderFactory(Reordering reordering, Random random, TimingWheel timingWheel) {
+        this.chance = reordering.chance();
+        this.depth = reordering.depth();
+        this.maxHoldNanos = reordering.maxHoldMillis() * 1_000_000L;
+        this.random = random;
+        this.timingWheel = timingWheel;
+    }
+
+    @Override
+    public Consumer<Payload> create(Consumer<Payload> consumer) {
+        return new Reorderer(consumer);
+    }
+
+    private final class Reorderer implements Consumer<Payload> {
+        private final Consumer<Payload> consumer;
+
+        // Held back messages as a binary min-heap in parallel arrays, ordered by release index, then by arrival index
+        // Room for the depth latest messages, and the one arriving before releasing those due
+        private final long[] releaseIndices = new long[depth + 1];
+        private final long[] arrivalIndices = new long[depth + 1];
+        private final Payload[] payloads = new Payload[depth + 1];
+        private int size = 0;
+
+        private long nextArrivalIndex = 0;
+        private long lastArrivalNanos;
+        private boolean flushScheduled = false;
+
+        private Reorderer(Consumer<Payload> consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public synchronized void accept(Payload payload) {
+            long arrivalIndex = nextArrivalIndex++;
+            lastArrivalNanos = System.nanoTime();
+
+            if (random.nextDouble() < chance) {
+                int displacement = 1 + random.nextInt(depth);
+                LOGGER.fine("Holding back message until " + displacement + " later message" + (displacement == 1 ? "" : "s") + " have passed.");
+                add(arrivalIndex + displacement, arrivalIndex, payload);
+            } else {
+                consumer.accept(payload);
+            }
+
+            // Release messages due after this one
+            while (size > 0 && releaseIndices[0] <= arrivalIndex) {
+                consumer.accept(removeFirst());
+            }
+
+            if (size > 0 && !flushScheduled) {
+                flushScheduled = true;
+                timingWheel.scheduleTaskAt(this::flushIfIdle, lastArrivalNanos + maxHoldNanos);
+            }
+        }
+
+        private synchronized void flushIfIdle() {
+            flushScheduled = false;
+            if (size == 0) return;
+
+            long idleSince = lastArrivalNanos;
+            if (System.nanoTime() - idleSince >= maxHoldNanos) {
+                while (size > 0) {
+                    consumer.accept(removeFirst());
+                }
+            } else {
+                flushScheduled = true;
+                timingWheel.scheduleTaskAt(this::flushIfIdle, idleSince + maxHoldNanos);
+            }
+        }
+
+        private void add(long releaseIndex, long arrivalIndex, Payload payload) {
+            // Sift up
+            int index = size++;
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (!isBefore(releaseIndex, arrivalIndex, parent)) break;
+                move(parent, index);
+                index = parent;
+            }
+            set(index, releaseIndex, arrivalIndex, payload);
+        }
+
+        private Payload removeFirst() {
+            Payload first = payloads[0];
+            size--;
+            long releaseIndex = releaseIndices[size];
+            long arrivalIndex = arrivalIndices[size];
+            Payload last = payloads[size];
+            payloads[size] = null;
+
+            // Sift the last element down from the root
+            int index = 0;
+            if (size > 0) {
+                while (true) {
+                    int child = 2 * index + 1;
+                    if (child >= size) break;
+                    if (child + 1 < size && isBefore(releaseIndices[child + 1], arrivalIndices[child + 1], child)) child++;
+                    if (!isBefore(releaseIndices[child], arrivalIndices[child], releaseIndex, arrivalIndex)) break;
+                    move(child, index);
+                    index = child;
+                }
+                set(index, releaseIndex, arrivalIndex, last);
+            }
+            return first;
+        }
+
+        private boolean isBefore(long releaseIndex, long arrivalIndex, int other) {
+            return isBefore(releaseIndex, arrivalIndex, releaseIndices[other], arrivalIndices[other]);
+        }
+
+        private static boolean isBefore(long releaseIndex, long arrivalIndex, long otherReleaseIndex, long otherArrivalIndex) {
+            return releaseIndex < otherReleaseIndex || (releaseIndex == otherReleaseIndex && arrivalIndex < otherArrivalIndex);
+        }
+
+        private void move(int from, int to) {
+            set(to, releaseIndices[from], arrivalIndices[from], payloads[from]);
+        }
+
+        private void set(int index, long releaseIndex, long arrivalIndex, Payload payload) {
+            releaseIndices[index] = releaseIndex;
+            arrivalIndices[index] = arrivalIndex;
+            payloads[index] = payload;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.github.trosenkrantz.raptor.gateway.network.impairment.reorder;
+
+import com.github.trosenkrantz.raptor.configuration.Configuration;
+import com.github.trosenkrantz.raptor.configuration.DoubleSetting;
+import com.github.trosenkrantz.raptor.configuration.IntegerSetting;
+import com.github.trosenkrantz.raptor.configuration.SettingBase;
+import com.github.trosenkrantz.raptor.io.ConsoleIo;
+
+import java.util.Optional;
+
+public class ReorderSetting extends SettingBase<Reordering> {
+    private static final DoubleSetting CHANCE_SETTING = new DoubleSetting.Builder("c", "chance", "Chance", "Chance of holding back a message, between 0 and 1")
+            .validator(value -> {
+                if (value < 0 || value > 1) return Optional.of("Value must be between 0 and 1, inclusive.");
+                else return Optional.empty();
+            })
+            .build();
+    private static final IntegerSetting DEPTH_SETTING = new IntegerSetting.Builder("d", "depth", "Depth", "Maximum number of later messages passing a held back message")
+            .defaultValue(3)
+            .validator(value -> {
+                if (value < 1 || value > 1024) return Optional.of("Value must be between 1 and 1024, both included.");
+                else return Optional.empty();
+            })
+            .build();
+    private static final IntegerSetting MAX_HOLD_SETTING = new IntegerSetting.Builder("h", "maxHold", "Maximum hold", "Maximum time to hold back messages if no later messages arrive [ms]")
+            .defaultValue(100)
+            .validator(value -> {
+                if (value < 0) return Optional.of("Must be non-negative.");
+                else return Optional.empty();
+            })
+            .build();
+
+    private ReorderSetting(Builder builder) {
+        super(builder);
+    }
+
+    @Override
+    public Optional<Reordering> read(Configuration configuration) {
+        Optional<Configuration> reorderConfiguration = configuration.getSubConfiguration(getParameterKey());
+        if (reorderConfiguration.isEmpty()) return Optional.empty();
+
+        Optional<Double> chance = CHANCE_SETTING.read(reorderConfiguration.get());
+        if (chance.isEmpty()) return Optional.empty();
+
+        return Optional.of(new Reordering(chance.get(), DEPTH_SETTING.readAndRequireOrDefault(reorderConfiguration.get()), MAX_HOLD_SETTING.readAndRequireOrDefault(reorderConfiguration.get())));
+    }
+
+    @Override
+    public void configure(Configuration configuration) {
+        ConsoleIo.writeLine(this.getDescription());
+
+        Configuration reorderConfiguration = Configuration.empty();
+
+        CHANCE_SETTING.configure(reorderConfiguration);
+        DEPTH_SETTING.configure(reorderConfiguration);
+        MAX_HOLD_SETTING.configure(reorderConfiguration);
+
+        configuration.setSubConfiguration(getParameterKey(), reorderConfiguration);
+    }
+
+    @Override
+    public String valueToString(Reordering value) {
+        return value.chance() + " chance, up to " + value.depth() + " messages (" + value.maxHoldMillis() + " ms maximum hold)";
+    }
+
+    public static class Builder extends SettingBase.Builder<Reordering, ReorderSetting.Builder> {
+        public Builder(String promptValue, String parameterKey, String name, String description) {
+            super(promptValue, parameterKey, name, description);
+        }
+
+        @Override
+        public ReorderSetting.Builder self() {
+            return this;
+        }
+
+        @Override
+        public ReorderSetting build() {
+            return new ReorderSetting(this);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.github.trosenkrantz.raptor.gateway.network.impairment.reorder;
+
+/**
+ * @param chance        chance of holding back a message, letting later messages pass it
+ * @param depth         maximum number of later messages passing a held back message
+ * @param maxHoldMillis maximum time to hold back messages if no later messages arrive
+ */
+public record Reordering(double chance, int depth, int maxHoldMillis) {
+}
@@ -0,0 +1,68 @@
+package com.github.trosenkrantz.raptor.gateway.network.impairment.trace;
+
+import com.github.trosenkrantz.raptor.configuration.SettingBase;
+import com.github.trosenkrantz.raptor.configuration.StringSetting;
+import com.github.trosenkrantz.raptor.gateway.Payload;
+import com.github.trosenkrantz.raptor.gateway.metrics.RouteMetrics;
+import com.github.trosenkrantz.raptor.gateway.network.impairment.NetworkImpairmentFactory;
+import com.github.trosenkrantz.raptor.gateway.network.impairment.TimingWheel;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Factory for replaying delay, loss, and corruption of each message from a {@link TraceFile}, starting over when reaching the end.
+ */
+public class TraceFactory implements NetworkImpairmentFactory {
+    private static final Logger LOGGER = Logger.getLogger(TraceFactory.class.getName());
+
+    public static final SettingBase<String> SETTING = new StringSetting.Builder("t", "trace", "Trace", "Path of a trace file to replay delay, loss, and corruption of each message from")
+            .build();
+
+    private final TraceFile trace;
+    private final TimingWheel timingWheel;
+    private final RouteMetrics metrics;
+    private final AtomicLong nextRecord = new AtomicLong();
+
+    public TraceFactory(TraceFile trace, TimingWheel timingWheel, RouteMetrics metrics) {
+        this.trace = trace;
+        this.timingWheel = timingWheel;
+        this.metrics = metrics;
+
+        LOGGER.info("Replaying trace of " + trace.getRecordCount() + " messages.");
+    }
+
+    @Override
+    public Consumer<Payload> create(Consumer<Payload> consumer) {
+        return sharedPayload -> {
+            long count = nextRecord.getAndIncrement();
+            if (count == trace.getRecordCount()) LOGGER.info("Reached end of trace, starting over.");
+            long index = count % trace.getRecordCount();
+
+            if (trace.isLost(index)) {
+                LOGGER.info("Dropping packet due to trace");
+                metrics.onPacketLoss();
+                sharedPayload.release();
+                return;
+            }
+
+            Payload payload = sharedPayload;
+            int corruptBit = trace.getCorruptBit(index);
+            if (corruptBit >= 0 && payload.length() > 0) {
+                payload = payload.mutable(); // The payload may also be passed elsewhere, e.g., if duplicated
+                int bitPosition = corruptBit % (payload.length() * 8);
+                payload.array()[bitPosition >>> 3] ^= (byte) (1 << (bitPosition & 7));
+                LOGGER.info("Flipped bit " + bitPosition + " due to trace");
+            }
+
+            long delayNanos = trace.getDelayMicros(index) * 1_000L;
+            metrics.recordQueueingDelay(Math.max(0, delayNanos));
+            if (delayNanos <= 0) {
+                consumer.accept(payload);
+            } else {
+                timingWheel.schedule(payload, consumer, delayNanos);
+            }
+        };
+    }
+}
@@ -0,0 +1,108 @@
+package com.github.trosenkrantz.raptor.gateway.network.impairment.trace;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Trace of recorded impairments, memory-mapped, so traces of millions of messages are read without loading them onto the heap.
+ * <p>
+ * The format is big-endian and fixed-width:
+ * <ul>
+ *     <li>Header of 8 bytes: the magic bytes {@code RPTT}, a 16-bit version, and a 16-bit record length.</li>
+ *     <li>Records of 8 bytes: a signed 32-bit delay [us], 8 bits of flags (1 for lost, 2 for corrupt), a reserved byte, and an unsigned 16-bit index of the bit to flip if corrupt.</li>
+ * </ul>
+ * Reading uses absolute positions only, so any number of threads can read concurrently.
+ */
+public final class TraceFile {
+    private static final int MAGIC = 'R' << 24 | 'P' << 16 | 'T' << 8 | 'T';
+    private static final short VERSION = 1;
+    static final int HEADER_LENGTH = 8;
+    static final int RECORD_LENGTH = 8;
+    private static final int FLAG_LOST = 1;
+    private static final int FLAG_CORRUPT = 2;
+
+    private final ByteBuffer buffer;
+    private final long recordCount;
+
+    private TraceFile(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.recordCount = (buffer.capacity() - HEADER_LENGTH) / RECORD_LENGTH;
+    }
+
+    /**
+     * Maps a trace file.
+     *
+     * @param path path of trace file
+     * @return trace
+     * @throws IOException if failing to read the file
+     * @throws IllegalArgumentException if the file is not a trace, or is empty
+     */
+    public static TraceFile open(Path path) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) throw new IllegalArgumentException("Trace " + path + " is larger than 2 GiB.");
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); // The mapping stays valid after closing the channel
+        }
+
+        if (buffer.capacity() < HEADER_LENGTH || buffer.getInt(0) != MAGIC) throw new IllegalArgumentException("File " + path + " is not a trace.");
+        if (buffer.getShort(4) != VERSION) throw new IllegalArgumentException("Trace " + path + " has unsupported version " + buffer.getShort(4) + ".");
+        if (buffer.getShort(6) != RECORD_LENGTH) throw new IllegalArgumentException("Trace " + path + " has unsupported record length " + buffer.getShort(6) + ".");
+
+        TraceFile trace = new TraceFile(buffer);
+        if (trace.recordCount == 0) throw new IllegalArgumentException("Trace " + path + " has no records.");
+        return trace;
+    }
+
+    /**
+     * Writes a trace file, e.g., when converting captures from other tools.
+     *
+     * @param path    path of trace file
+     * @param records records to write
+     * @throws IOException if failing to write the file
+     */
+    public static void write(Path path, List<TraceRecord> records) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH + records.size() * RECORD_LENGTH);
+        buffer.putInt(MAGIC).putShort(VERSION).putShort((short) RECORD_LENGTH);
+        for (TraceRecord record : records) {
+            buffer.putInt(record.delayMicros());
+            buffer.put((byte) ((record.lost() ? FLAG_LOST : 0) | (record.corruptBit() >= 0 ? FLAG_CORRUPT : 0)));
+            buffer.put((byte) 0);
+            buffer.putShort((short) Math.max(0, record.corruptBit()));
+        }
+        Files.write(path, buffer.array());
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * @param index index of record, less than the record count
+     */
+    public int getDelayMicros(long index) {
+        return buffer.getInt(getPosition(index));
+    }
+
+    public boolean isLost(long index) {
+        return (buffer.get(getPosition(index) + 4) & FLAG_LOST) != 0;
+    }
+
+    /**
+     * @return index of the bit to flip, or -1 to not corrupt
+     */
+    public int getCorruptBit(long index) {
+        int position = getPosition(index);
+        if ((buffer.get(position + 4) & FLAG_CORRUPT) == 0) return -1;
+        return buffer.getShort(position + 6) & 0xFFFF;
+    }
+
+    private static int getPosition(long index) {
+        return HEADER_LENGTH + (int) index * RECORD_LENGTH;
+    }
+}
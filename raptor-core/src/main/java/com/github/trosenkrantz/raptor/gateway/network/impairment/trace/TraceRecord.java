@@ -0,0 +1,11 @@
+package com.github.trosenkrantz.raptor.gateway.network.impairment.trace;
+
+/**
+ * Impairment of a single message in a trace.
+ *
+ * @param delayMicros delay [us]
+ * @param lost        whether the message is lost
+ * @param corruptBit  index of the bit to flip, modulo the number of bits in the message, or -1 to not corrupt
+ */
+public record TraceRecord(int delayMicros, boolean lost, int corruptBit) {
+}
@@ -37,30 +37,66 @@ public class BytesFormatter {
     private static final Logger LOGGER = Logger.getLogger(BytesFormatter.class.getName());
 
     public static String bytesToRaptorEncoding(byte[] input) {
-        if (isText(input)) {
-            return bytesToRaptorEncodedText(input);
+        return bytesToRaptorEncoding(input, input.length);
+    }
+
+    /**
+     * @param input  bytes, of which only the first length bytes are encoded
+     * @param length number of bytes to encode
+     * @return RAPTOR encoded string
+     */
+    public static String bytesToRaptorEncoding(byte[] input, int length) {
+        if (isText(input, length)) {
+            return bytesToRaptorEncodedText(input, length);
         } else {
-            return bytesToRaptorEncodedBytes(input);
+            return bytesToRaptorEncodedBytes(input, length);
         }
     }
 
     public static String bytesToRaptorEncodingWithType(byte[] input) {
-        if (isText(input)) {
-            return "text: " + bytesToRaptorEncodedText(input);
+        return bytesToRaptorEncodingWithType(input, input.length);
+    }
+
+    /**
+     * @param input  bytes, of which only the first length bytes are encoded
+     * @param length number of bytes to encode
+     * @return RAPTOR encoded string, prefixed with its type
+     */
+    public static String bytesToRaptorEncodingWithType(byte[] input, int length) {
+        if (isText(input, length)) {
+            return "text: " + bytesToRaptorEncodedText(input, length);
         } else {
-            return "bytes: " + bytesToRaptorEncodedBytes(input);
+            return "bytes: " + bytesToRaptorEncodedBytes(input, length);
         }
     }
 
     public static boolean isText(byte[] bytes) {
-        for (byte b : bytes) {
-            if (!isText(b)) return false;
+        return isText(bytes, bytes.length);
+    }
+
+    public static boolean isText(byte[] bytes, int length) {
+        return isText(bytes, 0, length);
+    }
+
+    /**
+     * @param bytes  bytes, of which only length bytes from offset are checked
+     * @param offset index of the first byte to check
+     * @param length number of bytes to check
+     * @return true if the bytes are text
+     */
+    public static boolean isText(byte[] bytes, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (!isText(bytes[i])) return false;
         }
         return true;
     }
 
     public static String getType(byte[] bytes) {
-        return isText(bytes) ? "text" : "bytes";
+        return getType(bytes, bytes.length);
+    }
+
+    public static String getType(byte[] bytes, int length) {
+        return isText(bytes, length) ? "text" : "bytes";
     }
 
     private static boolean isText(byte b) {
@@ -72,26 +108,49 @@ public class BytesFormatter {
     }
 
     public static String bytesToRaptorEncodedText(byte[] input) {
-        return intermediateEncodingToRaptorEncoded(bytesToIntermediateEncodedText(input));
+        return bytesToRaptorEncodedText(input, input.length);
+    }
+
+    /**
+     * @param input  bytes, of which only the first length bytes are encoded
+     * @param length number of bytes to encode
+     * @return RAPTOR encoded string, encoding the bytes as text
+     */
+    public static String bytesToRaptorEncodedText(byte[] input, int length) {
+        return intermediateEncodingToRaptorEncoded(bytesToIntermediateEncodedText(input, 0, length));
     }
 
     public static String bytesToIntermediateEncoding(byte[] input) {
-        if (isText(input)) {
-            return bytesToIntermediateEncodedText(input);
+        return bytesToIntermediateEncoding(input, 0, input.length);
+    }
+
+    /**
+     * @param input  bytes, of which only length bytes from offset are encoded
+     * @param offset index of the first byte to encode
+     * @param length number of bytes to encode
+     * @return intermediate encoding
+     */
+    public static String bytesToIntermediateEncoding(byte[] input, int offset, int length) {
+        if (isText(input, offset, length)) {
+            return bytesToIntermediateEncodedText(input, offset, length);
         } else {
-            return bytesToIntermediateEncodedBytes(input);
+            return HexFormat.of().withPrefix("\\x").formatHex(input, offset, offset + length);
         }
     }
 
     public static String bytesToIntermediateEncodedText(byte[] input) {
+        return bytesToIntermediateEncodedText(input, 0, input.length);
+    }
+
+    private static String bytesToIntermediateEncodedText(byte[] input, int offset, int length) {
         StringBuilder builder = new StringBuilder();
 
-        int length = input.length;
-        for (int i = 0; i < length; i++) {
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
             // For an edge case of four bytes that would encode as \, \, x, a hex character, and a hex character, that would decode to a single byte.
             // Instead, we process the backslash as an arbitrary byte with hex value 5c, which is a backslash in ASCII.
             if (input[i] == '\\'
-                    && i + 3 < length
+                    && i + 3 < end
                     && input[i + 1] == 'x'
                     && isHex((char) input[i + 2])
                     && isHex((char) input[i + 3])) {
@@ -128,7 +187,16 @@ public class BytesFormatter {
     }
 
     public static String bytesToRaptorEncodedBytes(byte[] input) {
-        return HexFormat.of().withPrefix("\\\\x").formatHex(input);
+        return bytesToRaptorEncodedBytes(input, input.length);
+    }
+
+    /**
+     * @param input  bytes, of which only the first length bytes are encoded
+     * @param length number of bytes to encode
+     * @return RAPTOR encoded string, encoding the bytes as arbitrary bytes
+     */
+    public static String bytesToRaptorEncodedBytes(byte[] input, int length) {
+        return HexFormat.of().withPrefix("\\\\x").formatHex(input, 0, length);
     }
 
     public static byte[] raptorEncodingToBytes(String input, int commandSubstitutionTimeout) {
@@ -174,6 +174,42 @@ public class ConsoleIo {
     }
 
 
+    /* Long */
+
+    public static long askForLong(String description, Validator<Long> validator) {
+        return askForLong(description, null, validator);
+    }
+
+    public static long askForLong(String description, Long defaultValue, Validator<Long> validator) {
+        while (true) {
+            List<String> prefixes = new ArrayList<>();
+            prefixes.add(description);
+            if (defaultValue != null) prefixes.add(getDefaultString(String.valueOf(defaultValue)));
+            prefixes.add(getExitString());
+            write(String.join(". ", prefixes) + ": ");
+
+            String answer = readLine();
+            if (answer.equals("e")) throw new UserAbortedException();
+            if (defaultValue != null && answer.isEmpty()) return defaultValue;
+
+            long longAnswer;
+            try {
+                longAnswer = Long.parseLong(answer);
+            } catch (NumberFormatException e) {
+                writeLine("Answer must be an integer between " + Long.MIN_VALUE + " and " + Long.MAX_VALUE + ".", Ansi.ERROR);
+                continue;
+            }
+
+            Optional<String> error = validator.validate(longAnswer);
+            if (error.isPresent()) {
+                writeLine(error.get(), Ansi.ERROR);
+            } else {
+                return longAnswer;
+            }
+        }
+    }
+
+
     /* Double */
 
     public static Double askForDouble(String description, Validator<Double> validator) {
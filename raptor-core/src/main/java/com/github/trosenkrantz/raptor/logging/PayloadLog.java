@@ -0,0 +1,219 @@
+package com.github.trosenkrantz.raptor.logging;
+
+import com.github.trosenkrantz.raptor.io.BytesFormatter;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * Logs messages received and sent, as e.g. "Received text from 127.0.0.1:50000: Hello, World!".
+ * <p>
+ * Encoding a payload costs far more than passing it on, so we defer it until a handler publishes the record, and do not encode at all if no handler wants it.
+ * We only encode a prefix of large payloads, and can sample, logging only every nth message, at most a number of messages per second, or both.
+ * Suppressed messages are counted and summarised periodically, so it is still visible that traffic is flowing.
+ * <p>
+ * Configured with arguments:
+ * <ul>
+ *     <li>--log-payload-limit=&lt;bytes&gt; encodes at most this many bytes of each payload, 0 for no limit.</li>
+ *     <li>--log-every=&lt;n&gt; logs only every nth message.</li>
+ *     <li>--log-rate=&lt;messages&gt; logs at most this many messages per second.</li>
+ * </ul>
+ */
+public final class PayloadLog {
+    private static final Logger LOGGER = Logger.getLogger(PayloadLog.class.getName());
+
+    public static final int DEFAULT_LIMIT = 4096;
+    private static final long SUMMARY_PERIOD_SECONDS = 10;
+    private static final long SECOND_NANOS = 1_000_000_000L;
+
+    private static volatile int limit = DEFAULT_LIMIT;
+    private static volatile int every = 1;
+    private static volatile long intervalNanos = 0; // Time between messages at the max rate, 0 if not rate limited
+    private static volatile long burstNanos = 0;
+
+    private static final AtomicLong count = new AtomicLong();
+    private static final AtomicLong theoreticalArrivalNanos = new AtomicLong(System.nanoTime());
+    private static final LongAdder suppressed = new LongAdder();
+    private static ScheduledExecutorService executor; // Guarded by PayloadLog.class
+
+    private PayloadLog() {
+    }
+
+    public static void configure(String[] args) {
+        configure(
+                getIntArgument(args, "--log-payload-limit=").orElse(DEFAULT_LIMIT),
+                getIntArgument(args, "--log-every=").orElse(1),
+                getIntArgument(args, "--log-rate=").orElse(0)
+        );
+    }
+
+    /**
+     * @param limit max bytes of each payload to encode, 0 for no limit
+     * @param every log only every nth message, 1 to log all
+     * @param rate  max messages per second, 0 for no limit
+     */
+    static synchronized void configure(int limit, int every, int rate) {
+        if (limit < 0) throw new IllegalArgumentException("Payload log limit must be non-negative, but was " + limit + ".");
+        if (every < 1) throw new IllegalArgumentException("Payload log sampling must be at least 1, but was " + every + ".");
+        if (rate < 0) throw new IllegalArgumentException("Payload log rate must be non-negative, but was " + rate + ".");
+
+        PayloadLog.limit = limit;
+        PayloadLog.every = every;
+        PayloadLog.intervalNanos = rate == 0 ? 0 : SECOND_NANOS / rate;
+        PayloadLog.burstNanos = rate == 0 ? 0 : SECOND_NANOS - SECOND_NANOS / rate; // Allow a full second's worth of messages in a burst
+        count.set(0);
+        theoreticalArrivalNanos.set(System.nanoTime());
+        suppressed.reset();
+
+        if ((every > 1 || rate > 0) && executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("payload-log-summary").daemon().factory());
+            executor.scheduleAtFixedRate(PayloadLog::logSummary, SUMMARY_PERIOD_SECONDS, SUMMARY_PERIOD_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    private static Optional<Integer> getIntArgument(String[] args, String prefix) {
+        return Arrays.stream(args).filter(arg -> arg.startsWith(prefix)).findFirst().map(arg -> {
+            try {
+                return Integer.parseInt(arg.substring(prefix.length()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid argument " + arg + ", expected an integer.", e);
+            }
+        });
+    }
+
+    public static void received(Logger logger, byte[] data, int length) {
+        log(logger, "Received", data, length, null, null);
+    }
+
+    /**
+     * @param context describing the message after its type, e.g. " from 127.0.0.1:50000", only called if logged
+     */
+    public static void received(Logger logger, byte[] data, int length, Supplier<String> context) {
+        log(logger, "Received", data, length, null, context);
+    }
+
+    /**
+     * @param text    true to encode as text, false to encode as arbitrary bytes, e.g. for the frame type of WebSockets
+     * @param context describing the message after its type, e.g. " from 127.0.0.1:50000", only called if logged
+     */
+    public static void received(Logger logger, byte[] data, boolean text, Supplier<String> context) {
+        log(logger, "Received", data, data.length, text, context);
+    }
+
+    public static void sent(Logger logger, byte[] data, int length) {
+        log(logger, "Sent", data, length, null, null);
+    }
+
+    /**
+     * @param context describing the message after its type, e.g. " to 127.0.0.1:50000", only called if logged
+     */
+    public static void sent(Logger logger, byte[] data, int length, Supplier<String> context) {
+        log(logger, "Sent", data, length, null, context);
+    }
+
+    /**
+     * @param text    true to encode as text, false to encode as arbitrary bytes, e.g. for the frame type of WebSockets
+     * @param context describing the message after its type, e.g. " to 127.0.0.1:50000", only called if logged
+     */
+    public static void sent(Logger logger, byte[] data, boolean text, Supplier<String> context) {
+        log(logger, "Sent", data, data.length, text, context);
+    }
+
+    private static void log(Logger logger, String action, byte[] data, int length, Boolean text, Supplier<String> context) {
+        if (!logger.isLoggable(Level.INFO)) return;
+        if (!isSampled()) {
+            suppressed.increment();
+            return;
+        }
+
+        PayloadRecord record = new PayloadRecord(action, data, length, text, context, limit);
+        record.setLoggerName(logger.getName());
+        logger.log(record);
+    }
+
+    /**
+     * Decides if the next message is to be logged, first by sampling every nth message, then by rate, so rate limiting applies to the sampled messages.
+     */
+    static boolean isSampled() {
+        int every = PayloadLog.every;
+        if (every > 1 && count.getAndIncrement() % every != 0) return false;
+
+        long intervalNanos = PayloadLog.intervalNanos;
+        if (intervalNanos == 0) return true;
+
+        // Generic cell rate algorithm, admitting if the theoretical arrival time of the message is at most a burst ahead of now
+        long nowNanos = System.nanoTime();
+        while (true) {
+            long theoretical = theoreticalArrivalNanos.get();
+            long start = theoretical - nowNanos > 0 ? theoretical : nowNanos;
+            if (start - nowNanos > burstNanos) return false;
+            if (theoreticalArrivalNanos.compareAndSet(theoretical, start + intervalNanos)) return true;
+        }
+    }
+
+    static long getSuppressed() {
+        return suppressed.sum();
+    }
+
+    private static void logSummary() {
+        long count = suppressed.sumThenReset();
+        if (count > 0) LOGGER.info("Suppressed " + count + " payload log message" + (count == 1 ? "" : "s") + " in the last " + SUMMARY_PERIOD_SECONDS + " s.");
+    }
+
+    /**
+     * @param text  true to encode as text, false to encode as arbitrary bytes, null to detect
+     * @param limit max bytes to encode, 0 for no limit
+     * @return message, e.g. "Received text from 127.0.0.1:50000: Hello, World!"
+     */
+    static String format(String action, byte[] data, int length, Boolean text, Supplier<String> context, int limit) {
+        boolean isText = text != null ? text : BytesFormatter.isText(data, length);
+        int encodedLength = limit == 0 ? length : Math.min(length, limit);
+
+        StringBuilder builder = new StringBuilder();
+        builder.append(action).append(isText ? " text" : " bytes");
+        if (context != null) builder.append(context.get());
+        builder.append(": ");
+        builder.append(isText ? BytesFormatter.bytesToRaptorEncodedText(data, encodedLength) : BytesFormatter.bytesToRaptorEncodedBytes(data, encodedLength));
+        if (encodedLength < length) builder.append(" ... (truncated ").append(length - encodedLength).append(" of ").append(length).append(" B)");
+        return builder.toString();
+    }
+
+    /**
+     * Record formatting its message on first use, which is when a handler publishes it.
+     * Handlers publish synchronously, so the payload is still unchanged by then.
+     */
+    private static final class PayloadRecord extends LogRecord {
+        private final String action;
+        private final byte[] data;
+        private final int length;
+        private final Boolean text;
+        private final Supplier<String> context;
+        private final int limit;
+        private String formatted; // Only accessed by the logging thread
+
+        private PayloadRecord(String action, byte[] data, int length, Boolean text, Supplier<String> context, int limit) {
+            super(Level.INFO, null);
+            this.action = action;
+            this.data = data;
+            this.length = length;
+            this.text = text;
+            this.context = context;
+            this.limit = limit;
+        }
+
+        @Override
+        public String getMessage() {
+            if (formatted == null) formatted = format(action, data, length, text, context, limit);
+            return formatted;
+        }
+    }
+}
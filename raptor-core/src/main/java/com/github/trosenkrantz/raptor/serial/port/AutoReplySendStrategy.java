@@ -12,13 +12,10 @@ class AutoReplySendStrategy implements SerialPortSendStrategy {
     public Consumer<byte[]> start(Configuration configuration, SerialPort port, Runnable shutDownAction, int commandSubstitutionTimeout) {
         StateMachine stateMachine = new StateMachine(
                 StateMachineConfiguration.fromConfiguration(configuration),
-                payload -> SerialPortUtility.writeToPort(port, payload)
+                payload -> SerialPortUtility.writeToPort(port, payload),
+                shutDownAction // A serial port has no connection to drop, so we shut down instead
         );
 
-        return input -> {
-            for (byte b : input) {
-                stateMachine.onInput(new byte[]{b}); // Pass on byte by byte
-            }
-        };
+        return stateMachine::onInput;
     }
 }
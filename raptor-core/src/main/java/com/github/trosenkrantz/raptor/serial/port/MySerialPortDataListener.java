@@ -3,7 +3,8 @@ package com.github.trosenkrantz.raptor.serial.port;
 import com.fazecast.jSerialComm.SerialPort;
 import com.fazecast.jSerialComm.SerialPortDataListener;
 import com.fazecast.jSerialComm.SerialPortEvent;
-import com.github.trosenkrantz.raptor.io.BytesFormatter;
+import com.github.trosenkrantz.raptor.capture.Capture;
+import com.github.trosenkrantz.raptor.logging.PayloadLog;
 
 import java.util.function.Consumer;
 import java.util.logging.Logger;
@@ -27,7 +28,8 @@ class MySerialPortDataListener implements SerialPortDataListener {
         switch (event.getEventType()) {
             case SerialPort.LISTENING_EVENT_DATA_RECEIVED:
                 byte[] data = event.getReceivedData();
-                LOGGER.info("Received " + BytesFormatter.bytesToRaptorEncodingWithType(data));
+                PayloadLog.received(LOGGER, data, data.length);
+                Capture.serial(event.getSerialPort().getSystemPortName()).received(data);
                 onReceivedData.accept(data);
                 break;
             case SerialPort.LISTENING_EVENT_PORT_DISCONNECTED:
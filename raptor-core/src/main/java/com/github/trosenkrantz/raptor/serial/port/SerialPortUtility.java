@@ -1,12 +1,13 @@
 package com.github.trosenkrantz.raptor.serial.port;
 
 import com.fazecast.jSerialComm.SerialPort;
+import com.github.trosenkrantz.raptor.capture.Capture;
 import com.github.trosenkrantz.raptor.configuration.Configuration;
 import com.github.trosenkrantz.raptor.configuration.EnumSetting;
 import com.github.trosenkrantz.raptor.configuration.IntegerSetting;
-import com.github.trosenkrantz.raptor.io.BytesFormatter;
 import com.github.trosenkrantz.raptor.io.CommandSubstitutor;
 import com.github.trosenkrantz.raptor.io.ConsoleIo;
+import com.github.trosenkrantz.raptor.logging.PayloadLog;
 
 import java.io.IOException;
 import java.util.Arrays;
@@ -110,7 +111,18 @@ public class SerialPortUtility {
     }
 
     public static void writeToPort(SerialPort port, byte[] payload) {
-        int writeResult = port.writeBytes(payload, payload.length);
+        writeToPort(port, payload, payload.length);
+    }
+
+    /**
+     * Writes the first length bytes of the payload to the port.
+     *
+     * @param port    port to write to
+     * @param payload bytes to write from
+     * @param length  number of bytes to write
+     */
+    public static void writeToPort(SerialPort port, byte[] payload, int length) {
+        int writeResult = port.writeBytes(payload, length);
         if (writeResult == -1) {
             LOGGER.severe("Failed writing to port " + port.getSystemPortName() + ".");
             return;
@@ -122,6 +134,7 @@ public class SerialPortUtility {
             return;
         }
 
-        LOGGER.info("Sent " + BytesFormatter.bytesToRaptorEncodingWithType(payload));
+        PayloadLog.sent(LOGGER, payload, length);
+        Capture.serial(port.getSystemPortName()).sent(payload, 0, length);
     }
 }
@@ -3,6 +3,7 @@ package com.github.trosenkrantz.raptor.serial.port.gateway;
 import com.github.trosenkrantz.raptor.configuration.Configuration;
 import com.github.trosenkrantz.raptor.gateway.DelayedConsumer;
 import com.github.trosenkrantz.raptor.gateway.Endpoint;
+import com.github.trosenkrantz.raptor.gateway.Payload;
 import com.github.trosenkrantz.raptor.serial.port.SerialPortUtility;
 
 import java.util.function.Consumer;
@@ -12,17 +13,23 @@ import java.util.logging.Logger;
 public class SerialPortEndpoint implements Endpoint {
     private static final Logger LOGGER = Logger.getLogger(SerialPortEndpoint.class.getName());
 
-    private final DelayedConsumer<byte[]> fromBroker = new DelayedConsumer<>(); // As we connect async, buffer data from broker until serial port is open
+    private final DelayedConsumer<Payload> fromBroker = new DelayedConsumer<>(); // As we connect async, buffer data from broker until serial port is open
 
-    public SerialPortEndpoint(Configuration configuration, Consumer<byte[]> broker, Runnable onEndpointClosed) {
+    public SerialPortEndpoint(Configuration configuration, Consumer<Payload> broker, Runnable onEndpointClosed) {
         // Start receiving in a separate thread to not block the main thread
         Thread.ofVirtual().start(() -> {
             try {
                 SerialPortUtility.connectAndStartSendingAndReceiving(configuration, (ignore1, port, ignore2, ignore3) -> {
                     // Now that the port is open, we can set what to do with data from the broker
-                    fromBroker.setDelegate(payload -> SerialPortUtility.writeToPort(port, payload));
+                    fromBroker.setDelegate(payload -> {
+                        try {
+                            SerialPortUtility.writeToPort(port, payload.array(), payload.length());
+                        } finally {
+                            payload.release();
+                        }
+                    });
 
-                    return broker; // When serial port receives data, pass to broker
+                    return bytes -> broker.accept(Payload.wrap(bytes)); // When serial port receives data, pass to broker, the data is already a fresh array
                 });
             } catch (Exception e) {
                 LOGGER.log(Level.SEVERE, "Failed creating serial port or receiving data on it.", e);
@@ -34,7 +41,7 @@ public class SerialPortEndpoint implements Endpoint {
     }
 
     @Override
-    public void sendToExternalSystem(byte[] payload) {
+    public void sendToExternalSystem(Payload payload) {
         fromBroker.accept(payload);
     }
 }
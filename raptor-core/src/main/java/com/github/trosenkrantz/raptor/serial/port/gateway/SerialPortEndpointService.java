@@ -3,6 +3,7 @@ package com.github.trosenkrantz.raptor.serial.port.gateway;
 import com.github.trosenkrantz.raptor.configuration.Configuration;
 import com.github.trosenkrantz.raptor.gateway.Endpoint;
 import com.github.trosenkrantz.raptor.gateway.EndpointService;
+import com.github.trosenkrantz.raptor.gateway.Payload;
 import com.github.trosenkrantz.raptor.serial.port.SerialPortUtility;
 
 import java.util.function.Consumer;
@@ -28,7 +29,7 @@ public class SerialPortEndpointService implements EndpointService {
     }
 
     @Override
-    public Endpoint createEndpoint(Configuration configuration, Consumer<byte[]> broker, Runnable onEndpointClosed) {
+    public Endpoint createEndpoint(Configuration configuration, Consumer<Payload> broker, Runnable onEndpointClosed) {
         return new SerialPortEndpoint(configuration, broker, onEndpointClosed);
     }
 }
@@ -1,15 +1,18 @@
 package com.github.trosenkrantz.raptor.tcp;
 
+import com.github.trosenkrantz.raptor.capture.Capture;
+import com.github.trosenkrantz.raptor.capture.CaptureStream;
 import com.github.trosenkrantz.raptor.configuration.Configuration;
 import com.github.trosenkrantz.raptor.auto.reply.StateMachine;
 import com.github.trosenkrantz.raptor.auto.reply.StateMachineConfiguration;
-import com.github.trosenkrantz.raptor.io.BytesFormatter;
+import com.github.trosenkrantz.raptor.logging.PayloadLog;
 
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.UncheckedIOException;
 import java.net.Socket;
 import java.util.function.Consumer;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 class AutoReplySendStrategy implements TcpSendStrategy {
@@ -17,6 +20,13 @@ class AutoReplySendStrategy implements TcpSendStrategy {
 
     private StateMachineConfiguration stateMachineConfiguration;
 
+    AutoReplySendStrategy() {
+    }
+
+    private AutoReplySendStrategy(StateMachineConfiguration stateMachineConfiguration) {
+        this.stateMachineConfiguration = stateMachineConfiguration;
+    }
+
     @Override
     public void configure(Configuration configuration) throws IOException {
         StateMachineConfiguration.configureSampleAutoReply(configuration, StateMachineConfiguration.REPLIES_PATH);
@@ -28,21 +38,30 @@ class AutoReplySendStrategy implements TcpSendStrategy {
         stateMachineConfiguration = StateMachineConfiguration.fromConfiguration(configuration);
     }
 
+    @Override
+    public TcpSendStrategy forConnection() {
+        return new AutoReplySendStrategy(stateMachineConfiguration); // Share the configuration, each connection getting its own state machine on start
+    }
+
     @Override
     public Consumer<byte[]> start(Socket socket, Runnable shutDownAction) throws IOException {
         OutputStream out = socket.getOutputStream();
+        CaptureStream capture = Capture.tcp(socket);
         StateMachine stateMachine = new StateMachine(stateMachineConfiguration, output -> {
             try {
                 out.write(output);
-                LOGGER.info("Sent " + BytesFormatter.bytesToRaptorEncodingWithType(output));
+                PayloadLog.sent(LOGGER, output, output.length);
+                capture.sent(output);
             } catch (IOException e) {
                 throw new UncheckedIOException(e);
             }
-        });
-        return input -> {
-            for (byte b : input) {
-                stateMachine.onInput(new byte[]{b}); // Pass on byte by byte
+        }, () -> {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to close socket.", e);
             }
-        };
+        });
+        return stateMachine::onInput;
     }
 }
@@ -1,20 +1,31 @@
 package com.github.trosenkrantz.raptor.tcp;
 
 import com.github.trosenkrantz.raptor.UserAbortedException;
+import com.github.trosenkrantz.raptor.capture.Capture;
 import com.github.trosenkrantz.raptor.configuration.Configuration;
 import com.github.trosenkrantz.raptor.io.BytesFormatter;
 import com.github.trosenkrantz.raptor.io.CommandSubstitutor;
 import com.github.trosenkrantz.raptor.io.ConsoleIo;
+import com.github.trosenkrantz.raptor.logging.PayloadLog;
 
-import java.io.OutputStream;
+import java.io.IOException;
 import java.net.Socket;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
-import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+/**
+ * Prompts over console for what to send, sending each answer to all connected sockets.
+ * Connections share this instance and thereby a single prompt, as prompts of their own would compete for console input.
+ */
 class InteractiveSendStrategy implements TcpSendStrategy {
     private static final Logger LOGGER = Logger.getLogger(InteractiveSendStrategy.class.getName());
+
+    private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean prompting = new AtomicBoolean(false);
     private int commandSubstitutionTimeout;
 
     @Override
@@ -29,34 +40,56 @@ class InteractiveSendStrategy implements TcpSendStrategy {
 
     @Override
     public Consumer<byte[]> start(Socket socket, Runnable shutDownAction) {
-        Thread.ofVirtual().start(() -> {
-                    try {
-                        Supplier<byte[]> supplier = () -> BytesFormatter.raptorEncodingToBytes(ConsoleIo.askForString("What to send", "Hello, World!"), commandSubstitutionTimeout);
-
-                        OutputStream out = socket.getOutputStream();
-                        byte[] whatToSend = supplier.get();
-                        while (!socket.isInputShutdown()) {
-                            out.write(whatToSend);
-                            LOGGER.info("Sent " + BytesFormatter.bytesToRaptorEncodingWithType(whatToSend));
-
-                            whatToSend = supplier.get();
-                        }
-                    } catch (UserAbortedException ignore) {
-                        shutDownAction.run();
-                    } catch (Exception e) {
-                        LOGGER.log(Level.SEVERE, "Error occurred.", e);
-                        shutDownAction.run();
-                    } finally {
-                        try {
-                            socket.close();
-                        } catch (Exception e) {
-                            LOGGER.log(Level.SEVERE, "Failed closing socket.", e);
-                            shutDownAction.run();
-                        }
-                    }
-                }
-        );
+        sockets.add(socket);
+        if (prompting.compareAndSet(false, true)) { // Only the first connection starts the prompt
+            Thread.ofVirtual().start(() -> prompt(shutDownAction));
+        }
         return input -> { // Nothing to send on inputs
         };
     }
+
+    @Override
+    public void receive(Socket socket, Consumer<byte[]> onInput) throws IOException {
+        try {
+            TcpSendStrategy.super.receive(socket, onInput);
+        } finally {
+            sockets.remove(socket);
+        }
+    }
+
+    private void prompt(Runnable shutDownAction) {
+        try {
+            while (true) {
+                byte[] whatToSend = BytesFormatter.raptorEncodingToBytes(ConsoleIo.askForString("What to send", "Hello, World!"), commandSubstitutionTimeout);
+                if (sockets.isEmpty()) LOGGER.warning("No socket connected, dropping " + BytesFormatter.bytesToRaptorEncodingWithType(whatToSend, whatToSend.length) + ".");
+                sockets.forEach(socket -> send(socket, whatToSend));
+            }
+        } catch (UserAbortedException ignore) {
+            // Shut down below
+        } catch (Exception e) {
+            LOGGER.log(Level.SEVERE, "Error occurred.", e);
+        }
+
+        sockets.forEach(InteractiveSendStrategy::close);
+        shutDownAction.run();
+    }
+
+    private static void send(Socket socket, byte[] whatToSend) {
+        try {
+            socket.getOutputStream().write(whatToSend);
+            PayloadLog.sent(LOGGER, whatToSend, whatToSend.length);
+            Capture.tcp(socket).sent(whatToSend);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Failed sending to " + socket.getRemoteSocketAddress() + ", closing the connection.", e);
+            close(socket); // Only this connection, others keep receiving what is sent
+        }
+    }
+
+    private static void close(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Failed closing socket.", e);
+        }
+    }
 }
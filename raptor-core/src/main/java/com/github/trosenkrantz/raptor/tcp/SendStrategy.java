@@ -5,17 +5,18 @@ import com.github.trosenkrantz.raptor.configuration.ConfigurableEnum;
 
 import java.util.EnumMap;
 import java.util.Map;
+import java.util.function.Supplier;
 
 public enum SendStrategy implements PromptEnum, ConfigurableEnum {
     NONE("n", "Do [n]ot send", "none"),
     INTERACTIVE("i", "Prompt over console [i]nteractively", "interactive"),
     AUTO_REPLY("a", "Configure an [a]uto-reply", "autoReply");
 
-    private static final Map<SendStrategy, TcpSendStrategy> STRATEGY_MAP = new EnumMap<>(SendStrategy.class);
+    private static final Map<SendStrategy, Supplier<TcpSendStrategy>> STRATEGY_MAP = new EnumMap<>(SendStrategy.class);
     static {
-        STRATEGY_MAP.put(NONE, new NoneSendStrategy());
-        STRATEGY_MAP.put(INTERACTIVE, new InteractiveSendStrategy());
-        STRATEGY_MAP.put(AUTO_REPLY, new AutoReplySendStrategy());
+        STRATEGY_MAP.put(NONE, NoneSendStrategy::new);
+        STRATEGY_MAP.put(INTERACTIVE, InteractiveSendStrategy::new);
+        STRATEGY_MAP.put(AUTO_REPLY, AutoReplySendStrategy::new);
     }
 
     private final String promptValue;
@@ -38,8 +39,11 @@ public enum SendStrategy implements PromptEnum, ConfigurableEnum {
         return this.description;
     }
 
-    public TcpSendStrategy getStrategy() {
-        return STRATEGY_MAP.get(this);
+    /**
+     * @return a new instance of the strategy, to load and then get instances for connections from
+     */
+    public TcpSendStrategy createStrategy() {
+        return STRATEGY_MAP.get(this).get();
     }
 
     @Override
@@ -32,14 +32,14 @@ public class TcpRootService implements RootService {
         SendStrategy sendStrategy = ConsoleIo.askForOptions("What data to send to the remote system", SendStrategy.class);
         configuration.setEnum(sendStrategy);
 
-        sendStrategy.getStrategy().configure(configuration);
+        sendStrategy.createStrategy().configure(configuration);
     }
 
     @Override
     public void run(Configuration configuration) throws Exception {
-        TcpSendStrategy sendStrategy = configuration.requireEnum(SendStrategy.class).getStrategy();
-        sendStrategy.load(configuration);
+        TcpSendStrategy sendStrategy = configuration.requireEnum(SendStrategy.class).createStrategy();
+        sendStrategy.load(configuration); // Load once, immediately to provide early feedback, and not per connection, as loading may subscribe to configuration changes
 
-        TcpUtility.connectAndStartSendingAndReceiving(configuration, sendStrategy);
+        TcpUtility.connectAndStartSendingAndReceiving(configuration, sendStrategy::forConnection);
     }
 }
@@ -11,7 +11,7 @@ public interface TcpSendStrategy {
     }
 
     /**
-     * To be called once when running the service
+     * To be called once before use, before getting instances for connections with {@link #forConnection()}
      *
      * @param configuration configuration to load
      */
@@ -19,7 +19,17 @@ public interface TcpSendStrategy {
     }
 
     /**
-     * To be called whenever the service opens a new connection
+     * To be called for each connection, after {@link #load(Configuration)}.
+     * By default, connections share this instance, for strategies keeping per-connection state in {@link #start(Socket, Runnable)}.
+     *
+     * @return instance for a new connection, sharing what was loaded
+     */
+    default TcpSendStrategy forConnection() {
+        return this;
+    }
+
+    /**
+     * To be called when the service opens the connection of this instance
      *
      * @param socket         socket to send messages to
      * @param shutDownAction action that the send strategy will call when the service should shut down, e.g., if aborted by the user
@@ -27,4 +37,16 @@ public interface TcpSendStrategy {
      * @throws IOException if an I/O error occurs
      */
     Consumer<byte[]> start(final Socket socket, final Runnable shutDownAction) throws IOException;
+
+    /**
+     * To be called after {@link #start(Socket, Runnable)}, receiving data until the socket is closed.
+     * By default, passes chunks of received data to the consumer returned by {@link #start(Socket, Runnable)}.
+     *
+     * @param socket  socket to receive from
+     * @param onInput the consumer returned by {@link #start(Socket, Runnable)}
+     * @throws IOException if an I/O error occurs
+     */
+    default void receive(final Socket socket, final Consumer<byte[]> onInput) throws IOException {
+        TcpUtility.receive(socket, onInput);
+    }
 }
@@ -1,9 +1,12 @@
 package com.github.trosenkrantz.raptor.tcp;
 
+import com.github.trosenkrantz.raptor.capture.Capture;
+import com.github.trosenkrantz.raptor.capture.CaptureStream;
 import com.github.trosenkrantz.raptor.configuration.Configuration;
-import com.github.trosenkrantz.raptor.io.BytesFormatter;
+import com.github.trosenkrantz.raptor.configuration.IntegerSetting;
 import com.github.trosenkrantz.raptor.io.ConsoleIo;
 import com.github.trosenkrantz.raptor.io.IpPortValidator;
+import com.github.trosenkrantz.raptor.logging.PayloadLog;
 import com.github.trosenkrantz.raptor.tls.TlsUtility;
 import com.github.trosenkrantz.raptor.tls.TlsVersion;
 
@@ -16,7 +19,13 @@ import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class TcpUtility {
@@ -29,7 +38,15 @@ public class TcpUtility {
     public static final String DEFAULT_HOST = "localhost";
     public static final int DEFAULT_PORT = 50000;
 
-    private static boolean shutDown;
+    public static final IntegerSetting MAX_CONNECTIONS_SETTING = new IntegerSetting.Builder("m", "maxConnections", "Maximum connections", "Maximum number of clients connected at once, further clients waiting to be accepted")
+            .defaultValue(1)
+            .validator(value -> {
+                if (value < 1) return Optional.of("Must be at least 1.");
+                else return Optional.empty();
+            })
+            .build();
+
+    private static volatile boolean shutDown;
 
     public static void configureConnectivity(Configuration configuration) {
         Role role = ConsoleIo.askForOptions(Role.class);
@@ -49,37 +66,72 @@ public class TcpUtility {
             }
             case SERVER -> {
                 configuration.setInt(PARAMETER_LOCAL_PORT, ConsoleIo.askForInt("Port of local server socket to create", DEFAULT_PORT, IpPortValidator.VALIDATOR));
+                MAX_CONNECTIONS_SETTING.configure(configuration);
 
                 TlsUtility.configureTls(configuration, true);
             }
         }
     }
 
-    public static void connectAndStartSendingAndReceiving(Configuration configuration, TcpSendStrategy sendStrategy) throws Exception {
+    /**
+     * Connects as configured, sending and receiving until done.
+     * As a server, clients are served concurrently on a virtual thread each, up to the configured maximum number of connections.
+     *
+     * @param configuration  configuration of connectivity
+     * @param sendStrategies supplier of the send strategy for each connection, called once per connection
+     * @throws Exception if connecting fails
+     */
+    public static void connectAndStartSendingAndReceiving(Configuration configuration, Supplier<TcpSendStrategy> sendStrategies) throws Exception {
         try {
             switch (configuration.requireEnum(Role.class)) {
                 case CLIENT -> {
                     try (Socket socket = getClientSocket(configuration)) {
-                        runWithSocket(socket, sendStrategy);
+                        runWithSocket(socket, sendStrategies.get(), () -> shutDown = true);
                     }
                 }
                 case SERVER -> {
                     int port = configuration.requireInt(PARAMETER_LOCAL_PORT);
+                    Semaphore connectionPermits = new Semaphore(MAX_CONNECTIONS_SETTING.readAndRequireOrDefault(configuration));
+                    Set<Socket> clientSockets = ConcurrentHashMap.newKeySet();
 
                     try (ServerSocket socket = getServerSocket(port, configuration)) {
-                        while (!shutDown) { // Open for new client when closed
+                        Runnable shutDownAction = () -> {
+                            shutDown = true;
+                            closeQuietly(socket); // Stop accepting
+                        };
+
+                        while (!shutDown) { // Open for new clients while others are connected
+                            connectionPermits.acquire(); // Further clients wait in the backlog until a connection closes
                             LOGGER.info("Waiting for client to connect to port " + port + "...");
+                            Socket clientSocket;
                             try {
-                                runWithSocket(socket.accept(), sendStrategy);
+                                clientSocket = socket.accept();
                             } catch (SocketException e) {
-                                if ("Socket closed".equals(e.getMessage())) {
-                                    LOGGER.info("Socket closed normally.");
-                                    // Ignore exception and connect to new client
-                                } else {
-                                    throw e;
-                                }
+                                connectionPermits.release();
+                                if (shutDown) break;
+                                throw e;
                             }
+
+                            clientSockets.add(clientSocket);
+                            Thread.ofVirtual().name("tcp-client-" + clientSocket.getRemoteSocketAddress()).start(() -> {
+                                try (clientSocket) {
+                                    runWithSocket(clientSocket, sendStrategies.get(), shutDownAction);
+                                } catch (SocketException e) {
+                                    if ("Socket closed".equals(e.getMessage())) {
+                                        LOGGER.info("Socket closed normally.");
+                                    } else {
+                                        LOGGER.log(Level.SEVERE, "Failed communicating with client.", e);
+                                    }
+                                } catch (Exception e) {
+                                    LOGGER.log(Level.SEVERE, "Failed communicating with client.", e);
+                                } finally {
+                                    clientSockets.remove(clientSocket);
+                                    connectionPermits.release();
+                                }
+                            });
                         }
+                    } finally {
+                        clientSockets.forEach(TcpUtility::closeQuietly);
                     }
                 }
             }
@@ -129,21 +181,34 @@ public class TcpUtility {
         }
     }
 
-    private static void runWithSocket(Socket socket, TcpSendStrategy sendStrategy) throws IOException {
+    private static void runWithSocket(Socket socket, TcpSendStrategy sendStrategy, Runnable shutDownAction) throws IOException {
         LOGGER.info("Local socket at " + socket.getLocalSocketAddress() + " connected to remote socket at " + socket.getRemoteSocketAddress() + ".");
 
-        Consumer<byte[]> onInput = sendStrategy.start(socket, () -> shutDown = true);
+        Consumer<byte[]> onInput = sendStrategy.start(socket, shutDownAction);
+        sendStrategy.receive(socket, onInput);
+
+        LOGGER.info("Socket closed normally.");
+    }
 
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception e) {
+            LOGGER.log(Level.FINE, "Failed closing socket.", e);
+        }
+    }
+
+    static void receive(Socket socket, Consumer<byte[]> onInput) throws IOException {
         InputStream in = socket.getInputStream();
+        CaptureStream capture = Capture.tcp(socket);
         byte[] buffer = new byte[1024];
         int readLength;
         while ((readLength = in.read(buffer)) != -1) {
             byte[] bytesRead = new byte[readLength];
             System.arraycopy(buffer, 0, bytesRead, 0, readLength);
-            LOGGER.info("Received " + BytesFormatter.bytesToRaptorEncodingWithType(bytesRead));
+            PayloadLog.received(LOGGER, bytesRead, bytesRead.length);
+            capture.received(bytesRead);
             onInput.accept(bytesRead);
         }
-
-        LOGGER.info("Socket closed normally.");
     }
 }
@@ -0,0 +1,38 @@
+package com.github.trosenkrantz.raptor.tcp.gateway;
+
+import com.github.trosenkrantz.raptor.PromptEnum;
+import com.github.trosenkrantz.raptor.configuration.ConfigurableEnum;
+
+/**
+ * How a server endpoint with several clients sends data from the other side of the gateway.
+ * Data from all clients is passed on to the other side.
+ */
+public enum ClientPolicy implements PromptEnum, ConfigurableEnum {
+    BROADCAST("b", "[B]roadcast data to all connected clients", "broadcast"),
+    LATEST("l", "Send data only to the [l]atest connected client", "latest");
+
+    private final String promptValue;
+    private final String description;
+    private final String configurationId;
+
+    ClientPolicy(String promptValue, String description, String configurationId) {
+        this.promptValue = promptValue;
+        this.description = description;
+        this.configurationId = configurationId;
+    }
+
+    @Override
+    public String getPromptValue() {
+        return this.promptValue;
+    }
+
+    @Override
+    public String getDescription() {
+        return this.description;
+    }
+
+    @Override
+    public String getConfigurationId() {
+        return this.configurationId;
+    }
+}
@@ -0,0 +1,261 @@
+package com.github.trosenkrantz.raptor.tcp.gateway;
+
+import com.github.trosenkrantz.raptor.configuration.Configuration;
+import com.github.trosenkrantz.raptor.gateway.Endpoint;
+import com.github.trosenkrantz.raptor.gateway.EventLoop;
+import com.github.trosenkrantz.raptor.gateway.Payload;
+import com.github.trosenkrantz.raptor.gateway.framing.FrameDecoder;
+import com.github.trosenkrantz.raptor.gateway.framing.Framing;
+import com.github.trosenkrantz.raptor.io.BytesFormatter;
+import com.github.trosenkrantz.raptor.logging.PayloadLog;
+import com.github.trosenkrantz.raptor.tcp.Role;
+import com.github.trosenkrantz.raptor.tcp.TcpUtility;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * TCP endpoint using non-blocking channels on an {@link EventLoop}.
+ * As a server, it serves one client at a time, accepting the next client when the current one disconnects.
+ * Servers for several clients at once use {@link TcpEndpoint} instead.
+ * <p>
+ * Data from the broker is buffered until first connected, and dropped while not connected afterwards.
+ * Buffered data is bounded by {@value #MAX_PENDING_BYTES} B, beyond which the newest message is dropped, e.g., while the peer is not reading.
+ */
+public class SelectorTcpEndpoint implements Endpoint {
+    private static final Logger LOGGER = Logger.getLogger(SelectorTcpEndpoint.class.getName());
+    private static final int MAX_PENDING_BYTES = 16 * 1024 * 1024;
+
+    private final EventLoop eventLoop;
+    private final Consumer<Payload> broker;
+    private final Runnable onEndpointClosed;
+    private final Queue<Payload> pendingWrites = new ConcurrentLinkedQueue<>(); // As we connect async, buffer data from broker until connected
+    private final AtomicLong pendingBytes = new AtomicLong();
+    private final AtomicLong droppedOverflowing = new AtomicLong();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final Framing framing;
+    private final int readBufferSize;
+
+    private SelectionKey serverKey; // Only accessed on event loop thread
+    private SelectionKey connectionKey; // Only accessed on event loop thread
+    private ByteBuffer currentWrite; // Buffer of the payload at the head of pending writes, when partially written, only accessed on event loop thread
+    private boolean dropWhileNotConnected = false; // Set once first connected or closed, only accessed on event loop thread
+
+    public SelectorTcpEndpoint(final Configuration configuration, final Consumer<Payload> broker, final Runnable onEndpointClosed, final EventLoop eventLoop) throws IOException {
+        this.eventLoop = eventLoop;
+        this.broker = broker;
+        this.onEndpointClosed = onEndpointClosed;
+        this.framing = TcpEndpointService.readFraming(configuration);
+        this.readBufferSize = TcpEndpointService.READ_BUFFER_SETTING.readAndRequireOrDefault(configuration);
+
+        switch (configuration.requireEnum(Role.class)) {
+            case CLIENT -> startClient(configuration);
+            case SERVER -> startServer(configuration);
+        }
+    }
+
+    private void startClient(Configuration configuration) throws IOException {
+        SocketChannel channel = SocketChannel.open();
+        channel.configureBlocking(false);
+        Integer localPort = configuration.getInt(TcpUtility.PARAMETER_LOCAL_PORT).orElse(null);
+        if (localPort != null) channel.bind(new InetSocketAddress(localPort));
+
+        String host = configuration.requireRaptorEncodedString(TcpUtility.PARAMETER_REMOTE_HOST);
+        int port = configuration.requireInt(TcpUtility.PARAMETER_REMOTE_PORT);
+        LOGGER.info("Connecting to server at " + host + ":" + port + "...");
+        boolean connected = channel.connect(new InetSocketAddress(host, port));
+
+        eventLoop.execute(() -> {
+            try {
+                connectionKey = eventLoop.register(channel, connected ? SelectionKey.OP_READ : SelectionKey.OP_CONNECT, new ConnectionHandler());
+                if (connected) onConnected();
+            } catch (IOException e) {
+                LOGGER.log(Level.SEVERE, "Failed creating TCP connection.", e);
+                closeConnection();
+            }
+        });
+    }
+
+    private void startServer(Configuration configuration) throws IOException {
+        int port = configuration.requireInt(TcpUtility.PARAMETER_LOCAL_PORT);
+        ServerSocketChannel channel = ServerSocketChannel.open();
+        channel.configureBlocking(false);
+        channel.bind(new InetSocketAddress(port));
+
+        eventLoop.execute(() -> {
+            try {
+                serverKey = eventLoop.register(channel, SelectionKey.OP_ACCEPT, new AcceptHandler());
+                LOGGER.info("Waiting for client to connect to port " + port + "...");
+            } catch (IOException e) {
+                LOGGER.log(Level.SEVERE, "Failed creating TCP server.", e);
+                onEndpointClosed.run();
+            }
+        });
+    }
+
+    private void onConnected() throws IOException {
+        SocketChannel channel = (SocketChannel) connectionKey.channel();
+        LOGGER.info("Local socket at " + channel.getLocalAddress() + " connected to remote socket at " + channel.getRemoteAddress() + ".");
+        dropWhileNotConnected = true;
+        flush();
+    }
+
+    private void read(FrameDecoder decoder) throws IOException {
+        SocketChannel channel = (SocketChannel) connectionKey.channel();
+
+        // Read into a large buffer, handing each message over to the broker
+        int readLength;
+        while ((readLength = channel.read(decoder.receiveBuffer())) > 0) {
+            decoder.onReceived(readLength, this::receiveToBroker);
+        }
+
+        if (readLength < 0) {
+            LOGGER.info("Socket closed normally.");
+            closeConnection();
+        }
+    }
+
+    private void receiveToBroker(Payload payload) {
+        PayloadLog.received(LOGGER, payload.array(), payload.length());
+        broker.accept(payload);
+    }
+
+    /**
+     * Writes pending data until done or the socket send buffer is full, in which case we wait for the channel to be writable.
+     */
+    private void flush() throws IOException {
+        SocketChannel channel = (SocketChannel) connectionKey.channel();
+
+        Payload payload;
+        while ((payload = pendingWrites.peek()) != null) {
+            if (currentWrite == null) currentWrite = payload.asByteBuffer();
+            channel.write(currentWrite);
+            if (currentWrite.hasRemaining()) {
+                connectionKey.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                return;
+            }
+            pendingWrites.poll();
+            pendingBytes.addAndGet(-payload.length());
+            currentWrite = null;
+            PayloadLog.sent(LOGGER, payload.array(), payload.length());
+            payload.release();
+        }
+
+        connectionKey.interestOps(SelectionKey.OP_READ);
+    }
+
+    private void closeConnection() {
+        if (connectionKey != null) {
+            connectionKey.cancel();
+            try {
+                connectionKey.channel().close();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed closing TCP connection.", e);
+            }
+            connectionKey = null;
+            currentWrite = null; // Start over on the next connection
+        }
+        dropWhileNotConnected = true;
+        dropPendingWrites(); // Rather than sending stale data to the next client
+
+        if (serverKey == null) {
+            onEndpointClosed.run();
+        } else {
+            // Open for new client
+            serverKey.interestOps(SelectionKey.OP_ACCEPT);
+            LOGGER.info("Waiting for client to connect to port " + ((ServerSocketChannel) serverKey.channel()).socket().getLocalPort() + "...");
+        }
+    }
+
+    private void dropPendingWrites() {
+        Payload payload;
+        while ((payload = pendingWrites.poll()) != null) {
+            pendingBytes.addAndGet(-payload.length());
+            LOGGER.warning("Not connected, dropping " + BytesFormatter.bytesToRaptorEncodingWithType(payload.array(), payload.length()) + ".");
+            payload.release();
+        }
+    }
+
+    @Override
+    public void sendToExternalSystem(Payload payload) {
+        if (pendingBytes.addAndGet(payload.length()) > MAX_PENDING_BYTES) {
+            pendingBytes.addAndGet(-payload.length());
+            payload.release();
+            long count = droppedOverflowing.incrementAndGet();
+            if (Long.bitCount(count) == 1) { // Log with exponential back-off to not flood the log
+                LOGGER.warning("More than " + MAX_PENDING_BYTES + " B waiting to be sent over TCP, dropped newest message, " + count + " dropped so far.");
+            }
+            return;
+        }
+        pendingWrites.add(payload);
+
+        // Only schedule a flush if none is pending, so bursts of payloads are written in one go
+        if (flushScheduled.compareAndSet(false, true)) {
+            eventLoop.execute(() -> {
+                flushScheduled.set(false);
+                if (connectionKey == null && dropWhileNotConnected) {
+                    dropPendingWrites(); // Only buffer until first connected, as when serving several clients
+                    return;
+                }
+                if (connectionKey == null || !connectionKey.isValid() || (connectionKey.interestOps() & SelectionKey.OP_CONNECT) != 0) return; // Flushed when connected
+                try {
+                    flush();
+                } catch (IOException e) {
+                    LOGGER.log(Level.SEVERE, "Failed sending TCP data.", e);
+                    closeConnection();
+                }
+            });
+        }
+    }
+
+    private class AcceptHandler implements EventLoop.ChannelHandler {
+        @Override
+        public void onReady(SelectionKey key) throws IOException {
+            SocketChannel channel = ((ServerSocketChannel) key.channel()).accept();
+            if (channel == null) return;
+
+            // Serve one client at a time, further clients wait in the backlog
+            key.interestOps(0);
+
+            channel.configureBlocking(false);
+            connectionKey = eventLoop.register(channel, SelectionKey.OP_READ, new ConnectionHandler());
+            onConnected();
+        }
+
+        @Override
+        public void onFailure(Exception e) {
+            // Keep accepting
+        }
+    }
+
+    private class ConnectionHandler implements EventLoop.ChannelHandler {
+        private final FrameDecoder decoder = new FrameDecoder(framing, readBufferSize); // Per connection, as a connection may close mid-message
+
+        @Override
+        public void onReady(SelectionKey key) throws IOException {
+            if (key.isConnectable()) {
+                ((SocketChannel) key.channel()).finishConnect();
+                key.interestOps(SelectionKey.OP_READ);
+                onConnected();
+            }
+            if (key.isValid() && key.isWritable()) flush();
+            if (key.isValid() && key.isReadable()) read(decoder);
+        }
+
+        @Override
+        public void onFailure(Exception e) {
+            closeConnection();
+        }
+    }
+}
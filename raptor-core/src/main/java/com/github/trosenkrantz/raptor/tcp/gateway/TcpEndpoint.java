@@ -3,40 +3,67 @@ package com.github.trosenkrantz.raptor.tcp.gateway;
 import com.github.trosenkrantz.raptor.configuration.Configuration;
 import com.github.trosenkrantz.raptor.gateway.DelayedConsumer;
 import com.github.trosenkrantz.raptor.gateway.Endpoint;
+import com.github.trosenkrantz.raptor.gateway.Payload;
+import com.github.trosenkrantz.raptor.gateway.framing.FrameDecoder;
+import com.github.trosenkrantz.raptor.gateway.framing.Framing;
 import com.github.trosenkrantz.raptor.io.BytesFormatter;
+import com.github.trosenkrantz.raptor.logging.PayloadLog;
 import com.github.trosenkrantz.raptor.tcp.TcpSendStrategy;
 import com.github.trosenkrantz.raptor.tcp.TcpUtility;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.UncheckedIOException;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+/**
+ * TCP endpoint using a blocking socket per connection.
+ * As a server, it may serve several clients at once, each on its own virtual thread, sending data to them as given by the {@link ClientPolicy}.
+ */
 public class TcpEndpoint implements Endpoint {
     private static final Logger LOGGER = Logger.getLogger(TcpEndpoint.class.getName());
+    private final DelayedConsumer<Payload> fromBroker = new DelayedConsumer<>(); // As we connect async, buffer data from broker until connected
+    private final List<OutputStream> connections = new CopyOnWriteArrayList<>(); // In order of connecting
+    private final ClientPolicy clientPolicy;
+    private final Framing framing;
+    private final int readBufferSize;
 
-    private final DelayedConsumer<byte[]> fromBroker = new DelayedConsumer<>(); // As we connect async, buffer data from broker until connected
+    public TcpEndpoint(final Configuration configuration, final Consumer<Payload> broker, final Runnable onEndpointClosed) {
+        clientPolicy = TcpEndpointService.CLIENT_POLICY_SETTING.readAndRequireOrDefault(configuration);
+        framing = TcpEndpointService.readFraming(configuration);
+        readBufferSize = TcpEndpointService.READ_BUFFER_SETTING.readAndRequireOrDefault(configuration);
 
-    public TcpEndpoint(final Configuration configuration, final Consumer<byte[]> broker, final Runnable onEndpointClosed) {
         // Start receiving in a separate thread to not block the main thread
         Thread.ofVirtual().start(() -> {
             try {
-                TcpUtility.connectAndStartSendingAndReceiving(configuration, (TcpSendStrategy) (socket, shutDownAction) -> {
-                    OutputStream out = socket.getOutputStream();
+                TcpUtility.connectAndStartSendingAndReceiving(configuration, () -> new TcpSendStrategy() {
+                    private OutputStream out;
 
-                    // Now that we are connected, we can set what to do with data from the broker
-                    fromBroker.setDelegate(payload -> {
+                    @Override
+                    public Consumer<byte[]> start(Socket socket, Runnable shutDownAction) throws IOException {
+                        out = socket.getOutputStream();
+                        connections.add(out);
+
+                        // Now that we are connected, we can set what to do with data from the broker
+                        fromBroker.setDelegate(TcpEndpoint.this::sendToClients);
+
+                        return bytes -> { // Unused, as receive passes data to the broker in messages as framed
+                        };
+                    }
+
+                    @Override
+                    public void receive(Socket socket, Consumer<byte[]> onInput) throws IOException {
                         try {
-                            out.write(payload);
-                            LOGGER.info("Sent " + BytesFormatter.bytesToRaptorEncodingWithType(payload));
-                        } catch (IOException e) {
-                            throw new UncheckedIOException(e);
+                            receiveToBroker(socket.getInputStream(), broker, socket.getRemoteSocketAddress().hashCode());
+                        } finally {
+                            connections.remove(out);
                         }
-                    });
-
-                    return broker; // When TCP socket receives data, pass to broker
+                    }
                 });
             } catch (Exception e) {
                 LOGGER.log(Level.SEVERE, "Failed creating TCP connection or receiving data on it.", e);
@@ -47,8 +74,50 @@ public class TcpEndpoint implements Endpoint {
         });
     }
 
+    private void sendToClients(Payload payload) {
+        try {
+            switch (clientPolicy) {
+                case BROADCAST -> connections.forEach(out -> send(out, payload));
+                case LATEST -> {
+                    if (!connections.isEmpty()) send(connections.getLast(), payload);
+                }
+            }
+            if (connections.isEmpty()) LOGGER.warning("No client connected, dropping " + BytesFormatter.bytesToRaptorEncodingWithType(payload.array(), payload.length()) + ".");
+        } finally {
+            payload.release();
+        }
+    }
+
+    private static void send(OutputStream out, Payload payload) {
+        try {
+            synchronized (out) {
+                out.write(payload.array(), 0, payload.length());
+            }
+            PayloadLog.sent(LOGGER, payload.array(), payload.length());
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed sending TCP data.", e); // The receiving thread handles the connection closing
+        }
+    }
+
+    /**
+     * Reads into a large buffer, handing each message over to the broker.
+     */
+    private void receiveToBroker(InputStream in, Consumer<Payload> broker, int flow) throws IOException {
+        FrameDecoder decoder = new FrameDecoder(framing, readBufferSize);
+        Consumer<Payload> onMessage = payload -> {
+            payload.setFlow(flow);
+            PayloadLog.received(LOGGER, payload.array(), payload.length());
+            broker.accept(payload);
+        };
+
+        int readLength;
+        while ((readLength = in.read(decoder.array(), decoder.getReadOffset(), decoder.getReadLength())) != -1) {
+            decoder.onReceived(readLength, onMessage);
+        }
+    }
+
     @Override
-    public void sendToExternalSystem(byte[] payload) {
+    public void sendToExternalSystem(Payload payload) {
         fromBroker.accept(payload);
     }
 }
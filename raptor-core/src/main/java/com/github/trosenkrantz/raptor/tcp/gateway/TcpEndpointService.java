@@ -1,14 +1,37 @@
 package com.github.trosenkrantz.raptor.tcp.gateway;
 
 import com.github.trosenkrantz.raptor.configuration.Configuration;
+import com.github.trosenkrantz.raptor.configuration.EnumSetting;
+import com.github.trosenkrantz.raptor.configuration.IntegerSetting;
 import com.github.trosenkrantz.raptor.gateway.Endpoint;
-import com.github.trosenkrantz.raptor.gateway.EndpointService;
+import com.github.trosenkrantz.raptor.gateway.EventLoop;
+import com.github.trosenkrantz.raptor.gateway.Payload;
+import com.github.trosenkrantz.raptor.gateway.SelectableEndpointService;
+import com.github.trosenkrantz.raptor.gateway.framing.Framer;
+import com.github.trosenkrantz.raptor.gateway.framing.Framing;
+import com.github.trosenkrantz.raptor.gateway.framing.FramingSetting;
+import com.github.trosenkrantz.raptor.tcp.Role;
 import com.github.trosenkrantz.raptor.tcp.TcpUtility;
+import com.github.trosenkrantz.raptor.tls.TlsVersion;
 
 import java.io.IOException;
+import java.util.Optional;
 import java.util.function.Consumer;
 
-public class TcpEndpointService implements EndpointService {
+public class TcpEndpointService implements SelectableEndpointService {
+    public static final EnumSetting<ClientPolicy> CLIENT_POLICY_SETTING = new EnumSetting.Builder<>("p", "clientPolicy", "Client policy", "How to send data when several clients are connected", ClientPolicy.class)
+            .defaultValue(ClientPolicy.BROADCAST)
+            .build();
+    public static final FramingSetting FRAMING_SETTING = new FramingSetting.Builder("f", "framing", "Framing", "How to split received data into messages")
+            .build();
+    public static final IntegerSetting READ_BUFFER_SETTING = new IntegerSetting.Builder("r", "readBuffer", "Read buffer", "Size of the buffer to read received data into [B]")
+            .defaultValue(64 * 1024)
+            .validator(value -> {
+                if (value < 1) return Optional.of("Must be positive.");
+                else return Optional.empty();
+            })
+            .build();
+
     @Override
     public String getPromptValue() {
         return "t";
@@ -27,10 +50,35 @@ public class TcpEndpointService implements EndpointService {
     @Override
     public void configureEndpoint(Configuration configuration) {
         TcpUtility.configureConnectivity(configuration);
+        if (isMultiClientServer(configuration)) CLIENT_POLICY_SETTING.configure(configuration);
+        FRAMING_SETTING.configure(configuration);
+        READ_BUFFER_SETTING.configure(configuration);
     }
 
     @Override
-    public Endpoint createEndpoint(Configuration configuration, Consumer<byte[]> broker, Runnable onEndpointClosed) {
+    public Endpoint createEndpoint(Configuration configuration, Consumer<Payload> broker, Runnable onEndpointClosed) {
         return new TcpEndpoint(configuration, broker, onEndpointClosed);
     }
+
+    @Override
+    public boolean supportsEventLoop(Configuration configuration) {
+        return configuration.requireEnum(TlsVersion.class) == TlsVersion.NONE // TLS handshakes need blocking sockets
+                && !isMultiClientServer(configuration); // Serving several clients at once uses a virtual thread per client
+    }
+
+    /**
+     * @return configured framing, or passing on data as read, in chunks of at most the read buffer size
+     */
+    static Framing readFraming(Configuration configuration) {
+        return FRAMING_SETTING.read(configuration).orElseGet(() -> new Framing(Framer.NONE, READ_BUFFER_SETTING.readAndRequireOrDefault(configuration)));
+    }
+
+    static boolean isMultiClientServer(Configuration configuration) {
+        return configuration.requireEnum(Role.class) == Role.SERVER && TcpUtility.MAX_CONNECTIONS_SETTING.readAndRequireOrDefault(configuration) > 1;
+    }
+
+    @Override
+    public Endpoint createEndpoint(Configuration configuration, Consumer<Payload> broker, Runnable onEndpointClosed, EventLoop eventLoop) throws IOException {
+        return new SelectorTcpEndpoint(configuration, broker, onEndpointClosed, eventLoop);
+    }
 }
@@ -0,0 +1,137 @@
+package com.github.trosenkrantz.raptor.udp;
+
+import com.github.trosenkrantz.raptor.io.CheckedPredicate;
+
+import java.net.*;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Shared cache of the network interfaces to send multicast and broadcast on.
+ * <p>
+ * Enumerating interfaces and querying their flags are system calls per interface, which is slow on hosts with many virtual interfaces, so we do it once and refresh in the background.
+ * Users may also request a refresh, e.g., after failing to send.
+ * A refresh finding the same interfaces keeps the previous lists, so users can detect changes cheaply by comparing list identity.
+ */
+public final class NetworkInterfaceRegistry {
+    private static final Logger LOGGER = Logger.getLogger(NetworkInterfaceRegistry.class.getName());
+    private static final int REFRESH_PERIOD_SECONDS = 10;
+    private static final NetworkInterfaceRegistry INSTANCE = new NetworkInterfaceRegistry();
+
+    private volatile Snapshot snapshot; // Null until first used
+    private ScheduledExecutorService executor; // Guarded by this
+
+    private NetworkInterfaceRegistry() {
+    }
+
+    public static NetworkInterfaceRegistry get() {
+        return INSTANCE;
+    }
+
+    /**
+     * @return up, multicast capable interfaces having an address, except loopback
+     */
+    public List<NetworkInterface> getMulticastCapableInterfaces() throws SocketException {
+        return getSnapshot().multicast();
+    }
+
+    /**
+     * @param family IPv4 or IPv6 address class
+     * @return up, multicast capable interfaces having an address of the family, except loopback
+     */
+    public List<NetworkInterface> getMulticastCapableInterfaces(Class<? extends InetAddress> family) throws SocketException {
+        Snapshot current = getSnapshot();
+        if (family == Inet4Address.class) return current.multicastIpv4();
+        if (family == Inet6Address.class) return current.multicastIpv6();
+        throw new IllegalArgumentException("Unknown address family: " + family.getSimpleName());
+    }
+
+    /**
+     * @return addresses of up interfaces having a broadcast address
+     */
+    public List<InterfaceAddress> getBroadcastCapableInterfaceAddresses() throws SocketException {
+        return getSnapshot().broadcast();
+    }
+
+    /**
+     * Enumerates interfaces again, now.
+     */
+    public void refresh() throws SocketException {
+        synchronized (this) {
+            Snapshot previous = snapshot;
+            Snapshot next = enumerate();
+            snapshot = previous == null ? next : new Snapshot(
+                    keepIfEqual(previous.multicast(), next.multicast()),
+                    keepIfEqual(previous.multicastIpv4(), next.multicastIpv4()),
+                    keepIfEqual(previous.multicastIpv6(), next.multicastIpv6()),
+                    keepIfEqual(previous.broadcast(), next.broadcast())
+            );
+            if (previous != null && !previous.equals(snapshot)) LOGGER.info("Network interfaces changed.");
+
+            if (executor == null) {
+                executor = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("network-interface-registry").daemon().factory());
+                executor.scheduleWithFixedDelay(this::refreshAndLogFailure, REFRESH_PERIOD_SECONDS, REFRESH_PERIOD_SECONDS, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    /**
+     * Refreshes, logging rather than throwing on failure, e.g., for use after failing to send.
+     */
+    public void refreshAndLogFailure() {
+        try {
+            refresh();
+        } catch (SocketException e) {
+            LOGGER.log(Level.WARNING, "Failed enumerating network interfaces.", e);
+        }
+    }
+
+    private Snapshot getSnapshot() throws SocketException {
+        Snapshot current = snapshot;
+        if (current != null) return current;
+
+        synchronized (this) {
+            if (snapshot == null) refresh();
+            return snapshot;
+        }
+    }
+
+    private static Snapshot enumerate() throws SocketException {
+        List<NetworkInterface> up = Collections.list(NetworkInterface.getNetworkInterfaces()).stream()
+                .filter(CheckedPredicate.wrap(NetworkInterface::isUp))
+                .toList();
+        List<NetworkInterface> multicast = up.stream()
+                .filter(CheckedPredicate.wrap(NetworkInterface::supportsMulticast))
+                .filter(CheckedPredicate.wrap(anInterface -> !anInterface.isLoopback())) // Loopback interface does not normally support multicast
+                .filter(anInterface -> !anInterface.getInterfaceAddresses().isEmpty()) // Sometimes, there can be interfaces without an address that still claims to support multicast, so we filter those away
+                .toList();
+
+        return new Snapshot(
+                multicast,
+                filterByFamily(multicast, Inet4Address.class),
+                filterByFamily(multicast, Inet6Address.class),
+                up.stream()
+                        .flatMap(anInterface -> anInterface.getInterfaceAddresses().stream())
+                        .filter(address -> address.getBroadcast() != null)
+                        .toList()
+        );
+    }
+
+    private static List<NetworkInterface> filterByFamily(List<NetworkInterface> interfaces, Class<? extends InetAddress> family) {
+        return interfaces.stream()
+                .filter(i -> i.getInterfaceAddresses().stream().map(InterfaceAddress::getAddress).anyMatch(family::isInstance)) // Has IP address matching IPv4 / IPv6 family
+                .toList();
+    }
+
+    private static <T> List<T> keepIfEqual(List<T> previous, List<T> next) {
+        return previous.equals(next) ? previous : next;
+    }
+
+    private record Snapshot(List<NetworkInterface> multicast, List<NetworkInterface> multicastIpv4, List<NetworkInterface> multicastIpv6, List<InterfaceAddress> broadcast) {
+    }
+}
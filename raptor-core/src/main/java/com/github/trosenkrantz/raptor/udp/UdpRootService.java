@@ -1,8 +1,10 @@
 package com.github.trosenkrantz.raptor.udp;
 
 import com.github.trosenkrantz.raptor.RootService;
+import com.github.trosenkrantz.raptor.capture.Capture;
 import com.github.trosenkrantz.raptor.configuration.Configuration;
 import com.github.trosenkrantz.raptor.io.*;
+import com.github.trosenkrantz.raptor.logging.PayloadLog;
 
 import java.io.IOException;
 import java.net.*;
@@ -166,6 +168,7 @@ public class UdpRootService implements RootService {
                 try {
                     channel.setOption(StandardSocketOptions.IP_MULTICAST_IF, networkInterface);
                     channel.send(ByteBuffer.wrap(payload), new InetSocketAddress(group, destinationPort));
+                    Capture.udp((InetSocketAddress) channel.getLocalAddress(), new InetSocketAddress(group, destinationPort), payload, 0, payload.length, true);
                     successCount++;
                 } catch (IOException e) {
                     LOGGER.log(Level.WARNING, "Failed sending on network interface " + networkInterfaceToString(networkInterface) + ".", e);
@@ -173,7 +176,9 @@ public class UdpRootService implements RootService {
                 }
             }
 
-            LOGGER.info("Sent " + BytesFormatter.getType(payload) + " from local port " + ((InetSocketAddress) channel.getLocalAddress()).getPort() + " to " + groupString + ":" + destinationPort + " through " + successCount + " interface" + (successCount == 1 ? "" : "s") + ": " + BytesFormatter.bytesToRaptorEncoding(payload));
+            int boundPort = ((InetSocketAddress) channel.getLocalAddress()).getPort();
+            int interfaceCount = successCount;
+            PayloadLog.sent(LOGGER, payload, payload.length, () -> " from local port " + boundPort + " to " + groupString + ":" + destinationPort + " through " + interfaceCount + " interface" + (interfaceCount == 1 ? "" : "s"));
         }
     }
 
@@ -195,7 +200,7 @@ public class UdpRootService implements RootService {
                 try (DatagramSocket socket = UdpUtility.createSocket(configuration)) {
                     int localPort = socket.getLocalPort();
                     LOGGER.info("Waiting to receive data on port " + localPort);
-                    keepReceivingAndPromptUserToCloseSocket(socket, packet -> ":" + localPort);
+                    keepReceivingAndPromptUserToCloseSocket(socket, socket.getLocalAddress(), packet -> ":" + localPort);
                 } catch (SocketException e) {
                     // If "Socket closed", it was probably closed by user, so ignore
                     if (!"Socket closed".equals(e.getMessage())) throw e;
@@ -203,7 +208,7 @@ public class UdpRootService implements RootService {
             }
             case MULTICAST -> {
                 try (MulticastSocket socket = UdpUtility.createReceivingMulticastSocket(configuration)) {
-                    keepReceivingAndPromptUserToCloseSocket(socket, packet -> configuration.requireRaptorEncodedString(UdpUtility.PARAMETER_REMOTE_ADDRESS) + ":" + socket.getLocalPort());
+                    keepReceivingAndPromptUserToCloseSocket(socket, InetAddress.getByName(configuration.requireRaptorEncodedString(UdpUtility.PARAMETER_REMOTE_ADDRESS)), packet -> configuration.requireRaptorEncodedString(UdpUtility.PARAMETER_REMOTE_ADDRESS) + ":" + socket.getLocalPort());
                 } catch (SocketException e) {
                     // If "Socket closed", it was probably closed by user, so ignore
                     if (!"Socket closed".equals(e.getMessage())) throw e;
@@ -214,7 +219,7 @@ public class UdpRootService implements RootService {
                     socket.setBroadcast(true);
                     int localPort = socket.getLocalPort();
                     LOGGER.info("Waiting to receive broadcast data on port " + localPort);
-                    keepReceivingAndPromptUserToCloseSocket(socket, packet -> ":" + localPort);
+                    keepReceivingAndPromptUserToCloseSocket(socket, socket.getLocalAddress(), packet -> ":" + localPort);
                 } catch (SocketException e) {
                     // If "Socket closed", it was probably closed by user, so ignore
                     if (!"Socket closed".equals(e.getMessage())) throw e;
@@ -223,7 +228,10 @@ public class UdpRootService implements RootService {
         }
     }
 
-    private static void keepReceivingAndPromptUserToCloseSocket(DatagramSocket socket, Function<DatagramPacket, String> toPrinter) throws IOException {
+    /**
+     * @param destination address datagrams are received on, for capture
+     */
+    private static void keepReceivingAndPromptUserToCloseSocket(DatagramSocket socket, InetAddress destination, Function<DatagramPacket, String> toPrinter) throws IOException {
         byte[] buffer = new byte[UdpUtility.MAX_UDP_PAYLOAD_SIZE];
         DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
 
@@ -232,7 +240,8 @@ public class UdpRootService implements RootService {
         while (!socket.isClosed()) {
             socket.receive(packet);
             byte[] payload = Arrays.copyOfRange(packet.getData(), 0, packet.getLength());
-            LOGGER.info("Received " + BytesFormatter.getType(payload) + " from " + packet.getAddress().getHostAddress() + ":" + packet.getPort() + " to " + toPrinter.apply(packet) + ": " + BytesFormatter.bytesToRaptorEncoding(payload));
+            Capture.udp((InetSocketAddress) packet.getSocketAddress(), new InetSocketAddress(destination, socket.getLocalPort()), payload, 0, payload.length, false);
+            PayloadLog.received(LOGGER, payload, payload.length, () -> " from " + packet.getAddress().getHostAddress() + ":" + packet.getPort() + " to " + toPrinter.apply(packet));
         }
     }
 
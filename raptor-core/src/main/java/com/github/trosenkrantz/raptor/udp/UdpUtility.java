@@ -1,13 +1,12 @@
 package com.github.trosenkrantz.raptor.udp;
 
+import com.github.trosenkrantz.raptor.capture.Capture;
 import com.github.trosenkrantz.raptor.configuration.Configuration;
 import com.github.trosenkrantz.raptor.configuration.IntegerSetting;
-import com.github.trosenkrantz.raptor.io.BytesFormatter;
-import com.github.trosenkrantz.raptor.io.CheckedPredicate;
+import com.github.trosenkrantz.raptor.logging.PayloadLog;
 
 import java.io.IOException;
 import java.net.*;
-import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.logging.Logger;
@@ -62,7 +61,8 @@ public class UdpUtility {
         );
 
         socket.send(packet);
-        LOGGER.info("Sent " + BytesFormatter.getType(payload) + " from " + socket.getLocalAddress().getHostAddress() + ":" + socket.getLocalPort() + " to " + destinationAddress.getHostAddress() + ":" + destinationPort + ": " + BytesFormatter.bytesToRaptorEncoding(payload));
+        Capture.udp((InetSocketAddress) socket.getLocalSocketAddress(), new InetSocketAddress(destinationAddress, destinationPort), payload, 0, payload.length, true);
+        PayloadLog.sent(LOGGER, payload, payload.length, () -> " from " + socket.getLocalAddress().getHostAddress() + ":" + socket.getLocalPort() + " to " + destinationAddress.getHostAddress() + ":" + destinationPort);
     }
 
     public static AllReceivingMulticastSocket createReceivingMulticastSocket(Configuration configuration) throws IOException {
@@ -73,29 +73,15 @@ public class UdpUtility {
     }
 
     public static List<NetworkInterface> getAllMulticastCapableInterfaces() throws SocketException {
-        return Collections.list(NetworkInterface.getNetworkInterfaces()).stream()
-                .filter(CheckedPredicate.wrap(NetworkInterface::isUp))
-                .filter(CheckedPredicate.wrap(NetworkInterface::supportsMulticast))
-                .filter(CheckedPredicate.wrap(anInterface -> !anInterface.isLoopback())) // Loopback interface does not normally support multicast
-                .filter(anInterface -> !anInterface.getInterfaceAddresses().isEmpty()) // Sometimes, there can be interfaces without an address that still claims to support multicast, so we filter those away
-                .toList();
+        return NetworkInterfaceRegistry.get().getMulticastCapableInterfaces();
     }
 
     public static List<NetworkInterface> getAllMulticastCapableInterfaces(Class<? extends InetAddress> family) throws SocketException {
-        return Collections.list(NetworkInterface.getNetworkInterfaces()).stream()
-                .filter(CheckedPredicate.wrap(NetworkInterface::isUp))
-                .filter(CheckedPredicate.wrap(NetworkInterface::supportsMulticast))
-                .filter(CheckedPredicate.wrap(anInterface -> !anInterface.isLoopback())) // Loopback interface does not normally support multicast
-                .filter(i -> i.getInterfaceAddresses().stream().map(InterfaceAddress::getAddress).anyMatch(family::isInstance)) // Has IP address matching IPv4 / IPv6 family
-                .toList();
+        return NetworkInterfaceRegistry.get().getMulticastCapableInterfaces(family);
     }
 
 
     static List<InterfaceAddress> getAllBroadcastCapableInterfaceAddresses() throws SocketException {
-        return Collections.list(NetworkInterface.getNetworkInterfaces()).stream()
-                .filter(CheckedPredicate.wrap(NetworkInterface::isUp))
-                .flatMap(anInterface -> anInterface.getInterfaceAddresses().stream())
-                .filter(address -> address.getBroadcast() != null)
-                .toList();
+        return NetworkInterfaceRegistry.get().getBroadcastCapableInterfaceAddresses();
     }
 }
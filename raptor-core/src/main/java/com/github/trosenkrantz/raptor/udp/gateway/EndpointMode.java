@@ -4,7 +4,8 @@ import com.github.trosenkrantz.raptor.PromptEnum;
 import com.github.trosenkrantz.raptor.configuration.ConfigurableEnum;
 
 public enum EndpointMode implements PromptEnum, ConfigurableEnum {
-    MULTICAST("m", "[M]ulticast, bidirectional", "multicast");
+    MULTICAST("m", "[M]ulticast, bidirectional", "multicast"),
+    UNICAST("u", "[U]nicast, bidirectional, sending to a configured or the latest peer", "unicast");
 
     private final String promptValue;
     private final String description;
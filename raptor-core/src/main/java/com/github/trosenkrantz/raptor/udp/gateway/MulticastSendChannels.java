@@ -0,0 +1,117 @@
+package com.github.trosenkrantz.raptor.udp.gateway;
+
+import com.github.trosenkrantz.raptor.udp.IpAddressMapper;
+import com.github.trosenkrantz.raptor.udp.UdpUtility;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.net.StandardSocketOptions;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Channels for sending multicast, one per multicast capable interface, each with its outgoing interface set once.
+ * This way, sending on all interfaces needs no socket option changes per message.
+ * <p>
+ * All channels are bound to the same local port, so receivers see a single sender, and we can recognise our own messages.
+ * When the interfaces of {@link com.github.trosenkrantz.raptor.udp.NetworkInterfaceRegistry} change, {@link #reopen()} opens channels for the new interfaces.
+ */
+final class MulticastSendChannels implements AutoCloseable {
+    private static final Logger LOGGER = Logger.getLogger(MulticastSendChannels.class.getName());
+
+    private final InetAddress group;
+    private final int ttl;
+    private final boolean blocking;
+    private final List<NetworkInterface> interfaces;
+    private final List<DatagramChannel> channels;
+    private final int localPort;
+
+    private MulticastSendChannels(InetAddress group, int ttl, boolean blocking, List<NetworkInterface> interfaces, List<DatagramChannel> channels, int localPort) {
+        this.group = group;
+        this.ttl = ttl;
+        this.blocking = blocking;
+        this.interfaces = interfaces;
+        this.channels = channels;
+        this.localPort = localPort;
+    }
+
+    /**
+     * @param group     multicast group to send to
+     * @param ttl       time to live
+     * @param localPort local port to bind to, or 0 for an ephemeral port
+     * @param blocking  whether channels are in blocking mode
+     */
+    static MulticastSendChannels open(InetAddress group, int ttl, int localPort, boolean blocking) throws IOException {
+        List<NetworkInterface> interfaces = UdpUtility.getAllMulticastCapableInterfaces(group.getClass());
+        List<DatagramChannel> channels = new ArrayList<>(interfaces.size());
+        int port = localPort;
+        try {
+            for (NetworkInterface nif : interfaces) {
+                DatagramChannel channel = DatagramChannel.open(IpAddressMapper.getProtocolFamily(group));
+                channels.add(channel);
+                channel.setOption(StandardSocketOptions.SO_REUSEADDR, true); // Share the local port between channels
+                channel.setOption(StandardSocketOptions.IP_MULTICAST_TTL, ttl);
+                channel.setOption(StandardSocketOptions.IP_MULTICAST_IF, nif);
+                channel.bind(new InetSocketAddress(IpAddressMapper.getWildcard(group), port));
+                channel.configureBlocking(blocking);
+                port = ((InetSocketAddress) channel.getLocalAddress()).getPort(); // Following channels bind to the port of the first
+            }
+        } catch (IOException e) {
+            closeAll(channels);
+            throw e;
+        }
+        return new MulticastSendChannels(group, ttl, blocking, interfaces, channels, port);
+    }
+
+    /**
+     * @return whether the channels are for the current multicast capable interfaces
+     */
+    boolean isCurrent() throws SocketException {
+        return interfaces == UdpUtility.getAllMulticastCapableInterfaces(group.getClass());
+    }
+
+    /**
+     * Opens channels for the current multicast capable interfaces, on the same local port.
+     * Callers must close these channels afterwards.
+     */
+    MulticastSendChannels reopen() throws IOException {
+        LOGGER.info("Updating network interfaces to send multicast on.");
+        return open(group, ttl, localPort, blocking);
+    }
+
+    List<NetworkInterface> getInterfaces() {
+        return interfaces;
+    }
+
+    List<DatagramChannel> getChannels() {
+        return channels;
+    }
+
+    /**
+     * @return local port sent from, or 0 if no interface was available
+     */
+    int getLocalPort() {
+        return localPort;
+    }
+
+    @Override
+    public void close() {
+        closeAll(channels);
+    }
+
+    private static void closeAll(List<DatagramChannel> channels) {
+        for (DatagramChannel channel : channels) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed closing multicast channel.", e);
+            }
+        }
+    }
+}
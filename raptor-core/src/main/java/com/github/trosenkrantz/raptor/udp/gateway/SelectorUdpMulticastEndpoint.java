@@ -0,0 +1,217 @@
+package com.github.trosenkrantz.raptor.udp.gateway;
+
+import com.github.trosenkrantz.raptor.configuration.Configuration;
+import com.github.trosenkrantz.raptor.gateway.Endpoint;
+import com.github.trosenkrantz.raptor.gateway.EventLoop;
+import com.github.trosenkrantz.raptor.gateway.Payload;
+import com.github.trosenkrantz.raptor.logging.PayloadLog;
+import com.github.trosenkrantz.raptor.udp.IpAddressMapper;
+import com.github.trosenkrantz.raptor.udp.NetworkInterfaceRegistry;
+import com.github.trosenkrantz.raptor.udp.UdpUtility;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * UDP multicast endpoint using non-blocking channels on an {@link EventLoop}.
+ * Behaves like {@link UdpMulticastEndpoint}, but without a thread blocking on receive and without blocking the sender.
+ */
+public class SelectorUdpMulticastEndpoint implements Endpoint {
+    private static final Logger LOGGER = Logger.getLogger(SelectorUdpMulticastEndpoint.class.getName());
+
+    private final EventLoop eventLoop;
+    private final Consumer<Payload> broker;
+    private final Runnable onEndpointClosed;
+    private final InetAddress multicastGroup;
+    private final InetSocketAddress destination;
+    private final DatagramChannel receiveChannel;
+    private final ByteBuffer receiveBuffer = ByteBuffer.allocateDirect(UdpUtility.MAX_UDP_PAYLOAD_SIZE);
+    private final Queue<Payload> pendingSends = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    // Only accessed on event loop thread, after construction
+    private MulticastSendChannels sendChannels;
+    private List<SelectionKey> sendKeys; // Keys of send channels, in order of their interfaces, null until registered
+    private SelectionKey blockedSendKey; // Key of the send channel we wait for to be writable, if any
+    private int nextInterfaceIndex = 0; // Interface to send the head of pending sends to next
+
+    public SelectorUdpMulticastEndpoint(final Configuration configuration, final Consumer<Payload> broker, final Runnable onEndpointClosed, final EventLoop eventLoop) throws IOException {
+        this.eventLoop = eventLoop;
+        this.broker = broker;
+        this.onEndpointClosed = onEndpointClosed;
+
+        multicastGroup = InetAddress.getByName(configuration.requireRaptorEncodedString(UdpUtility.PARAMETER_REMOTE_ADDRESS));
+        int port = configuration.requireInt(UdpEndpointService.PARAMETER_PORT);
+        destination = new InetSocketAddress(multicastGroup, port);
+        List<NetworkInterface> interfaces = UdpUtility.getAllMulticastCapableInterfaces(multicastGroup.getClass());
+
+        receiveChannel = DatagramChannel.open(IpAddressMapper.getProtocolFamily(multicastGroup));
+        receiveChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        receiveChannel.bind(new InetSocketAddress(IpAddressMapper.getWildcard(multicastGroup), port));
+        for (NetworkInterface nif : interfaces) {
+            receiveChannel.join(multicastGroup, nif);
+        }
+        receiveChannel.configureBlocking(false);
+
+        sendChannels = MulticastSendChannels.open(
+                multicastGroup,
+                UdpUtility.TTL_SETTING.readAndRequireOrDefault(configuration),
+                configuration.getInt(UdpEndpointService.PARAMETER_LOCAL_SEND_PORT).orElse(0), // 0 means ephemeral
+                false
+        );
+
+        eventLoop.execute(() -> {
+            try {
+                eventLoop.register(receiveChannel, SelectionKey.OP_READ, new ReceiveHandler());
+                sendKeys = registerSendChannels(sendChannels);
+                LOGGER.info("Waiting to receive data on multicast group " + multicastGroup.getHostAddress() + " on port " + port + ".");
+            } catch (IOException e) {
+                LOGGER.log(Level.SEVERE, "Failed receiving multicast.", e);
+                onEndpointClosed.run();
+            }
+        });
+    }
+
+    private void receive() throws IOException {
+        // Drain all datagrams ready, so one wake-up handles a burst
+        InetSocketAddress source;
+        while ((source = (InetSocketAddress) receiveChannel.receive(receiveBuffer)) != null) {
+            receiveBuffer.flip();
+            InetAddress sourceAddress = source.getAddress();
+            int sourcePort = source.getPort();
+            if (sourcePort == sendChannels.getLocalPort()) {
+                // Ignore packets sent from self
+                receiveBuffer.clear();
+                continue;
+            }
+
+            Payload payload = Payload.copyOf(receiveBuffer); // Copy to a right-sized pooled payload, keeping the large receive buffer for the next datagram
+            receiveBuffer.clear();
+            payload.setFlow(source.hashCode());
+
+            PayloadLog.received(LOGGER, payload.array(), payload.length(), () -> " from " + sourceAddress.getHostAddress() + ":" + sourcePort + " to " + multicastGroup.getHostAddress() + ":" + destination.getPort());
+            broker.accept(payload);
+        }
+    }
+
+    /**
+     * Sends pending payloads on all interfaces until done or the socket send buffer is full, in which case we wait for the channel to be writable.
+     */
+    private void flush() throws IOException {
+        if (blockedSendKey != null) {
+            if (blockedSendKey.isValid()) blockedSendKey.interestOps(0);
+            blockedSendKey = null;
+        }
+
+        Payload payload;
+        while ((payload = pendingSends.peek()) != null) {
+            if (nextInterfaceIndex == 0) updateSendChannels(); // Only between payloads, so each payload is sent on one set of interfaces
+
+            while (nextInterfaceIndex < sendKeys.size()) {
+                SelectionKey key = sendKeys.get(nextInterfaceIndex);
+                if (((DatagramChannel) key.channel()).send(payload.asByteBuffer(), destination) == 0) {
+                    key.interestOps(SelectionKey.OP_WRITE);
+                    blockedSendKey = key;
+                    return;
+                }
+                nextInterfaceIndex++;
+
+                PayloadLog.sent(LOGGER, payload.array(), payload.length(), () -> " from local port " + sendChannels.getLocalPort() + " to " + multicastGroup.getHostAddress() + ":" + destination.getPort());
+            }
+            pendingSends.poll().release();
+            nextInterfaceIndex = 0;
+        }
+    }
+
+    /**
+     * Opens channels for new interfaces, if the interfaces have changed.
+     */
+    private void updateSendChannels() throws IOException {
+        if (sendChannels.isCurrent()) return;
+
+        MulticastSendChannels previous = sendChannels;
+        sendChannels = previous.reopen();
+        for (SelectionKey key : sendKeys) {
+            key.cancel();
+        }
+        previous.close();
+        sendKeys = registerSendChannels(sendChannels);
+    }
+
+    private List<SelectionKey> registerSendChannels(MulticastSendChannels channels) throws IOException {
+        List<SelectionKey> keys = new ArrayList<>(channels.getChannels().size());
+        for (DatagramChannel channel : channels.getChannels()) {
+            keys.add(eventLoop.register(channel, 0, new SendHandler()));
+        }
+        return keys;
+    }
+
+    private void flushAndLogFailure() {
+        try {
+            flush();
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Failed sending multicast.", e);
+            // Do not consider the endpoint closed on send failure, as it might be a temporary issue, but skip the payload and check if interfaces have changed
+            Payload failed = pendingSends.poll();
+            if (failed != null) failed.release();
+            nextInterfaceIndex = 0;
+            NetworkInterfaceRegistry.get().refreshAndLogFailure();
+        }
+    }
+
+    @Override
+    public void sendToExternalSystem(Payload payload) {
+        pendingSends.add(payload);
+
+        // Only schedule a flush if none is pending, so bursts of payloads are sent in one go
+        if (flushScheduled.compareAndSet(false, true)) {
+            eventLoop.execute(() -> {
+                flushScheduled.set(false);
+                if (sendKeys != null && blockedSendKey == null) flushAndLogFailure(); // Else, we are waiting for a channel to be writable
+            });
+        }
+    }
+
+    private class ReceiveHandler implements EventLoop.ChannelHandler {
+        @Override
+        public void onReady(SelectionKey key) throws IOException {
+            receive();
+        }
+
+        @Override
+        public void onFailure(Exception e) {
+            try {
+                receiveChannel.close();
+            } catch (IOException closeException) {
+                LOGGER.log(Level.WARNING, "Failed closing multicast channel.", closeException);
+            }
+            onEndpointClosed.run();
+        }
+    }
+
+    private class SendHandler implements EventLoop.ChannelHandler {
+        @Override
+        public void onReady(SelectionKey key) {
+            flushAndLogFailure();
+        }
+
+        @Override
+        public void onFailure(Exception e) {
+            // Never thrown, as failures are logged in flushAndLogFailure
+        }
+    }
+}
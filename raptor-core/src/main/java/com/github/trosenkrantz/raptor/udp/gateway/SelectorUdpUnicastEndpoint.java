@@ -0,0 +1,147 @@
+package com.github.trosenkrantz.raptor.udp.gateway;
+
+import com.github.trosenkrantz.raptor.configuration.Configuration;
+import com.github.trosenkrantz.raptor.gateway.Endpoint;
+import com.github.trosenkrantz.raptor.gateway.EventLoop;
+import com.github.trosenkrantz.raptor.gateway.Payload;
+import com.github.trosenkrantz.raptor.logging.PayloadLog;
+import com.github.trosenkrantz.raptor.udp.UdpUtility;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * UDP unicast endpoint using a non-blocking channel on an {@link EventLoop}.
+ * Behaves like {@link UdpUnicastEndpoint}, but without a thread blocking on receive and without blocking the sender.
+ * <p>
+ * Each wake-up drains all datagrams ready into a reusable direct buffer, so a burst costs one select, and each datagram is copied once, to a right-sized pooled payload.
+ */
+public class SelectorUdpUnicastEndpoint implements Endpoint {
+    private static final Logger LOGGER = Logger.getLogger(SelectorUdpUnicastEndpoint.class.getName());
+
+    private final EventLoop eventLoop;
+    private final Consumer<Payload> broker;
+    private final DatagramChannel channel;
+    private final int localPort;
+    private final ByteBuffer receiveBuffer = ByteBuffer.allocateDirect(UdpUtility.MAX_UDP_PAYLOAD_SIZE);
+    private final Queue<Payload> pendingSends = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    private SelectionKey key; // Only accessed on event loop thread
+    private InetSocketAddress peer; // Socket to send to, only accessed on event loop thread
+
+    public SelectorUdpUnicastEndpoint(final Configuration configuration, final Consumer<Payload> broker, final Runnable onEndpointClosed, final EventLoop eventLoop) throws IOException {
+        this.eventLoop = eventLoop;
+        this.broker = broker;
+
+        peer = UdpUnicastEndpoint.readRemote(configuration);
+        channel = UdpUnicastEndpoint.openChannel(configuration);
+        channel.configureBlocking(false);
+        localPort = ((InetSocketAddress) channel.getLocalAddress()).getPort();
+
+        eventLoop.execute(() -> {
+            try {
+                key = eventLoop.register(channel, SelectionKey.OP_READ, new Handler(onEndpointClosed));
+                LOGGER.info("Waiting to receive data on port " + localPort + ".");
+            } catch (IOException e) {
+                LOGGER.log(Level.SEVERE, "Failed receiving unicast.", e);
+                onEndpointClosed.run();
+            }
+        });
+    }
+
+    private void receive() throws IOException {
+        // Drain all datagrams ready, so one wake-up handles a burst
+        InetSocketAddress received;
+        while ((received = (InetSocketAddress) channel.receive(receiveBuffer)) != null) {
+            InetSocketAddress source = received;
+            receiveBuffer.flip();
+            Payload payload = Payload.copyOf(receiveBuffer); // Copy to a right-sized pooled payload, keeping the large receive buffer for the next datagram
+            receiveBuffer.clear();
+            payload.setFlow(source.hashCode());
+            peer = source; // Reply to the latest peer
+
+            PayloadLog.received(LOGGER, payload.array(), payload.length(), () -> " from " + source.getAddress().getHostAddress() + ":" + source.getPort() + " to local port " + localPort);
+            broker.accept(payload);
+        }
+    }
+
+    /**
+     * Sends pending payloads until done or the socket send buffer is full, in which case we wait for the channel to be writable.
+     */
+    private void flush() throws IOException {
+        Payload payload;
+        while ((payload = pendingSends.peek()) != null) {
+            if (peer == null) {
+                LOGGER.warning("No peer to send to, as nothing has been received yet, dropping data.");
+            } else {
+                if (channel.send(payload.asByteBuffer(), peer) == 0) {
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+
+                PayloadLog.sent(LOGGER, payload.array(), payload.length(), () -> " from local port " + localPort + " to " + peer.getAddress().getHostAddress() + ":" + peer.getPort());
+            }
+            pendingSends.poll().release();
+        }
+
+        key.interestOps(SelectionKey.OP_READ);
+    }
+
+    private void flushAndLogFailure() {
+        try {
+            flush();
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Failed sending unicast.", e);
+            // Do not consider the endpoint closed on send failure, as it might be a temporary issue, but skip the payload
+            Payload failed = pendingSends.poll();
+            if (failed != null) failed.release();
+        }
+    }
+
+    @Override
+    public void sendToExternalSystem(Payload payload) {
+        pendingSends.add(payload);
+
+        // Only schedule a flush if none is pending, so bursts of payloads are sent in one go
+        if (flushScheduled.compareAndSet(false, true)) {
+            eventLoop.execute(() -> {
+                flushScheduled.set(false);
+                if (key != null && (key.interestOps() & SelectionKey.OP_WRITE) == 0) flushAndLogFailure(); // Else, we are waiting for the channel to be writable
+            });
+        }
+    }
+
+    private class Handler implements EventLoop.ChannelHandler {
+        private final Runnable onEndpointClosed;
+
+        private Handler(Runnable onEndpointClosed) {
+            this.onEndpointClosed = onEndpointClosed;
+        }
+
+        @Override
+        public void onReady(SelectionKey key) throws IOException {
+            if (key.isWritable()) flushAndLogFailure();
+            if (key.isReadable()) receive();
+        }
+
+        @Override
+        public void onFailure(Exception e) {
+            try {
+                channel.close();
+            } catch (IOException closeException) {
+                LOGGER.log(Level.WARNING, "Failed closing unicast channel.", closeException);
+            }
+            onEndpointClosed.run();
+        }
+    }
+}
@@ -2,15 +2,18 @@ package com.github.trosenkrantz.raptor.udp.gateway;
 
 import com.github.trosenkrantz.raptor.configuration.Configuration;
 import com.github.trosenkrantz.raptor.gateway.Endpoint;
-import com.github.trosenkrantz.raptor.gateway.EndpointService;
+import com.github.trosenkrantz.raptor.gateway.EventLoop;
+import com.github.trosenkrantz.raptor.gateway.Payload;
+import com.github.trosenkrantz.raptor.gateway.SelectableEndpointService;
 import com.github.trosenkrantz.raptor.io.ConsoleIo;
 import com.github.trosenkrantz.raptor.io.IpPortValidator;
 import com.github.trosenkrantz.raptor.udp.UdpUtility;
 
 import java.io.IOException;
+import java.util.Optional;
 import java.util.function.Consumer;
 
-public class UdpEndpointService implements EndpointService {
+public class UdpEndpointService implements SelectableEndpointService {
     public static final String PARAMETER_MODE = "mode";
     public static final String PARAMETER_PORT = "port";
     public static final String PARAMETER_LOCAL_SEND_PORT = "localSendPort";
@@ -35,24 +38,52 @@ public class UdpEndpointService implements EndpointService {
         EndpointMode endpointMode = ConsoleIo.askForOptions(EndpointMode.class);
         configuration.setConfigurable(PARAMETER_MODE, endpointMode);
 
-        if (endpointMode == EndpointMode.MULTICAST) {
-            configuration.setRaptorEncodedString(UdpUtility.PARAMETER_REMOTE_ADDRESS, ConsoleIo.askForString("Multicast group to use", UdpUtility.DEFAULT_MULTICAST_GROUP));
-            UdpUtility.TTL_SETTING.configure(configuration);
-        }
+        switch (endpointMode) {
+            case MULTICAST -> {
+                configuration.setRaptorEncodedString(UdpUtility.PARAMETER_REMOTE_ADDRESS, ConsoleIo.askForString("Multicast group to use", UdpUtility.DEFAULT_MULTICAST_GROUP));
+                UdpUtility.TTL_SETTING.configure(configuration);
+
+                configuration.setInt(PARAMETER_PORT, ConsoleIo.askForInt("Multicast port to send to and receive on", UdpUtility.DEFAULT_PORT, IpPortValidator.VALIDATOR));
 
-        configuration.setInt(PARAMETER_PORT, ConsoleIo.askForInt("Multicast port to send to and receive on", UdpUtility.DEFAULT_PORT, IpPortValidator.VALIDATOR));
+                ConsoleIo.askForOptionalInt(
+                        "Local socket port to bind to when sending",
+                        "arbitrary ephemeral port",
+                        IpPortValidator.VALIDATOR
+                ).ifPresent(port -> configuration.setInt(PARAMETER_LOCAL_SEND_PORT, port));
+            }
+            case UNICAST -> {
+                configuration.setInt(PARAMETER_PORT, ConsoleIo.askForInt("Local port to receive on and send from", UdpUtility.DEFAULT_PORT, IpPortValidator.VALIDATOR));
 
-        ConsoleIo.askForOptionalInt(
-                "Local socket port to bind to when sending",
-                "arbitrary ephemeral port",
-                IpPortValidator.VALIDATOR
-        ).ifPresent(port -> configuration.setInt(PARAMETER_LOCAL_SEND_PORT, port));
+                ConsoleIo.askForOptionalString(
+                        "Hostname / IP address of remote socket to send to",
+                        "latest socket received from",
+                        value -> Optional.empty()
+                ).ifPresent(address -> {
+                    configuration.setRaptorEncodedString(UdpUtility.PARAMETER_REMOTE_ADDRESS, address);
+                    configuration.setInt(UdpUtility.PARAMETER_REMOTE_PORT, ConsoleIo.askForInt("Remote port", UdpUtility.DEFAULT_PORT, IpPortValidator.VALIDATOR));
+                });
+            }
+        }
     }
 
     @Override
-    public Endpoint createEndpoint(Configuration configuration, Consumer<byte[]> broker, Runnable onEndpointClosed) throws IOException {
+    public Endpoint createEndpoint(Configuration configuration, Consumer<Payload> broker, Runnable onEndpointClosed) throws IOException {
         return switch (configuration.requireEnum(UdpEndpointService.PARAMETER_MODE, EndpointMode.class)) {
             case MULTICAST -> new UdpMulticastEndpoint(configuration, broker, onEndpointClosed);
+            case UNICAST -> new UdpUnicastEndpoint(configuration, broker, onEndpointClosed);
+        };
+    }
+
+    @Override
+    public boolean supportsEventLoop(Configuration configuration) {
+        return true;
+    }
+
+    @Override
+    public Endpoint createEndpoint(Configuration configuration, Consumer<Payload> broker, Runnable onEndpointClosed, EventLoop eventLoop) throws IOException {
+        return switch (configuration.requireEnum(UdpEndpointService.PARAMETER_MODE, EndpointMode.class)) {
+            case MULTICAST -> new SelectorUdpMulticastEndpoint(configuration, broker, onEndpointClosed, eventLoop);
+            case UNICAST -> new SelectorUdpUnicastEndpoint(configuration, broker, onEndpointClosed, eventLoop);
         };
     }
 }
@@ -2,15 +2,16 @@ package com.github.trosenkrantz.raptor.udp.gateway;
 
 import com.github.trosenkrantz.raptor.configuration.Configuration;
 import com.github.trosenkrantz.raptor.gateway.Endpoint;
-import com.github.trosenkrantz.raptor.io.BytesFormatter;
+import com.github.trosenkrantz.raptor.gateway.Payload;
+import com.github.trosenkrantz.raptor.logging.PayloadLog;
 import com.github.trosenkrantz.raptor.udp.IpAddressMapper;
+import com.github.trosenkrantz.raptor.udp.NetworkInterfaceRegistry;
 import com.github.trosenkrantz.raptor.udp.UdpUtility;
 
 import java.io.IOException;
 import java.net.*;
 import java.nio.ByteBuffer;
 import java.nio.channels.DatagramChannel;
-import java.util.Optional;
 import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -18,16 +19,24 @@ import java.util.logging.Logger;
 public class UdpMulticastEndpoint implements Endpoint {
     private static final Logger LOGGER = Logger.getLogger(UdpMulticastEndpoint.class.getName());
 
-    private final Configuration sendConfiguration;
     private final String multicastGroupString;
     private final InetAddress multicastGroup;
-    private final DatagramChannel sendChannel;
-    private final int sendLocalPort;
+    private final InetSocketAddress destination;
+    private volatile MulticastSendChannels sendChannels;
 
-    public UdpMulticastEndpoint(final Configuration configuration, final Consumer<byte[]> broker, final Runnable onEndpointClosed) throws IOException {
+    public UdpMulticastEndpoint(final Configuration configuration, final Consumer<Payload> broker, final Runnable onEndpointClosed) throws IOException {
         multicastGroupString = configuration.requireRaptorEncodedString(UdpUtility.PARAMETER_REMOTE_ADDRESS);
         multicastGroup = InetAddress.getByName(multicastGroupString);
 
+        // Open channels for sending before receiving, as we recognise our own messages by their port
+        destination = new InetSocketAddress(multicastGroup, configuration.requireInt(UdpEndpointService.PARAMETER_PORT));
+        sendChannels = MulticastSendChannels.open(
+                multicastGroup,
+                UdpUtility.TTL_SETTING.readAndRequireOrDefault(configuration),
+                configuration.getInt(UdpEndpointService.PARAMETER_LOCAL_SEND_PORT).orElse(0), // 0 means ephemeral
+                true
+        );
+
         // Map configuration to one for receiving
         Configuration receiveConfiguration = configuration.copy();
         receiveConfiguration.setInt(UdpUtility.PARAMETER_LOCAL_PORT, configuration.requireInt(UdpEndpointService.PARAMETER_PORT));
@@ -43,28 +52,9 @@ public class UdpMulticastEndpoint implements Endpoint {
                 onEndpointClosed.run();
             }
         });
-
-        // Map configuration to one for sending
-        sendConfiguration = configuration.copy();
-        sendConfiguration.setInt(UdpUtility.PARAMETER_REMOTE_PORT, configuration.requireInt(UdpEndpointService.PARAMETER_PORT));
-        configuration.getInt(UdpEndpointService.PARAMETER_LOCAL_SEND_PORT).ifPresent(port -> sendConfiguration.setInt(UdpUtility.PARAMETER_LOCAL_PORT, port));
-
-        sendChannel = DatagramChannel.open(IpAddressMapper.getProtocolFamily(multicastGroup));
-        sendChannel.setOption(StandardSocketOptions.IP_MULTICAST_TTL, UdpUtility.TTL_SETTING.readAndRequireOrDefault(configuration));
-
-        Optional<Integer> localSendPort = sendConfiguration.getInt(UdpUtility.PARAMETER_LOCAL_PORT);
-        if (localSendPort.isPresent()) {
-            sendChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
-            sendChannel.bind(new InetSocketAddress(IpAddressMapper.getWildcard(multicastGroup), localSendPort.get()));
-        } else {
-            // force ephemeral bind
-            sendChannel.bind(new InetSocketAddress(IpAddressMapper.getWildcard(multicastGroup), 0));
-        }
-
-        sendLocalPort = ((InetSocketAddress) sendChannel.getLocalAddress()).getPort();
     }
 
-    private void createReceivingChannelAndKeepReceiving(Configuration receiveConfiguration, Consumer<byte[]> broker) throws IOException {
+    private void createReceivingChannelAndKeepReceiving(Configuration receiveConfiguration, Consumer<Payload> broker) throws IOException {
         InetAddress group = multicastGroup;
         int port = receiveConfiguration.requireInt(UdpUtility.PARAMETER_LOCAL_PORT);
 
@@ -81,7 +71,7 @@ public class UdpMulticastEndpoint implements Endpoint {
         }
     }
 
-    private void keepReceiving(DatagramChannel channel, Consumer<byte[]> consumer) throws IOException {
+    private void keepReceiving(DatagramChannel channel, Consumer<Payload> consumer) throws IOException {
         ByteBuffer buffer = ByteBuffer.allocate(UdpUtility.MAX_UDP_PAYLOAD_SIZE);
 
         while (true) {
@@ -91,38 +81,53 @@ public class UdpMulticastEndpoint implements Endpoint {
 
             int sourcePort = source.getPort();
 
-            if (sourcePort == sendLocalPort) {
+            if (sourcePort == sendChannels.getLocalPort()) {
                 // Ignore packets sent from self
                 continue;
             }
 
             buffer.flip();
 
-            byte[] payload = new byte[buffer.remaining()];
-            buffer.get(payload);
+            Payload payload = Payload.copyOf(buffer); // Copy to a right-sized pooled payload, keeping the large buffer for the next datagram
+            payload.setFlow(source.hashCode());
 
             InetSocketAddress local = (InetSocketAddress) channel.getLocalAddress();
 
-            LOGGER.info("Received " + BytesFormatter.getType(payload) + " from " + source.getAddress().getHostAddress() + ":" + sourcePort + " to " + multicastGroup.getHostAddress() + ":" + local.getPort() + ": " + BytesFormatter.bytesToRaptorEncoding(payload));
+            PayloadLog.received(LOGGER, payload.array(), payload.length(), () -> " from " + source.getAddress().getHostAddress() + ":" + sourcePort + " to " + multicastGroup.getHostAddress() + ":" + local.getPort());
 
             consumer.accept(payload);
         }
     }
 
     @Override
-    public void sendToExternalSystem(byte[] payload) {
-        int destinationPort = sendConfiguration.requireInt(UdpUtility.PARAMETER_REMOTE_PORT);
-
+    public void sendToExternalSystem(Payload payload) {
         try {
-            for (NetworkInterface nif : UdpUtility.getAllMulticastCapableInterfaces(multicastGroup.getClass())) {
-                sendChannel.setOption(StandardSocketOptions.IP_MULTICAST_IF, nif);
-                sendChannel.send(ByteBuffer.wrap(payload), new InetSocketAddress(multicastGroup, destinationPort));
+            MulticastSendChannels channels = getSendChannels();
+            for (DatagramChannel channel : channels.getChannels()) {
+                channel.send(payload.asByteBuffer(), destination);
 
-                LOGGER.info("Sent " + BytesFormatter.getType(payload) + " from local port " + ((InetSocketAddress) sendChannel.getLocalAddress()).getPort() + " to " + multicastGroupString + ":" + destinationPort + ": " + BytesFormatter.bytesToRaptorEncoding(payload));
+                PayloadLog.sent(LOGGER, payload.array(), payload.length(), () -> " from local port " + channels.getLocalPort() + " to " + multicastGroupString + ":" + destination.getPort());
             }
         } catch (IOException e) {
             LOGGER.log(Level.SEVERE, "Failed sending multicast.", e);
-            // Do not consider the endpoint closed on send failure, as it might be a temporary issue
+            // Do not consider the endpoint closed on send failure, as it might be a temporary issue, but check if interfaces have changed
+            NetworkInterfaceRegistry.get().refreshAndLogFailure();
+        } finally {
+            payload.release();
+        }
+    }
+
+    private MulticastSendChannels getSendChannels() throws IOException {
+        MulticastSendChannels channels = sendChannels;
+        if (channels.isCurrent()) return channels;
+
+        synchronized (this) {
+            channels = sendChannels;
+            if (!channels.isCurrent()) {
+                sendChannels = channels.reopen();
+                channels.close();
+            }
+            return sendChannels;
         }
     }
 }
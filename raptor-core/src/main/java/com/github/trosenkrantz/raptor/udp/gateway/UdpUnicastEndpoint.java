@@ -0,0 +1,114 @@
+package com.github.trosenkrantz.raptor.udp.gateway;
+
+import com.github.trosenkrantz.raptor.configuration.Configuration;
+import com.github.trosenkrantz.raptor.gateway.Endpoint;
+import com.github.trosenkrantz.raptor.gateway.Payload;
+import com.github.trosenkrantz.raptor.logging.PayloadLog;
+import com.github.trosenkrantz.raptor.udp.UdpUtility;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * UDP unicast endpoint, receiving and sending on a single local port.
+ * Sends to the configured remote socket, if any, until receiving a datagram, after which it sends to the socket it received from most recently.
+ * This way, it can face both clients, replying to them, and a server, sending requests to it.
+ */
+public class UdpUnicastEndpoint implements Endpoint {
+    private static final Logger LOGGER = Logger.getLogger(UdpUnicastEndpoint.class.getName());
+    private static final int SOCKET_RECEIVE_BUFFER_SIZE = 4 * 1024 * 1024; // Absorbs bursts of datagrams while we are busy forwarding, the OS may cap it
+
+    private final DatagramChannel channel;
+    private final int localPort;
+    private volatile InetSocketAddress peer;
+
+    public UdpUnicastEndpoint(final Configuration configuration, final Consumer<Payload> broker, final Runnable onEndpointClosed) throws IOException {
+        peer = readRemote(configuration);
+        channel = openChannel(configuration);
+        localPort = ((InetSocketAddress) channel.getLocalAddress()).getPort();
+
+        // Start receiving in a separate thread to not block the main thread
+        Thread.ofVirtual().start(() -> {
+            try (channel) {
+                LOGGER.info("Waiting to receive data on port " + localPort + ".");
+                keepReceiving(broker);
+            } catch (Exception e) {
+                LOGGER.log(Level.SEVERE, "Failed receiving unicast.", e);
+            } finally {
+                // Receiving is blocking, so we inform endpoint closed afterwards
+                onEndpointClosed.run();
+            }
+        });
+    }
+
+    private void keepReceiving(Consumer<Payload> consumer) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(UdpUtility.MAX_UDP_PAYLOAD_SIZE);
+
+        while (true) {
+            buffer.clear();
+            InetSocketAddress source = (InetSocketAddress) channel.receive(buffer);
+            buffer.flip();
+
+            Payload payload = Payload.copyOf(buffer); // Copy to a right-sized pooled payload, keeping the large buffer for the next datagram
+            payload.setFlow(source.hashCode());
+            peer = source; // Reply to the latest peer
+
+            PayloadLog.received(LOGGER, payload.array(), payload.length(), () -> " from " + source.getAddress().getHostAddress() + ":" + source.getPort() + " to local port " + localPort);
+            consumer.accept(payload);
+        }
+    }
+
+    @Override
+    public void sendToExternalSystem(Payload payload) {
+        try {
+            InetSocketAddress destination = peer;
+            if (destination == null) {
+                LOGGER.warning("No peer to send to, as nothing has been received yet, dropping data.");
+                return;
+            }
+
+            channel.send(payload.asByteBuffer(), destination);
+            PayloadLog.sent(LOGGER, payload.array(), payload.length(), () -> " from local port " + localPort + " to " + destination.getAddress().getHostAddress() + ":" + destination.getPort());
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Failed sending unicast.", e);
+            // Do not consider the endpoint closed on send failure, as it might be a temporary issue
+        } finally {
+            payload.release();
+        }
+    }
+
+    /**
+     * @return configured remote socket to send to until a peer is learned, or null if not configured
+     */
+    static InetSocketAddress readRemote(Configuration configuration) throws UnknownHostException {
+        Optional<String> address = configuration.getRaptorEncodedString(UdpUtility.PARAMETER_REMOTE_ADDRESS);
+        if (address.isEmpty()) return null;
+
+        InetSocketAddress remote = new InetSocketAddress(address.get(), configuration.requireInt(UdpUtility.PARAMETER_REMOTE_PORT));
+        if (remote.isUnresolved()) throw new UnknownHostException(address.get());
+        return remote;
+    }
+
+    /**
+     * Opens a channel bound to the configured port on all local addresses, of both IPv4 and IPv6 where supported.
+     */
+    static DatagramChannel openChannel(Configuration configuration) throws IOException {
+        DatagramChannel channel = DatagramChannel.open();
+        try {
+            channel.setOption(StandardSocketOptions.SO_RCVBUF, SOCKET_RECEIVE_BUFFER_SIZE);
+            channel.bind(new InetSocketAddress(configuration.requireInt(UdpEndpointService.PARAMETER_PORT)));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return channel;
+    }
+}
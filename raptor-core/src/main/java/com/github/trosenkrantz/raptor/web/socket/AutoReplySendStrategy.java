@@ -24,11 +24,9 @@ class AutoReplySendStrategy implements WebSocketSendStrategy {
 
     @Override
     public Consumer<byte[]> initialise(WebSocket socket, Runnable shutDownAction) {
-        StateMachine stateMachine = new StateMachine(stateMachineConfiguration, output -> WebSocketService.send(socket, output));
+        StateMachine stateMachine = new StateMachine(stateMachineConfiguration, output -> WebSocketService.send(socket, output), socket::close);
         return input -> {
-            for (byte b : input) {
-                stateMachine.onInput(new byte[]{b}); // Pass on byte by byte
-            }
+            stateMachine.onInput(input);
             stateMachine.resetInputBuffer(); // Reset as we process whole WebSocket frames at a time
         };
     }
@@ -1,6 +1,6 @@
 package com.github.trosenkrantz.raptor.web.socket;
 
-import com.github.trosenkrantz.raptor.io.BytesFormatter;
+import com.github.trosenkrantz.raptor.logging.PayloadLog;
 import org.java_websocket.client.WebSocketClient;
 import org.java_websocket.handshake.ServerHandshake;
 
@@ -39,7 +39,8 @@ public class RaptorWebSocketClient extends WebSocketClient {
     @Override
     public void onMessage(String message) {
         byte[] input = message.getBytes(StandardCharsets.UTF_8); // WebSockets use UTF-8 for text frames
-        LOGGER.info("Received text: " + BytesFormatter.bytesToRaptorEncodedText(input));
+        PayloadLog.received(LOGGER, input, true, null);
+        WebSocketService.capture(this).received(input, true);
         onInput.accept(input);
     }
 
@@ -47,7 +48,8 @@ public class RaptorWebSocketClient extends WebSocketClient {
     public void onMessage(ByteBuffer message) {
         byte[] input = new byte[message.remaining()];
         message.get(input);
-        LOGGER.info("Received bytes: " + BytesFormatter.bytesToRaptorEncodedBytes(input));
+        PayloadLog.received(LOGGER, input, false, null);
+        WebSocketService.capture(this).received(input, false);
         onInput.accept(input);
     }
 
@@ -1,6 +1,6 @@
 package com.github.trosenkrantz.raptor.web.socket;
 
-import com.github.trosenkrantz.raptor.io.BytesFormatter;
+import com.github.trosenkrantz.raptor.logging.PayloadLog;
 import org.java_websocket.WebSocket;
 import org.java_websocket.handshake.ClientHandshake;
 import org.java_websocket.server.WebSocketServer;
@@ -52,7 +52,8 @@ public class RaptorWebSocketServer extends WebSocketServer {
     public void onMessage(WebSocket webSocket, String message) {
         byte[] input = message.getBytes(StandardCharsets.UTF_8); // WebSockets use UTF-8 for text frames
         InetSocketAddress remoteAddress = webSocket.getRemoteSocketAddress();
-        LOGGER.info("Received text from " + remoteAddress + ": " + BytesFormatter.bytesToRaptorEncodedText(input));
+        PayloadLog.received(LOGGER, input, true, () -> " from " + remoteAddress);
+        WebSocketService.capture(webSocket).received(input, true);
         onInput.get(remoteAddress).accept(input);
     }
 
@@ -61,7 +62,8 @@ public class RaptorWebSocketServer extends WebSocketServer {
         byte[] input = new byte[message.remaining()];
         message.get(input);
         InetSocketAddress remoteAddress = webSocket.getRemoteSocketAddress();
-        LOGGER.info("Received bytes from " + remoteAddress + ": " + BytesFormatter.bytesToRaptorEncodedBytes(input));
+        PayloadLog.received(LOGGER, input, false, () -> " from " + remoteAddress);
+        WebSocketService.capture(webSocket).received(input, false);
         onInput.get(remoteAddress).accept(input);
     }
 
@@ -2,9 +2,12 @@ package com.github.trosenkrantz.raptor.web.socket;
 
 import com.github.trosenkrantz.raptor.configuration.Configuration;
 import com.github.trosenkrantz.raptor.RootService;
+import com.github.trosenkrantz.raptor.capture.Capture;
+import com.github.trosenkrantz.raptor.capture.WebSocketCapture;
 import com.github.trosenkrantz.raptor.configuration.StringToStringMapSetting;
 import com.github.trosenkrantz.raptor.io.BytesFormatter;
 import com.github.trosenkrantz.raptor.io.ConsoleIo;
+import com.github.trosenkrantz.raptor.logging.PayloadLog;
 import com.github.trosenkrantz.raptor.tls.TlsUtility;
 import com.github.trosenkrantz.raptor.tls.TlsVersion;
 import org.java_websocket.WebSocket;
@@ -107,10 +110,16 @@ public class WebSocketService implements RootService {
     public static void send(WebSocket socket, byte[] userAnswerAsBytes) {
         if (BytesFormatter.isText(userAnswerAsBytes)) { // Has only printable and control characters
             socket.send(new String(userAnswerAsBytes, StandardCharsets.US_ASCII)); // Send as text frame, using ASCII as we just checked this is ASCII text
-            LOGGER.info("Sent text: " + BytesFormatter.bytesToRaptorEncodedText(userAnswerAsBytes));
+            PayloadLog.sent(LOGGER, userAnswerAsBytes, true, null);
+            capture(socket).sent(userAnswerAsBytes, true);
         } else {
             socket.send(userAnswerAsBytes); // Send as binary frame
-            LOGGER.info("Sent bytes: " + BytesFormatter.bytesToRaptorEncodedBytes(userAnswerAsBytes));
+            PayloadLog.sent(LOGGER, userAnswerAsBytes, false, null);
+            capture(socket).sent(userAnswerAsBytes, false);
         }
     }
+
+    static WebSocketCapture capture(WebSocket socket) {
+        return Capture.webSocket(socket, socket.getLocalSocketAddress(), socket.getRemoteSocketAddress(), socket instanceof WebSocketClient);
+    }
 }
@@ -0,0 +1,49 @@
+package com.github.trosenkrantz.raptor.auto.reply;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class LiteralTrieTest {
+    @Test
+    void detectsLiteral() {
+        // Act & Assert
+        Assertions.assertTrue(LiteralTrie.isLiteral("STATUS!"));
+        Assertions.assertEquals("STATUS!", LiteralTrie.getLiteralPrefix("STATUS!"));
+    }
+
+    @Test
+    void decodesEscapedCharacters() {
+        // Act & Assert
+        Assertions.assertTrue(LiteralTrie.isLiteral("\\x00\\.\\n\\Q.*\\E"));
+        Assertions.assertEquals("\u0000.\n.*", LiteralTrie.getLiteralPrefix("\\x00\\.\\n\\Q.*\\E"));
+    }
+
+    @Test
+    void findsPrefixBeforeRegex() {
+        // Act & Assert
+        Assertions.assertFalse(LiteralTrie.isLiteral("AUTH .*!"));
+        Assertions.assertEquals("AUTH ", LiteralTrie.getLiteralPrefix("AUTH .*!"));
+    }
+
+    @Test
+    void excludesQuantifiedCharacterFromPrefix() {
+        // Act & Assert
+        Assertions.assertFalse(LiteralTrie.isLiteral("ab*"));
+        Assertions.assertEquals("a", LiteralTrie.getLiteralPrefix("ab*"));
+    }
+
+    @Test
+    void findsNoPrefixWithTopLevelAlternation() {
+        // Act & Assert
+        Assertions.assertFalse(LiteralTrie.isLiteral("ab|cd"));
+        Assertions.assertEquals("", LiteralTrie.getLiteralPrefix("ab|cd"));
+        Assertions.assertEquals("a", LiteralTrie.getLiteralPrefix("a(b|c)"));
+    }
+
+    @Test
+    void findsNoPrefixWithClass() {
+        // Act & Assert
+        Assertions.assertFalse(LiteralTrie.isLiteral("\\d"));
+        Assertions.assertEquals("", LiteralTrie.getLiteralPrefix("\\d1"));
+    }
+}
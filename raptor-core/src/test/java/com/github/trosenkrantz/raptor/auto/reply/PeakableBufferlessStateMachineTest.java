@@ -139,6 +139,22 @@ class PeakableBufferlessStateMachineTest {
         Assertions.assertEquals("go", t3.input());
     }
 
+    @Test
+    void capturesEmptyGroupNotParticipatingInMatch() {
+        PeakableBufferlessStateMachine machine = new PeakableBufferlessStateMachine(new StateMachineConfiguration(
+                "S1",
+                Map.of("S1", List.of(
+                        new Transition("get (\\d+)?(\\x80)", "ok", null)
+                )),
+                COMMAND_SUBSTITUTION_TIMEOUT
+        ));
+
+        PeakResult result = machine.peak(new byte[]{'g', 'e', 't', ' ', (byte) 0x80});
+
+        Assertions.assertTrue(result.matched());
+        Assertions.assertEquals(List.of("\\x67\\x65\\x74\\x20\\x80", "", "\\x80"), result.captureGroups());
+    }
+
     @Test
     void firstMatchingTransitionWins() {
         PeakableBufferlessStateMachine machine = new PeakableBufferlessStateMachine(new StateMachineConfiguration(
@@ -4,9 +4,12 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 class StateMachineTest {
 
@@ -173,4 +176,261 @@ class StateMachineTest {
         Assertions.assertEquals(3, capturedOutputs.size());
         Assertions.assertArrayEquals("S1 output".getBytes(StandardCharsets.US_ASCII), capturedOutputs.get(2));
     }
+
+    @Test
+    void transitionsToStartStateIfNextStateNotDefined() {
+        // Arrange
+        List<byte[]> capturedOutputs = new ArrayList<>();
+        StateMachine stateMachine = new StateMachine(new StateMachineConfiguration(
+                "S1",
+                Map.of(
+                        "S1", List.of(new Transition("S1 input", "S1 output", "S2")),
+                        "S2", List.of(new Transition("S2 input", "S2 output", "S3"))
+                ),
+                COMMAND_SUBSTITUTION_TIMEOUT
+        ), capturedOutputs::add);
+
+        // Act
+        stateMachine.onInput("S1 input".getBytes(StandardCharsets.US_ASCII));
+        stateMachine.onInput("S2 input".getBytes(StandardCharsets.US_ASCII));
+        stateMachine.onInput("S1 input".getBytes(StandardCharsets.US_ASCII));
+
+        // Assert
+        Assertions.assertEquals(3, capturedOutputs.size());
+        Assertions.assertArrayEquals("S1 output".getBytes(StandardCharsets.US_ASCII), capturedOutputs.get(2));
+    }
+
+    @Test
+    void matchesSeveralInputsInOneChunk() {
+        // Arrange
+        List<byte[]> capturedOutputs = new ArrayList<>();
+        StateMachine stateMachine = new StateMachine(new StateMachineConfiguration(
+                "S1",
+                Map.of("S1", List.of(new Transition("[^!]*!", "ok", null))),
+                COMMAND_SUBSTITUTION_TIMEOUT
+        ), capturedOutputs::add);
+
+        // Act
+        stateMachine.onInput("first!second!thi".getBytes(StandardCharsets.US_ASCII));
+        stateMachine.onInput("rd!".getBytes(StandardCharsets.US_ASCII));
+
+        // Assert
+        Assertions.assertEquals(3, capturedOutputs.size());
+    }
+
+    @Test
+    void repliesToEarliestMatch() {
+        // Arrange
+        List<byte[]> capturedOutputs = new ArrayList<>();
+        StateMachine stateMachine = new StateMachine(new StateMachineConfiguration(
+                "S1",
+                Map.of("S1", List.of(new Transition("(.*)!", "\\{1}", null))),
+                COMMAND_SUBSTITUTION_TIMEOUT
+        ), capturedOutputs::add);
+
+        // Act
+        stateMachine.onInput("a!b!".getBytes(StandardCharsets.US_ASCII));
+
+        // Assert
+        Assertions.assertEquals(2, capturedOutputs.size());
+        Assertions.assertArrayEquals("a".getBytes(StandardCharsets.US_ASCII), capturedOutputs.get(0));
+        Assertions.assertArrayEquals("b".getBytes(StandardCharsets.US_ASCII), capturedOutputs.get(1));
+    }
+
+    @Test
+    void discardsInputNotMatchingAnyTransition() {
+        // Arrange
+        List<byte[]> capturedOutputs = new ArrayList<>();
+        StateMachine stateMachine = new StateMachine(new StateMachineConfiguration(
+                "S1",
+                Map.of("S1", List.of(new Transition("login\n", "ok", null), new Transition("logout\n", "bye", null))),
+                COMMAND_SUBSTITUTION_TIMEOUT
+        ), capturedOutputs::add);
+
+        // Act
+        stateMachine.onInput("noise".getBytes(StandardCharsets.US_ASCII));
+        stateMachine.onInput("xlogin\n".getBytes(StandardCharsets.US_ASCII));
+
+        // Assert
+        Assertions.assertEquals(1, capturedOutputs.size());
+        Assertions.assertArrayEquals("ok".getBytes(StandardCharsets.US_ASCII), capturedOutputs.getFirst());
+    }
+
+    @Test
+    void matchesCommandStartingWithinDiscardedInput() {
+        // Arrange
+        List<byte[]> capturedOutputs = new ArrayList<>();
+        StateMachine stateMachine = new StateMachine(new StateMachineConfiguration(
+                "S1",
+                Map.of("S1", List.of(new Transition("STATUS!", "ok", null))),
+                COMMAND_SUBSTITUTION_TIMEOUT
+        ), capturedOutputs::add);
+
+        // Act, a partial command followed by a retransmission
+        stateMachine.onInput("STA".getBytes(StandardCharsets.US_ASCII));
+        stateMachine.onInput("STATUS!".getBytes(StandardCharsets.US_ASCII));
+        stateMachine.onInput("STASTATUS!".getBytes(StandardCharsets.US_ASCII));
+
+        // Assert
+        Assertions.assertEquals(2, capturedOutputs.size());
+        Assertions.assertArrayEquals("ok".getBytes(StandardCharsets.US_ASCII), capturedOutputs.get(0));
+        Assertions.assertArrayEquals("ok".getBytes(StandardCharsets.US_ASCII), capturedOutputs.get(1));
+    }
+
+    @Test
+    void matchesEndOfInputAnchorAsIfByteByByte() {
+        // Arrange
+        List<byte[]> capturedOutputs = new ArrayList<>();
+        StateMachine stateMachine = new StateMachine(new StateMachineConfiguration(
+                "S1",
+                Map.of("S1", List.of(new Transition("STATUS!$", "ok", null))),
+                COMMAND_SUBSTITUTION_TIMEOUT
+        ), capturedOutputs::add);
+
+        // Act, two commands in one chunk
+        stateMachine.onInput("STATUS!STATUS!".getBytes(StandardCharsets.US_ASCII));
+
+        // Assert
+        Assertions.assertEquals(2, capturedOutputs.size());
+    }
+
+    @Test
+    void matchesEndOfInputBoundaryAsIfByteByByte() {
+        // Arrange
+        List<byte[]> capturedOutputs = new ArrayList<>();
+        StateMachine stateMachine = new StateMachine(new StateMachineConfiguration(
+                "S1",
+                Map.of("S1", List.of(new Transition("OK\\z", "ok", null))),
+                COMMAND_SUBSTITUTION_TIMEOUT
+        ), capturedOutputs::add);
+
+        // Act, two commands in one chunk, and noise before a retransmission
+        stateMachine.onInput("OKOK".getBytes(StandardCharsets.US_ASCII));
+        stateMachine.onInput("xOOK".getBytes(StandardCharsets.US_ASCII));
+
+        // Assert
+        Assertions.assertEquals(3, capturedOutputs.size());
+    }
+
+    @Test
+    void discardsLongFailedInputWithinBudget() {
+        // Arrange
+        List<byte[]> capturedOutputs = new ArrayList<>();
+        StateMachine stateMachine = new StateMachine(new StateMachineConfiguration(
+                "S1",
+                Map.of("S1", List.of(new Transition("[a-z]*!", "ok", null), new Transition("STATUS!", "status", null))),
+                COMMAND_SUBSTITUTION_TIMEOUT
+        ), capturedOutputs::add);
+        byte[] letters = new byte[StateMachineConfiguration.DEFAULT_MAX_BUFFER_LENGTH - 16];
+        Arrays.fill(letters, (byte) 'a');
+
+        // Act, letters that may all start a command, until a digit fails them all
+        Assertions.assertTimeout(Duration.ofSeconds(5), () -> { // Searching again from each letter would take quadratic time
+            stateMachine.onInput(letters);
+            stateMachine.onInput("1STATUS!".getBytes(StandardCharsets.US_ASCII));
+        });
+
+        // Assert
+        Assertions.assertEquals(1, capturedOutputs.size());
+        Assertions.assertArrayEquals("status".getBytes(StandardCharsets.US_ASCII), capturedOutputs.getFirst());
+    }
+
+    @Test
+    void literalAndRegexTransitionsMatchInOrder() {
+        // Arrange
+        List<byte[]> capturedOutputs = new ArrayList<>();
+        StateMachine stateMachine = new StateMachine(new StateMachineConfiguration(
+                "S1",
+                Map.of("S1", List.of(
+                        new Transition("STATUS!", "status", null),
+                        new Transition("S.*!", "any", null),
+                        new Transition("SET!", "set", null)
+                )),
+                COMMAND_SUBSTITUTION_TIMEOUT
+        ), capturedOutputs::add);
+
+        // Act
+        stateMachine.onInput("STATUS!SET!".getBytes(StandardCharsets.US_ASCII));
+
+        // Assert
+        Assertions.assertEquals(2, capturedOutputs.size());
+        Assertions.assertArrayEquals("status".getBytes(StandardCharsets.US_ASCII), capturedOutputs.get(0));
+        Assertions.assertArrayEquals("any".getBytes(StandardCharsets.US_ASCII), capturedOutputs.get(1));
+    }
+
+    @Test
+    void discardsOldestInputWhenBufferOverflows() {
+        // Arrange
+        List<byte[]> capturedOutputs = new ArrayList<>();
+        StateMachine stateMachine = new StateMachine(new StateMachineConfiguration(
+                "S1",
+                Map.of("S1", List.of(new Transition("x*y", "ok", null))),
+                COMMAND_SUBSTITUTION_TIMEOUT,
+                8,
+                BufferOverflow.DISCARD_OLDEST
+        ), capturedOutputs::add);
+
+        // Act
+        stateMachine.onInput("xxxxxxxxxxxx".getBytes(StandardCharsets.US_ASCII));
+        stateMachine.onInput("y".getBytes(StandardCharsets.US_ASCII));
+
+        // Assert
+        Assertions.assertEquals(1, capturedOutputs.size());
+        Assertions.assertArrayEquals("ok".getBytes(StandardCharsets.US_ASCII), capturedOutputs.getFirst());
+    }
+
+    @Test
+    void resetsBufferWhenOverflowing() {
+        // Arrange
+        List<byte[]> capturedOutputs = new ArrayList<>();
+        StateMachine stateMachine = new StateMachine(new StateMachineConfiguration(
+                "S1",
+                Map.of("S1", List.of(new Transition("<x*>", "ok", null))),
+                COMMAND_SUBSTITUTION_TIMEOUT,
+                8,
+                BufferOverflow.RESET
+        ), capturedOutputs::add);
+
+        // Act
+        stateMachine.onInput("<xxxxxxxxxx".getBytes(StandardCharsets.US_ASCII));
+        stateMachine.onInput(">".getBytes(StandardCharsets.US_ASCII));
+        Assertions.assertTrue(capturedOutputs.isEmpty()); // Start of input was discarded
+        stateMachine.onInput("<x>".getBytes(StandardCharsets.US_ASCII));
+
+        // Assert
+        Assertions.assertEquals(1, capturedOutputs.size());
+        Assertions.assertArrayEquals("ok".getBytes(StandardCharsets.US_ASCII), capturedOutputs.getFirst());
+    }
+
+    @Test
+    void disconnectsWhenBufferOverflows() {
+        // Arrange
+        AtomicInteger disconnects = new AtomicInteger();
+        StateMachine stateMachine = new StateMachine(new StateMachineConfiguration(
+                "S1",
+                Map.of("S1", List.of(new Transition("x*y", "ok", null))),
+                COMMAND_SUBSTITUTION_TIMEOUT,
+                8,
+                BufferOverflow.DISCONNECT
+        ), output -> {
+        }, disconnects::incrementAndGet);
+
+        // Act
+        stateMachine.onInput("xxxxxxxx".getBytes(StandardCharsets.US_ASCII));
+        Assertions.assertEquals(0, disconnects.get()); // Still within max length
+        stateMachine.onInput("x".getBytes(StandardCharsets.US_ASCII));
+
+        // Assert
+        Assertions.assertEquals(1, disconnects.get());
+    }
+
+    @Test
+    void rejectsInvalidInputRegex() {
+        // Act & Assert
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new StateMachineConfiguration(
+                "S1",
+                Map.of("S1", List.of(new Transition("(", "ok", null))),
+                COMMAND_SUBSTITUTION_TIMEOUT
+        ));
+    }
 }
\ No newline at end of file
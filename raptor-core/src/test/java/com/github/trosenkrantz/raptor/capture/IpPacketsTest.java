@@ -0,0 +1,63 @@
+package com.github.trosenkrantz.raptor.capture;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+class IpPacketsTest {
+    @Test
+    void ipv4HeaderChecksum() throws UnknownHostException {
+        // Arrange, the well-known example header 4500 0073 0000 4000 4011 b861 c0a8 0001 c0a8 00c7
+        InetSocketAddress source = new InetSocketAddress(InetAddress.getByAddress(new byte[]{(byte) 192, (byte) 168, 0, 1}), 50000);
+        InetSocketAddress destination = new InetSocketAddress(InetAddress.getByAddress(new byte[]{(byte) 192, (byte) 168, 0, (byte) 199}), 50001);
+        byte[] data = new byte[0x73 - 20 - 8];
+
+        // Act
+        byte[] packet = IpPackets.udp(source, destination, data, 0, data.length);
+
+        // Assert
+        Assertions.assertArrayEquals(new byte[]{
+                0x45, 0x00, 0x00, 0x73, 0x00, 0x00, 0x40, 0x00, 0x40, 0x11, (byte) 0xB8, 0x61,
+                (byte) 0xC0, (byte) 0xA8, 0x00, 0x01, (byte) 0xC0, (byte) 0xA8, 0x00, (byte) 0xC7
+        }, Arrays.copyOf(packet, 20));
+    }
+
+    @Test
+    void mapIpv4ToIpv6() throws UnknownHostException {
+        // Arrange
+        InetSocketAddress source = new InetSocketAddress(InetAddress.getByName("::1"), 50000);
+        InetSocketAddress destination = new InetSocketAddress(InetAddress.getByAddress(new byte[]{127, 0, 0, 1}), 50001);
+
+        // Act
+        byte[] packet = IpPackets.udp(source, destination, new byte[3], 0, 3);
+
+        // Assert
+        Assertions.assertEquals(40 + 8 + 3, packet.length);
+        Assertions.assertEquals(6, (packet[0] & 0xFF) >>> 4);
+        Assertions.assertEquals(8 + 3, ByteBuffer.wrap(packet).getShort(4)); // Payload length
+        Assertions.assertArrayEquals(new byte[]{0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 1}, Arrays.copyOfRange(packet, 8, 24));
+        Assertions.assertArrayEquals(new byte[]{0, 0, 0, 0, 0, 0, 0, 0, 0, 0, (byte) 0xFF, (byte) 0xFF, 127, 0, 0, 1}, Arrays.copyOfRange(packet, 24, 40));
+    }
+
+    @Test
+    void tcpSequenceNumbersWrap() throws UnknownHostException {
+        // Arrange
+        InetSocketAddress source = new InetSocketAddress(InetAddress.getByAddress(new byte[]{127, 0, 0, 1}), 50000);
+        InetSocketAddress destination = new InetSocketAddress(InetAddress.getByAddress(new byte[]{127, 0, 0, 2}), 50001);
+
+        // Act, numbers beyond 32 bits, as counted by a long stream
+        byte[] packet = IpPackets.tcp(source, destination, 0x1_0000_0005L, 0xFFFF_FFFFL, new byte[]{9}, new byte[]{1, 2, 3}, 1, 2);
+
+        // Assert
+        ByteBuffer buffer = ByteBuffer.wrap(packet);
+        Assertions.assertEquals(20 + 20 + 1 + 2, packet.length);
+        Assertions.assertEquals(5, buffer.getInt(20 + 4)); // Sequence number modulo 2^32
+        Assertions.assertEquals(-1, buffer.getInt(20 + 8)); // Acknowledgement number
+        Assertions.assertArrayEquals(new byte[]{9, 2, 3}, Arrays.copyOfRange(packet, 40, 43)); // Header before data
+    }
+}
@@ -0,0 +1,57 @@
+package com.github.trosenkrantz.raptor.capture;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+class PcapngWriterTest {
+    @Test
+    void writeAlignedBlocks() throws IOException {
+        // Arrange
+        Path path = Files.createTempFile("raptor", ".pcapng");
+        try {
+            PcapngWriter writer = new PcapngWriter(path);
+            int interfaceId = writer.addInterface(PcapngWriter.LINK_TYPE_RAW, "udp"); // Name needing padding
+
+            // Act
+            writer.addPacket(interfaceId, 0x1_0000_0002L, true, new byte[]{1, 2, 3, 4, 5}); // Data needing padding
+            writer.addPacket(interfaceId, 3, false, new byte[8]);
+            writer.close();
+
+            // Assert
+            ByteBuffer file = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+            List<Integer> types = new ArrayList<>();
+            List<Integer> starts = new ArrayList<>();
+            while (file.hasRemaining()) {
+                int start = file.position();
+                int type = file.getInt(start);
+                int length = file.getInt(start + 4);
+                Assertions.assertEquals(0, length % 4, "Block must be aligned to 32 bits");
+                Assertions.assertEquals(length, file.getInt(start + length - 4), "Block must end with its length");
+                types.add(type);
+                starts.add(start);
+                file.position(start + length);
+            }
+            Assertions.assertEquals(List.of(0x0A0D0D0A, 1, 6, 6), types); // Section header, interface, and two packets
+            Assertions.assertEquals(0x1A2B3C4D, file.getInt(8), "Section header must have the byte order magic");
+
+            int firstPacket = starts.get(2);
+            Assertions.assertEquals(interfaceId, file.getInt(firstPacket + 8));
+            Assertions.assertEquals(1, file.getInt(firstPacket + 12)); // High 32 bits of timestamp
+            Assertions.assertEquals(2, file.getInt(firstPacket + 16)); // Low 32 bits of timestamp
+            Assertions.assertEquals(5, file.getInt(firstPacket + 20)); // Captured length
+            Assertions.assertEquals(5, file.getInt(firstPacket + 24)); // Original length
+            Assertions.assertEquals(2, file.getInt(firstPacket + 28 + 8 + 4)); // Outbound flag, after the padded data and the option header
+            Assertions.assertEquals(1, file.getInt(starts.get(3) + 28 + 8 + 4)); // Inbound flag
+        } finally {
+            Files.delete(path);
+        }
+    }
+}
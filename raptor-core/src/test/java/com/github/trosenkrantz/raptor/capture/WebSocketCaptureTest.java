@@ -0,0 +1,44 @@
+package com.github.trosenkrantz.raptor.capture;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class WebSocketCaptureTest {
+    @Test
+    void encodeShortLength() {
+        // Act
+        byte[] header = WebSocketCapture.frameHeader(125, true, false);
+
+        // Assert
+        Assertions.assertArrayEquals(new byte[]{(byte) 0x81, 125}, header);
+    }
+
+    @Test
+    void encode16BitLength() {
+        // Act
+        byte[] smallest = WebSocketCapture.frameHeader(126, false, false);
+        byte[] largest = WebSocketCapture.frameHeader(65535, false, false);
+
+        // Assert
+        Assertions.assertArrayEquals(new byte[]{(byte) 0x82, 126, 0, 126}, smallest);
+        Assertions.assertArrayEquals(new byte[]{(byte) 0x82, 126, (byte) 0xFF, (byte) 0xFF}, largest);
+    }
+
+    @Test
+    void encode64BitLength() {
+        // Act
+        byte[] header = WebSocketCapture.frameHeader(65536, false, false);
+
+        // Assert
+        Assertions.assertArrayEquals(new byte[]{(byte) 0x82, 127, 0, 0, 0, 0, 0, 1, 0, 0}, header);
+    }
+
+    @Test
+    void maskWithZeroKey() {
+        // Act
+        byte[] header = WebSocketCapture.frameHeader(126, true, true);
+
+        // Assert
+        Assertions.assertArrayEquals(new byte[]{(byte) 0x81, (byte) (0x80 | 126), 0, 126, 0, 0, 0, 0}, header);
+    }
+}
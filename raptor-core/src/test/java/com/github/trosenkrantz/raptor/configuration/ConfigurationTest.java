@@ -4,9 +4,23 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.util.List;
+import java.util.Optional;
 
 
 class ConfigurationTest {
+    @Test
+    void readLongBeyondInt() {
+        // Arrange
+        Configuration config = Configuration.empty();
+        config.setLong("rate", 10_000_000_000L);
+        config.setInt("burst", 100);
+
+        // Act and Assert
+        Assertions.assertEquals(Optional.of(10_000_000_000L), config.getLong("rate"));
+        Assertions.assertEquals(Optional.of(100L), config.getLong("burst"));
+        Assertions.assertEquals(Optional.empty(), config.getInt("rate"));
+    }
+
     @Test
     void toJsonFormattingWithNestedObjects() {
         // Arrange
@@ -0,0 +1,56 @@
+package com.github.trosenkrantz.raptor.gateway;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class FanOutTest {
+    @Test
+    void sharesPayloadAcrossRoutes() {
+        // Arrange
+        List<Payload> first = new ArrayList<>();
+        List<Payload> second = new ArrayList<>();
+        List<Payload> third = new ArrayList<>();
+        FanOut fanOut = new FanOut("test", List.of(first::add, second::add, third::add));
+        Payload payload = Payload.wrap(new byte[]{1, 2, 3, 4});
+
+        // Act
+        fanOut.accept(payload);
+
+        // Assert
+        Assertions.assertSame(payload, first.getFirst());
+        Assertions.assertSame(payload, second.getFirst());
+        Assertions.assertSame(payload, third.getFirst());
+        payload.release();
+        payload.release();
+        payload.release();
+        Assertions.assertThrows(IllegalStateException.class, payload::release);
+    }
+
+    @Test
+    void routeModifyingPayloadDoesNotAffectOthers() {
+        // Arrange
+        List<byte[]> actual = new ArrayList<>();
+        FanOut fanOut = new FanOut("test", List.of(
+                payload -> {
+                    Payload mutable = payload.mutable();
+                    mutable.array()[0] = 9;
+                    actual.add(mutable.toBytes());
+                    mutable.release();
+                },
+                payload -> {
+                    actual.add(payload.toBytes());
+                    payload.release();
+                }
+        ));
+
+        // Act
+        fanOut.accept(Payload.wrap(new byte[]{1, 2}));
+
+        // Assert
+        Assertions.assertArrayEquals(new byte[]{9, 2}, actual.get(0));
+        Assertions.assertArrayEquals(new byte[]{1, 2}, actual.get(1));
+    }
+}
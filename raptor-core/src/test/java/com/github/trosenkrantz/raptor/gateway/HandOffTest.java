@@ -0,0 +1,76 @@
+package com.github.trosenkrantz.raptor.gateway;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+class HandOffTest {
+    @Test
+    void queuesUntilStarted() throws InterruptedException {
+        // Arrange
+        HandOff handOff = new HandOff("test", 4, OverflowPolicy.BLOCK);
+        List<Byte> actual = new CopyOnWriteArrayList<>();
+        CountDownLatch received = new CountDownLatch(3);
+
+        // Act
+        for (byte i = 0; i < 3; i++) {
+            handOff.accept(Payload.wrap(new byte[]{i}));
+        }
+        handOff.start(payload -> {
+            actual.add(payload.array()[0]);
+            received.countDown();
+        });
+
+        // Assert
+        Assertions.assertTrue(received.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(List.of((byte) 0, (byte) 1, (byte) 2), actual);
+    }
+
+    @Test
+    void dropNewest() throws InterruptedException {
+        // Arrange
+        HandOff handOff = new HandOff("test", 2, OverflowPolicy.DROP_NEWEST);
+        List<Byte> actual = new CopyOnWriteArrayList<>();
+        CountDownLatch received = new CountDownLatch(2);
+
+        // Act
+        for (byte i = 0; i < 4; i++) {
+            handOff.accept(Payload.wrap(new byte[]{i}));
+        }
+        handOff.start(payload -> {
+            actual.add(payload.array()[0]);
+            received.countDown();
+        });
+
+        // Assert
+        Assertions.assertTrue(received.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(List.of((byte) 0, (byte) 1), actual);
+        Assertions.assertEquals(2L, handOff.getDroppedNewest());
+    }
+
+    @Test
+    void dropOldest() throws InterruptedException {
+        // Arrange
+        HandOff handOff = new HandOff("test", 2, OverflowPolicy.DROP_OLDEST);
+        List<Byte> actual = new CopyOnWriteArrayList<>();
+        CountDownLatch received = new CountDownLatch(2);
+
+        // Act
+        for (byte i = 0; i < 4; i++) {
+            handOff.accept(Payload.wrap(new byte[]{i}));
+        }
+        handOff.start(payload -> {
+            actual.add(payload.array()[0]);
+            received.countDown();
+        });
+
+        // Assert
+        Assertions.assertTrue(received.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(List.of((byte) 2, (byte) 3), actual);
+        Assertions.assertEquals(2L, handOff.getDroppedOldest());
+    }
+}
@@ -0,0 +1,82 @@
+package com.github.trosenkrantz.raptor.gateway;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class PayloadTest {
+    @Test
+    void releasedPayloadIsReused() {
+        // Arrange
+        PayloadPool pool = new PayloadPool();
+        Payload first = pool.allocate(100);
+
+        // Act
+        first.release();
+        Payload second = pool.allocate(120);
+
+        // Assert
+        Assertions.assertSame(first, second);
+        Assertions.assertEquals(120, second.length());
+    }
+
+    @Test
+    void retainedPayloadIsNotReused() {
+        // Arrange
+        PayloadPool pool = new PayloadPool();
+        Payload first = pool.allocate(100);
+        first.retain();
+
+        // Act
+        first.release();
+        Payload second = pool.allocate(100);
+
+        // Assert
+        Assertions.assertNotSame(first, second);
+    }
+
+    @Test
+    void mutableCopiesSharedPayload() {
+        // Arrange
+        Payload shared = Payload.wrap(new byte[]{1, 2, 3});
+        shared.retain();
+
+        // Act
+        Payload mutable = shared.mutable();
+        mutable.array()[0] = 9;
+
+        // Assert
+        Assertions.assertNotSame(shared, mutable);
+        Assertions.assertArrayEquals(new byte[]{1, 2, 3}, shared.toBytes());
+        Assertions.assertArrayEquals(new byte[]{9, 2, 3}, mutable.toBytes());
+    }
+
+    @Test
+    void mutableReturnsSolelyOwnedPayload() {
+        // Arrange
+        Payload payload = Payload.wrap(new byte[]{1, 2, 3});
+
+        // Act
+        Payload mutable = payload.mutable();
+
+        // Assert
+        Assertions.assertSame(payload, mutable);
+    }
+
+    @Test
+    void releaseTooManyTimes() {
+        // Arrange
+        Payload payload = Payload.wrap(new byte[]{1, 2, 3});
+        payload.release();
+
+        // Act and Assert
+        Assertions.assertThrows(IllegalStateException.class, payload::release);
+    }
+
+    @Test
+    void sizeClasses() {
+        Assertions.assertEquals(0, PayloadPool.getSizeClass(1));
+        Assertions.assertEquals(0, PayloadPool.getSizeClass(64));
+        Assertions.assertEquals(1, PayloadPool.getSizeClass(65));
+        Assertions.assertEquals(10, PayloadPool.getSizeClass(65507));
+    }
+}
@@ -0,0 +1,85 @@
+package com.github.trosenkrantz.raptor.gateway;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+class RingBufferTest {
+    @Test
+    void capacityIsRoundedUpToPowerOfTwo() {
+        Assertions.assertEquals(8, new RingBuffer<Integer>(5).capacity());
+        Assertions.assertEquals(8, new RingBuffer<Integer>(8).capacity());
+        Assertions.assertEquals(1, new RingBuffer<Integer>(1).capacity());
+    }
+
+    @Test
+    void firstInFirstOutAcrossLaps() {
+        // Arrange
+        RingBuffer<Integer> ring = new RingBuffer<>(4);
+
+        // Act and Assert
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertTrue(ring.offer(i));
+            Assertions.assertTrue(ring.offer(i + 100));
+            Assertions.assertEquals(i, ring.poll());
+            Assertions.assertEquals(i + 100, ring.poll());
+        }
+        Assertions.assertNull(ring.poll());
+    }
+
+    @Test
+    void rejectsWhenFull() {
+        // Arrange
+        RingBuffer<Integer> ring = new RingBuffer<>(2);
+        ring.offer(1);
+        ring.offer(2);
+
+        // Act
+        boolean offered = ring.offer(3);
+
+        // Assert
+        Assertions.assertFalse(offered);
+        Assertions.assertEquals(2, ring.size());
+    }
+
+    @Test
+    void concurrentProducersLoseNothing() throws InterruptedException {
+        // Arrange
+        int producerCount = 4;
+        int perProducer = 100_000;
+        RingBuffer<Long> ring = new RingBuffer<>(64);
+        AtomicLong sum = new AtomicLong();
+
+        Thread consumer = new Thread(() -> {
+            long received = 0;
+            while (received < (long) producerCount * perProducer) {
+                Long value = ring.poll();
+                if (value == null) {
+                    Thread.onSpinWait();
+                } else {
+                    sum.addAndGet(value);
+                    received++;
+                }
+            }
+        });
+
+        Thread[] producers = new Thread[producerCount];
+        for (int p = 0; p < producerCount; p++) {
+            producers[p] = new Thread(() -> {
+                for (long i = 1; i <= perProducer; i++) {
+                    while (!ring.offer(i)) Thread.onSpinWait();
+                }
+            });
+        }
+
+        // Act
+        consumer.start();
+        for (Thread producer : producers) producer.start();
+        for (Thread producer : producers) producer.join();
+        consumer.join();
+
+        // Assert
+        Assertions.assertEquals(producerCount * ((long) perProducer * (perProducer + 1) / 2), sum.get());
+    }
+}
@@ -0,0 +1,124 @@
+package com.github.trosenkrantz.raptor.gateway.framing;
+
+import com.github.trosenkrantz.raptor.gateway.Payload;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+class FrameDecoderTest {
+    @Test
+    void lengthPrefixBigEndian() throws IOException {
+        // Arrange
+        FrameDecoder decoder = new FrameDecoder(new Framing(new LengthPrefixFramer(2, Endianness.BIG), 1024), 1024);
+        List<byte[]> actual = new ArrayList<>();
+
+        // Act
+        receive(decoder, actual, new byte[]{0, 1, 7, 0, 2, 8, 9, 0});
+
+        // Assert
+        Assertions.assertEquals(2, actual.size());
+        Assertions.assertArrayEquals(new byte[]{0, 1, 7}, actual.get(0));
+        Assertions.assertArrayEquals(new byte[]{0, 2, 8, 9}, actual.get(1));
+    }
+
+    @Test
+    void lengthPrefixLittleEndianAcrossReads() throws IOException {
+        // Arrange
+        FrameDecoder decoder = new FrameDecoder(new Framing(new LengthPrefixFramer(4, Endianness.LITTLE), 1024), 1024);
+        List<byte[]> actual = new ArrayList<>();
+
+        // Act
+        receive(decoder, actual, new byte[]{3, 0});
+        receive(decoder, actual, new byte[]{0, 0, 1, 2});
+        receive(decoder, actual, new byte[]{3});
+
+        // Assert
+        Assertions.assertEquals(1, actual.size());
+        Assertions.assertArrayEquals(new byte[]{3, 0, 0, 0, 1, 2, 3}, actual.get(0));
+    }
+
+    @Test
+    void delimiterSplitAcrossReads() throws IOException {
+        // Arrange
+        FrameDecoder decoder = new FrameDecoder(new Framing(new DelimiterFramer("\r\n".getBytes(StandardCharsets.US_ASCII)), 1024), 1024);
+        List<byte[]> actual = new ArrayList<>();
+
+        // Act
+        receive(decoder, actual, "ab\r".getBytes(StandardCharsets.US_ASCII));
+        receive(decoder, actual, "\ncd\r\nef".getBytes(StandardCharsets.US_ASCII));
+
+        // Assert
+        Assertions.assertEquals(2, actual.size());
+        Assertions.assertArrayEquals("ab\r\n".getBytes(StandardCharsets.US_ASCII), actual.get(0));
+        Assertions.assertArrayEquals("cd\r\n".getBytes(StandardCharsets.US_ASCII), actual.get(1));
+    }
+
+    @Test
+    void fixedLength() throws IOException {
+        // Arrange
+        FrameDecoder decoder = new FrameDecoder(new Framing(new FixedLengthFramer(3), 1024), 1024);
+        List<byte[]> actual = new ArrayList<>();
+
+        // Act
+        receive(decoder, actual, new byte[]{1, 2, 3, 4, 5, 6, 7});
+
+        // Assert
+        Assertions.assertEquals(2, actual.size());
+        Assertions.assertArrayEquals(new byte[]{4, 5, 6}, actual.get(1));
+    }
+
+    @Test
+    void growForLargeMessage() throws IOException {
+        // Arrange
+        FrameDecoder decoder = new FrameDecoder(new Framing(new FixedLengthFramer(10), 1024), 4);
+        List<byte[]> actual = new ArrayList<>();
+
+        // Act
+        for (byte i = 0; i < 10; i++) {
+            receive(decoder, actual, new byte[]{i});
+        }
+
+        // Assert
+        Assertions.assertEquals(1, actual.size());
+        Assertions.assertArrayEquals(new byte[]{0, 1, 2, 3, 4, 5, 6, 7, 8, 9}, actual.get(0));
+    }
+
+    @Test
+    void passOnAsRead() throws IOException {
+        // Arrange
+        FrameDecoder decoder = new FrameDecoder(new Framing(Framer.NONE, 4), 4);
+        List<byte[]> actual = new ArrayList<>();
+
+        // Act
+        receive(decoder, actual, new byte[]{1, 2});
+        receive(decoder, actual, new byte[]{3, 4});
+
+        // Assert
+        Assertions.assertEquals(2, actual.size());
+        Assertions.assertArrayEquals(new byte[]{3, 4}, actual.get(1));
+    }
+
+    @Test
+    void rejectTooLongMessage() {
+        // Arrange
+        FrameDecoder decoder = new FrameDecoder(new Framing(new LengthPrefixFramer(1, Endianness.BIG), 8), 8);
+
+        // Act & Assert
+        Assertions.assertThrows(IOException.class, () -> receive(decoder, new ArrayList<>(), new byte[]{100}));
+    }
+
+    /**
+     * Simulates reading data into the decoder, as an endpoint does.
+     */
+    private static void receive(FrameDecoder decoder, List<byte[]> actual, byte[] data) throws IOException {
+        System.arraycopy(data, 0, decoder.array(), decoder.getReadOffset(), data.length);
+        decoder.onReceived(data.length, payload -> {
+            actual.add(payload.toBytes());
+            payload.release();
+        });
+    }
+}
@@ -0,0 +1,52 @@
+package com.github.trosenkrantz.raptor.gateway.metrics;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class HistogramTest {
+    @Test
+    void bucketsAreContiguous() {
+        // Act & Assert
+        for (int bucket = 1; bucket < Histogram.BUCKET_COUNT; bucket++) {
+            long lowerBound = Histogram.getUpperBound(bucket - 1) + 1;
+            Assertions.assertEquals(bucket, Histogram.getBucket(lowerBound));
+            Assertions.assertEquals(bucket, Histogram.getBucket(Histogram.getUpperBound(bucket)));
+        }
+    }
+
+    @Test
+    void percentilesWithinPrecision() {
+        // Arrange
+        Histogram histogram = new Histogram();
+
+        // Act
+        for (long value = 1; value <= 1_000_000; value++) {
+            histogram.record(value);
+        }
+
+        // Assert
+        long median = histogram.getPercentile(50);
+        Assertions.assertTrue(median >= 500_000 && median <= 500_000 * 1.125, "Median was " + median);
+        long p99 = histogram.getPercentile(99);
+        Assertions.assertTrue(p99 >= 990_000 && p99 <= 990_000 * 1.125, "99th percentile was " + p99);
+        Assertions.assertEquals(1_000_000L, histogram.getMax());
+    }
+
+    @Test
+    void percentileOfInterval() {
+        // Arrange
+        Histogram histogram = new Histogram();
+        long[] previous = Histogram.newCounts();
+        long[] current = Histogram.newCounts();
+        histogram.record(1_000_000);
+        histogram.copyCounts(previous);
+
+        // Act
+        histogram.record(5);
+        histogram.copyCounts(current);
+
+        // Assert
+        Assertions.assertEquals(5L, Histogram.getPercentile(current, previous, 99));
+        Assertions.assertEquals(0L, Histogram.getPercentile(previous, previous, 99));
+    }
+}
@@ -1,5 +1,6 @@
 package com.github.trosenkrantz.raptor.gateway.network.impairment;
 
+import com.github.trosenkrantz.raptor.gateway.Payload;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -15,34 +16,34 @@ class CorruptionFactoryTest {
         byte[] expected = new byte[]{0, 1, 2, 3};
         double chance = 0;
 
-        AtomicReference<byte[]> actual = new AtomicReference<>();
-        Consumer<byte[]> consumer = new CorruptionFactory(chance).create(actual::set);
+        AtomicReference<Payload> actual = new AtomicReference<>();
+        Consumer<Payload> consumer = new CorruptionFactory(chance).create(actual::set);
 
         // Act
-        consumer.accept(input);
+        consumer.accept(Payload.wrap(input));
 
         // Assert
         Assertions.assertNotNull(actual.get());
-        Assertions.assertArrayEquals(expected, actual.get());
+        Assertions.assertArrayEquals(expected, actual.get().toBytes());
     }
 
     @Test
     void someChance() {
         // Arrange
         byte[] input = new byte[]{0, 1, 2, 3};
-        byte[] expected = new byte[]{0, 57, 3, 51}; // Recorded based on deterministic random seed
+        byte[] expected = new byte[]{-96, 17, -93, 7}; // Recorded based on deterministic random seed
         double chance = 0.2;
         Random random = new Random(0L);
 
-        AtomicReference<byte[]> actual = new AtomicReference<>();
-        Consumer<byte[]> consumer = new CorruptionFactory(chance, random).create(actual::set);
+        AtomicReference<Payload> actual = new AtomicReference<>();
+        Consumer<Payload> consumer = new CorruptionFactory(chance, random).create(actual::set);
 
         // Act
-        consumer.accept(input);
+        consumer.accept(Payload.wrap(input));
 
         // Assert
         Assertions.assertNotNull(actual.get());
-        Assertions.assertArrayEquals(expected, actual.get());
+        Assertions.assertArrayEquals(expected, actual.get().toBytes());
     }
 
     @Test
@@ -52,14 +53,77 @@ class CorruptionFactoryTest {
         byte[] expected = new byte[]{-1, -2, -3, -4};
         double chance = 1;
 
-        AtomicReference<byte[]> actual = new AtomicReference<>();
-        Consumer<byte[]> consumer = new CorruptionFactory(chance).create(actual::set);
+        AtomicReference<Payload> actual = new AtomicReference<>();
+        Consumer<Payload> consumer = new CorruptionFactory(chance).create(actual::set);
 
         // Act
-        consumer.accept(input);
+        consumer.accept(Payload.wrap(input));
 
         // Assert
         Assertions.assertNotNull(actual.get());
-        Assertions.assertArrayEquals(expected, actual.get());
+        Assertions.assertArrayEquals(expected, actual.get().toBytes());
+    }
+
+    @Test
+    void noErrorsDoesNotCopy() {
+        // Arrange
+        Payload input = Payload.wrap(new byte[]{0, 1, 2, 3});
+        input.retain(); // Shared, so corrupting would copy
+
+        AtomicReference<Payload> actual = new AtomicReference<>();
+        Consumer<Payload> consumer = new CorruptionFactory(0).create(actual::set);
+
+        // Act
+        consumer.accept(input);
+
+        // Assert
+        Assertions.assertSame(input, actual.get());
+    }
+
+    @Test
+    void rateOfFlips() {
+        // Arrange
+        int length = 1 << 20;
+        double chance = 0.001;
+        Random random = new Random(0L);
+
+        AtomicReference<Payload> actual = new AtomicReference<>();
+        Consumer<Payload> consumer = new CorruptionFactory(chance, random).create(actual::set);
+
+        // Act
+        consumer.accept(Payload.wrap(new byte[length]));
+
+        // Assert
+        long flips = 0;
+        for (byte aByte : actual.get().toBytes()) {
+            flips += Integer.bitCount(aByte & 0xFF);
+        }
+        double expectedFlips = length * 8 * chance;
+        Assertions.assertTrue(Math.abs(flips - expectedFlips) < expectedFlips * 0.05, "Flipped " + flips + " bits, expected about " + expectedFlips);
+    }
+
+    @Test
+    void burstsStartWithFlippedBit() {
+        // Arrange
+        byte[] input = new byte[64];
+        double chance = 1; // Bursts back to back
+        int burstLength = 8;
+        Random random = new Random(0L);
+
+        AtomicReference<Payload> actual = new AtomicReference<>();
+        Consumer<Payload> consumer = new CorruptionFactory(chance, burstLength, random).create(actual::set);
+
+        // Act
+        consumer.accept(Payload.wrap(input.clone()));
+
+        // Assert
+        byte[] output = actual.get().toBytes();
+        int flips = 0;
+        for (int i = 0; i < input.length; i++) {
+            int difference = (output[i] ^ input[i]) & 0xFF;
+            Assertions.assertEquals(1, difference & 1); // Each byte is a burst, starting with a flipped bit
+            flips += Integer.bitCount(difference);
+        }
+        Assertions.assertTrue(flips > input.length * 3 && flips < input.length * 6, "Flipped " + flips + " bits"); // About half of the other bits
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.github.trosenkrantz.raptor.gateway.network.impairment;
 
+import com.github.trosenkrantz.raptor.gateway.Payload;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -16,18 +17,18 @@ class DuplicationFactoryTest {
         int messageCount = 32;
         double chance = 0;
 
-        List<byte[]> actual = new ArrayList<>();
-        Consumer<byte[]> consumer = new DuplicationFactory(chance).create(actual::add);
+        List<Payload> actual = new ArrayList<>();
+        Consumer<Payload> consumer = new DuplicationFactory(chance).create(actual::add);
 
         List<byte[]> inputs = MessageGenerator.generateMessages(messageCount, messageLength);
 
         // Act
-        inputs.forEach(consumer);
+        inputs.forEach(input -> consumer.accept(Payload.wrap(input)));
 
         // Assert
         Assertions.assertEquals(messageCount, actual.size());
         for (int i = 0; i < messageCount; i++) {
-            Assertions.assertArrayEquals(inputs.get(i), actual.get(i), "Payload with index " + i + " should match expected result");
+            Assertions.assertArrayEquals(inputs.get(i), actual.get(i).toBytes(), "Payload with index " + i + " should match expected result");
         }
     }
 
@@ -40,13 +41,13 @@ class DuplicationFactoryTest {
         int exceptedMessageCount = 41; // Recorded based on deterministic random seed
         double chance = 0.2;
 
-        List<byte[]> actual = new ArrayList<>();
-        Consumer<byte[]> consumer = new DuplicationFactory(chance, random).create(actual::add);
+        List<Payload> actual = new ArrayList<>();
+        Consumer<Payload> consumer = new DuplicationFactory(chance, random).create(actual::add);
 
         List<byte[]> inputs = MessageGenerator.generateMessages(messageCount, messageLength);
 
         // Act
-        inputs.forEach(consumer);
+        inputs.forEach(input -> consumer.accept(Payload.wrap(input)));
 
         // Assert
         Assertions.assertEquals(exceptedMessageCount, actual.size());
@@ -60,13 +61,13 @@ class DuplicationFactoryTest {
         int exceptedMessageCount = messageCount * 9; // 1 original + 8 duplicates per message
         double chance = 1;
 
-        List<byte[]> actual = new ArrayList<>();
-        Consumer<byte[]> consumer = new DuplicationFactory(chance).create(actual::add);
+        List<Payload> actual = new ArrayList<>();
+        Consumer<Payload> consumer = new DuplicationFactory(chance).create(actual::add);
 
         List<byte[]> inputs = MessageGenerator.generateMessages(messageCount, messageLength);
 
         // Act
-        inputs.forEach(consumer);
+        inputs.forEach(input -> consumer.accept(Payload.wrap(input)));
 
         // Assert
         Assertions.assertEquals(exceptedMessageCount, actual.size());
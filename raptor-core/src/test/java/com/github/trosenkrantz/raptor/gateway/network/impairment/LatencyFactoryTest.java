@@ -1,10 +1,18 @@
 package com.github.trosenkrantz.raptor.gateway.network.impairment;
 
 import com.github.trosenkrantz.raptor.configuration.IntegerInterval;
+import com.github.trosenkrantz.raptor.gateway.Payload;
+import com.github.trosenkrantz.raptor.gateway.metrics.RouteMetrics;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 class LatencyFactoryTest {
     @Test
@@ -15,7 +23,7 @@ class LatencyFactoryTest {
         Random random = new Random(0L);
         int tries = 32;
 
-        LatencyFactory latencyFactory = new LatencyFactory(new IntegerInterval(min, max), random);
+        LatencyFactory latencyFactory = new LatencyFactory(new IntegerInterval(min, max), random, new TimingWheel("test", TimingWheel.DEFAULT_TICK_NANOS), new RouteMetrics("test"));
 
         // Act and Assert
         for (int i = 0; i < tries; i++) {
@@ -23,4 +31,29 @@ class LatencyFactoryTest {
             Assertions.assertTrue(actual >= min && actual <= max, "Calculated latency must be within the inclusive range [" + min + ", " + max + "]");
         }
     }
+
+    @Test
+    void preserveOrder() throws InterruptedException {
+        // Arrange
+        int messageCount = 64;
+        List<Byte> actual = new CopyOnWriteArrayList<>();
+        CountDownLatch received = new CountDownLatch(messageCount);
+        Consumer<Payload> consumer = new LatencyFactory(new IntegerInterval(0, 20), LatencyOrder.PRESERVE, new Random(0L), new TimingWheel("test", TimingWheel.DEFAULT_TICK_NANOS), new RouteMetrics("test")).create(payload -> {
+            actual.add(payload.array()[0]);
+            received.countDown();
+        });
+
+        // Act
+        for (int i = 0; i < messageCount; i++) {
+            consumer.accept(Payload.wrap(new byte[]{(byte) i}));
+        }
+
+        // Assert
+        Assertions.assertTrue(received.await(5, TimeUnit.SECONDS));
+        List<Byte> expected = new ArrayList<>();
+        for (int i = 0; i < messageCount; i++) {
+            expected.add((byte) i);
+        }
+        Assertions.assertEquals(expected, actual);
+    }
 }
\ No newline at end of file
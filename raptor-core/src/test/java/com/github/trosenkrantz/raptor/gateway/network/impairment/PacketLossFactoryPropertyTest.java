@@ -1,5 +1,7 @@
 package com.github.trosenkrantz.raptor.gateway.network.impairment;
 
+import com.github.trosenkrantz.raptor.gateway.Payload;
+import com.github.trosenkrantz.raptor.gateway.metrics.RouteMetrics;
 import net.jqwik.api.ForAll;
 import net.jqwik.api.Property;
 import net.jqwik.api.constraints.DoubleRange;
@@ -12,25 +14,25 @@ import static org.junit.jupiter.api.Assertions.*;
 class PacketLossFactoryPropertyTest {
     @Property
     void packetLossZeroProbabilityDropsNothing(@ForAll byte[] payload) {
-        PacketLossFactory factory = new PacketLossFactory(0.0, new Random());
-        List<byte[]> received = new ArrayList<>();
-        Consumer<byte[]> consumer = received::add;
-        Consumer<byte[]> impairedConsumer = factory.create(consumer);
+        PacketLossFactory factory = new PacketLossFactory(0.0, new Random(), new RouteMetrics("test"));
+        List<Payload> received = new ArrayList<>();
+        Consumer<Payload> consumer = received::add;
+        Consumer<Payload> impairedConsumer = factory.create(consumer);
 
-        impairedConsumer.accept(payload);
+        impairedConsumer.accept(Payload.wrap(payload));
 
         assertEquals(1, received.size());
-        assertArrayEquals(payload, received.get(0));
+        assertArrayEquals(payload, received.get(0).toBytes());
     }
 
     @Property
     void packetLossOneProbabilityDropsEverything(@ForAll byte[] payload) {
-        PacketLossFactory factory = new PacketLossFactory(1.0, new Random());
-        List<byte[]> received = new ArrayList<>();
-        Consumer<byte[]> consumer = received::add;
-        Consumer<byte[]> impairedConsumer = factory.create(consumer);
+        PacketLossFactory factory = new PacketLossFactory(1.0, new Random(), new RouteMetrics("test"));
+        List<Payload> received = new ArrayList<>();
+        Consumer<Payload> consumer = received::add;
+        Consumer<Payload> impairedConsumer = factory.create(consumer);
 
-        impairedConsumer.accept(payload);
+        impairedConsumer.accept(Payload.wrap(payload));
 
         assertEquals(0, received.size());
     }
@@ -1,5 +1,7 @@
 package com.github.trosenkrantz.raptor.gateway.network.impairment;
 
+import com.github.trosenkrantz.raptor.gateway.Payload;
+import com.github.trosenkrantz.raptor.gateway.metrics.RouteMetrics;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -18,15 +20,66 @@ class PacketLossFactoryTest {
         int exceptedMessageCount = 26; // Recorded based on deterministic random seed
         double chance = 0.2;
 
-        List<byte[]> actual = new ArrayList<>();
-        Consumer<byte[]> consumer = new PacketLossFactory(chance, random).create(actual::add);
+        List<Payload> actual = new ArrayList<>();
+        RouteMetrics metrics = new RouteMetrics("test");
+        Consumer<Payload> consumer = new PacketLossFactory(chance, random, metrics).create(actual::add);
 
         List<byte[]> inputs = MessageGenerator.generateMessages(messageCount, messageLength);
 
         // Act
-        inputs.forEach(consumer);
+        inputs.forEach(input -> consumer.accept(Payload.wrap(input)));
 
         // Assert
         Assertions.assertEquals(exceptedMessageCount, actual.size());
+        Assertions.assertEquals((long) (messageCount - exceptedMessageCount), metrics.getDroppedByPacketLoss());
+    }
+
+    @Test
+    void stuckInBadState() {
+        // Arrange
+        BurstLoss model = new BurstLoss(1, 0, 0, 1); // Moves to the bad state after the first packet and never leaves
+        List<Payload> actual = new ArrayList<>();
+        Consumer<Payload> consumer = new PacketLossFactory(model, new Random(0L), new RouteMetrics("test")).create(actual::add);
+
+        // Act
+        for (int i = 0; i < 10; i++) {
+            consumer.accept(Payload.wrap(new byte[]{(byte) i}));
+        }
+
+        // Assert
+        Assertions.assertEquals(1, actual.size());
+        Assertions.assertEquals((byte) 0, actual.getFirst().array()[0]);
+    }
+
+    @Test
+    void burstLossRateAndLength() {
+        // Arrange
+        double goodToBad = 0.01;
+        double badToGood = 0.1;
+        BurstLoss model = new BurstLoss(goodToBad, badToGood, 0, 1);
+        int messageCount = 200_000;
+        boolean[] passed = new boolean[messageCount];
+        int[] index = new int[1];
+        Consumer<Payload> consumer = new PacketLossFactory(model, new Random(0L), new RouteMetrics("test")).create(payload -> passed[index[0]] = true);
+
+        // Act
+        for (index[0] = 0; index[0] < messageCount; index[0]++) {
+            consumer.accept(Payload.wrap(new byte[1]));
+        }
+
+        // Assert
+        int lost = 0;
+        int bursts = 0;
+        for (int i = 0; i < messageCount; i++) {
+            if (!passed[i]) {
+                lost++;
+                if (i == 0 || passed[i - 1]) bursts++;
+            }
+        }
+        double expectedLossRate = goodToBad / (goodToBad + badToGood); // Share of time in the bad state
+        double lossRate = (double) lost / messageCount;
+        double meanBurstLength = (double) lost / bursts;
+        Assertions.assertTrue(Math.abs(lossRate - expectedLossRate) < expectedLossRate * 0.1, "Loss rate was " + lossRate + ", expected about " + expectedLossRate);
+        Assertions.assertTrue(Math.abs(meanBurstLength - 1 / badToGood) < 1, "Mean burst length was " + meanBurstLength + ", expected about " + 1 / badToGood);
     }
 }
\ No newline at end of file
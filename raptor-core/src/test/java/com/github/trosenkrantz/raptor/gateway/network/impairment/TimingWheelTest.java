@@ -0,0 +1,80 @@
+package com.github.trosenkrantz.raptor.gateway.network.impairment;
+
+import com.github.trosenkrantz.raptor.gateway.Payload;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+class TimingWheelTest {
+    @Test
+    void passesOnInDeadlineOrder() throws InterruptedException {
+        // Arrange
+        TimingWheel timingWheel = new TimingWheel("test", TimingWheel.DEFAULT_TICK_NANOS);
+        List<Byte> actual = new CopyOnWriteArrayList<>();
+        CountDownLatch received = new CountDownLatch(3);
+
+        // Act
+        long now = System.nanoTime();
+        timingWheel.scheduleAt(Payload.wrap(new byte[]{3}), payload -> {
+            actual.add(payload.array()[0]);
+            received.countDown();
+        }, now + 30_000_000L);
+        timingWheel.scheduleAt(Payload.wrap(new byte[]{1}), payload -> {
+            actual.add(payload.array()[0]);
+            received.countDown();
+        }, now + 10_000_000L);
+        timingWheel.scheduleAt(Payload.wrap(new byte[]{2}), payload -> {
+            actual.add(payload.array()[0]);
+            received.countDown();
+        }, now + 20_000_000L);
+
+        // Assert
+        Assertions.assertTrue(received.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(List.of((byte) 1, (byte) 2, (byte) 3), actual);
+    }
+
+    @Test
+    void doesNotPassOnEarly() throws InterruptedException {
+        // Arrange
+        TimingWheel timingWheel = new TimingWheel("test", TimingWheel.DEFAULT_TICK_NANOS);
+        long delay = 50_000_000L;
+        CountDownLatch received = new CountDownLatch(1);
+        long[] receivedAt = new long[1];
+
+        // Act
+        long scheduledAt = System.nanoTime();
+        timingWheel.schedule(Payload.wrap(new byte[]{0}), payload -> {
+            receivedAt[0] = System.nanoTime();
+            received.countDown();
+        }, delay);
+
+        // Assert
+        Assertions.assertTrue(received.await(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(receivedAt[0] - scheduledAt >= delay, "Payload must not be passed on before its delay");
+    }
+
+    @Test
+    void delaysLongerThanOneLap() throws InterruptedException {
+        // Arrange
+        long tick = 100_000L; // A lap of 4096 ticks is then about 410 ms
+        TimingWheel timingWheel = new TimingWheel("test", tick);
+        long delay = 600_000_000L;
+        CountDownLatch received = new CountDownLatch(1);
+        long[] receivedAt = new long[1];
+
+        // Act
+        long scheduledAt = System.nanoTime();
+        timingWheel.schedule(Payload.wrap(new byte[]{0}), payload -> {
+            receivedAt[0] = System.nanoTime();
+            received.countDown();
+        }, delay);
+
+        // Assert
+        Assertions.assertTrue(received.await(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(receivedAt[0] - scheduledAt >= delay, "Payload must not be passed on in an earlier lap");
+    }
+}
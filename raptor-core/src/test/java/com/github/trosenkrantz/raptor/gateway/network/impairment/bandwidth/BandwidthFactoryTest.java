@@ -0,0 +1,205 @@
+package com.github.trosenkrantz.raptor.gateway.network.impairment.bandwidth;
+
+import com.github.trosenkrantz.raptor.gateway.Payload;
+import com.github.trosenkrantz.raptor.gateway.metrics.RouteMetrics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+class BandwidthFactoryTest {
+    @Test
+    void paceAndTailDrop() throws InterruptedException {
+        // Arrange
+        RouteMetrics metrics = new RouteMetrics("test");
+        List<Byte> actual = new CopyOnWriteArrayList<>();
+        CountDownLatch received = new CountDownLatch(2);
+        Consumer<Payload> consumer = new BandwidthFactory(new Bandwidth(8_000, 0, 0, 100, QueueDiscipline.FIFO), metrics).create(payload -> { // 1 ms per byte
+            actual.add(payload.array()[0]);
+            received.countDown();
+        });
+        long start = System.nanoTime();
+
+        // Act
+        for (int i = 0; i < 3; i++) {
+            consumer.accept(Payload.wrap(new byte[]{(byte) i, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0})); // 40 ms each
+        }
+
+        // Assert
+        Assertions.assertTrue(received.await(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(System.nanoTime() - start >= 80_000_000L, "Messages must be paced");
+        Assertions.assertEquals(List.of((byte) 0, (byte) 1), actual);
+        Assertions.assertEquals(1L, metrics.getDroppedByBandwidth()); // Third message would be queued for 120 ms
+    }
+
+    @Test
+    void subNanosecondPrecision() {
+        // Arrange
+        BandwidthFactory factory = new BandwidthFactory(new Bandwidth(10_000_000_000L, 0, 0, 100, QueueDiscipline.FIFO), new RouteMetrics("test")); // 0.8 ns per byte
+
+        // Act
+        long duration = (factory.getTransmissionDuration(1) * 1_000_000) >> BandwidthFactory.FRACTION_BITS;
+
+        // Assert
+        Assertions.assertTrue(Math.abs(duration - 800_000) < 800, "A million bytes must take 800 us, but took " + duration + " ns");
+    }
+
+    @Test
+    void limitPacketRate() {
+        // Arrange
+        RouteMetrics metrics = new RouteMetrics("test");
+        AtomicInteger passed = new AtomicInteger();
+        Consumer<Payload> consumer = new BandwidthFactory(new Bandwidth(0, 10, 0, 950, QueueDiscipline.FIFO), metrics).create(payload -> passed.incrementAndGet()); // 100 ms per message, so adding all takes far less than one
+
+        // Act
+        for (int i = 0; i < 20; i++) {
+            consumer.accept(Payload.wrap(new byte[1]));
+        }
+
+        // Assert
+        Assertions.assertEquals(11L, metrics.getDroppedByBandwidth()); // Only 9 messages fit within the 950 ms queue
+    }
+
+    @Test
+    void burstAfterIdlingBeyondFixedPointRange() {
+        // Arrange
+        RouteMetrics metrics = new RouteMetrics("test");
+        AtomicInteger passed = new AtomicInteger();
+        AtomicLong clock = new AtomicLong();
+        Consumer<Payload> consumer = new BandwidthFactory(new Bandwidth(8_000, 0, 100, 100, QueueDiscipline.FIFO), metrics, clock::get).create(payload -> passed.incrementAndGet()); // 1 ms per byte
+        clock.set(1_000_000_000L);
+        consumer.accept(Payload.wrap(new byte[40])); // Bursts, as idle for a second
+
+        // Act, idle for a second longer than fixed-point time differences can represent
+        clock.addAndGet((1L << (Long.SIZE - 1 - BandwidthFactory.FRACTION_BITS)) + 1_000_000_000L);
+        consumer.accept(Payload.wrap(new byte[40]));
+
+        // Assert
+        Assertions.assertEquals(2, passed.get());
+        Assertions.assertEquals(0L, metrics.getDroppedByBandwidth());
+    }
+
+    @Test
+    void transmitAfterIdlingBeyondFixedPointRangeWithFairQueueing() throws InterruptedException {
+        // Arrange
+        BlockingQueue<Payload> transmitted = new LinkedBlockingQueue<>();
+        AtomicLong clock = new AtomicLong();
+        Consumer<Payload> consumer = new BandwidthFactory(new Bandwidth(8_000, 0, 100, 100, QueueDiscipline.FAIR), new RouteMetrics("test"), clock::get).create(transmitted::add); // 1 ms per byte
+        clock.set(1_000_000_000L);
+        consumer.accept(createPayload(40, 1)); // Bursts, as idle for a second
+        Assertions.assertNotNull(transmitted.poll(5, TimeUnit.SECONDS));
+
+        // Act, idle for a second longer than fixed-point time differences can represent
+        clock.addAndGet((1L << (Long.SIZE - 1 - BandwidthFactory.FRACTION_BITS)) + 1_000_000_000L);
+        consumer.accept(createPayload(40, 1));
+
+        // Assert, rather than the link waiting for the time differences to wrap around again
+        Assertions.assertNotNull(transmitted.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void shareFairlyBetweenFlows() throws InterruptedException {
+        // Arrange
+        List<Integer> actual = new CopyOnWriteArrayList<>();
+        CountDownLatch received = new CountDownLatch(12);
+        Consumer<Payload> consumer = new BandwidthFactory(new Bandwidth(0, 200, 0, 1000, QueueDiscipline.FAIR), new RouteMetrics("test")).create(payload -> { // 5 ms per message
+            actual.add(payload.flow());
+            received.countDown();
+        });
+
+        // Act, a chatty flow sending before a quiet one
+        for (int i = 0; i < 50; i++) {
+            consumer.accept(createPayload(1_000, 1));
+        }
+        for (int i = 0; i < 5; i++) {
+            consumer.accept(createPayload(1_000, 2));
+        }
+
+        // Assert, the flows take turns, each sending up to a quantum of bytes per turn
+        Assertions.assertTrue(received.await(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(5L, actual.subList(0, 12).stream().filter(flow -> flow == 2).count());
+    }
+
+    @Test
+    void boundQueueWhileLinkIsBusy() throws InterruptedException {
+        // Arrange
+        RouteMetrics metrics = new RouteMetrics("test");
+        Consumer<Payload> consumer = new BandwidthFactory(new Bandwidth(8_000, 0, 0, 100, QueueDiscipline.FAIR), metrics).create(Payload::release); // 1 ms per byte
+
+        // Act, keeping the link thread busy transmitting for 50 ms while producers add 400 ms of messages
+        consumer.accept(createPayload(50, 1));
+        Thread.sleep(10);
+        for (int i = 0; i < 10; i++) {
+            consumer.accept(createPayload(40, 2));
+        }
+
+        // Assert, messages beyond the 100 ms queue are dropped right away, not when the link thread gets to them
+        Assertions.assertEquals(8L, metrics.getDroppedByBandwidth());
+    }
+
+    @Test
+    void dropPersistentlyQueuedWithCodel() throws InterruptedException {
+        // Arrange
+        int messageCount = 50;
+        RouteMetrics metrics = new RouteMetrics("test");
+        AtomicInteger passed = new AtomicInteger();
+        Consumer<Payload> consumer = new BandwidthFactory(new Bandwidth(0, 100, 0, 1000, QueueDiscipline.FAIR_CODEL), metrics).create(payload -> passed.incrementAndGet()); // 10 ms per message
+
+        // Act, queueing 500 ms of messages, which fits within the queue, but stays above the CoDel target for longer than its interval
+        for (int i = 0; i < messageCount; i++) {
+            consumer.accept(createPayload(2_000, 1));
+        }
+
+        // Assert
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (passed.get() + metrics.getDroppedByBandwidth() < messageCount && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Assertions.assertEquals((long) messageCount, passed.get() + metrics.getDroppedByBandwidth());
+        Assertions.assertTrue(metrics.getDroppedByBandwidth() > 0, "CoDel must drop messages");
+    }
+
+    @Test
+    void admitFromSeveralThreads() throws InterruptedException {
+        // Arrange
+        int threadCount = 8;
+        int messagesPerThread = 10_000;
+        RouteMetrics metrics = new RouteMetrics("test");
+        AtomicInteger passed = new AtomicInteger();
+        Consumer<Payload> consumer = new BandwidthFactory(new Bandwidth(1_000_000_000, 0, 10, 10, QueueDiscipline.FIFO), metrics).create(payload -> passed.incrementAndGet());
+        Thread[] threads = new Thread[threadCount];
+
+        // Act
+        for (int i = 0; i < threadCount; i++) {
+            threads[i] = Thread.ofPlatform().start(() -> {
+                for (int j = 0; j < messagesPerThread; j++) {
+                    consumer.accept(Payload.wrap(new byte[1_000]));
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Assert, every message is either passed on or dropped, exactly once
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (passed.get() + metrics.getDroppedByBandwidth() < (long) threadCount * messagesPerThread && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        Assertions.assertEquals((long) threadCount * messagesPerThread, passed.get() + metrics.getDroppedByBandwidth());
+    }
+
+    private static Payload createPayload(int length, int flow) {
+        Payload payload = Payload.wrap(new byte[length]);
+        payload.setFlow(flow);
+        return payload;
+    }
+}
@@ -0,0 +1,64 @@
+package com.github.trosenkrantz.raptor.gateway.network.impairment.reorder;
+
+import com.github.trosenkrantz.raptor.gateway.Payload;
+import com.github.trosenkrantz.raptor.gateway.network.impairment.TimingWheel;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+class ReorderFactoryTest {
+    @Test
+    void zeroChance() {
+        // Arrange
+        List<Integer> actual = new ArrayList<>();
+        Consumer<Payload> consumer = new ReorderFactory(new Reordering(0, 3, 100), new Random(0L), new TimingWheel("test", TimingWheel.DEFAULT_TICK_NANOS)).create(payload -> actual.add((int) payload.array()[0]));
+
+        // Act
+        for (int i = 0; i < 16; i++) {
+            consumer.accept(Payload.wrap(new byte[]{(byte) i}));
+        }
+
+        // Assert
+        Assertions.assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15), actual);
+    }
+
+    @Test
+    void boundedDepth() throws InterruptedException {
+        // Arrange
+        int messageCount = 1000;
+        int depth = 3;
+        List<Integer> actual = new CopyOnWriteArrayList<>();
+        CountDownLatch received = new CountDownLatch(messageCount);
+        Consumer<Payload> consumer = new ReorderFactory(new Reordering(0.5, depth, 10), new Random(0L), new TimingWheel("test", TimingWheel.DEFAULT_TICK_NANOS)).create(payload -> {
+            actual.add(((payload.array()[0] & 0xFF) << 8) | (payload.array()[1] & 0xFF));
+            received.countDown();
+        });
+
+        // Act
+        for (int i = 0; i < messageCount; i++) {
+            consumer.accept(Payload.wrap(new byte[]{(byte) (i >>> 8), (byte) i}));
+        }
+
+        // Assert
+        Assertions.assertTrue(received.await(5, TimeUnit.SECONDS)); // Also the last ones, flushed when no more messages arrive
+        Assertions.assertEquals(messageCount, actual.size());
+        boolean reordered = false;
+        for (int position = 0; position < messageCount; position++) {
+            int message = actual.get(position);
+            int laterMessagesBefore = 0;
+            for (int before = 0; before < position; before++) {
+                if (actual.get(before) > message) laterMessagesBefore++;
+            }
+            Assertions.assertTrue(laterMessagesBefore <= depth, "Message " + message + " was passed by " + laterMessagesBefore + " messages");
+            if (laterMessagesBefore > 0) reordered = true;
+        }
+        Assertions.assertTrue(reordered);
+    }
+}
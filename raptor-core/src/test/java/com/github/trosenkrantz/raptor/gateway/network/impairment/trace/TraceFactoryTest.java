@@ -0,0 +1,60 @@
+package com.github.trosenkrantz.raptor.gateway.network.impairment.trace;
+
+import com.github.trosenkrantz.raptor.gateway.Payload;
+import com.github.trosenkrantz.raptor.gateway.metrics.RouteMetrics;
+import com.github.trosenkrantz.raptor.gateway.network.impairment.TimingWheel;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+class TraceFactoryTest {
+    @Test
+    void replayAndStartOver() throws IOException {
+        // Arrange
+        Path path = Files.createTempFile("raptor", ".trace");
+        try {
+            TraceFile.write(path, List.of(
+                    new TraceRecord(0, false, -1),
+                    new TraceRecord(0, true, -1),
+                    new TraceRecord(0, false, 9)
+            ));
+            List<byte[]> actual = new ArrayList<>();
+            RouteMetrics metrics = new RouteMetrics("test");
+            Consumer<Payload> consumer = new TraceFactory(TraceFile.open(path), new TimingWheel("test", TimingWheel.DEFAULT_TICK_NANOS), metrics).create(payload -> actual.add(payload.toBytes()));
+
+            // Act
+            for (int i = 0; i < 4; i++) {
+                consumer.accept(Payload.wrap(new byte[]{0, 0}));
+            }
+
+            // Assert
+            Assertions.assertEquals(3, actual.size());
+            Assertions.assertArrayEquals(new byte[]{0, 0}, actual.get(0));
+            Assertions.assertArrayEquals(new byte[]{0, 2}, actual.get(1)); // Bit 9 is the second bit of the second byte
+            Assertions.assertArrayEquals(new byte[]{0, 0}, actual.get(2)); // Started over
+            Assertions.assertEquals(1L, metrics.getDroppedByPacketLoss());
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    void rejectNonTrace() throws IOException {
+        // Arrange
+        Path path = Files.createTempFile("raptor", ".trace");
+        try {
+            Files.write(path, new byte[]{1, 2, 3, 4, 5, 6, 7, 8});
+
+            // Act and Assert
+            Assertions.assertThrows(IllegalArgumentException.class, () -> TraceFile.open(path));
+        } finally {
+            Files.delete(path);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.github.trosenkrantz.raptor.logging;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+class PayloadLogTest {
+    @AfterEach
+    void tearDown() {
+        PayloadLog.configure(new String[0]);
+    }
+
+    @Test
+    void formatsTypeAndContext() {
+        // Arrange
+        byte[] data = "Hello".getBytes(StandardCharsets.US_ASCII);
+
+        // Act
+        String message = PayloadLog.format("Received", data, data.length, null, () -> " from 127.0.0.1:50000", 0);
+
+        // Assert
+        Assertions.assertEquals("Received text from 127.0.0.1:50000: Hello", message);
+    }
+
+    @Test
+    void formatsBytes() {
+        // Arrange
+        byte[] data = new byte[]{0x00, 0x48};
+
+        // Act
+        String message = PayloadLog.format("Sent", data, data.length, null, null, 0);
+
+        // Assert
+        Assertions.assertEquals("Sent bytes: \\\\x00\\\\x48", message);
+    }
+
+    @Test
+    void truncatesToLimit() {
+        // Arrange
+        byte[] data = "Hello, World!".getBytes(StandardCharsets.US_ASCII);
+
+        // Act
+        String message = PayloadLog.format("Received", data, data.length, null, null, 5);
+
+        // Assert
+        Assertions.assertEquals("Received text: Hello ... (truncated 8 of 13 B)", message);
+    }
+
+    @Test
+    void samplesEveryNthMessage() {
+        // Arrange
+        PayloadLog.configure(0, 3, 0);
+
+        // Act
+        int sampled = 0;
+        for (int i = 0; i < 9; i++) {
+            if (PayloadLog.isSampled()) sampled++;
+        }
+
+        // Assert
+        Assertions.assertEquals(3, sampled);
+    }
+
+    @Test
+    void limitsRateToBurstOfOneSecond() {
+        // Arrange
+        PayloadLog.configure(0, 1, 10);
+
+        // Act
+        int sampled = 0;
+        for (int i = 0; i < 100; i++) {
+            if (PayloadLog.isSampled()) sampled++;
+        }
+
+        // Assert
+        Assertions.assertEquals(10, sampled);
+    }
+
+    @Test
+    void rejectsInvalidArgument() {
+        // Act & Assert
+        Assertions.assertThrows(IllegalArgumentException.class, () -> PayloadLog.configure(new String[]{"--log-every=0"}));
+    }
+}
@@ -3,4 +3,4 @@ plugins {
 }
 
 rootProject.name = "raptor"
-include("raptor-core", "integration-tests")
+include("raptor-core", "integration-tests", "benchmarks")